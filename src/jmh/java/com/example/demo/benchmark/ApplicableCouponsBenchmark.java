@@ -0,0 +1,75 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.ApplicableCouponDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 列出購物車可用優惠券的時間。系統中有 {@code couponCount} 張優惠券，一半是限定單一產品的百分比優惠，
+ * 一半是門檻遞增的滿額折；購物車有 10 項商品。耗時應只與購物車相關的候選券數有關，與優惠券總數無關。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicableCouponsBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"1000", "10000", "50000"})
+    int couponCount;
+
+    private CartService cartService;
+    private ShoppingCartInput cart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProductRepository productRepository = BenchmarkFixtures.products(CATALOG_SIZE);
+        CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+        for (int i = 0; i < couponCount; i++) {
+            String rule = i % 2 == 0
+                    ? "products=" + BenchmarkFixtures.productId(i % CATALOG_SIZE) + ";percent=" + (1 + i % 5)
+                    : "min=" + (i * 10L);
+            couponRepository.save(Coupon.withRule(BenchmarkFixtures.couponCode(i), "優惠券 " + i, 10, rule));
+        }
+        cartService = new CartService(productRepository, couponRepository, new PricingMetrics(new SimpleMeterRegistry()),
+                PricingResultCache.disabled(), new CouponOptimizer(Duration.ofMillis(2)),
+                new CouponRuleEngine(productRepository, couponRepository));
+        cart = new ShoppingCartInput(BenchmarkFixtures.cart(10, 0, CATALOG_SIZE).items(), List.of());
+        cartService.findApplicableCoupons(cart, 20);
+    }
+
+    @Benchmark
+    public List<ApplicableCouponDto> findApplicableCoupons() {
+        return cartService.findApplicableCoupons(cart, 20);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+
+/**
+ * 基準測試共用的測試資料。
+ * 產品 ID 為 {@code P000000} 起的流水號，優惠券代碼為 {@code C0000} 起的流水號。
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static String productId(int i) {
+        return String.format("P%06d", i);
+    }
+
+    static String couponCode(int i) {
+        return String.format("C%04d", i);
+    }
+
+    static ProductRepository products(int count) {
+        ProductRepository repository = new ProductRepository(new IndexedProductStore());
+        repository.saveAll(productList(count));
+        return repository;
+    }
+
+    static List<Product> productList(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new Product(productId(i), "商品 " + i, 100 + (i % 900)));
+        }
+        return products;
+    }
+
+    static CouponRepository coupons(int count) {
+        CouponRepository repository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+        for (int i = 0; i < count; i++) {
+            // 折抵金額刻意很小，避免任何購物車大小下觸發折扣超額
+            repository.save(new Coupon(couponCode(i), "優惠券 " + i, 1 + (i % 5)));
+        }
+        return repository;
+    }
+
+    /**
+     * 建立一個有 {@code itemCount} 個商品項目、套用 {@code couponCount} 張優惠券的購物車。
+     */
+    static ShoppingCartInput cart(int itemCount, int couponCount, int catalogSize) {
+        List<CartItemInput> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new CartItemInput(productId(i % catalogSize), 1 + (i % 3)));
+        }
+        List<String> couponCodes = new ArrayList<>(couponCount);
+        for (int i = 0; i < couponCount; i++) {
+            couponCodes.add(couponCode(i));
+        }
+        return new ShoppingCartInput(items, couponCodes);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.repository.store.MeteredProductStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@link CartService#calculateCartPrice(ShoppingCartInput)} 在不同購物車大小與優惠券數量下的計價成本。
+ * <p>
+ * 搭配 gc profiler 時，{@code gc.alloc.rate.norm} 應與 {@code itemCount} 無關：
+ * 沒有優惠券時只有結果 DTO 本身，有優惠券時再加上已套用優惠券的列表。
+ * 計價指標記錄在 {@link SimpleMeterRegistry} 中，成本已包含在結果內。
+ * {@code resultCache=true} 時每次都命中計價結果快取，成本改為建立正規化鍵 (與 {@code itemCount} 成正比) 加上一次雜湊查找，
+ * 用來判斷快取在純記憶體目錄下是否划算。
+ * {@code metered=true} 時產品儲存外層加上 {@link MeteredProductStore} (與應用程式相同)，用來量測抽樣計時序號查價的額外成本。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartServiceBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"1", "10", "100", "1000"})
+    int itemCount;
+
+    @Param({"0", "1", "4"})
+    int couponCount;
+
+    @Param({"false", "true"})
+    boolean resultCache;
+
+    @Param({"false", "true"})
+    boolean metered;
+
+    private CartService cartService;
+    private ShoppingCartInput cart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PricingResultCache cache = resultCache
+                ? new PricingResultCache(64L << 20, Duration.ofHours(1), new SimpleMeterRegistry())
+                : PricingResultCache.disabled();
+        ProductRepository productRepository = metered
+                ? new ProductRepository(new MeteredProductStore(new IndexedProductStore(), new SimpleMeterRegistry()))
+                : BenchmarkFixtures.products(CATALOG_SIZE);
+        if (metered) {
+            productRepository.saveAll(BenchmarkFixtures.productList(CATALOG_SIZE));
+        }
+        CouponRepository couponRepository = BenchmarkFixtures.coupons(16);
+        cartService = new CartService(productRepository, couponRepository, new PricingMetrics(new SimpleMeterRegistry()), cache,
+                new CouponOptimizer(Duration.ofMillis(2)), new CouponRuleEngine(productRepository, couponRepository));
+        cart = BenchmarkFixtures.cart(itemCount, couponCount, CATALOG_SIZE);
+    }
+
+    @Benchmark
+    public CalculationResultDto calculateCartPrice() {
+        return cartService.calculateCartPrice(cart);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.CatalogSnapshot;
+import com.example.demo.repository.store.SnapshotProductStore;
+
+/**
+ * 產品目錄快照的開啟 (啟動) 成本與價格查詢成本，對照逐筆 {@code save} 建立記憶體目錄的成本。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogSnapshotBenchmark {
+
+    @Param({"100000", "1000000"})
+    int catalogSize;
+
+    private Path snapshotPath;
+    private SnapshotProductStore snapshotStore;
+    private ProductRepository heapRepository;
+    private String[] productIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Product> products = new ArrayList<>(catalogSize);
+        productIds = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            productIds[i] = BenchmarkFixtures.productId(i);
+            products.add(new Product(productIds[i], "商品 " + i, 100 + (i % 900)));
+        }
+        snapshotPath = Files.createTempFile("catalog", ".snapshot");
+        CatalogSnapshot.write(products, snapshotPath);
+        snapshotStore = new SnapshotProductStore(snapshotPath);
+        heapRepository = BenchmarkFixtures.products(catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotPath);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CatalogSnapshot openSnapshot() throws IOException {
+        return CatalogSnapshot.open(snapshotPath);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ProductRepository buildHeapCatalog() {
+        return BenchmarkFixtures.products(catalogSize);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long snapshotPriceOf() {
+        return snapshotStore.priceOf(nextId());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long heapPriceOf() {
+        return heapRepository.priceOf(nextId());
+    }
+
+    private String nextId() {
+        int i = cursor;
+        cursor = i + 1 == catalogSize ? 0 : i + 1;
+        return productIds[i];
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.service.CouponOptimizer;
+
+/**
+ * {@link CouponOptimizer} 在不同候選券數量下的搜尋時間。
+ * 折抵金額隨機但固定種子，上限設為所有候選券總額的一半左右，這是最難剪枝的情況；
+ * 結果應始終低於設定的時間上限 (此處 2ms)。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CouponOptimizerBenchmark {
+
+    @Param({"8", "24", "48"})
+    int candidateCount;
+
+    private final CouponOptimizer optimizer = new CouponOptimizer(Duration.ofMillis(2));
+    private List<Coupon> candidates;
+    private long capacity;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1234);
+        candidates = new ArrayList<>(candidateCount);
+        long total = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int amount = 50 + random.nextInt(950);
+            candidates.add(new Coupon(BenchmarkFixtures.couponCode(i), "優惠券 " + i, amount));
+            total += amount;
+        }
+        capacity = total / 2 + 1;
+    }
+
+    @Benchmark
+    public CouponOptimizer.Selection select() {
+        return optimizer.select(candidates, capacity);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 規則型優惠券的計價時間。系統中有 {@code ruleCount} 張限定商品的百分比優惠券，
+ * 購物車套用其中 3 張；耗時應隨 {@code itemCount} 線性成長，而與 {@code ruleCount} 無關。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CouponRuleBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"10", "100", "1000"})
+    int itemCount;
+
+    @Param({"10", "1000", "10000"})
+    int ruleCount;
+
+    private CartService cartService;
+    private ShoppingCartInput cart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProductRepository productRepository = BenchmarkFixtures.products(CATALOG_SIZE);
+        CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+        for (int i = 0; i < ruleCount; i++) {
+            // 每張券適用連續的 50 個產品，折扣比例小，避免觸發折扣超額
+            String products = String.join(",", IntStream.range(i, i + 50)
+                    .mapToObj(p -> BenchmarkFixtures.productId(p % CATALOG_SIZE)).toList());
+            couponRepository.save(Coupon.withRule(BenchmarkFixtures.couponCode(i), "規則券 " + i, 0,
+                    "products=" + products + ";percent=" + (1 + i % 5)));
+        }
+        cartService = new CartService(productRepository, couponRepository, new PricingMetrics(new SimpleMeterRegistry()),
+                PricingResultCache.disabled(), new CouponOptimizer(Duration.ofMillis(2)),
+                new CouponRuleEngine(productRepository, couponRepository));
+        ShoppingCartInput items = BenchmarkFixtures.cart(itemCount, 0, CATALOG_SIZE);
+        cart = new ShoppingCartInput(items.items(), List.of(BenchmarkFixtures.couponCode(0),
+                BenchmarkFixtures.couponCode(1), BenchmarkFixtures.couponCode(2)));
+        cartService.calculateCartPrice(cart);
+    }
+
+    @Benchmark
+    public CalculationResultDto calculateCartPrice() {
+        return cartService.calculateCartPrice(cart);
+    }
+}
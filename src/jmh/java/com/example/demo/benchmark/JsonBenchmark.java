@@ -0,0 +1,80 @@
+package com.example.demo.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.model.Coupon;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * {@link ShoppingCartInput} 請求與 {@link CalculationResultDto} 回應的 Jackson 序列化成本。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    int itemCount;
+
+    private ObjectReader cartReader;
+    private ObjectWriter cartWriter;
+    private ObjectWriter resultWriter;
+    private ShoppingCartInput cart;
+    private byte[] cartJson;
+    private CalculationResultDto result;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        cartReader = objectMapper.readerFor(ShoppingCartInput.class);
+        cartWriter = objectMapper.writerFor(ShoppingCartInput.class);
+        resultWriter = objectMapper.writerFor(CalculationResultDto.class);
+
+        cart = BenchmarkFixtures.cart(itemCount, 4, 10_000);
+        cartJson = cartWriter.writeValueAsBytes(cart);
+        List<Coupon> coupons = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            coupons.add(new Coupon(BenchmarkFixtures.couponCode(i), "優惠券 " + i, 10));
+        }
+        result = new CalculationResultDto(100_000, 99_960, 40, coupons);
+    }
+
+    @Benchmark
+    public ShoppingCartInput readCart() throws IOException {
+        return cartReader.readValue(cartJson);
+    }
+
+    @Benchmark
+    public ShoppingCartInput roundTripCart() throws IOException {
+        return cartReader.readValue(cartWriter.writeValueAsBytes(cart));
+    }
+
+    @Benchmark
+    public byte[] writeResult() throws IOException {
+        return resultWriter.writeValueAsBytes(result);
+    }
+}
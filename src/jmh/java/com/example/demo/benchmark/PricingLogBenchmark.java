@@ -0,0 +1,112 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.demo.config.PricingLogProperties;
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.logging.PricingEventLogger;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 計價請求在不同日誌策略下的成本，對應 {@code CartController.calculateCart} 的做法：
+ * <ul>
+ *     <li>{@code off}：停用計價事件日誌。</li>
+ *     <li>{@code sampled}：預設設定，取樣 1%。</li>
+ *     <li>{@code slowOrFailedOnly}：只記錄慢速或失敗的計價 (此基準中不會發生)。</li>
+ *     <li>{@code all}：每次計價都記錄；背景執行緒跟不上時事件會被丟棄而不是阻塞。</li>
+ *     <li>{@code syncInfo}：舊做法，在請求執行緒上以 INFO 記錄整個輸入與結果。</li>
+ * </ul>
+ * 日誌寫到暫存檔 (見 jmh 的 logback.xml)。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PricingLogBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingLogBenchmark.class);
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"off", "sampled", "slowOrFailedOnly", "all", "syncInfo"})
+    String mode;
+
+    @Param({"10", "100"})
+    int itemCount;
+
+    private CartService cartService;
+    private PricingEventLogger pricingEventLogger;
+    private ShoppingCartInput cart;
+    private boolean syncInfo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ProductRepository productRepository = BenchmarkFixtures.products(CATALOG_SIZE);
+        CouponRepository couponRepository = BenchmarkFixtures.coupons(16);
+        cartService = new CartService(productRepository, couponRepository, new PricingMetrics(registry), PricingResultCache.disabled(),
+                new CouponOptimizer(Duration.ofMillis(2)), new CouponRuleEngine(productRepository, couponRepository));
+        PricingLogProperties properties = new PricingLogProperties(
+                !mode.equals("off") && !mode.equals("syncInfo"),
+                mode.equals("all") ? 1.0 : 0.01,
+                mode.equals("slowOrFailedOnly"),
+                Duration.ofMillis(200),
+                8192);
+        pricingEventLogger = new PricingEventLogger(properties,
+                JsonMapper.builder().findAndAddModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build(),
+                registry);
+        pricingEventLogger.start();
+        cart = BenchmarkFixtures.cart(itemCount, 2, CATALOG_SIZE);
+        syncInfo = mode.equals("syncInfo");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        pricingEventLogger.stop();
+    }
+
+    @Benchmark
+    public CalculationResultDto calculateAndLog() {
+        if (syncInfo) {
+            log.info("收到 /cart/calculate 請求: {}", cart);
+            CalculationResultDto result = cartService.calculateCartPrice(cart);
+            log.info("計算結果: {}", result);
+            return result;
+        }
+        long start = System.nanoTime();
+        CalculationResultDto result = cartService.calculateCartPrice(cart);
+        pricingEventLogger.success("/cart/calculate", cart, result, System.nanoTime() - start);
+        return result;
+    }
+}
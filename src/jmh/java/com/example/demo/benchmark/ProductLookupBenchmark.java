@@ -0,0 +1,70 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.repository.store.ProductStore;
+
+/**
+ * 每個商品項目的查價成本：{@code ConcurrentHashMap<String, Product>} 對照序號索引 {@link IndexedProductStore}。
+ * 查詢使用的 ID 為新建立的字串，與實際請求反序列化出來的 ID 一樣不是索引內的同一實例。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductLookupBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int catalogSize;
+
+    private ProductStore mapStore;
+    private ProductStore indexedStore;
+    private String[] lookupIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapStore = ProductStore.of(new InMemoryEntityStore<>(Product::getId));
+        indexedStore = new IndexedProductStore();
+        mapStore.saveAll(BenchmarkFixtures.productList(catalogSize));
+        indexedStore.saveAll(BenchmarkFixtures.productList(catalogSize));
+        lookupIds = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            lookupIds[i] = new String(BenchmarkFixtures.productId(i));
+        }
+    }
+
+    @Benchmark
+    public long mapPriceOf() {
+        return mapStore.priceOf(nextId());
+    }
+
+    @Benchmark
+    public long indexedPriceOf() {
+        return indexedStore.priceOf(nextId());
+    }
+
+    private String nextId() {
+        int i = cursor;
+        cursor = i + 1 == catalogSize ? 0 : i + 1;
+        return lookupIds[i];
+    }
+}
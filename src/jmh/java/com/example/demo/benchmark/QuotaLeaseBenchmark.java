@@ -0,0 +1,84 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.quota.InMemoryQuotaBackend;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.service.CouponRedemptionService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 多個節點共用一個額度後端時，熱門優惠券「預留 + 確認」的總吞吐量。
+ * 後端每次呼叫模擬 {@code roundTripMicros} 的網路往返；每個執行緒固定使用一個節點。
+ * 租用批量足夠大時，後端往返只發生在每 {@code leaseSize} 次使用一次，吞吐量應隨節點數近乎線性成長；
+ * {@code leaseSize=1} 相當於每次使用都詢問後端，作為對照。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class QuotaLeaseBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    int nodes;
+
+    @Param({"1", "64"})
+    int leaseSize;
+
+    @Param({"200"})
+    int roundTripMicros;
+
+    private CouponRedemptionService[] services;
+    private final AtomicInteger nextThread = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Node {
+        CouponRedemptionService service;
+
+        @Setup(Level.Trial)
+        public void setUp(QuotaLeaseBenchmark benchmark) {
+            service = benchmark.services[benchmark.nextThread.getAndIncrement() % benchmark.nodes];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryQuotaBackend backend = new InMemoryQuotaBackend(Duration.ofNanos(roundTripMicros * 1000L));
+        services = new CouponRedemptionService[nodes];
+        for (int i = 0; i < nodes; i++) {
+            // 每個節點有自己的優惠券儲存，只共用額度後端
+            CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+            couponRepository.save(new Coupon("HOT", "熱門優惠", 10, Integer.MAX_VALUE, null));
+            services[i] = new CouponRedemptionService(couponRepository, backend, Duration.ofMinutes(5), 0,
+                    leaseSize, new SimpleMeterRegistry());
+        }
+    }
+
+    @Benchmark
+    public void reserveAndCommit(Node node) {
+        node.service.commit(node.service.reserve("user", List.of("HOT")).id());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+
+/**
+ * {@link ProductRepository#findById(String)} 與 {@link CouponRepository#findByCode(String)} 在多執行緒競爭下的查詢成本。
+ * <p>
+ * {@code readOnly*} 以所有可用核心同時讀取；{@code mixed} 群組則在讀取的同時持續寫入，
+ * 模擬價格更新期間的計價流量。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+    private static final int COUPON_COUNT = 64;
+
+    private ProductRepository productRepository;
+    private CouponRepository couponRepository;
+    private String[] productIds;
+    private String[] couponCodes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        productRepository = BenchmarkFixtures.products(CATALOG_SIZE);
+        couponRepository = BenchmarkFixtures.coupons(COUPON_COUNT);
+        productIds = new String[CATALOG_SIZE];
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            productIds[i] = BenchmarkFixtures.productId(i);
+        }
+        couponCodes = new String[COUPON_COUNT];
+        for (int i = 0; i < COUPON_COUNT; i++) {
+            couponCodes[i] = BenchmarkFixtures.couponCode(i);
+        }
+    }
+
+    /** 每個執行緒各自的遊標，避免執行緒間共享計數器本身造成競爭。 */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance(int bound) {
+            int value = next;
+            next = value + 1 == bound ? 0 : value + 1;
+            return value;
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Optional<Product> readOnlyFindById(Cursor cursor) {
+        return productRepository.findById(productIds[cursor.advance(CATALOG_SIZE)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Optional<Coupon> readOnlyFindByCode(Cursor cursor) {
+        return couponRepository.findByCode(couponCodes[cursor.advance(COUPON_COUNT)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Optional<Product> mixedFindById(Cursor cursor) {
+        return productRepository.findById(productIds[cursor.advance(CATALOG_SIZE)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedSave(Cursor cursor) {
+        int i = cursor.advance(CATALOG_SIZE);
+        productRepository.save(new Product(productIds[i], "商品 " + i, 100 + (i % 900)));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CompactCalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.model.Coupon;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * {@code /cart/calculate} 各種編碼的序列化成本：JSON (目前的格式)、CBOR 與 Smile，
+ * 以及只含優惠券代碼的精簡回應 ({@link CompactCalculationResultDto})。
+ * 各格式的請求與回應大小在每次試驗開始時印出，與耗時一起比較。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"10", "1000"})
+    int itemCount;
+
+    private ObjectReader cartReader;
+    private ObjectWriter resultWriter;
+    private ObjectWriter compactWriter;
+    private byte[] cartBytes;
+    private CalculationResultDto result;
+    private CompactCalculationResultDto compactResult;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "cbor" -> CBORMapper.builder().findAndAddModules().build();
+            case "smile" -> SmileMapper.builder().findAndAddModules().build();
+            default -> JsonMapper.builder().findAndAddModules().build();
+        };
+        cartReader = objectMapper.readerFor(ShoppingCartInput.class);
+        resultWriter = objectMapper.writerFor(CalculationResultDto.class);
+        compactWriter = objectMapper.writerFor(CompactCalculationResultDto.class);
+
+        cartBytes = objectMapper.writeValueAsBytes(BenchmarkFixtures.cart(itemCount, 4, 10_000));
+        List<Coupon> coupons = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            coupons.add(new Coupon(BenchmarkFixtures.couponCode(i), "全館優惠券 " + i + "，結帳時自動折抵，不得與其他活動併用", 10));
+        }
+        result = new CalculationResultDto(100_000, 99_960, 40, coupons);
+        compactResult = CompactCalculationResultDto.of(result);
+        System.out.printf("%n[%s, %d items] request %d bytes, response %d bytes, compact response %d bytes%n",
+                format, itemCount, cartBytes.length, resultWriter.writeValueAsBytes(result).length,
+                compactWriter.writeValueAsBytes(compactResult).length);
+    }
+
+    @Benchmark
+    public ShoppingCartInput readCart() throws IOException {
+        return cartReader.readValue(cartBytes);
+    }
+
+    @Benchmark
+    public byte[] writeResult() throws IOException {
+        return resultWriter.writeValueAsBytes(result);
+    }
+
+    @Benchmark
+    public byte[] writeCompactResult() throws IOException {
+        return compactWriter.writeValueAsBytes(compactResult);
+    }
+}
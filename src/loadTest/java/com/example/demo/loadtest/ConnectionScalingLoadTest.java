@@ -0,0 +1,73 @@
+package com.example.demo.loadtest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.loadtest.HdrLoadDriver.LoadResult;
+
+/**
+ * 比較三種服務方式在並行連線數增加時的吞吐量與延遲：
+ * MVC + 平台執行緒、MVC + 虛擬執行緒、WebFlux + Netty。
+ * <p>
+ * 並行連線數以 {@code loadtest.connections} 設定 (逗號分隔，預設 {@code 100,1000,4000})，
+ * 儲存延遲以 {@code loadtest.latency} 設定。延遲以 {@link HdrLoadDriver} 的 closed loop 記錄，並校正 coordinated omission。
+ * </p>
+ */
+class ConnectionScalingLoadTest {
+
+    private final int[] connectionLevels = Arrays.stream(System.getProperty("loadtest.connections", "100,1000,4000").split(","))
+            .mapToInt(level -> Integer.parseInt(level.trim()))
+            .toArray();
+    private final Duration duration = Duration.parse("PT" + System.getProperty("loadtest.duration", "15s"));
+    private final String latency = System.getProperty("loadtest.latency", "10ms");
+
+    @Test
+    void compareConnectionScalingAcrossStacks() throws Exception {
+        List<String> rows = new ArrayList<>();
+        rows.addAll(run("mvc-platform", "spring.threads.virtual.enabled=false"));
+        rows.addAll(run("mvc-virtual", "spring.threads.virtual.enabled=true"));
+        rows.addAll(run("webflux-netty", "spring.main.web-application-type=reactive"));
+
+        System.out.println(LoadResult.header("stack@connections"));
+        rows.forEach(System.out::println);
+    }
+
+    private List<String> run(String stack, String modeProperty) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .properties(
+                        "server.port=0",
+                        modeProperty,
+                        "demo.store.simulated-latency=" + latency,
+                        // 每次都送出相同的購物車，開著結果快取只會量到快取命中，碰不到模擬延遲的儲存
+                        "demo.pricing-cache.enabled=false",
+                        // 比較的是連線與執行緒模型本身的容量，不讓並行上限提早以 503 拒絕請求
+                        "demo.concurrency-limit.enabled=false",
+                        "logging.level.com.example.demo=WARN")
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/cart/calculate");
+            Workload workload = Workload.fixedPost("calculate", uri, ThreadModelLoadTest.CART_JSON);
+            for (int connections : connectionLevels) {
+                HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+                LoadResult result = HdrLoadDriver.closedLoop(client, workload, connections, Duration.ofSeconds(2),
+                        duration);
+                assertTrue(result.throughput() > 0, stack + " 在 " + connections + " 條連線下沒有完成任何請求");
+                rows.add(result.format(stack + "@" + connections));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * 以 HdrHistogram 記錄延遲 (微秒) 的負載產生器，支援兩種模式：
+ * <ul>
+ *   <li><b>closed loop</b>：固定數量的並行使用者，收到回應後立即送出下一個請求，量測最大吞吐量。
+ *       伺服器停頓時使用者也跟著停止送出請求 (coordinated omission)，因此以暖機時的延遲中位數
+ *       作為預期的請求間隔，用 {@link Histogram#recordValueWithExpectedInterval(long, long)}
+ *       補上停頓期間「本來會送出」的請求；未校正的直方圖另外保留供比較。</li>
+ *   <li><b>open loop</b>：依固定速率排定每個請求的預定送出時間，延遲從預定時間起算，
+ *       送出落後 (例如達到 {@code maxInFlight} 上限) 的時間也計入延遲，不需額外校正。</li>
+ * </ul>
+ */
+final class HdrLoadDriver {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private HdrLoadDriver() {
+    }
+
+    static LoadResult closedLoop(HttpClient client, Workload workload, int users, Duration warmup, Duration duration)
+            throws Exception {
+        // 暖機同時估計沒有停頓時每個使用者的請求間隔
+        LoadResult warmupResult = runClosed(client, workload, users, warmup, 0);
+        long expectedIntervalMicros = Math.max(1, warmupResult.uncorrected().getValueAtPercentile(50));
+        return runClosed(client, workload, users, duration, expectedIntervalMicros);
+    }
+
+    static LoadResult openLoop(HttpClient client, Workload workload, double rate, int maxInFlight, Duration warmup,
+            Duration duration) throws Exception {
+        runOpen(client, workload, rate, maxInFlight, warmup);
+        return runOpen(client, workload, rate, maxInFlight, duration);
+    }
+
+    private static LoadResult runClosed(HttpClient client, Workload workload, int users, Duration duration,
+            long expectedIntervalMicros) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        List<Future<UserResult>> futures = new ArrayList<>(users);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                futures.add(clients.submit(() -> {
+                    // 每個使用者各自記錄，結束後再合併，記錄時不需同步
+                    Histogram corrected = new Histogram(SIGNIFICANT_DIGITS);
+                    Histogram uncorrected = new Histogram(SIGNIFICANT_DIGITS);
+                    long errors = 0;
+                    while (System.nanoTime() < deadline) {
+                        long requestStart = System.nanoTime();
+                        if (!send(client, workload)) {
+                            errors++;
+                        }
+                        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - requestStart);
+                        uncorrected.recordValue(micros);
+                        if (expectedIntervalMicros > 0) {
+                            corrected.recordValueWithExpectedInterval(micros, expectedIntervalMicros);
+                        }
+                    }
+                    return new UserResult(corrected, uncorrected, errors);
+                }));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Histogram corrected = new Histogram(SIGNIFICANT_DIGITS);
+        Histogram uncorrected = new Histogram(SIGNIFICANT_DIGITS);
+        long errors = 0;
+        for (Future<UserResult> future : futures) {
+            UserResult result = future.get();
+            corrected.add(result.corrected());
+            uncorrected.add(result.uncorrected());
+            errors += result.errors();
+        }
+        return new LoadResult(expectedIntervalMicros > 0 ? corrected : uncorrected, uncorrected,
+                uncorrected.getTotalCount() / seconds, errors);
+    }
+
+    private static LoadResult runOpen(HttpClient client, Workload workload, double rate, int maxInFlight,
+            Duration duration) throws Exception {
+        long intervalNanos = Math.max(1, (long) (1e9 / rate));
+        Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0;; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= deadline) {
+                    break;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquire();
+                clients.submit(() -> {
+                    try {
+                        if (!send(client, workload)) {
+                            errors.incrementAndGet();
+                        }
+                        // 從預定送出時間起算，排程落後的時間也算在延遲內
+                        recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Histogram histogram = recorder.getIntervalHistogram();
+        return new LoadResult(histogram, histogram, histogram.getTotalCount() / seconds, errors.get());
+    }
+
+    /**
+     * @return 回應是否成功 (2xx/3xx)
+     */
+    private static boolean send(HttpClient client, Workload workload) {
+        try {
+            HttpResponse<Void> response = client.send(workload.next(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 400;
+        } catch (IOException ex) {
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record UserResult(Histogram corrected, Histogram uncorrected, long errors) {
+    }
+
+    /**
+     * 一次負載測試的結果。
+     *
+     * @param histogram   延遲分佈 (微秒)；closed loop 為經 coordinated omission 校正後的分佈
+     * @param uncorrected 未校正的延遲分佈 (微秒)；open loop 與 {@code histogram} 相同
+     * @param throughput  每秒完成的請求數
+     * @param errors      失敗的請求數
+     */
+    record LoadResult(Histogram histogram, Histogram uncorrected, double throughput, long errors) {
+
+        double p50Millis() {
+            return histogram.getValueAtPercentile(50) / 1000.0;
+        }
+
+        double p99Millis() {
+            return histogram.getValueAtPercentile(99) / 1000.0;
+        }
+
+        double p999Millis() {
+            return histogram.getValueAtPercentile(99.9) / 1000.0;
+        }
+
+        double maxMillis() {
+            return histogram.getMaxValue() / 1000.0;
+        }
+
+        static String header(String label) {
+            return String.format("%-28s %10s %10s %10s %10s %10s %8s", label, "req/s", "p50 ms", "p99 ms", "p999 ms",
+                    "max ms", "errors");
+        }
+
+        String format(String label) {
+            return String.format("%-28s %10.0f %10.2f %10.2f %10.2f %10.2f %8d", label, throughput, p50Millis(),
+                    p99Millis(), p999Millis(), maxMillis(), errors);
+        }
+
+        /**
+         * 以 HdrHistogram 的百分位分佈格式 ({@code .hgrm}，單位毫秒) 寫出延遲分佈，
+         * 可貼到 HdrHistogram 的線上繪圖工具比較。
+         */
+        void writeReport(Path directory, String name) throws IOException {
+            Files.createDirectories(directory);
+            writeDistribution(histogram, directory.resolve(name + ".hgrm"));
+            if (uncorrected != histogram) {
+                writeDistribution(uncorrected, directory.resolve(name + "-uncorrected.hgrm"));
+            }
+        }
+
+        private static void writeDistribution(Histogram histogram, Path file) throws IOException {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+}
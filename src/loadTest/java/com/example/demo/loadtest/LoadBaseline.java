@@ -0,0 +1,100 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import com.example.demo.loadtest.HdrLoadDriver.LoadResult;
+
+/**
+ * 儲存在 properties 檔的效能基準值，每個情境記錄吞吐量、p99 與 p999 延遲，以及產生結果的負載參數。
+ * <p>
+ * 基準值與執行環境相關，須在發佈前實際跑負載測試的機器上以 {@code -Dloadtest.update-baseline=true} 記錄。
+ * 負載參數與記錄時不同的情境不比較，由 {@link RolloutLoadTest} 視為缺少基準值。
+ * </p>
+ */
+final class LoadBaseline {
+
+    private final Path file;
+    private final Properties values = new Properties();
+
+    private LoadBaseline(Path file) {
+        this.file = file;
+    }
+
+    static LoadBaseline load(Path file) throws IOException {
+        LoadBaseline baseline = new LoadBaseline(file);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                baseline.values.load(reader);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * 與基準值比較。
+     *
+     * @param key        情境鍵
+     * @param parameters 產生結果的負載參數
+     * @param result     本次結果
+     * @param tolerance  允許變差的比例，例如 0.2 表示吞吐量可低 20%、延遲可高 20%
+     * @return 變差的項目說明；沒有基準值或參數不同時回傳空列表
+     */
+    List<String> compare(String key, String parameters, LoadResult result, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        if (!parameters.equals(values.getProperty(key + ".parameters"))) {
+            return regressions;
+        }
+        double throughput = Double.parseDouble(values.getProperty(key + ".throughput"));
+        if (result.throughput() < throughput * (1 - tolerance)) {
+            regressions.add(String.format("%s 吞吐量 %.0f req/s 低於基準值 %.0f req/s", key, result.throughput(),
+                    throughput));
+        }
+        checkLatency(regressions, key, "p99", result.p99Millis(), tolerance);
+        checkLatency(regressions, key, "p999", result.p999Millis(), tolerance);
+        return regressions;
+    }
+
+    /**
+     * @return 是否有此情境與參數的基準值
+     */
+    boolean contains(String key, String parameters) {
+        return parameters.equals(values.getProperty(key + ".parameters"));
+    }
+
+    void record(String key, String parameters, LoadResult result) {
+        values.setProperty(key + ".parameters", parameters);
+        values.setProperty(key + ".throughput", String.format("%.1f", result.throughput()));
+        values.setProperty(key + ".p99-ms", String.format("%.3f", result.p99Millis()));
+        values.setProperty(key + ".p999-ms", String.format("%.3f", result.p999Millis()));
+    }
+
+    void store() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            values.store(writer, "Load test baseline (./gradlew loadTest -Dloadtest.update-baseline=true)");
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    private void checkLatency(List<String> regressions, String key, String percentile, double millis,
+            double tolerance) {
+        double baseline = Double.parseDouble(values.getProperty(key + "." + percentile + "-ms"));
+        if (millis > baseline * (1 + tolerance)) {
+            regressions.add(String.format("%s %s 延遲 %.2f ms 高於基準值 %.2f ms", key, percentile, millis, baseline));
+        }
+    }
+}
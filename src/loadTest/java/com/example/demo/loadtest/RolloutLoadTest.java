@@ -0,0 +1,152 @@
+package com.example.demo.loadtest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.loadtest.HdrLoadDriver.LoadResult;
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+
+/**
+ * 發佈前的效能檢查：以實際設定啟動應用程式 (隨機埠)，對 {@code GET /cart} 與 {@code POST /cart/calculate}
+ * 施加負載，以 HdrHistogram 記錄延遲並與基準值比較，吞吐量、p99 或 p999 變差超過容許範圍即失敗。
+ * <p>
+ * 參數 (以 {@code -Dloadtest.<name>=<value>} 傳入)：
+ * </p>
+ * <ul>
+ *   <li>{@code mode}：{@code closed} (預設)、{@code open} 或 {@code both}</li>
+ *   <li>{@code users}：closed loop 的並行使用者數，預設 64</li>
+ *   <li>{@code rate}：open loop 每秒送出的請求數，預設 2000；{@code max-in-flight} 為同時進行中的請求上限，預設 10000</li>
+ *   <li>{@code cart-size}：每個購物車的商品行數，預設 5；{@code distinct-carts}：不同購物車的數量，預設 1000</li>
+ *   <li>{@code coupon-mix}：優惠券組合，預設 {@code none,SAVE100,SAVE100+BONUS200,BIGSAVE}</li>
+ *   <li>{@code warmup}、{@code duration}：暖機與量測時間，預設 5s 與 15s</li>
+ *   <li>{@code baseline}：基準值檔案；{@code tolerance}：允許變差的比例，預設 0.2；
+ *       {@code update-baseline=true} 時以本次結果更新基準值而不比較</li>
+ *   <li>{@code require-baseline}：預設 true，情境在此參數下沒有基準值時測試失敗 (基準值與機器相關，
+ *       須先在跑負載測試的機器上以 {@code update-baseline=true} 記錄)；設為 false 時只在標準錯誤輸出醒目的警告</li>
+ *   <li>{@code report-dir}：{@code .hgrm} 延遲分佈的輸出目錄</li>
+ * </ul>
+ */
+class RolloutLoadTest {
+
+    private final String mode = System.getProperty("loadtest.mode", "closed");
+    private final int users = Integer.getInteger("loadtest.users", 64);
+    private final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "2000"));
+    private final int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 10_000);
+    private final int cartSize = Integer.getInteger("loadtest.cart-size", 5);
+    private final int distinctCarts = Integer.getInteger("loadtest.distinct-carts", 1000);
+    private final List<List<String>> couponMix = Workload.parseCouponMix(
+            System.getProperty("loadtest.coupon-mix", "none,SAVE100,SAVE100+BONUS200,BIGSAVE"));
+    private final Duration warmup = Duration.parse("PT" + System.getProperty("loadtest.warmup", "5s"));
+    private final Duration duration = Duration.parse("PT" + System.getProperty("loadtest.duration", "15s"));
+    private final Path baselineFile = Path.of(System.getProperty("loadtest.baseline", "loadtest-baseline.properties"));
+    private final double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.2"));
+    private final boolean updateBaseline = Boolean.getBoolean("loadtest.update-baseline");
+    private final boolean requireBaseline = Boolean.parseBoolean(System.getProperty("loadtest.require-baseline", "true"));
+    private final Path reportDir = Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest"));
+
+    @Test
+    void throughputAndTailLatencyShouldNotRegress() throws Exception {
+        LoadBaseline baseline = LoadBaseline.load(baselineFile);
+        List<String> rows = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                // 量測的是完整處理的延遲與吞吐量，並行上限拒絕的請求會被算成失敗，因此關閉
+                .properties("server.port=0", "demo.concurrency-limit.enabled=false",
+                        "logging.level.com.example.demo=WARN")
+                .run()) {
+            seedProducts(context.getBean(ProductRepository.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI baseUri = URI.create("http://localhost:" + port);
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            List<Workload> workloads = List.of(
+                    Workload.cartPage(baseUri),
+                    Workload.calculate(baseUri, cartSize, couponMix, distinctCarts, 42L));
+            for (Workload workload : workloads) {
+                for (String loop : loops()) {
+                    String key = workload.name() + "." + loop;
+                    String parameters = parameters(workload, loop);
+                    LoadResult result = loop.equals("open")
+                            ? HdrLoadDriver.openLoop(client, workload, rate, maxInFlight, warmup, duration)
+                            : HdrLoadDriver.closedLoop(client, workload, users, warmup, duration);
+                    result.writeReport(reportDir, key);
+                    rows.add(result.format(key));
+
+                    if (result.errors() > 0) {
+                        failures.add(key + " 有 " + result.errors() + " 個失敗請求");
+                    }
+                    if (updateBaseline) {
+                        baseline.record(key, parameters, result);
+                    } else if (baseline.contains(key, parameters)) {
+                        failures.addAll(baseline.compare(key, parameters, result, tolerance));
+                    } else {
+                        missing.add(key + " (" + parameters + ")");
+                    }
+                }
+            }
+        }
+
+        System.out.println(LoadResult.header("scenario"));
+        rows.forEach(System.out::println);
+        System.out.println("延遲分佈：" + reportDir.toAbsolutePath());
+        if (updateBaseline) {
+            baseline.store();
+            System.out.println("已更新基準值：" + baselineFile.toAbsolutePath());
+        }
+        if (!missing.isEmpty()) {
+            String message = baselineFile.toAbsolutePath() + " 沒有下列情境在此參數下的基準值，未做回歸比較："
+                    + System.lineSeparator() + "  " + String.join(System.lineSeparator() + "  ", missing)
+                    + System.lineSeparator() + "請在跑負載測試的機器上以 -Dloadtest.update-baseline=true 記錄基準值";
+            if (requireBaseline) {
+                failures.add(message);
+            } else {
+                System.err.println("=".repeat(80));
+                System.err.println("警告：" + message);
+                System.err.println("=".repeat(80));
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join(System.lineSeparator(), failures));
+    }
+
+    private List<String> loops() {
+        return switch (mode) {
+            case "closed" -> List.of("closed");
+            case "open" -> List.of("open");
+            case "both" -> List.of("closed", "open");
+            default -> throw new IllegalArgumentException("loadtest.mode 須為 closed、open 或 both：" + mode);
+        };
+    }
+
+    private String parameters(Workload workload, String loop) {
+        String load = loop.equals("open") ? "rate=" + rate + ";max-in-flight=" + maxInFlight : "users=" + users;
+        String description = workload.description().isEmpty() ? "" : ";" + workload.description();
+        return load + ";warmup=" + warmup + ";duration=" + duration + description;
+    }
+
+    /**
+     * 寫入負載測試購物車使用的產品，價格分散在 100 到 5000 之間。
+     */
+    private void seedProducts(ProductRepository productRepository) {
+        List<Product> products = new ArrayList<>(cartSize);
+        List<String> ids = Workload.productIds(cartSize);
+        for (int i = 0; i < ids.size(); i++) {
+            products.add(new Product(ids.get(i), "負載測試商品 " + (i + 1), 100 + (i * 397) % 4900));
+        }
+        productRepository.saveAll(products);
+    }
+}
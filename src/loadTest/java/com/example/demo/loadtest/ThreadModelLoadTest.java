@@ -0,0 +1,69 @@
+package com.example.demo.loadtest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.loadtest.HdrLoadDriver.LoadResult;
+
+/**
+ * 比較平台執行緒 (Tomcat 預設執行緒池) 與虛擬執行緒在慢速儲存下的吞吐量與 p99 延遲。
+ * <p>
+ * 每種模式各啟動一次應用程式 (隨機埠)，儲存加上 {@code loadtest.latency} 的模擬延遲，
+ * 以 {@code loadtest.users} 個並行使用者在 {@code loadtest.duration} 內持續呼叫
+ * {@code POST /cart/calculate} (closed loop，以 {@link HdrLoadDriver} 記錄並校正 coordinated omission)。平台執行緒模式下，並行數超過
+ * {@code server.tomcat.threads.max} 的請求只能排隊等待，虛擬執行緒模式則不受此限。
+ * </p>
+ */
+class ThreadModelLoadTest {
+
+    static final String CART_JSON =
+            "{\"items\":[{\"productId\":\"P001\",\"quantity\":1},{\"productId\":\"P002\",\"quantity\":2}],\"couponCodes\":[\"SAVE100\"]}";
+
+    private final int users = Integer.getInteger("loadtest.users", 400);
+    private final Duration duration = Duration.parse("PT" + System.getProperty("loadtest.duration", "15s"));
+    private final String latency = System.getProperty("loadtest.latency", "10ms");
+
+    @Test
+    void virtualThreadsShouldNotBeSlowerThanPlatformThreads() throws Exception {
+        LoadResult platform = run(false);
+        LoadResult virtual = run(true);
+
+        System.out.println(LoadResult.header("mode"));
+        System.out.println(platform.format("platform"));
+        System.out.println(virtual.format("virtual"));
+
+        assertEquals(0, platform.errors(), "平台執行緒模式不應有失敗請求");
+        assertEquals(0, virtual.errors(), "虛擬執行緒模式不應有失敗請求");
+        assertTrue(virtual.throughput() >= platform.throughput() * 0.9,
+                "虛擬執行緒吞吐量不應明顯低於平台執行緒");
+    }
+
+    private LoadResult run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "demo.store.simulated-latency=" + latency,
+                        // 每次都送出相同的購物車，開著結果快取只會量到快取命中，碰不到模擬延遲的儲存
+                        "demo.pricing-cache.enabled=false",
+                        // 比較的是執行緒模型本身的容量，不讓並行上限提早以 503 拒絕請求
+                        "demo.concurrency-limit.enabled=false",
+                        "logging.level.com.example.demo=WARN")
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/cart/calculate");
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            return HdrLoadDriver.closedLoop(client, Workload.fixedPost("calculate", uri, CART_JSON), users,
+                    Duration.ofSeconds(3), duration);
+        }
+    }
+}
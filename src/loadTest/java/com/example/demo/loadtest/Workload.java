@@ -0,0 +1,158 @@
+package com.example.demo.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 負載測試送出的一組請求，依序輪流取用。
+ * <p>
+ * 請求在測試開始前全部建好，產生請求的成本不會算進量測的延遲。
+ * </p>
+ */
+final class Workload {
+
+    /** 負載測試建立的產品 ID 前綴，見 {@link #productIds(int)}。 */
+    static final String PRODUCT_ID_PREFIX = "LOAD";
+
+    private final String name;
+    private final String description;
+    private final List<HttpRequest> requests;
+    private final AtomicLong next = new AtomicLong();
+
+    private Workload(String name, String description, List<HttpRequest> requests) {
+        this.name = name;
+        this.description = description;
+        this.requests = List.copyOf(requests);
+    }
+
+    /**
+     * {@code GET /cart} 的購物車頁面，帶 {@code Accept-Encoding: gzip} 模擬瀏覽器。
+     */
+    static Workload cartPage(URI baseUri) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/cart"))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        return new Workload("get-cart", "", List.of(request));
+    }
+
+    /**
+     * {@code POST /cart/calculate} 的計價請求。
+     *
+     * @param cartSize      每個購物車的商品行數，商品取自 {@link #productIds(int)}
+     * @param couponMix     優惠券組合，每個購物車依序輪流套用其中一組 (空的組合表示不使用優惠券)
+     * @param distinctCarts 產生幾個不同的購物車 (數量不同)，避免所有請求都命中計價結果快取
+     * @param seed          產生數量的亂數種子，同樣參數產生同樣的請求
+     */
+    static Workload calculate(URI baseUri, int cartSize, List<List<String>> couponMix, int distinctCarts, long seed) {
+        List<String> productIds = productIds(cartSize);
+        SplittableRandom random = new SplittableRandom(seed);
+        List<HttpRequest> requests = new ArrayList<>(distinctCarts);
+        for (int i = 0; i < distinctCarts; i++) {
+            StringBuilder json = new StringBuilder(64 + cartSize * 40).append("{\"items\":[");
+            for (int line = 0; line < cartSize; line++) {
+                if (line > 0) {
+                    json.append(',');
+                }
+                json.append("{\"productId\":\"").append(productIds.get(line))
+                        .append("\",\"quantity\":").append(1 + random.nextInt(5)).append('}');
+            }
+            json.append("],\"couponCodes\":[");
+            List<String> coupons = couponMix.get(i % couponMix.size());
+            for (int c = 0; c < coupons.size(); c++) {
+                if (c > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(coupons.get(c)).append('"');
+            }
+            json.append("]}");
+            requests.add(postJson(baseUri.resolve("/cart/calculate"), json.toString()));
+        }
+        String description = "cart-size=" + cartSize + ";coupon-mix=" + formatCouponMix(couponMix)
+                + ";distinct-carts=" + distinctCarts;
+        return new Workload("calculate", description, requests);
+    }
+
+    /**
+     * 每次都送出同一個 JSON 請求的情境。
+     *
+     * @param name 情境名稱
+     * @param uri  請求網址
+     * @param json 請求內容
+     */
+    static Workload fixedPost(String name, URI uri, String json) {
+        return new Workload(name, "", List.of(postJson(uri, json)));
+    }
+
+    /**
+     * 解析優惠券組合參數：組合之間以逗號分隔，同一組合中的代碼以 {@code +} 連接，
+     * {@code none} 表示不使用優惠券，例如 {@code none,SAVE100,SAVE100+BONUS200}。
+     *
+     * @throws IllegalArgumentException 如果沒有任何組合
+     */
+    static List<List<String>> parseCouponMix(String value) {
+        List<List<String>> mix = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            mix.add(trimmed.equalsIgnoreCase("none") ? List.of()
+                    : Arrays.stream(trimmed.split("\\+")).map(String::trim).filter(code -> !code.isEmpty()).toList());
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.coupon-mix 至少要有一組優惠券組合");
+        }
+        return mix;
+    }
+
+    /**
+     * @return 負載測試使用的產品 ID，由測試在啟動應用程式後寫入
+     */
+    static List<String> productIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            ids.add(String.format("%s%04d", PRODUCT_ID_PREFIX, i));
+        }
+        return ids;
+    }
+
+    private static HttpRequest postJson(URI uri, String json) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static String formatCouponMix(List<List<String>> couponMix) {
+        return String.join(",", couponMix.stream()
+                .map(coupons -> coupons.isEmpty() ? "none" : String.join("+", coupons))
+                .toList());
+    }
+
+    /**
+     * @return 下一個要送出的請求；可從多個執行緒同時呼叫
+     */
+    HttpRequest next() {
+        return requests.get((int) Math.floorMod(next.getAndIncrement(), (long) requests.size()));
+    }
+
+    /**
+     * @return 情境名稱，用於報表與基準值的鍵
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return 影響結果的參數；與基準值記錄的參數不同時不比較
+     */
+    String description() {
+        return description;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.service.CartStreamingService;
+
+/**
+ * 以本機 NDJSON 檔案進行大量重新計價。
+ * <p>
+ * 只有在設定 {@code demo.reprice.input} 時才會啟用，於應用程式就緒後
+ * 將輸入檔中的購物車逐區塊計價並寫到 {@code demo.reprice.output}。
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "demo.reprice", name = "input")
+public class BulkRepricingRunner {
+    private static final Logger log = LoggerFactory.getLogger(BulkRepricingRunner.class);
+    private final CartStreamingService cartStreamingService;
+    private final Path input;
+    private final Path output;
+
+    /**
+     * 建構 BulkRepricingRunner。
+     *
+     * @param cartStreamingService 串流計價服務
+     * @param input                NDJSON 輸入檔路徑
+     * @param output               NDJSON 輸出檔路徑，預設為輸入檔名加上 {@code .priced}
+     */
+    public BulkRepricingRunner(CartStreamingService cartStreamingService,
+            @Value("${demo.reprice.input}") Path input,
+            @Value("${demo.reprice.output:}") String output) {
+        this.cartStreamingService = cartStreamingService;
+        this.input = input;
+        this.output = output.isBlank() ? Path.of(input + ".priced") : Path.of(output);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void reprice() throws IOException {
+        log.info("開始重新計價 {} -> {}", input, output);
+        cartStreamingService.priceNdjson(input, output);
+    }
+}
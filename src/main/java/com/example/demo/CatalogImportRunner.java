@@ -0,0 +1,44 @@
+package com.example.demo;
+
+import java.io.IOException;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.config.CatalogImportProperties;
+import com.example.demo.service.CatalogImportFormat;
+import com.example.demo.service.CatalogImportService;
+
+/**
+ * 啟動時從 {@code demo.catalog-import.products} 與 {@code demo.catalog-import.coupons} 整批匯入產品與優惠券。
+ * <p>
+ * 在範例數據 ({@link DataInitializer}) 之前執行；已匯入資料時範例數據不會覆寫。
+ * 匯入失敗時啟動失敗，不以不完整的目錄提供服務。
+ * </p>
+ */
+@Component
+public class CatalogImportRunner {
+    private final CatalogImportService catalogImportService;
+    private final CatalogImportProperties properties;
+
+    public CatalogImportRunner(CatalogImportService catalogImportService, CatalogImportProperties properties) {
+        this.catalogImportService = catalogImportService;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void importCatalog() throws IOException {
+        if (properties.products() != null) {
+            catalogImportService.importProducts(properties.products(),
+                    CatalogImportFormat.fromFileName(properties.products()));
+        }
+        if (properties.coupons() != null) {
+            catalogImportService.importCoupons(properties.coupons(),
+                    CatalogImportFormat.fromFileName(properties.coupons()));
+        }
+    }
+}
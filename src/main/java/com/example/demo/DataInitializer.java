@@ -4,6 +4,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import com.example.demo.model.Coupon;
@@ -33,13 +35,23 @@ public class DataInitializer {
     }
 
     @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1) // 在啟動匯入 (CatalogImportRunner) 之後、其他啟動工作 (例如重新計價) 之前載入
     public void initializeData() throws Exception {
-        productRepository.save(new Product("P001", "高效能筆記型電腦", 700));
-        productRepository.save(new Product("P002", "無線降噪耳機", 300));
-        productRepository.save(new Product("P003", "智能手錶", 8000));
-        productRepository.save(new Product("P004", "4K顯示器", 12000));
-        log.debug("範例產品已初始化");
+        // 持久化儲存、產品目錄快照或啟動匯入已有資料時不覆寫
+        if (productRepository.count() > 0) {
+            log.info("產品儲存已有 {} 項產品，略過範例產品初始化", productRepository.count());
+        } else {
+            productRepository.save(new Product("P001", "高效能筆記型電腦", 700));
+            productRepository.save(new Product("P002", "無線降噪耳機", 300));
+            productRepository.save(new Product("P003", "智能手錶", 8000));
+            productRepository.save(new Product("P004", "4K顯示器", 12000));
+            log.debug("範例產品已初始化");
+        }
 
+        if (couponRepository.count() > 0) {
+            log.info("優惠券儲存已有 {} 張優惠券，略過範例優惠券初始化", couponRepository.count());
+            return;
+        }
         couponRepository.save(new Coupon("SAVE100", "折抵券：現折100元", 100));
         couponRepository.save(new Coupon("SAVE500", "折抵券：現折500元", 500));
         couponRepository.save(new Coupon("BIGSAVE", "超級折抵券：現折1000元", 1000));
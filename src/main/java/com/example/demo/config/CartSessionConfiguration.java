@@ -0,0 +1,27 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.CartSessionService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 依 {@code demo.cart-session.*} 建立購物車工作階段服務。
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CartSessionProperties.class)
+public class CartSessionConfiguration {
+
+    @Bean
+    public CartSessionService cartSessionService(CartSessionProperties properties, ProductRepository productRepository,
+            CouponRepository couponRepository, PricingMetrics pricingMetrics, MeterRegistry meterRegistry) {
+        return new CartSessionService(productRepository, couponRepository, pricingMetrics,
+                properties.maximumSessions(), properties.idleTimeout(), meterRegistry);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * 購物車工作階段的設定 ({@code demo.cart-session.*})。
+ *
+ * @param maximumSessions 同時保留的工作階段上限，超過時淘汰最不常用的工作階段
+ * @param idleTimeout     工作階段閒置超過此時間即失效
+ */
+@ConfigurationProperties("demo.cart-session")
+public record CartSessionProperties(
+        @DefaultValue("100000") long maximumSessions,
+        @DefaultValue("30m") Duration idleTimeout) {
+}
@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.CatalogImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 依 {@code demo.catalog-import.*} 建立整批匯入服務。
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CatalogImportProperties.class)
+public class CatalogImportConfiguration {
+
+    @Bean
+    public CatalogImportService catalogImportService(CatalogImportProperties properties,
+            ProductRepository productRepository, CouponRepository couponRepository, ObjectMapper objectMapper) {
+        return new CatalogImportService(productRepository, couponRepository, objectMapper,
+                properties.parallelism(), properties.chunkSize().toBytes());
+    }
+}
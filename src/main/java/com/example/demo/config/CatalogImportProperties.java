@@ -0,0 +1,23 @@
+package com.example.demo.config;
+
+import java.nio.file.Path;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 整批匯入產品與優惠券的設定 ({@code demo.catalog-import.*})。
+ *
+ * @param products    啟動時匯入的產品檔案 (CSV 或 NDJSON，依副檔名判斷)；未設定時不匯入
+ * @param coupons     啟動時匯入的優惠券檔案；未設定時不匯入
+ * @param parallelism 同時解析的執行緒數；0 表示使用可用的處理器數
+ * @param chunkSize   每個解析區塊的大小，區塊數量決定可平行的程度
+ */
+@ConfigurationProperties("demo.catalog-import")
+public record CatalogImportProperties(
+        Path products,
+        Path coupons,
+        @DefaultValue("0") int parallelism,
+        @DefaultValue("64MB") DataSize chunkSize) {
+}
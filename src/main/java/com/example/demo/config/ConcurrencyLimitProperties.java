@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * 計價端點的自適應並行上限設定 ({@code demo.concurrency-limit.*})。
+ *
+ * @param enabled      是否啟用並行上限；停用時不註冊攔截器
+ * @param initialLimit 啟動時的並行上限
+ * @param minLimit     並行上限的下限
+ * @param maxLimit     並行上限的上限
+ * @param rttTolerance 短期延遲可高於長期基準延遲多少倍才開始降低上限
+ * @param smoothing    每次調整時新估計值所佔的比重 (0-1)，越小越平穩
+ * @param longWindow   長期基準延遲的平均樣本數，越大越慢跟上新的延遲水準
+ * @param backoffRatio 請求失敗 (例外或 5xx) 時上限乘上的比例
+ */
+@ConfigurationProperties("demo.concurrency-limit")
+public record ConcurrencyLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100") int initialLimit,
+        @DefaultValue("20") int minLimit,
+        @DefaultValue("2000") int maxLimit,
+        @DefaultValue("2.0") double rttTolerance,
+        @DefaultValue("0.2") double smoothing,
+        @DefaultValue("600") int longWindow,
+        @DefaultValue("0.9") double backoffRatio) {
+}
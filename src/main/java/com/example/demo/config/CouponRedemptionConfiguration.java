@@ -0,0 +1,35 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.quota.InMemoryQuotaBackend;
+import com.example.demo.quota.QuotaBackend;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.service.CouponRedemptionService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 依 {@code demo.coupon-redemption.*} 建立優惠券使用額度服務。
+ * 未提供其他 {@link QuotaBackend} 時使用本程序記憶體中的額度，適用於單一節點部署。
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CouponRedemptionProperties.class)
+public class CouponRedemptionConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public QuotaBackend quotaBackend() {
+        return new InMemoryQuotaBackend();
+    }
+
+    @Bean(destroyMethod = "returnLeases")
+    public CouponRedemptionService couponRedemptionService(CouponRedemptionProperties properties,
+            CouponRepository couponRepository, QuotaBackend quotaBackend, MeterRegistry meterRegistry) {
+        return new CouponRedemptionService(couponRepository, quotaBackend, properties.reservationTtl(),
+                properties.stripes(), properties.leaseSize(), meterRegistry);
+    }
+}
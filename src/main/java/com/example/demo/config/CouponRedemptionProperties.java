@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * 優惠券使用額度的設定 ({@code demo.coupon-redemption.*})。
+ *
+ * @param reservationTtl 預留未確認時自動釋放的時間
+ * @param stripes        每張優惠券的計數槽數；0 表示依 CPU 核心數決定
+ * @param leaseSize      每次向共享額度後端租用的額度數；越大越少存取後端，但節點當機時損失的額度也越多
+ */
+@ConfigurationProperties("demo.coupon-redemption")
+public record CouponRedemptionProperties(
+        @DefaultValue("5m") Duration reservationTtl,
+        @DefaultValue("0") int stripes,
+        @DefaultValue("64") int leaseSize) {
+}
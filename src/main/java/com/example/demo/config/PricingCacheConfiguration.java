@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 依 {@code demo.pricing-cache.*} 建立單一購物車的計價結果快取。
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(PricingCacheProperties.class)
+public class PricingCacheConfiguration {
+
+    @Bean
+    public PricingResultCache pricingResultCache(PricingCacheProperties properties, MeterRegistry meterRegistry) {
+        return properties.enabled()
+                ? new PricingResultCache(properties.maximumMemory().toBytes(), properties.ttl(), meterRegistry)
+                : PricingResultCache.disabled();
+    }
+}
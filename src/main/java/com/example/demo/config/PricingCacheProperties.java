@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 計價結果快取的設定 ({@code demo.pricing-cache.*})。
+ *
+ * @param enabled       是否快取單一購物車的計價結果
+ * @param maximumMemory 快取鍵與結果粗估佔用記憶體的上限，超過時以 W-TinyLFU 淘汰
+ * @param ttl           結果寫入後的存活時間
+ */
+@ConfigurationProperties("demo.pricing-cache")
+public record PricingCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("32MB") DataSize maximumMemory,
+        @DefaultValue("10m") Duration ttl) {
+}
@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.logging.PricingEventLogger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 依 {@code demo.pricing-log.*} 建立非同步的計價事件日誌。
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(PricingLogProperties.class)
+public class PricingLogConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public PricingEventLogger pricingEventLogger(PricingLogProperties properties, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        return new PricingEventLogger(properties, objectMapper, meterRegistry);
+    }
+}
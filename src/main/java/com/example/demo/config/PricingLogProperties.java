@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * 計價事件日誌的設定 ({@code demo.pricing-log.*})。
+ *
+ * @param enabled          是否記錄計價事件
+ * @param sampleRate       一般計價事件的取樣比例 (0 到 1)；慢速或失敗的計價不受取樣影響，一律記錄
+ * @param slowOrFailedOnly 為 true 時只記錄慢速或失敗的計價，忽略 {@code sampleRate}
+ * @param slowThreshold    計價耗時達到此值即視為慢速
+ * @param bufferSize       等待寫出的事件上限，緩衝區滿時新事件直接丟棄，不會阻塞請求執行緒
+ */
+@ConfigurationProperties("demo.pricing-log")
+public record PricingLogProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("0.01") double sampleRate,
+        @DefaultValue("false") boolean slowOrFailedOnly,
+        @DefaultValue("200ms") Duration slowThreshold,
+        @DefaultValue("8192") int bufferSize) {
+}
@@ -0,0 +1,23 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 反應式模式 ({@code spring.main.web-application-type=reactive}) 的伺服器設定。
+ * <p>
+ * Tomcat 與 Reactor Netty 同時在 classpath 上時，Spring Boot 預設會以 Tomcat 承載 WebFlux；
+ * 這裡明確改用 Netty 的事件迴圈，以少量執行緒維持大量並行連線。
+ * </p>
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfiguration {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.store.CachingEntityStore;
+import com.example.demo.repository.store.EntityStore;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.repository.store.JdbcCouponStore;
+import com.example.demo.repository.store.JdbcProductStore;
+import com.example.demo.repository.store.LatencySimulatingEntityStore;
+import com.example.demo.repository.store.MeteredEntityStore;
+import com.example.demo.repository.store.MeteredProductStore;
+import com.example.demo.repository.store.ProductStore;
+import com.example.demo.repository.store.SnapshotProductStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 依 {@code demo.store.type} 建立產品與優惠券的儲存。
+ * <p>
+ * {@code memory} 直接使用記憶體儲存 (產品使用以序號查價的 {@link IndexedProductStore})；{@code jdbc} 使用嵌入式資料庫並在前方加上
+ * {@link CachingEntityStore}，讓快取暖機後的計價延遲接近純記憶體儲存；
+ * {@code snapshot} 以記憶體映射方式載入產品目錄快照，啟動時間與產品數量無關；快照儲存另外註冊為 bean，
+ * 讓應用程式關閉時將尚未寫回的產品寫入快照檔 ({@link SnapshotProductStore#close()})。
+ * 設定 {@code demo.store.simulated-latency} 時，兩個儲存外層都會加上固定延遲，供負載測試使用。
+ * 最外層以 {@link MeteredEntityStore} 記錄查詢延遲，讀穿快取的命中率以 {@code cache.*} 指標公開。
+ * </p>
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(StoreProperties.class)
+public class StoreConfiguration {
+
+    @Bean
+    @Primary
+    public ProductStore productStore(StoreProperties properties, ObjectProvider<JdbcClient> jdbcClient,
+            ObjectProvider<SnapshotProductStore> snapshotStore, MeterRegistry meterRegistry) {
+        ProductStore store = switch (properties.type()) {
+            case MEMORY -> new IndexedProductStore();
+            case JDBC -> ProductStore.of(monitored(new CachingEntityStore<>(new JdbcProductStore(jdbcClient.getObject()),
+                    Product::getId, properties.cacheMaxSize()), "product", meterRegistry));
+            case SNAPSHOT -> snapshotStore.getObject();
+        };
+        if (isLatencySimulated(properties)) {
+            store = ProductStore.of(new LatencySimulatingEntityStore<>(store, properties.simulatedLatency()));
+        }
+        return new MeteredProductStore(store, meterRegistry, properties.lookupSampleInterval());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "demo.store", name = "type", havingValue = "snapshot")
+    public SnapshotProductStore snapshotProductStore(StoreProperties properties) throws IOException {
+        return new SnapshotProductStore(properties.snapshotPath(), properties.snapshotCompactThreshold());
+    }
+
+    @Bean
+    public EntityStore<Coupon> couponStore(StoreProperties properties, ObjectProvider<JdbcClient> jdbcClient,
+            MeterRegistry meterRegistry) {
+        EntityStore<Coupon> store = switch (properties.type()) {
+            case MEMORY, SNAPSHOT -> new InMemoryEntityStore<>(Coupon::getCode);
+            case JDBC -> monitored(new CachingEntityStore<>(new JdbcCouponStore(jdbcClient.getObject()),
+                    Coupon::getCode, properties.cacheMaxSize()), "coupon", meterRegistry);
+        };
+        if (isLatencySimulated(properties)) {
+            store = new LatencySimulatingEntityStore<>(store, properties.simulatedLatency());
+        }
+        return new MeteredEntityStore<>(store, "coupon", meterRegistry);
+    }
+
+    private static <T> CachingEntityStore<T> monitored(CachingEntityStore<T> store, String cacheName,
+            MeterRegistry meterRegistry) {
+        CaffeineCacheMetrics.monitor(meterRegistry, store.cache(), cacheName);
+        return store;
+    }
+
+    private static boolean isLatencySimulated(StoreProperties properties) {
+        return properties.simulatedLatency().isPositive();
+    }
+}
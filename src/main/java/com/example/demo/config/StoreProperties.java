@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * 產品與優惠券儲存的設定 ({@code demo.store.*})。
+ *
+ * @param type         儲存類型
+ * @param cacheMaxSize 持久化儲存前方讀穿快取的項目上限 (每個儲存各自計算)
+ * @param snapshotPath {@code snapshot} 類型使用的產品目錄快照檔案路徑
+ * @param snapshotCompactThreshold {@code snapshot} 類型在記憶體中累積多少筆寫入後合併寫回快照檔
+ * @param simulatedLatency 每次存取儲存前額外等待的時間，用於負載測試模擬較慢的儲存；0 表示不啟用
+ * @param lookupSampleInterval 計價時每幾次序號查價記錄一次延遲 ({@code demo.store.lookup{operation=ordinalOf}})；
+ *                             1 表示每次都記錄
+ */
+@ConfigurationProperties("demo.store")
+public record StoreProperties(
+        @DefaultValue("memory") StoreType type,
+        @DefaultValue("10000") long cacheMaxSize,
+        @DefaultValue("./data/catalog.snapshot") Path snapshotPath,
+        @DefaultValue("10000") int snapshotCompactThreshold,
+        @DefaultValue("0ms") Duration simulatedLatency,
+        @DefaultValue("64") int lookupSampleInterval) {
+
+    public enum StoreType {
+        /** 純記憶體，重新啟動後資料消失 (預設)。 */
+        MEMORY,
+        /** 嵌入式 SQL 資料庫 (由 {@code spring.datasource.*} 設定)，前方加上讀穿快取。 */
+        JDBC,
+        /**
+         * 產品從記憶體映射的二進位快照讀取，寫入在累積一定數量、整批匯入或關閉時寫回快照檔；
+         * 優惠券使用記憶體儲存。
+         */
+        SNAPSHOT
+    }
+}
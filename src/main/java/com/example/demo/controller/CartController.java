@@ -1,100 +1,128 @@
 package com.example.demo.controller;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 
+import com.example.demo.dto.ApplicableCouponDto;
+import com.example.demo.dto.BatchCalculationResultDto;
 import com.example.demo.dto.CalculationResultDto;
-import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.CompactCalculationResultDto;
 import com.example.demo.dto.ShoppingCartInput;
-import com.example.demo.model.CartItem;
-import com.example.demo.repository.CouponRepository;
-import com.example.demo.repository.ProductRepository;
+import com.example.demo.limit.ConcurrencyPriority;
+import com.example.demo.limit.RequestPriority;
+import com.example.demo.logging.PricingEventLogger;
 import com.example.demo.service.CartService;
+import com.example.demo.service.CartStreamingService;
+import com.example.demo.service.CouponSelectionMode;
+import com.example.demo.view.CheckoutPageRenderer;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * 處理購物車相關請求的控制器。
  * <p>
  * 此控制器負責：
  * <ul>
- *     <li>顯示購物車頁面 ({@code GET /cart})，包含初始商品項目與可選優惠券。</li>
+ *     <li>顯示購物車頁面 ({@code GET /cart})，包含初始商品項目與可套用在初始購物車上的優惠券；頁面由 {@link CheckoutPageRenderer} 以快取片段組成。</li>
+ *     <li>列出可套用在購物車上的優惠券及各自的折扣 ({@code POST /cart/coupons/applicable})。</li>
  *     <li>接收購物車內容並計算最終價格 ({@code POST /cart/calculate})，應用選定之優惠券。</li>
+ *     <li>一次計算多個購物車的價格 ({@code POST /cart/calculate/batch})，每個購物車各自回傳結果或錯誤。</li>
+ *     <li>以 NDJSON 串流方式大量計價 ({@code POST /cart/calculate/stream})。</li>
  * </ul>
+ * 計價端點受自適應並行上限控管 ({@link ConcurrencyPriority})：頁面優先於預覽計價，批次與串流計價最先被拒絕。
+ * 以反應式模式啟動時改由 {@link ReactiveCartController} 提供計價 API。
  * </p>
  */
 @Controller
 @RequestMapping("/cart")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CartController {
 
     private static final Logger log = LoggerFactory.getLogger(CartController.class);
 
+    private static final MediaType TEXT_HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
     private final CartService cartService;
-    private final ProductRepository productRepository;
-    private final CouponRepository couponRepository;
+    private final CartStreamingService cartStreamingService;
+    private final CheckoutPageRenderer checkoutPageRenderer;
+    private final PricingEventLogger pricingEventLogger;
 
     /**
      * 建構一個新的 {@code CartController}。
      *
      * @param cartService 購物車服務，用於處理購物車邏輯。
-     * @param productRepository 商品儲存庫，用於獲取商品資訊。
-     * @param couponRepository 優惠券儲存庫，用於獲取優惠券資訊。
+     * @param cartStreamingService 串流計價服務，用於處理 NDJSON 大量計價。
+     * @param checkoutPageRenderer 購物車頁面渲染器，以快取片段組出頁面。
+     * @param pricingEventLogger 非同步計價事件日誌，用於記錄取樣、慢速或失敗的計價。
      */
-    public CartController(CartService cartService, ProductRepository productRepository, CouponRepository couponRepository) {
+    public CartController(CartService cartService, CartStreamingService cartStreamingService,
+            CheckoutPageRenderer checkoutPageRenderer, PricingEventLogger pricingEventLogger) {
         this.cartService = cartService;
-        this.productRepository = productRepository;
-        this.couponRepository = couponRepository;
+        this.cartStreamingService = cartStreamingService;
+        this.checkoutPageRenderer = checkoutPageRenderer;
+        this.pricingEventLogger = pricingEventLogger;
     }
 
     /**
-     * 處理 {@code GET /cart} 請求，顯示購物車頁面。
+     * 處理 {@code GET /cart} 請求，回傳購物車頁面。
      * <p>
-     * 此方法會將所有商品、所有優惠券以及一組預設的購物車項目加入模型中，
-     * 並渲染 {@code checkout} 視圖。
+     * 頁面由 {@link CheckoutPageRenderer} 以快取的預渲染片段組成，只有購物車商品列在每次請求時渲染。
+     * 瀏覽器接受 gzip 時回傳預先壓縮的內容；{@code If-None-Match} 與 ETag 相符時回傳 304 (Not Modified)。
      * </p>
      *
-     * @param model Spring MVC 模型，用於將數據傳遞給視圖。
-     * @return 視圖名稱 ({@code "checkout"})。
+     * @param request        用於比對 {@code If-None-Match} 的請求。
+     * @param acceptEncoding 瀏覽器可接受的內容編碼。
+     * @return 購物車頁面的 HTML；內容未變更時為 null (已回應 304)。
      */
     @GetMapping
-    public String viewCartPage(Model model) {
-        model.addAttribute("allProducts", productRepository.findAll());
-        model.addAttribute("allCoupons", couponRepository.findAll());
-        model.addAttribute("initialFixedCartItemsForDisplay", getInitialFixedCartItemsForDisplay());
-        log.info("提供 checkout.mustache 頁面骨架及初始數據 (複選優惠券版)。");
-        return "checkout";
+    @ConcurrencyPriority(RequestPriority.PAGE)
+    public ResponseEntity<byte[]> viewCartPage(WebRequest request,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CheckoutPageRenderer.Page page = checkoutPageRenderer.render(acceptsGzip(acceptEncoding));
+        if (request.checkNotModified(page.etag())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(TEXT_HTML_UTF8)
+                .eTag(page.etag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (page.gzip()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(page.body());
     }
-    
-    /**
-     * 準備一組固定的初始購物車項目用於前端顯示。
-     * <p>
-     * 這組項目是硬編碼的，主要用於演示或提供一個預設的購物車狀態。
-     * </p>
-     * @return 包含初始商品的 {@link CartItem} 列表。
-     */
-    private List<CartItem> getInitialFixedCartItemsForDisplay() {
-        List<CartItem> displayItems = new ArrayList<>();
-        // 定義一組預設的購物車項目 (商品ID與數量)
-        List<CartItemInput> initialInputs = List.of(
-            new CartItemInput("P001", 1), // 假設商品 P001 一件
-            new CartItemInput("P002", 2)  // 假設商品 P002 兩件
-        );
-        for (CartItemInput input : initialInputs) {
-            productRepository.findById(input.productId()).ifPresent(product -> {
-                displayItems.add(new CartItem(product, input.quantity()));
-            });
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
         }
-        log.debug("準備了 {} 個初始購物車項目用於顯示。", displayItems.size());
-        return displayItems;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].strip().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     /**
@@ -102,21 +130,141 @@ public class CartController {
      * <p>
      * 此方法接收包含商品項目和選定優惠券的 {@link ShoppingCartInput}，
      * 然後調用 {@link CartService} 計算折扣後的總價、折扣金額等。
+     * 計價事件交由 {@link PricingEventLogger} 非同步記錄 (依設定取樣)，不在請求執行緒上格式化日誌。
+     * </p>
+     * <p>
+     * {@code mode} 參數決定優惠券的選擇方式 (見 {@link CouponSelectionMode})：{@code stack} (預設) 依序疊加所選優惠券；
+     * {@code best} 從所選優惠券中挑出最佳組合；{@code best-all} 從所有優惠券中挑出最佳組合。
+     * </p>
+     * <p>
+     * 請求與回應除了 JSON 之外也可使用二進位編碼，依 {@code Content-Type} 與 {@code Accept} 協商：
+     * {@code application/cbor} 或 {@code application/x-jackson-smile}。
+     * 加上 {@code compact=true} 時改由 {@link #calculateCartCompact} 回傳只含優惠券代碼的結果。
      * </p>
      *
      * @param shoppingCartInput 包含購物車商品和選定優惠券的輸入數據。
-     * @return 如果輸入無效，返回 HTTP 400 (Bad Request)；否則，返回包含計算結果的 {@link CalculationResultDto} 及 HTTP 200 (OK)。
+     * @param mode 優惠券選擇方式。
+     * @return 如果輸入或 {@code mode} 無效，返回 HTTP 400 (Bad Request)；否則，返回包含計算結果的 {@link CalculationResultDto} 及 HTTP 200 (OK)。
      */
     @PostMapping("/calculate")
+    @ConcurrencyPriority(RequestPriority.PREVIEW)
     @ResponseBody
-    public ResponseEntity<CalculationResultDto> calculateCart(@RequestBody ShoppingCartInput shoppingCartInput) {
+    public ResponseEntity<CalculationResultDto> calculateCart(@RequestBody ShoppingCartInput shoppingCartInput,
+            @RequestParam(name = "mode", required = false) String mode) {
+        return calculate(shoppingCartInput, mode);
+    }
+
+    /**
+     * 處理 {@code POST /cart/calculate?compact=true} 請求，計算購物車價格並回傳精簡結果。
+     * <p>
+     * 計價方式與 {@link #calculateCart} 相同，回應以 {@link CompactCalculationResultDto} 只列出已套用的優惠券代碼，
+     * 同樣支援 JSON、CBOR 與 Smile 編碼。
+     * </p>
+     *
+     * @param shoppingCartInput 包含購物車商品和選定優惠券的輸入數據。
+     * @param mode 優惠券選擇方式。
+     * @return 如果輸入或 {@code mode} 無效，返回 HTTP 400 (Bad Request)；否則返回 {@link CompactCalculationResultDto} 及 HTTP 200 (OK)。
+     */
+    @PostMapping(value = "/calculate", params = "compact=true")
+    @ConcurrencyPriority(RequestPriority.PREVIEW)
+    @ResponseBody
+    public ResponseEntity<CompactCalculationResultDto> calculateCartCompact(@RequestBody ShoppingCartInput shoppingCartInput,
+            @RequestParam(name = "mode", required = false) String mode) {
+        ResponseEntity<CalculationResultDto> response = calculate(shoppingCartInput, mode);
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            return ResponseEntity.status(response.getStatusCode()).build();
+        }
+        return ResponseEntity.ok(CompactCalculationResultDto.of(response.getBody()));
+    }
+
+    private ResponseEntity<CalculationResultDto> calculate(ShoppingCartInput shoppingCartInput, String mode) {
         if (shoppingCartInput == null || shoppingCartInput.items() == null) {
             log.error("錯誤: /cart/calculate 收到的 shoppingCartInput 或其 items 為 null。輸入數據: {}", shoppingCartInput);
             return ResponseEntity.badRequest().build(); 
         }
-        log.info("收到 /cart/calculate 請求: {}", shoppingCartInput);
-        CalculationResultDto result = cartService.calculateCartPrice(shoppingCartInput);
-        log.info("計算結果: {}", result);
-        return ResponseEntity.ok(result);
+        CouponSelectionMode selectionMode;
+        try {
+            selectionMode = CouponSelectionMode.fromParameter(mode);
+        } catch (IllegalArgumentException ex) {
+            log.warn("錯誤: /cart/calculate 收到無法辨識的 mode: {}", mode);
+            return ResponseEntity.badRequest().build();
+        }
+        long start = System.nanoTime();
+        try {
+            CalculationResultDto result = selectionMode == CouponSelectionMode.STACK
+                    ? cartService.calculateCartPrice(shoppingCartInput)
+                    : cartService.calculateCartPrice(shoppingCartInput, selectionMode);
+            pricingEventLogger.success("/cart/calculate", shoppingCartInput, result, System.nanoTime() - start);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException ex) {
+            pricingEventLogger.failure("/cart/calculate", shoppingCartInput, ex, System.nanoTime() - start);
+            throw ex;
+        }
+    }
+
+    /**
+     * 處理 {@code POST /cart/coupons/applicable} 請求，列出可套用在購物車上的優惠券。
+     * <p>
+     * 只回傳與購物車商品、分類或總價門檻相符且折扣大於 0 的優惠券，依折扣由大到小排列；
+     * 請求中的 {@code couponCodes} 不影響結果。
+     * </p>
+     *
+     * @param shoppingCartInput 購物車內容。
+     * @param limit 最多回傳幾張優惠券，預設 20。
+     * @return 如果輸入為 null 或 {@code limit} 小於 1，返回 HTTP 400 (Bad Request)；否則返回 {@link ApplicableCouponDto} 列表。
+     */
+    @PostMapping("/coupons/applicable")
+    @ConcurrencyPriority(RequestPriority.PREVIEW)
+    @ResponseBody
+    public ResponseEntity<List<ApplicableCouponDto>> findApplicableCoupons(@RequestBody ShoppingCartInput shoppingCartInput,
+            @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        if (shoppingCartInput == null || shoppingCartInput.items() == null || limit < 1) {
+            log.error("錯誤: /cart/coupons/applicable 收到無效的輸入。輸入數據: {}, limit: {}", shoppingCartInput, limit);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(cartService.findApplicableCoupons(shoppingCartInput, limit));
+    }
+
+    /**
+     * 處理 {@code POST /cart/calculate/batch} 請求，批次計算多個購物車的價格。
+     * <p>
+     * 請求內容為 {@link ShoppingCartInput} 的 JSON 陣列。批次中的產品與優惠券只查詢一次，
+     * 各購物車平行計價；單一購物車的錯誤會放在對應結果的 {@code error} 欄位，
+     * 而不是讓整個請求失敗。
+     * </p>
+     *
+     * @param shoppingCartInputs 要計價的購物車陣列。
+     * @return 如果輸入為 null，返回 HTTP 400 (Bad Request)；否則返回與輸入順序一致的 {@link BatchCalculationResultDto} 列表。
+     */
+    @PostMapping("/calculate/batch")
+    @ConcurrencyPriority(RequestPriority.BULK)
+    @ResponseBody
+    public ResponseEntity<List<BatchCalculationResultDto>> calculateCartBatch(@RequestBody List<ShoppingCartInput> shoppingCartInputs) {
+        if (shoppingCartInputs == null) {
+            log.error("錯誤: /cart/calculate/batch 收到的購物車陣列為 null。");
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("收到 /cart/calculate/batch 請求，共 {} 個購物車", shoppingCartInputs.size());
+        return ResponseEntity.ok(cartService.calculateCartPrices(shoppingCartInputs));
+    }
+
+    /**
+     * 處理 {@code POST /cart/calculate/stream} 請求，以 NDJSON 串流方式計價大量購物車。
+     * <p>
+     * 請求內容每行為一個 {@link ShoppingCartInput}，回應每行為一個 {@link BatchCalculationResultDto}。
+     * 結果逐區塊寫回，不會將整個請求緩衝在記憶體中。
+     * </p>
+     *
+     * @param requestBody NDJSON 格式的請求內容。
+     * @param response    用於直接寫出 NDJSON 結果的 HTTP 回應。
+     * @throws IOException 讀寫串流失敗時。
+     */
+    @PostMapping(value = "/calculate/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ConcurrencyPriority(RequestPriority.BULK)
+    public void calculateCartStream(InputStream requestBody, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        cartStreamingService.priceNdjson(requestBody, response.getOutputStream());
     }
-}
\ No newline at end of file
+}
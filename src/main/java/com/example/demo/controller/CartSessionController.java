@@ -0,0 +1,71 @@
+package com.example.demo.controller;
+
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.CartDeltaInput;
+import com.example.demo.dto.CartSessionDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.limit.ConcurrencyPriority;
+import com.example.demo.limit.RequestPriority;
+import com.example.demo.service.CartSessionService;
+
+/**
+ * 購物車工作階段 API，以增量變更維護購物車總價。
+ * <ul>
+ *     <li>{@code POST /cart/sessions}：建立工作階段，可附上初始的 {@link ShoppingCartInput}。</li>
+ *     <li>{@code PATCH /cart/sessions/{id}}：套用一批 {@link CartDeltaInput}，回傳更新後的總價。</li>
+ *     <li>{@code GET /cart/sessions/{id}}：查詢工作階段，包含完整的商品項目。</li>
+ *     <li>{@code DELETE /cart/sessions/{id}}：結束工作階段。</li>
+ * </ul>
+ * 工作階段的計價屬於預覽計價，受並行上限控管。
+ */
+@RestController
+@ConcurrencyPriority(RequestPriority.PREVIEW)
+@RequestMapping("/cart/sessions")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CartSessionController {
+
+    private final CartSessionService cartSessionService;
+
+    public CartSessionController(CartSessionService cartSessionService) {
+        this.cartSessionService = cartSessionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<CartSessionDto> createSession(@RequestBody(required = false) ShoppingCartInput initialCart) {
+        CartSessionDto session = cartSessionService.create(initialCart);
+        return ResponseEntity.created(URI.create("/cart/sessions/" + session.sessionId())).body(session);
+    }
+
+    @GetMapping("/{sessionId}")
+    public CartSessionDto getSession(@PathVariable String sessionId) {
+        return cartSessionService.get(sessionId);
+    }
+
+    @PatchMapping("/{sessionId}")
+    public ResponseEntity<CartSessionDto> updateSession(@PathVariable String sessionId,
+            @RequestBody List<CartDeltaInput> deltas) {
+        if (deltas == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(cartSessionService.update(sessionId, deltas));
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> deleteSession(@PathVariable String sessionId) {
+        cartSessionService.delete(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+}
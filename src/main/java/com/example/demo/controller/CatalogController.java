@@ -0,0 +1,155 @@
+package com.example.demo.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.CatalogImportResultDto;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CatalogPage;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductQuery;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductSort;
+import com.example.demo.service.CatalogImportFormat;
+import com.example.demo.service.CatalogImportService;
+
+/**
+ * 產品與優惠券目錄的分頁查詢 API。
+ * <ul>
+ *     <li>{@code GET /catalog/products}：依價格範圍 ({@code minPrice}、{@code maxPrice}) 與名稱前綴 ({@code namePrefix}) 查詢產品，
+ *         依 {@code sort} ({@code price} 或 {@code name}) 排序。</li>
+ *     <li>{@code GET /catalog/coupons}：依代碼順序列出優惠券。</li>
+ * </ul>
+ * 兩者皆以 {@code limit} (1-100，預設 20) 決定每頁筆數，並以回應中的 {@code nextCursor} 作為下一次請求的 {@code cursor}。
+ * <ul>
+ *     <li>{@code POST /catalog/products/import}、{@code POST /catalog/coupons/import}：以請求內容
+ *         ({@code text/csv} 或 {@code application/x-ndjson}) 整批取代產品目錄或優惠券 (見 {@link CatalogImportService})。</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/catalog")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CatalogController {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogController.class);
+
+    private static final int MAX_LIMIT = 100;
+
+    private final ProductRepository productRepository;
+    private final CouponRepository couponRepository;
+    private final CatalogImportService catalogImportService;
+
+    public CatalogController(ProductRepository productRepository, CouponRepository couponRepository,
+            CatalogImportService catalogImportService) {
+        this.productRepository = productRepository;
+        this.couponRepository = couponRepository;
+        this.catalogImportService = catalogImportService;
+    }
+
+    /**
+     * 查詢一頁產品。
+     *
+     * @return 如果參數或游標無效，返回 HTTP 400 (Bad Request)；否則返回此頁產品與下一頁的游標。
+     */
+    @GetMapping("/products")
+    public ResponseEntity<CatalogPage<Product>> findProducts(
+            @RequestParam(name = "minPrice", required = false) Integer minPrice,
+            @RequestParam(name = "maxPrice", required = false) Integer maxPrice,
+            @RequestParam(name = "namePrefix", required = false) String namePrefix,
+            @RequestParam(name = "sort", required = false) String sort,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            ProductQuery query = new ProductQuery(minPrice, maxPrice, namePrefix, ProductSort.fromParameter(sort),
+                    cursor, limit);
+            return ResponseEntity.ok(productRepository.findPage(query));
+        } catch (IllegalArgumentException ex) {
+            log.warn("錯誤: /catalog/products 收到無效的參數: {}", ex.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 查詢一頁優惠券。
+     *
+     * @return 如果參數或游標無效，返回 HTTP 400 (Bad Request)；否則返回此頁優惠券與下一頁的游標。
+     */
+    @GetMapping("/coupons")
+    public ResponseEntity<CatalogPage<Coupon>> findCoupons(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(couponRepository.findPage(cursor, limit));
+        } catch (IllegalArgumentException ex) {
+            log.warn("錯誤: /catalog/coupons 收到無效的參數: {}", ex.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 以請求內容整批取代產品目錄。內容先寫到暫存檔，再切成區塊平行解析。
+     *
+     * @return 匯入的筆數、速率與記憶體峰值；格式錯誤時由 {@link com.example.demo.exception.GlobalExceptionHandler} 返回 HTTP 400。
+     */
+    @PostMapping(value = "/products/import", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<CatalogImportResultDto> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        CatalogImportFormat format = CatalogImportFormat.fromContentType(contentType);
+        Path file = spool(body);
+        try {
+            return ResponseEntity.ok(catalogImportService.importProducts(file, format));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 以請求內容整批取代所有優惠券。
+     *
+     * @return 匯入的筆數、速率與記憶體峰值；格式錯誤時由 {@link com.example.demo.exception.GlobalExceptionHandler} 返回 HTTP 400。
+     */
+    @PostMapping(value = "/coupons/import", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<CatalogImportResultDto> importCoupons(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        CatalogImportFormat format = CatalogImportFormat.fromContentType(contentType);
+        Path file = spool(body);
+        try {
+            return ResponseEntity.ok(catalogImportService.importCoupons(file, format));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Path spool(InputStream body) throws IOException {
+        Path file = Files.createTempFile("catalog-import-", ".tmp");
+        try {
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.CheckoutInput;
+import com.example.demo.dto.CheckoutReservationDto;
+import com.example.demo.limit.ConcurrencyPriority;
+import com.example.demo.limit.RequestPriority;
+import com.example.demo.service.CheckoutService;
+
+/**
+ * 結帳 API，控管優惠券的使用次數上限。
+ * <ul>
+ *     <li>{@code POST /cart/checkout}：預留優惠券額度並計價；額度不足時回傳 409。</li>
+ *     <li>{@code POST /cart/checkout/{id}/commit}：確認預留。</li>
+ *     <li>{@code DELETE /cart/checkout/{id}}：釋放預留。</li>
+ * </ul>
+ * 結帳以最高優先等級通過並行上限，接近上限時先拒絕預覽計價。
+ */
+@RestController
+@ConcurrencyPriority(RequestPriority.CHECKOUT)
+@RequestMapping("/cart/checkout")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CheckoutController {
+
+    private final CheckoutService checkoutService;
+
+    public CheckoutController(CheckoutService checkoutService) {
+        this.checkoutService = checkoutService;
+    }
+
+    @PostMapping
+    public ResponseEntity<CheckoutReservationDto> checkout(@RequestBody CheckoutInput input) {
+        if (input == null || input.cart() == null || input.userId() == null || input.userId().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(checkoutService.checkout(input));
+    }
+
+    @PostMapping("/{reservationId}/commit")
+    public ResponseEntity<Void> commit(@PathVariable String reservationId) {
+        checkoutService.commit(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{reservationId}")
+    public ResponseEntity<Void> release(@PathVariable String reservationId) {
+        checkoutService.release(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+}
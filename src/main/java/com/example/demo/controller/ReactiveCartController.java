@@ -0,0 +1,98 @@
+package com.example.demo.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.BatchCalculationResultDto;
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.logging.PricingEventLogger;
+import com.example.demo.service.CouponSelectionMode;
+import com.example.demo.service.ReactiveCartService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 購物車計價 API 的反應式 (WebFlux) 版本，供需要維持大量並行連線的邊緣閘道使用。
+ * <p>
+ * 只有在以反應式模式啟動時 ({@code reactive} profile) 才會註冊，此時取代 {@link CartController}：
+ * <ul>
+ *     <li>{@code POST /cart/calculate}：計算單一購物車，回傳 {@code Mono<CalculationResultDto>}；
+ *         與 MVC 版本相同支援 {@code mode=stack|best|best-all} (見 {@link CouponSelectionMode})。</li>
+ *     <li>{@code POST /cart/calculate/batch}：接受 JSON 陣列或 NDJSON 串流的購物車，
+ *         逐筆以串流方式回傳 {@link BatchCalculationResultDto}。</li>
+ * </ul>
+ * 計價規則與 MVC 版本共用 {@link com.example.demo.service.CartService} 的計價核心。
+ * </p>
+ */
+@RestController
+@RequestMapping("/cart")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCartController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveCartController.class);
+
+    private final ReactiveCartService reactiveCartService;
+    private final PricingEventLogger pricingEventLogger;
+
+    public ReactiveCartController(ReactiveCartService reactiveCartService, PricingEventLogger pricingEventLogger) {
+        this.reactiveCartService = reactiveCartService;
+        this.pricingEventLogger = pricingEventLogger;
+    }
+
+    /**
+     * 處理 {@code POST /cart/calculate} 請求，計算購物車價格。
+     *
+     * @param shoppingCartInput 包含購物車商品和選定優惠券的輸入數據。
+     * @param mode 優惠券選擇方式。
+     * @return 如果輸入或 {@code mode} 無效，返回 HTTP 400 (Bad Request)；否則返回計算結果及 HTTP 200 (OK)。
+     */
+    @PostMapping("/calculate")
+    public Mono<ResponseEntity<CalculationResultDto>> calculateCart(@RequestBody(required = false) Mono<ShoppingCartInput> shoppingCartInput,
+            @RequestParam(name = "mode", required = false) String mode) {
+        CouponSelectionMode selectionMode;
+        try {
+            selectionMode = CouponSelectionMode.fromParameter(mode);
+        } catch (IllegalArgumentException ex) {
+            log.warn("錯誤: /cart/calculate 收到無法辨識的 mode: {}", mode);
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return shoppingCartInput
+                .filter(input -> input.items() != null)
+                .flatMap(input -> calculateAndLog(input, selectionMode))
+                .map(ResponseEntity::ok)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.error("錯誤: /cart/calculate 收到的 shoppingCartInput 或其 items 為 null。");
+                    return ResponseEntity.badRequest().build();
+                }));
+    }
+
+    private Mono<CalculationResultDto> calculateAndLog(ShoppingCartInput input, CouponSelectionMode mode) {
+        long start = System.nanoTime();
+        return reactiveCartService.calculateCartPrice(input, mode)
+                .doOnNext(result -> pricingEventLogger.success("/cart/calculate", input, result, System.nanoTime() - start))
+                .doOnError(ex -> pricingEventLogger.failure("/cart/calculate", input, ex, System.nanoTime() - start));
+    }
+
+    /**
+     * 處理 {@code POST /cart/calculate/batch} 請求，以串流方式批次計價。
+     *
+     * @param shoppingCartInputs JSON 陣列或 NDJSON 格式的購物車串流。
+     * @return 依輸入順序輸出的計價結果串流。
+     */
+    @PostMapping(value = "/calculate/batch",
+            consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE },
+            produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public Flux<BatchCalculationResultDto> calculateCartBatch(@RequestBody Flux<ShoppingCartInput> shoppingCartInputs) {
+        return reactiveCartService.calculateCartPrices(shoppingCartInputs);
+    }
+}
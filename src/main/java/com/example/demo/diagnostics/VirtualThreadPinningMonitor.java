@@ -0,0 +1,94 @@
+package com.example.demo.diagnostics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * 虛擬執行緒模式下偵測載體執行緒被釘選 (pinning) 的情況。
+ * <p>
+ * 透過 JFR 串流訂閱 {@code jdk.VirtualThreadPinned} 事件，超過門檻
+ * ({@code demo.virtual-threads.pinning-threshold}，預設 20ms) 的釘選會記錄警告與堆疊，
+ * 通常代表在 {@code synchronized} 區塊內做了阻塞 I/O。累計次數以 {@code demo.virtual-threads.pinned} 指標公開。
+ * 只有在 {@code spring.threads.virtual.enabled=true} 時啟用。
+ * </p>
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Duration threshold;
+    private final LongAdder pinnedEvents = new LongAdder();
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(@Value("${demo.virtual-threads.pinning-threshold:20ms}") Duration threshold,
+            MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        FunctionCounter.builder("demo.virtual-threads.pinned", pinnedEvents, LongAdder::sum)
+                .description("超過門檻的虛擬執行緒釘選次數")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("已啟用虛擬執行緒釘選偵測，門檻 {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    /**
+     * @return 啟動以來偵測到的釘選事件數
+     */
+    public long pinnedEvents() {
+        return pinnedEvents.sum();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        if (log.isWarnEnabled()) {
+            log.warn("虛擬執行緒被釘選 {} ms，執行緒: {}\n{}", event.getDuration().toMillis(),
+                    event.getThread() == null ? "?" : event.getThread().getJavaName(), topFrames(event));
+        }
+    }
+
+    private static String topFrames(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "\t(無堆疊資訊)";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + "(line " + frame.getLineNumber() + ")")
+                .collect(Collectors.joining("\n"));
+    }
+}
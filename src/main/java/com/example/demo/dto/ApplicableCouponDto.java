@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Coupon;
+
+/**
+ * DTO 用於列出可套用在購物車上的優惠券。
+ *
+ * @param coupon   優惠券
+ * @param discount 此優惠券單獨套用在購物車上時的折扣金額
+ */
+public record ApplicableCouponDto(Coupon coupon, long discount) {
+}
@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+/**
+ * DTO 用於封裝批次計價中單一購物車的結果。
+ * <p>
+ * 成功時 {@code result} 有值且 {@code error} 為 null；
+ * 失敗時 (例如折扣超過總價) {@code result} 為 null，{@code error} 為錯誤訊息，
+ * 不會影響同一批次中其他購物車的計算。
+ *
+ * @param index  此購物車在請求陣列 (或串流) 中的位置 (從 0 開始)
+ * @param result 計算結果；失敗時為 null
+ * @param error  錯誤訊息；成功時為 null
+ */
+public record BatchCalculationResultDto(long index, CalculationResultDto result, String error) {
+
+    public static BatchCalculationResultDto success(long index, CalculationResultDto result) {
+        return new BatchCalculationResultDto(index, result, null);
+    }
+
+    public static BatchCalculationResultDto failure(long index, String error) {
+        return new BatchCalculationResultDto(index, null, error);
+    }
+}
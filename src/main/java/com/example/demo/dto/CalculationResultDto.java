@@ -1,22 +1,24 @@
 package com.example.demo.dto;
 
-// import java.math.BigDecimal; // 將被移除
 import java.util.List;
 
 import com.example.demo.model.Coupon;
 
 /**
  * DTO 用於封裝購物車計算結果。
+ * <p>
+ * 金額以 {@code long} 表示，單位與 {@link com.example.demo.model.Product#getPrice()} 相同，
+ * 避免大量商品時 {@code int} 溢位，也避免計價過程中的自動裝箱。
  * 
  * @param originalTotal       原始總價
  * @param discountedTotal     折扣後總價
  * @param totalDiscountAmount 總折扣金額
- * @param appliedCoupon       如果有優惠券被套用，則為該優惠券的詳細信息；否則為 null。
+ * @param appliedCoupons      所有被套用的優惠券；沒有套用時為空列表。
  */
 public record CalculationResultDto(
-                Integer originalTotal,      // BigDecimal 改為 Integer
-                Integer discountedTotal,    // BigDecimal 改為 Integer
-                Integer totalDiscountAmount,// BigDecimal 改為 Integer
+                long originalTotal,
+                long discountedTotal,
+                long totalDiscountAmount,
                 List<Coupon> appliedCoupons) {
 
 }
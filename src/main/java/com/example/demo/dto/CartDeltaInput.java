@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+/**
+ * DTO 用於描述購物車工作階段的一次變更。
+ *
+ * @param op         變更類型
+ * @param productId  商品相關變更的產品 ID
+ * @param quantity   {@link Op#ADD_ITEM} 要增加的數量 (省略時為 1)，或 {@link Op#SET_QUANTITY} 的新數量 (0 表示移除)
+ * @param couponCode {@link Op#TOGGLE_COUPON} 要切換的優惠券代碼
+ */
+public record CartDeltaInput(Op op, String productId, Integer quantity, String couponCode) {
+
+    public enum Op {
+        /** 增加商品數量，商品不在購物車中時加入。 */
+        ADD_ITEM,
+        /** 移除商品。 */
+        REMOVE_ITEM,
+        /** 將商品數量設為指定值。 */
+        SET_QUANTITY,
+        /** 已套用則取消，未套用則套用優惠券。 */
+        TOGGLE_COUPON
+    }
+}
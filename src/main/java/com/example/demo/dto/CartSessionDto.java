@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * DTO 用於回傳購物車工作階段的狀態。
+ * <p>
+ * 套用變更的回應只包含總價，不列出商品項目，回應大小與購物車大小無關；
+ * 查詢工作階段時才會包含完整的 {@code items}。
+ *
+ * @param sessionId 工作階段 ID
+ * @param version   每次成功套用變更後遞增的版本號
+ * @param lineCount 商品項目數
+ * @param pricing   目前的計價結果
+ * @param items     商品項目；套用變更的回應中省略
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CartSessionDto(
+        String sessionId,
+        long version,
+        int lineCount,
+        CalculationResultDto pricing,
+        List<CartItemInput> items) {
+}
@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+/**
+ * 一次整批匯入的結果。
+ *
+ * @param type          匯入的資料類型 ({@code products} 或 {@code coupons})
+ * @param rows          解析的資料列數 (重複的鍵值以後出現者為準，實際筆數可能較少)
+ * @param bytes         輸入檔案大小
+ * @param parseMillis   平行解析耗時
+ * @param swapMillis    建立新目錄並替換的耗時
+ * @param rowsPerSecond 整體匯入速率 (資料列/秒)
+ * @param peakHeapBytes 匯入期間各堆積記憶體池峰值用量的總和 (上限估計，含匯入以外的用量)
+ */
+public record CatalogImportResultDto(
+        String type,
+        long rows,
+        long bytes,
+        long parseMillis,
+        long swapMillis,
+        double rowsPerSecond,
+        long peakHeapBytes) {
+}
@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+/**
+ * 結帳請求的 DTO。
+ *
+ * @param userId 使用者 ID，用於每位使用者的優惠券使用上限
+ * @param cart   要結帳的購物車內容
+ */
+public record CheckoutInput(String userId, ShoppingCartInput cart) {
+}
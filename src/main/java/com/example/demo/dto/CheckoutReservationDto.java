@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * DTO 用於回傳結帳時預留的優惠券額度與計價結果。
+ *
+ * @param reservationId 預留 ID，確認或釋放時使用
+ * @param expiresAt     未確認時自動釋放的時間
+ * @param couponCodes   已預留額度的優惠券代碼
+ * @param pricing       計價結果
+ */
+public record CheckoutReservationDto(
+        String reservationId,
+        Instant expiresAt,
+        List<String> couponCodes,
+        CalculationResultDto pricing) {
+}
@@ -0,0 +1,28 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import com.example.demo.model.Coupon;
+
+/**
+ * 精簡版的購物車計算結果，已套用的優惠券只列出代碼，不包含說明等完整內容。
+ * 供行動裝置與服務間呼叫以 {@code compact=true} 取得，減少序列化成本與傳輸量。
+ *
+ * @param originalTotal       原始總價
+ * @param discountedTotal     折扣後總價
+ * @param totalDiscountAmount 總折扣金額
+ * @param couponCodes         所有被套用的優惠券代碼；沒有套用時為空列表。
+ */
+public record CompactCalculationResultDto(
+        long originalTotal,
+        long discountedTotal,
+        long totalDiscountAmount,
+        List<String> couponCodes) {
+
+    public static CompactCalculationResultDto of(CalculationResultDto result) {
+        List<Coupon> coupons = result.appliedCoupons();
+        List<String> codes = coupons.isEmpty() ? List.of() : coupons.stream().map(Coupon::getCode).toList();
+        return new CompactCalculationResultDto(result.originalTotal(), result.discountedTotal(),
+                result.totalDiscountAmount(), codes);
+    }
+}
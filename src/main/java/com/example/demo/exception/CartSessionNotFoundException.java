@@ -0,0 +1,8 @@
+package com.example.demo.exception;
+
+public class CartSessionNotFoundException extends RuntimeException {
+
+    public CartSessionNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.exception;
+
+/**
+ * 整批匯入產品或優惠券失敗 (格式錯誤、資料列無法解析或儲存不支援整批替換)。
+ * 匯入失敗時目前的目錄保持不變。
+ */
+public class CatalogImportException extends RuntimeException {
+
+    public CatalogImportException(String message) {
+        super(message);
+    }
+
+    public CatalogImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.exception;
+
+import com.example.demo.limit.RequestPriority;
+
+/**
+ * 目前進行中的請求已達此優先等級可使用的並行上限，請求被立即拒絕而不排隊等候。
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    private final RequestPriority priority;
+    private final int limit;
+
+    public ConcurrencyLimitExceededException(RequestPriority priority, int limit) {
+        super("伺服器忙碌中，" + priority.tagValue() + " 等級的請求已達並行上限 " + limit);
+        this.priority = priority;
+        this.limit = limit;
+    }
+
+    public RequestPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return 拒絕當下此優先等級可使用的並行上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
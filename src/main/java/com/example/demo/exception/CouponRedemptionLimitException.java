@@ -0,0 +1,8 @@
+package com.example.demo.exception;
+
+public class CouponRedemptionLimitException extends RuntimeException {
+
+    public CouponRedemptionLimitException(String message) {
+        super(message);
+    }
+}
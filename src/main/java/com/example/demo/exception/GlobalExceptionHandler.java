@@ -5,7 +5,9 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -22,4 +24,74 @@ public class GlobalExceptionHandler {
         responseBody.put("message", ex.getMessage());
         return new ResponseEntity<>(responseBody, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(PriceOverflowException.class)
+    public ResponseEntity<Map<String, String>> handlePriceOverflowException(PriceOverflowException ex) {
+        log.warn("Handling PriceOverflowException: {}", ex.getMessage());
+        Map<String, String> responseBody = new HashMap<>();
+        responseBody.put("message", ex.getMessage());
+        return new ResponseEntity<>(responseBody, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidCartDeltaException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCartDeltaException(InvalidCartDeltaException ex) {
+        log.warn("Handling InvalidCartDeltaException: {}", ex.getMessage());
+        Map<String, String> responseBody = new HashMap<>();
+        responseBody.put("message", ex.getMessage());
+        return new ResponseEntity<>(responseBody, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidCouponRuleException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCouponRuleException(InvalidCouponRuleException ex) {
+        log.warn("Handling InvalidCouponRuleException: {}", ex.getMessage());
+        Map<String, String> responseBody = new HashMap<>();
+        responseBody.put("message", ex.getMessage());
+        return new ResponseEntity<>(responseBody, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(CartSessionNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleCartSessionNotFoundException(CartSessionNotFoundException ex) {
+        log.debug("Handling CartSessionNotFoundException: {}", ex.getMessage());
+        Map<String, String> responseBody = new HashMap<>();
+        responseBody.put("message", ex.getMessage());
+        return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(CouponRedemptionLimitException.class)
+    public ResponseEntity<Map<String, String>> handleCouponRedemptionLimitException(CouponRedemptionLimitException ex) {
+        log.debug("Handling CouponRedemptionLimitException: {}", ex.getMessage());
+        Map<String, String> responseBody = new HashMap<>();
+        responseBody.put("message", ex.getMessage());
+        return new ResponseEntity<>(responseBody, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ReservationNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleReservationNotFoundException(ReservationNotFoundException ex) {
+        log.debug("Handling ReservationNotFoundException: {}", ex.getMessage());
+        Map<String, String> responseBody = new HashMap<>();
+        responseBody.put("message", ex.getMessage());
+        return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(CatalogImportException.class)
+    public ResponseEntity<Map<String, String>> handleCatalogImportException(CatalogImportException ex) {
+        log.warn("Handling CatalogImportException: {}", ex.getMessage());
+        Map<String, String> responseBody = new HashMap<>();
+        responseBody.put("message", ex.getMessage());
+        return new ResponseEntity<>(responseBody, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ConcurrencyLimitExceededException.class)
+    public ResponseEntity<ProblemDetail> handleConcurrencyLimitExceededException(ConcurrencyLimitExceededException ex) {
+        log.debug("Handling ConcurrencyLimitExceededException: {}", ex.getMessage());
+        // 快速失敗的 503 以 problem details 回應，讓用戶端依 Retry-After 稍後重試
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        problem.setTitle("Concurrency limit exceeded");
+        problem.setProperty("message", ex.getMessage());
+        problem.setProperty("priority", ex.getPriority().tagValue());
+        problem.setProperty("limit", ex.getLimit());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(problem);
+    }
 }
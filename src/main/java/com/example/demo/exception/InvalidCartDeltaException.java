@@ -0,0 +1,8 @@
+package com.example.demo.exception;
+
+public class InvalidCartDeltaException extends RuntimeException {
+
+    public InvalidCartDeltaException(String message) {
+        super(message);
+    }
+}
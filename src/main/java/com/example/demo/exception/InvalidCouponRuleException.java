@@ -0,0 +1,8 @@
+package com.example.demo.exception;
+
+public class InvalidCouponRuleException extends RuntimeException {
+
+    public InvalidCouponRuleException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.demo.exception;
+
+public class PriceOverflowException extends RuntimeException {
+
+    public PriceOverflowException(String message) {
+        super(message);
+    }
+}
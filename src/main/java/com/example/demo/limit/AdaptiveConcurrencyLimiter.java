@@ -0,0 +1,207 @@
+package com.example.demo.limit;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.demo.config.ConcurrencyLimitProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * 依觀察到的延遲自動調整的並行上限，超過上限的請求立即拒絕 (load shedding)，而不是在執行緒池或連線佇列中排隊。
+ * <p>
+ * 上限以梯度法估計：維護短期與長期兩個延遲的指數移動平均，長期平均代表沒有排隊時的基準延遲。
+ * 每個樣本計算 {@code gradient = clamp(rttTolerance * 長期 / 短期, 0.5, 1)}，
+ * 新估計值為 {@code limit * gradient + sqrt(limit)}：延遲沒有明顯上升時上限以 {@code sqrt(limit)} 緩慢增加，
+ * 延遲開始排隊上升時上限依比例縮小；再以 {@code smoothing} 平滑後限制在 {@code [minLimit, maxLimit]}。
+ * 進行中的請求不到上限一半時不調整，避免閒置時把上限推到沒意義的高度。
+ * 請求失敗 (例外或 5xx) 時改以 {@code backoffRatio} 乘法遞減 (AIMD)，讓下游故障時迅速減壓。
+ * </p>
+ * <p>
+ * 每個 {@link RequestPriority} 只能使用上限的一部分，接近上限時低優先的預覽與批次計價先被拒絕，
+ * 結帳確認仍可取得許可。取得許可只有一次 CAS，更新估計值則在同步區塊內進行。
+ * </p>
+ * <p>
+ * 批次與串流請求 ({@link RequestPriority#samplesLatency()} 為 false) 的處理時間與請求大小成正比，
+ * 若計入延遲平均會讓一般請求的基準延遲失真，使上限在大批次結束後被誤判而縮小；
+ * 因此它們完成時不更新延遲平均，只有失敗時觸發退避。
+ * </p>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final double shortAlpha;
+    private final double longAlpha;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<RequestPriority, LongAdder> accepted = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, LongAdder> rejected = new EnumMap<>(RequestPriority.class);
+
+    // 以下估計狀態只在 synchronized onSample 內更新；limit 另外以 volatile 發佈給取得許可的路徑
+    private double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.minLimit = Math.max(1, properties.minLimit());
+        this.maxLimit = Math.max(minLimit, properties.maxLimit());
+        this.rttTolerance = Math.max(1.0, properties.rttTolerance());
+        this.smoothing = Math.min(1.0, Math.max(0.01, properties.smoothing()));
+        this.shortAlpha = 2.0 / (SHORT_WINDOW + 1);
+        this.longAlpha = 2.0 / (Math.max(SHORT_WINDOW, properties.longWindow()) + 1);
+        this.backoffRatio = Math.min(0.99, Math.max(0.1, properties.backoffRatio()));
+        this.estimatedLimit = Math.min(maxLimit, Math.max(minLimit, properties.initialLimit()));
+        this.limit = (int) estimatedLimit;
+
+        Gauge.builder("demo.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("目前估計的並行上限")
+                .register(meterRegistry);
+        Gauge.builder("demo.concurrency.in-flight", inFlight, AtomicInteger::get)
+                .description("進行中且受並行上限控管的請求數")
+                .register(meterRegistry);
+        TimeGauge.builder("demo.concurrency.rtt", this, TimeUnit.NANOSECONDS, limiter -> limiter.shortRttNanos)
+                .tag("window", "short")
+                .description("短期延遲的移動平均")
+                .register(meterRegistry);
+        TimeGauge.builder("demo.concurrency.rtt", this, TimeUnit.NANOSECONDS, limiter -> limiter.longRttNanos)
+                .tag("window", "long")
+                .description("長期基準延遲的移動平均")
+                .register(meterRegistry);
+        for (RequestPriority priority : RequestPriority.values()) {
+            accepted.put(priority, new LongAdder());
+            rejected.put(priority, new LongAdder());
+            FunctionCounter.builder("demo.concurrency.requests", accepted.get(priority), LongAdder::sum)
+                    .tags("priority", priority.tagValue(), "outcome", "accepted")
+                    .description("受並行上限控管的請求數")
+                    .register(meterRegistry);
+            FunctionCounter.builder("demo.concurrency.requests", rejected.get(priority), LongAdder::sum)
+                    .tags("priority", priority.tagValue(), "outcome", "rejected")
+                    .description("受並行上限控管的請求數")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 嘗試取得一個許可。
+     *
+     * @param priority 請求的優先等級
+     * @return 許可，請求結束時必須呼叫 {@link Permit#release(boolean)}；已達此等級的上限時為 null
+     */
+    public Permit tryAcquire(RequestPriority priority) {
+        int allowed = allowed(priority);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                rejected.get(priority).increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.get(priority).increment();
+                return new Permit(priority, current + 1, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * @return 此優先等級目前可使用的並行上限，至少為 1
+     */
+    public int allowed(RequestPriority priority) {
+        return Math.max(1, (int) (limit * priority.share()));
+    }
+
+    /**
+     * @return 目前估計的並行上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return 進行中的請求數
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 以一個完成的請求更新上限估計值。
+     *
+     * @param rttNanos 請求的處理時間 (奈秒)
+     * @param inFlight 此請求開始時 (含自身) 進行中的請求數
+     * @param dropped  請求是否失敗 (例外或 5xx)
+     */
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * backoffRatio);
+            limit = (int) estimatedLimit;
+            return;
+        }
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+        } else {
+            shortRttNanos += shortAlpha * (rttNanos - shortRttNanos);
+            longRttNanos += longAlpha * (rttNanos - longRttNanos);
+        }
+        // 長期平均被一段持續的高延遲拉高後，延遲回落時讓它較快跟上，避免上限長時間停在偏高的狀態
+        if (longRttNanos > shortRttNanos * 2) {
+            longRttNanos *= 0.95;
+        }
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 一個已取得的許可。每個許可只會釋放一次，重複呼叫 {@link #release(boolean)} 不會有作用。
+     */
+    public final class Permit {
+
+        private final RequestPriority priority;
+        private final int inFlightAtStart;
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(RequestPriority priority, int inFlightAtStart, long startNanos) {
+            this.priority = priority;
+            this.inFlightAtStart = inFlightAtStart;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * 釋放許可，並以此請求的處理時間更新上限估計值；不取樣延遲的等級只在失敗時更新。
+         *
+         * @param dropped 請求是否失敗 (例外或 5xx)
+         */
+        public void release(boolean dropped) {
+            if (released) {
+                return;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            if (!dropped && !priority.samplesLatency()) {
+                return;
+            }
+            onSample(System.nanoTime() - startNanos, inFlightAtStart, dropped);
+        }
+    }
+}
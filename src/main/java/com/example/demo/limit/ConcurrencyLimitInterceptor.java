@@ -0,0 +1,65 @@
+package com.example.demo.limit;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.example.demo.exception.ConcurrencyLimitExceededException;
+import com.example.demo.limit.AdaptiveConcurrencyLimiter.Permit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 對標註 {@link ConcurrencyPriority} 的處理方法套用 {@link AdaptiveConcurrencyLimiter}。
+ * <p>
+ * 在進入處理方法前取得許可，取不到時拋出 {@link ConcurrencyLimitExceededException}，
+ * 由 {@code GlobalExceptionHandler} 回應 503。許可存放在請求屬性中，於 {@link #afterCompletion} 釋放；
+ * 非同步處理 (串流回應) 的重新分派沿用原本的許可，直到整個回應完成才釋放。
+ * 串流回應屬於 {@link RequestPriority#BULK}，釋放時不計入延遲樣本 (見 {@link RequestPriority#samplesLatency()})。
+ * </p>
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitInterceptor(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod) || request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            return true;
+        }
+        RequestPriority priority = priorityOf(handlerMethod);
+        if (priority == null) {
+            return true;
+        }
+        Permit permit = limiter.tryAcquire(priority);
+        if (permit == null) {
+            throw new ConcurrencyLimitExceededException(priority, limiter.allowed(priority));
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            // 已由例外處理器轉成 4xx 的業務錯誤不算失敗，只有未處理的例外與 5xx 才觸發退避
+            permit.release(ex != null || response.getStatus() >= 500);
+        }
+    }
+
+    private static RequestPriority priorityOf(HandlerMethod handlerMethod) {
+        ConcurrencyPriority annotation = handlerMethod.getMethodAnnotation(ConcurrencyPriority.class);
+        if (annotation == null) {
+            annotation = handlerMethod.getBeanType().getAnnotation(ConcurrencyPriority.class);
+        }
+        return annotation == null ? null : annotation.value();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.limit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 標示處理方法 (或整個控制器) 受 {@link AdaptiveConcurrencyLimiter} 控管及其優先等級。
+ * 方法上的標註優先於類別上的標註；沒有標註的處理方法不受控管。
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConcurrencyPriority {
+
+    RequestPriority value();
+}
@@ -0,0 +1,51 @@
+package com.example.demo.limit;
+
+import java.util.Locale;
+
+/**
+ * 請求的優先等級。每個等級最多只能使用目前並行上限的一部分，
+ * 接近上限時低優先的請求先被拒絕，保留餘裕給較重要的請求。
+ * <p>
+ * 批次與串流請求的處理時間隨請求大小變化，不代表排隊造成的延遲，因此不作為延遲樣本 ({@link #samplesLatency()})；
+ * 它們仍佔用並行上限，失敗時也仍觸發退避。
+ * </p>
+ */
+public enum RequestPriority {
+    /** 結帳與確認預留：可使用全部的並行上限。 */
+    CHECKOUT(1.0, true),
+    /** 購物車頁面 ({@code GET /cart})。 */
+    PAGE(0.9, true),
+    /** 預覽計價 (計價、可用優惠券、購物車工作階段)。 */
+    PREVIEW(0.75, true),
+    /** 批次與串流計價。 */
+    BULK(0.5, false);
+
+    private final double share;
+    private final boolean samplesLatency;
+
+    RequestPriority(double share, boolean samplesLatency) {
+        this.share = share;
+        this.samplesLatency = samplesLatency;
+    }
+
+    /**
+     * @return 此等級可使用的並行上限比例
+     */
+    public double share() {
+        return share;
+    }
+
+    /**
+     * @return 此等級的處理時間是否用來更新延遲的移動平均
+     */
+    public boolean samplesLatency() {
+        return samplesLatency;
+    }
+
+    /**
+     * @return 指標標籤使用的小寫名稱
+     */
+    public String tagValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
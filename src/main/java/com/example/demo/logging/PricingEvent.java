@@ -0,0 +1,34 @@
+package com.example.demo.logging;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 一次計價的結構化日誌事件，由 {@link PricingEventLogger} 以一行 JSON 寫出。
+ * 只保留摘要欄位，不持有購物車輸入或結果物件，排隊等待寫出時不會延長它們的生命週期。
+ *
+ * @param timestamp       計價完成時間
+ * @param endpoint        觸發計價的端點
+ * @param reason          記錄此事件的原因：{@code sampled}、{@code slow} 或 {@code failed}
+ * @param items           購物車商品項目數
+ * @param couponCodes     請求的優惠券代碼數
+ * @param appliedCoupons  實際套用的優惠券數；失敗時為 0
+ * @param originalTotal   原始總價；失敗時為 0
+ * @param discountedTotal 折扣後總價；失敗時為 0
+ * @param durationMicros  計價耗時 (微秒)
+ * @param error           失敗時的例外類型與訊息；成功時不輸出
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PricingEvent(
+        Instant timestamp,
+        String endpoint,
+        String reason,
+        int items,
+        int couponCodes,
+        int appliedCoupons,
+        long originalTotal,
+        long discountedTotal,
+        long durationMicros,
+        String error) {
+}
@@ -0,0 +1,183 @@
+package com.example.demo.logging;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.demo.config.PricingLogProperties;
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 非同步、取樣的計價事件日誌。
+ * <p>
+ * 請求執行緒只負責判斷是否記錄，並把摘要事件放進固定大小的佇列；
+ * JSON 序列化與實際寫出由單一背景執行緒處理，寫到名為 {@value #EVENT_LOGGER} 的 logger (INFO)，
+ * 可在日誌設定中將它導向獨立的檔案或收集器。
+ * </p>
+ * <p>
+ * 記錄規則：
+ * <ul>
+ *     <li>失敗或耗時達到 {@code slowThreshold} 的計價一律記錄。</li>
+ *     <li>其餘計價依 {@code sampleRate} 取樣；{@code slowOrFailedOnly=true} 時不記錄。</li>
+ * </ul>
+ * 佇列滿時直接丟棄新事件並計入 {@code demo.pricing.log.dropped}，不會阻塞請求。
+ * 不記錄的計價不會配置任何物件。
+ * </p>
+ */
+public class PricingEventLogger {
+
+    public static final String EVENT_LOGGER = "pricing.events";
+
+    private static final Logger log = LoggerFactory.getLogger(PricingEventLogger.class);
+    private static final Logger eventLog = LoggerFactory.getLogger(EVENT_LOGGER);
+    private static final int DRAIN_BATCH = 256;
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<PricingEvent> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private Thread writer;
+
+    public PricingEventLogger(PricingLogProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.sampleRate = properties.slowOrFailedOnly() ? 0 : properties.sampleRate();
+        this.slowThresholdNanos = properties.slowThreshold().toNanos();
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(properties.bufferSize());
+        FunctionCounter.builder("demo.pricing.log.dropped", dropped, LongAdder::sum)
+                .description("因緩衝區已滿而丟棄的計價事件數")
+                .register(meterRegistry);
+        FunctionCounter.builder("demo.pricing.log.written", written, LongAdder::sum)
+                .description("已寫出的計價事件數")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        writer = Thread.ofPlatform().daemon().name("pricing-event-writer").start(this::drainLoop);
+    }
+
+    /**
+     * 停止背景寫出執行緒，並寫出佇列中剩餘的事件。
+     */
+    public void stop() throws InterruptedException {
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            writer = null;
+        }
+    }
+
+    /**
+     * 記錄一次成功的計價。
+     *
+     * @param endpoint     觸發計價的端點
+     * @param input        購物車輸入
+     * @param result       計價結果
+     * @param elapsedNanos 計價耗時 (奈秒)
+     */
+    public void success(String endpoint, ShoppingCartInput input, CalculationResultDto result, long elapsedNanos) {
+        String reason = reason(elapsedNanos);
+        if (reason != null) {
+            enqueue(new PricingEvent(Instant.now(), endpoint, reason, itemCount(input), couponCount(input),
+                    result.appliedCoupons().size(), result.originalTotal(), result.discountedTotal(),
+                    TimeUnit.NANOSECONDS.toMicros(elapsedNanos), null));
+        }
+    }
+
+    /**
+     * 記錄一次失敗的計價，失敗一律記錄 (不受取樣影響)。
+     *
+     * @param endpoint     觸發計價的端點
+     * @param input        購物車輸入
+     * @param error        計價時拋出的例外
+     * @param elapsedNanos 計價耗時 (奈秒)
+     */
+    public void failure(String endpoint, ShoppingCartInput input, Throwable error, long elapsedNanos) {
+        if (enabled) {
+            enqueue(new PricingEvent(Instant.now(), endpoint, "failed", itemCount(input), couponCount(input),
+                    0, 0, 0, TimeUnit.NANOSECONDS.toMicros(elapsedNanos),
+                    error.getClass().getSimpleName() + ": " + error.getMessage()));
+        }
+    }
+
+    /**
+     * @return 啟動以來因緩衝區已滿而丟棄的事件數
+     */
+    public long droppedEvents() {
+        return dropped.sum();
+    }
+
+    private String reason(long elapsedNanos) {
+        if (!enabled) {
+            return null;
+        }
+        if (elapsedNanos >= slowThresholdNanos) {
+            return "slow";
+        }
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return "sampled";
+        }
+        return null;
+    }
+
+    private void enqueue(PricingEvent event) {
+        if (!queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<PricingEvent> batch = new ArrayList<>(DRAIN_BATCH);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, DRAIN_BATCH - 1);
+                write(batch);
+            }
+        } catch (InterruptedException ex) {
+            // 關閉時寫出剩餘事件
+        }
+        queue.drainTo(batch);
+        write(batch);
+    }
+
+    private void write(List<PricingEvent> batch) {
+        for (int i = 0, size = batch.size(); i < size; i++) {
+            try {
+                eventLog.info(objectMapper.writeValueAsString(batch.get(i)));
+                written.increment();
+            } catch (JsonProcessingException ex) {
+                log.warn("無法序列化計價事件: {}", ex.getOriginalMessage());
+            }
+        }
+        batch.clear();
+    }
+
+    private static int itemCount(ShoppingCartInput input) {
+        return input == null || input.items() == null ? 0 : input.items().size();
+    }
+
+    private static int couponCount(ShoppingCartInput input) {
+        return input == null || input.couponCodes() == null ? 0 : input.couponCodes().size();
+    }
+}
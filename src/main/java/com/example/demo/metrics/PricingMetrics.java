@@ -0,0 +1,103 @@
+package com.example.demo.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 計價熱路徑的 Micrometer 指標。
+ * <p>
+ * 所有計量器在建構時就註冊完成，計價時只做陣列索引與累加，不會查詢 registry 或配置標籤物件：
+ * <ul>
+ *     <li>{@code demo.cart.pricing}：單一購物車的計價延遲，以 {@code size} 標籤區分購物車商品項目數區間。</li>
+ *     <li>{@code demo.cart.unknown.products} / {@code demo.cart.unknown.coupons}：計價時找不到的產品 ID 與優惠券代碼數。</li>
+ *     <li>{@code demo.cart.discount.exceeded}：因總折扣超過原始總價而拒絕的購物車數。</li>
+ *     <li>{@code demo.cart.coupons.applied}：每個購物車實際套用的優惠券數分布。</li>
+ *     <li>{@code demo.cart.coupon.solver.timeouts}：最佳優惠券組合搜尋逾時、改用目前最佳組合的次數。</li>
+ * </ul>
+ * 百分位直方圖與 SLO 區間由 {@code management.metrics.distribution.*} 設定。
+ * </p>
+ */
+@Component
+public class PricingMetrics {
+
+    /** 購物車大小區間的上限 (含)，最後一個區間沒有上限。 */
+    private static final int[] SIZE_BUCKET_UPPER_BOUNDS = {1, 5, 20, 100};
+    private static final String[] SIZE_BUCKET_TAGS = {"1", "2-5", "6-20", "21-100", "101+"};
+
+    private final Timer[] pricingTimers;
+    private final Counter unknownProducts;
+    private final Counter unknownCoupons;
+    private final Counter discountExceeded;
+    private final DistributionSummary couponsApplied;
+    private final Counter couponSolverTimeouts;
+
+    public PricingMetrics(MeterRegistry registry) {
+        this.pricingTimers = new Timer[SIZE_BUCKET_TAGS.length];
+        for (int i = 0; i < SIZE_BUCKET_TAGS.length; i++) {
+            pricingTimers[i] = Timer.builder("demo.cart.pricing")
+                    .description("單一購物車的計價時間")
+                    .tag("size", SIZE_BUCKET_TAGS[i])
+                    .register(registry);
+        }
+        this.unknownProducts = Counter.builder("demo.cart.unknown.products")
+                .description("計價時找不到的產品 ID 數")
+                .register(registry);
+        this.unknownCoupons = Counter.builder("demo.cart.unknown.coupons")
+                .description("計價時找不到的優惠券代碼數")
+                .register(registry);
+        this.discountExceeded = Counter.builder("demo.cart.discount.exceeded")
+                .description("總折扣超過原始總價而被拒絕的購物車數")
+                .register(registry);
+        this.couponsApplied = DistributionSummary.builder("demo.cart.coupons.applied")
+                .description("每個購物車實際套用的優惠券數")
+                .register(registry);
+        this.couponSolverTimeouts = Counter.builder("demo.cart.coupon.solver.timeouts")
+                .description("最佳優惠券組合搜尋逾時的次數")
+                .register(registry);
+    }
+
+    /**
+     * 記錄一次計價的耗時。
+     *
+     * @param itemCount    購物車商品項目數
+     * @param elapsedNanos 計價耗時 (奈秒)
+     */
+    public void recordPricing(int itemCount, long elapsedNanos) {
+        pricingTimers[sizeBucket(itemCount)].record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void unknownProduct() {
+        unknownProducts.increment();
+    }
+
+    public void unknownCoupon() {
+        unknownCoupons.increment();
+    }
+
+    public void discountExceeded() {
+        discountExceeded.increment();
+    }
+
+    public void couponsApplied(int count) {
+        couponsApplied.record(count);
+    }
+
+    public void couponSolverTimeout() {
+        couponSolverTimeouts.increment();
+    }
+
+    static int sizeBucket(int itemCount) {
+        for (int i = 0; i < SIZE_BUCKET_UPPER_BOUNDS.length; i++) {
+            if (itemCount <= SIZE_BUCKET_UPPER_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return SIZE_BUCKET_UPPER_BOUNDS.length;
+    }
+}
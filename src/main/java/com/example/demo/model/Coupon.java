@@ -4,8 +4,9 @@ import java.io.Serializable;
 import java.util.Objects;
 
 /**
- * 代表一張固定金額折抵的優惠券。
- * 包含優惠券代碼、描述和折抵金額。
+ * 代表一張優惠券。
+ * 包含優惠券代碼、描述和折抵金額，以及可選的使用次數上限 (全體與每位使用者)。
+ * 設有 {@link CouponRule} 時依規則計算折扣 (百分比、門檻、指定商品、買 X 送 Y 等)，否則折抵固定金額。
  */
 public class Coupon implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -13,6 +14,9 @@ public class Coupon implements Serializable {
     private final String code;
     private final String description;
     private final Integer discountAmount; // 折抵金額
+    private final Integer maxRedemptions; // 全體使用次數上限，null 表示不限
+    private final Integer maxRedemptionsPerUser; // 每位使用者使用次數上限，null 表示不限
+    private final CouponRule rule; // 折扣規則，null 表示無條件折抵固定金額
 
     /**
      * 建構一個新的固定金額優惠券。
@@ -21,14 +25,67 @@ public class Coupon implements Serializable {
      * @param discountAmount 優惠券的固定折抵金額
      */
     public Coupon(String code, String description, Integer discountAmount) {
+        this(code, description, discountAmount, null, null);
+    }
+
+    /**
+     * 建構一個有使用次數上限的固定金額優惠券。
+     * @param code 優惠券的唯一代碼
+     * @param description 優惠券的描述文字
+     * @param discountAmount 優惠券的固定折抵金額
+     * @param maxRedemptions 全體可使用的總次數；null 表示不限
+     * @param maxRedemptionsPerUser 每位使用者可使用的次數；null 表示不限
+     */
+    public Coupon(String code, String description, Integer discountAmount,
+                  Integer maxRedemptions, Integer maxRedemptionsPerUser) {
+        this(code, description, discountAmount, maxRedemptions, maxRedemptionsPerUser, null);
+    }
+
+    /**
+     * 建構一個依規則計算折扣的優惠券。
+     * @param code 優惠券的唯一代碼
+     * @param description 優惠券的描述文字
+     * @param discountAmount 固定折抵金額 (規則沒有百分比或買送條件時使用)
+     * @param maxRedemptions 全體可使用的總次數；null 表示不限
+     * @param maxRedemptionsPerUser 每位使用者可使用的次數；null 表示不限
+     * @param rule 折扣規則；null 表示無條件折抵固定金額
+     */
+    public Coupon(String code, String description, Integer discountAmount,
+                  Integer maxRedemptions, Integer maxRedemptionsPerUser, CouponRule rule) {
         this.code = code;
         this.description = description;
         this.discountAmount = discountAmount;
+        this.maxRedemptions = maxRedemptions;
+        this.maxRedemptionsPerUser = maxRedemptionsPerUser;
+        this.rule = rule;
+    }
+
+    /**
+     * 建構一個依規則字串計算折扣的優惠券。
+     * @param code 優惠券的唯一代碼
+     * @param description 優惠券的描述文字
+     * @param discountAmount 固定折抵金額 (規則沒有百分比或買送條件時使用)
+     * @param ruleSpec 規則字串，格式見 {@link CouponRule}
+     * @return 優惠券
+     * @throws com.example.demo.exception.InvalidCouponRuleException 如果規則字串無法解析。
+     */
+    public static Coupon withRule(String code, String description, Integer discountAmount, String ruleSpec) {
+        return new Coupon(code, description, discountAmount, null, null, CouponRule.parse(ruleSpec));
     }
 
     public String getCode() { return code; }
     public String getDescription() { return description; }
     public Integer getDiscountAmount() { return discountAmount; } // Getter 名稱更改
+    public Integer getMaxRedemptions() { return maxRedemptions; }
+    public Integer getMaxRedemptionsPerUser() { return maxRedemptionsPerUser; }
+    public CouponRule getRule() { return rule; }
+
+    /**
+     * @return 是否設有任何使用次數上限
+     */
+    public boolean hasRedemptionLimits() {
+        return maxRedemptions != null || maxRedemptionsPerUser != null;
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,169 @@
+package com.example.demo.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.example.demo.exception.InvalidCouponRuleException;
+
+/**
+ * 優惠券的折扣規則，由規則字串解析而來，建立後不可變。
+ * <p>
+ * 規則字串以分號分隔的 {@code key=value} 組成，例如：
+ * <ul>
+ *   <li>{@code percent=10;cap=200}：打九折，最多折 200 元。</li>
+ *   <li>{@code min=1000}：滿 1000 元才折抵優惠券的固定金額 (滿千折百)。</li>
+ *   <li>{@code categories=BOOK;percent=20}：只有 BOOK 分類的商品打八折。</li>
+ *   <li>{@code products=P001,P002;buy=2;free=1}：指定商品買二送一 (同一商品內計算，送最後的件數)。</li>
+ *   <li>{@code group=WELCOME}：同一群組的優惠券一次只套用折扣最多的一張。</li>
+ * </ul>
+ * 沒有 {@code percent} 與 {@code buy}/{@code free} 時折抵優惠券的固定金額；
+ * 設定 {@code products} 或 {@code categories} 時只計算符合的商品，兩者取聯集，
+ * 固定金額與門檻也以符合商品的小計為準。
+ * </p>
+ *
+ * @param percentOff     折扣百分比 (1-100)；null 表示不是百分比折扣
+ * @param minSpend       符合商品小計的最低門檻；0 表示沒有門檻
+ * @param productIds     適用的產品 ID；與 {@code categories} 皆為空時適用整個購物車
+ * @param categories     適用的產品分類
+ * @param buyQuantity    買 X 送 Y 的 X；0 表示不是買送優惠
+ * @param freeQuantity   買 X 送 Y 的 Y
+ * @param maxDiscount    折扣金額上限；null 表示不限
+ * @param exclusiveGroup 互斥群組；null 表示可與其他優惠券疊加
+ */
+public record CouponRule(
+        Integer percentOff,
+        long minSpend,
+        Set<String> productIds,
+        Set<String> categories,
+        int buyQuantity,
+        int freeQuantity,
+        Long maxDiscount,
+        String exclusiveGroup) implements Serializable {
+
+    public CouponRule {
+        productIds = Set.copyOf(productIds);
+        categories = Set.copyOf(categories);
+    }
+
+    /**
+     * @return 是否只適用於部分商品
+     */
+    public boolean scoped() {
+        return !productIds.isEmpty() || !categories.isEmpty();
+    }
+
+    /**
+     * @return 是否為買 X 送 Y
+     */
+    public boolean buyXGetY() {
+        return buyQuantity > 0;
+    }
+
+    /**
+     * 解析規則字串。
+     *
+     * @param spec 規則字串；null 或空白時回傳 null (固定金額、無條件的優惠券)
+     * @return 解析後的規則
+     * @throws InvalidCouponRuleException 如果規則字串無法解析或條件互相矛盾。
+     */
+    public static CouponRule parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return null;
+        }
+        Integer percentOff = null;
+        long minSpend = 0;
+        Set<String> productIds = new LinkedHashSet<>();
+        Set<String> categories = new LinkedHashSet<>();
+        int buy = 0;
+        int free = 0;
+        Long cap = null;
+        String group = null;
+        for (String part : spec.split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int eq = part.indexOf('=');
+            if (eq <= 0) {
+                throw new InvalidCouponRuleException("無法解析的優惠券規則: " + part.strip());
+            }
+            String key = part.substring(0, eq).strip();
+            String value = part.substring(eq + 1).strip();
+            switch (key) {
+                case "percent" -> percentOff = (int) number(key, value, 1, 100);
+                case "min" -> minSpend = number(key, value, 0, Long.MAX_VALUE);
+                case "products" -> productIds.addAll(list(key, value));
+                case "categories" -> categories.addAll(list(key, value));
+                case "buy" -> buy = (int) number(key, value, 1, Integer.MAX_VALUE);
+                case "free" -> free = (int) number(key, value, 1, Integer.MAX_VALUE);
+                case "cap" -> cap = number(key, value, 1, Long.MAX_VALUE);
+                case "group" -> group = value.isEmpty() ? null : value;
+                default -> throw new InvalidCouponRuleException("不支援的優惠券規則: " + key);
+            }
+        }
+        if ((buy > 0) != (free > 0)) {
+            throw new InvalidCouponRuleException("買 X 送 Y 必須同時設定 buy 與 free");
+        }
+        if (buy > 0 && percentOff != null) {
+            throw new InvalidCouponRuleException("買 X 送 Y 不能與 percent 同時使用");
+        }
+        return new CouponRule(percentOff, minSpend, productIds, categories, buy, free, cap, group);
+    }
+
+    /**
+     * @return 可由 {@link #parse(String)} 還原的規則字串
+     */
+    public String toSpec() {
+        List<String> parts = new ArrayList<>();
+        if (percentOff != null) {
+            parts.add("percent=" + percentOff);
+        }
+        if (minSpend > 0) {
+            parts.add("min=" + minSpend);
+        }
+        if (!productIds.isEmpty()) {
+            parts.add("products=" + String.join(",", productIds.stream().sorted().toList()));
+        }
+        if (!categories.isEmpty()) {
+            parts.add("categories=" + String.join(",", categories.stream().sorted().toList()));
+        }
+        if (buyQuantity > 0) {
+            parts.add("buy=" + buyQuantity);
+            parts.add("free=" + freeQuantity);
+        }
+        if (maxDiscount != null) {
+            parts.add("cap=" + maxDiscount);
+        }
+        if (exclusiveGroup != null) {
+            parts.add("group=" + exclusiveGroup);
+        }
+        return String.join(";", parts);
+    }
+
+    private static long number(String key, String value, long min, long max) {
+        try {
+            long number = Long.parseLong(value);
+            if (number < min || number > max) {
+                throw new InvalidCouponRuleException("優惠券規則 " + key + " 超出範圍: " + value);
+            }
+            return number;
+        } catch (NumberFormatException ex) {
+            throw new InvalidCouponRuleException("優惠券規則 " + key + " 必須是整數: " + value);
+        }
+    }
+
+    private static List<String> list(String key, String value) {
+        List<String> values = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) {
+                values.add(item.strip());
+            }
+        }
+        if (values.isEmpty()) {
+            throw new InvalidCouponRuleException("優惠券規則 " + key + " 不能為空");
+        }
+        return values;
+    }
+}
@@ -2,12 +2,13 @@ package com.example.demo.model;
 
 /**
  * 代表商店中的一個產品。
- * 包含產品的基本資訊如 ID、名稱和價格。
+ * 包含產品的基本資訊如 ID、名稱和價格，以及可選的分類 (供分類優惠券使用)。
  */
 public class Product {
     private final String id;
     private final String name;
     private final Integer price;
+    private final String category;
 
     /**
      * 建構一個新的產品。
@@ -17,9 +18,22 @@ public class Product {
      * @param price 產品的價格
      */
     public Product(String id, String name, Integer price) {
+        this(id, name, price, null);
+    }
+
+    /**
+     * 建構一個有分類的產品。
+     * 
+     * @param id       產品的唯一識別碼
+     * @param name     產品的名稱
+     * @param price    產品的價格
+     * @param category 產品的分類；null 表示未分類
+     */
+    public Product(String id, String name, Integer price, String category) {
         this.id = id;
         this.name = name;
         this.price = price;
+        this.category = category;
     }
 
     /**
@@ -49,4 +63,13 @@ public class Product {
         return price;
     }
 
+    /**
+     * 獲取產品分類。
+     * 
+     * @return 產品分類；未分類時為 null
+     */
+    public String getCategory() {
+        return category;
+    }
+
 }
@@ -1,8 +1,9 @@
 package com.example.demo.model;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 代表一個完整的購物車狀態模型，包含購物車中的商品項目、已套用的優惠券、原始總價及折扣後總價。
@@ -11,8 +12,16 @@ import java.util.List;
  * <ul>
  *   <li>作為從服務層獲取完整購物車計算結果後，用於填充視圖（尤其是在伺服器端渲染）的資料容器。</li>
  *   <li>在需要將整個購物車狀態持久化或在不同層之間傳遞完整購物車資訊時使用。</li>
+ *   <li>作為購物車工作階段 ({@code CartSessionService}) 的狀態，以增量方式維護總價。</li>
  * </ul>
  * <p>
+ * 商品項目以產品 ID、優惠券以代碼建立索引，原始總價與優惠券折扣總額隨每次變更累加維護，
+ * 因此新增、移除、修改數量或切換優惠券都是 O(1)，與購物車大小無關。
+ * 商品數量必須透過此類別的方法修改，直接呼叫 {@link CartItem#setQuantity(int)} 不會更新總價。
+ * 金額溢位時拋出 {@link ArithmeticException}，購物車狀態維持不變。
+ * 此類別不是執行緒安全的。
+ * </p>
+ * <p>
  * 注意：在當前的 RESTful API 設計中 (例如 {@code CartController} 和 {@code CartService})，
  * 購物車的計算和數據傳輸更多依賴於特定的資料傳輸物件 (DTOs) 如 {@code ShoppingCartInput} 和 {@code CalculationResultDto}。
  * 此 {@code ShoppingCart} 模型則更側重於表示一個全面的、可操作的購物車實體。
@@ -20,18 +29,59 @@ import java.util.List;
  */
 public class ShoppingCart {
 
-    private final List<CartItem> items = new ArrayList<>();
-    private final List<Coupon> appliedCoupons = new ArrayList<>();
-    private BigDecimal originalTotal = BigDecimal.ZERO;
-    private BigDecimal discountedTotal = BigDecimal.ZERO;
+    private final Map<String, CartItem> items = new LinkedHashMap<>();
+    private final Map<String, Coupon> appliedCoupons = new LinkedHashMap<>();
+    private long originalTotalAmount;
+    private long couponDiscountAmount;
+
+    /**
+     * @return 依加入順序排列的商品項目快照
+     */
+    public List<CartItem> getItems() { return List.copyOf(items.values()); }
+
+    /**
+     * @return 依套用順序排列的優惠券快照
+     */
+    public List<Coupon> getAppliedCoupons() { return List.copyOf(appliedCoupons.values()); }
+
+    public BigDecimal getOriginalTotal() { return BigDecimal.valueOf(originalTotalAmount); }
+    public BigDecimal getDiscountedTotal() { return BigDecimal.valueOf(getDiscountedTotalAmount()); }
 
-    public List<CartItem> getItems() { return items; }
-    public List<Coupon> getAppliedCoupons() { return appliedCoupons; }
+    public long getOriginalTotalAmount() { return originalTotalAmount; }
+    public long getCouponDiscountAmount() { return couponDiscountAmount; }
 
-    public BigDecimal getOriginalTotal() { return originalTotal; }
-    public void setOriginalTotal(BigDecimal originalTotal) { this.originalTotal = originalTotal; }
-    public BigDecimal getDiscountedTotal() { return discountedTotal; }
-    public void setDiscountedTotal(BigDecimal discountedTotal) { this.discountedTotal = discountedTotal; }
+    /**
+     * @return 原始總價減去優惠券折扣總額；折扣超過原始總價時為 0
+     */
+    public long getDiscountedTotalAmount() {
+        return Math.max(0L, originalTotalAmount - couponDiscountAmount);
+    }
+
+    /**
+     * @return 商品項目數 (不同產品的數量)
+     */
+    public int getLineCount() { return items.size(); }
+
+    /**
+     * @param productId 產品 ID
+     * @return 該產品的項目；不在購物車中時為 null
+     */
+    public CartItem getItem(String productId) { return items.get(productId); }
+
+    /**
+     * @param couponCode 優惠券代碼
+     * @return 已套用的優惠券；未套用時為 null
+     */
+    public Coupon getAppliedCoupon(String couponCode) { return appliedCoupons.get(couponCode); }
+
+    /**
+     * @param productId 產品 ID
+     * @return 該產品目前的數量；不在購物車中時為 0
+     */
+    public int getQuantity(String productId) {
+        CartItem item = items.get(productId);
+        return item == null ? 0 : item.getQuantity();
+    }
 
     /**
      * 將商品添加到購物車。
@@ -46,15 +96,72 @@ public class ShoppingCart {
         if (item == null || item.getProduct() == null) {
             return;
         }
-        for (CartItem existingItem : items) {
-            if (existingItem.getProduct().getId().equals(item.getProduct().getId())) {
-                // 商品已存在，更新數量
-                existingItem.setQuantity(existingItem.getQuantity() + item.getQuantity());
-                return;
-            }
+        String productId = item.getProduct().getId();
+        CartItem existingItem = items.get(productId);
+        if (existingItem != null) {
+            // 商品已存在，更新數量
+            setItemQuantity(existingItem.getProduct(), Math.addExact(existingItem.getQuantity(), item.getQuantity()));
+            return;
         }
         // 新商品，加入列表
-        items.add(item);
+        originalTotalAmount = Math.addExact(originalTotalAmount, subtotal(item.getProduct(), item.getQuantity()));
+        items.put(productId, item);
+    }
+
+    /**
+     * 將商品數量設為指定值，數量小於等於 0 時移除該商品。
+     *
+     * @param product  產品
+     * @param quantity 新數量
+     * @return 變更前的數量；原本不在購物車中時為 0
+     */
+    public int setItemQuantity(Product product, int quantity) {
+        String productId = product.getId();
+        CartItem existingItem = items.get(productId);
+        int previousQuantity = existingItem == null ? 0 : existingItem.getQuantity();
+        long previousSubtotal = existingItem == null ? 0L : subtotal(existingItem.getProduct(), previousQuantity);
+        if (quantity <= 0) {
+            if (existingItem != null) {
+                originalTotalAmount -= previousSubtotal;
+                items.remove(productId);
+            }
+            return previousQuantity;
+        }
+        long newTotal = Math.addExact(originalTotalAmount - previousSubtotal, subtotal(product, quantity));
+        if (existingItem != null && existingItem.getProduct() == product) {
+            existingItem.setQuantity(quantity);
+        } else {
+            // 首次加入或產品資料已更新時換成新的項目，保留原本的排列位置
+            items.put(productId, new CartItem(product, quantity));
+        }
+        originalTotalAmount = newTotal;
+        return previousQuantity;
+    }
+
+    /**
+     * 移除商品。
+     *
+     * @param productId 產品 ID
+     * @return 移除前的數量；原本不在購物車中時為 0
+     */
+    public int removeItem(String productId) {
+        CartItem existingItem = items.get(productId);
+        return existingItem == null ? 0 : setItemQuantity(existingItem.getProduct(), 0);
+    }
+
+    /**
+     * 以新的產品資料 (例如價格變更) 更新購物車中的對應項目，數量不變。
+     *
+     * @param product 新的產品資料
+     * @return 購物車中有此產品時為 true
+     */
+    public boolean repriceItem(Product product) {
+        CartItem existingItem = items.get(product.getId());
+        if (existingItem == null) {
+            return false;
+        }
+        setItemQuantity(product, existingItem.getQuantity());
+        return true;
     }
 
     /**
@@ -63,16 +170,58 @@ public class ShoppingCart {
      */
     public void addAppliedCoupon(Coupon coupon) {
         // 檢查優惠券是否有效，且尚未套用
-        if (coupon != null && !this.appliedCoupons.contains(coupon)) {
-            this.appliedCoupons.add(coupon);
+        if (coupon != null && !this.appliedCoupons.containsKey(coupon.getCode())) {
+            couponDiscountAmount = Math.addExact(couponDiscountAmount, (long) coupon.getDiscountAmount());
+            this.appliedCoupons.put(coupon.getCode(), coupon);
         }
     }
-    
+
+    /**
+     * 移除一張已套用的優惠券。
+     *
+     * @param couponCode 優惠券代碼
+     * @return 原本有套用此優惠券時為 true
+     */
+    public boolean removeAppliedCoupon(String couponCode) {
+        Coupon removed = appliedCoupons.remove(couponCode);
+        if (removed == null) {
+            return false;
+        }
+        couponDiscountAmount -= removed.getDiscountAmount();
+        return true;
+    }
+
+    /**
+     * @param couponCode 優惠券代碼
+     * @return 是否已套用此優惠券
+     */
+    public boolean isCouponApplied(String couponCode) {
+        return appliedCoupons.containsKey(couponCode);
+    }
+
+    /**
+     * 以新的優惠券資料 (例如折抵金額變更) 更新已套用的對應優惠券，保留套用順序。
+     *
+     * @param coupon 新的優惠券資料
+     * @return 購物車已套用此優惠券時為 true
+     */
+    public boolean repriceCoupon(Coupon coupon) {
+        Coupon existing = appliedCoupons.get(coupon.getCode());
+        if (existing == null) {
+            return false;
+        }
+        couponDiscountAmount = Math.addExact(couponDiscountAmount - existing.getDiscountAmount(),
+                (long) coupon.getDiscountAmount());
+        appliedCoupons.put(coupon.getCode(), coupon);
+        return true;
+    }
+
     /**
      * 清除所有已套用的優惠券。
      */
     public void clearAppliedCoupons() {
         this.appliedCoupons.clear();
+        couponDiscountAmount = 0L;
     }
 
     /**
@@ -81,42 +230,40 @@ public class ShoppingCart {
     public void clearItemsAndCoupons() {
         items.clear();
         clearAppliedCoupons(); // 複用清除優惠券的邏輯
-        originalTotal = BigDecimal.ZERO;
-        discountedTotal = BigDecimal.ZERO;
+        originalTotalAmount = 0L;
+    }
+
+    /**
+     * @return 優惠券折扣總額是否超過原始總價
+     */
+    public boolean isDiscountExceeded() {
+        return couponDiscountAmount > originalTotalAmount;
     }
 
     /**
      * 檢查購物車是否有有效的折扣被套用。
      * <p>
      * 當原始總價大於折扣後總價時，視為有折扣被套用。
-     * 如果原始總價或折扣後總價為 {@code null}，則視為無折扣。
      * </p>
      * @return 如果有折扣被套用則返回 {@code true}，否則返回 {@code false}。
      */
     public boolean isDiscountApplied() {
-        // 總價必須存在才能判斷折扣
-        if (originalTotal == null || discountedTotal == null) {
-            return false;
-        }
         // 原始總價大於折扣後總價表示有折扣
-        return originalTotal.compareTo(discountedTotal) > 0;
+        return originalTotalAmount > getDiscountedTotalAmount();
     }
 
     /**
      * 計算購物車中已套用折扣的總金額。
      * <p>
-     * 折扣金額為原始總價減去折扣後總價。
-     * 如果計算出的折扣小於或等於零，或者原始總價/折扣後總價為 {@code null}，則返回 {@link BigDecimal#ZERO}。
+     * 折扣金額為原始總價減去折扣後總價，不會超過原始總價。
      * </p>
      * @return 套用的總折扣金額；如果無折扣，則返回 {@link BigDecimal#ZERO}。
      */
     public BigDecimal getTotalDiscountAmount() {
-        // 總價必須存在才能計算折扣
-        if (originalTotal == null || discountedTotal == null) {
-            return BigDecimal.ZERO;
-        }
-        BigDecimal discount = originalTotal.subtract(discountedTotal);
-        // 確保返回的折扣金額為正數，若無折扣或計算錯誤則返回零
-        return discount.compareTo(BigDecimal.ZERO) > 0 ? discount : BigDecimal.ZERO;
+        return BigDecimal.valueOf(originalTotalAmount - getDiscountedTotalAmount());
+    }
+
+    private static long subtotal(Product product, int quantity) {
+        return Math.multiplyExact((long) product.getPrice(), (long) quantity);
     }
-}
\ No newline at end of file
+}
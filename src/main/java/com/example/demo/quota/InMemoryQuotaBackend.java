@@ -0,0 +1,114 @@
+package com.example.demo.quota;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以本程序記憶體實作的 {@link QuotaBackend}。
+ * <p>
+ * 單一節點部署時作為預設後端；測試中讓多個 {@code CouponRedemptionService} 共用同一個實例，
+ * 即可在單一 JVM 內模擬多節點共享額度。設定 {@code roundTrip} 時每次呼叫都會等待該時間，
+ * 模擬遠端後端的網路往返延遲。
+ * </p>
+ */
+public class InMemoryQuotaBackend implements QuotaBackend {
+
+    /** 剩餘量除以此值作為單次配發上限，剩餘量少時批量跟著縮小。 */
+    private static final long TAIL_SPLIT = 8;
+
+    private final Map<String, AtomicLong> allocated = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, AtomicInteger>> userCounts = new ConcurrentHashMap<>();
+    private final Duration roundTrip;
+    private final LongAdder calls = new LongAdder();
+
+    public InMemoryQuotaBackend() {
+        this(Duration.ZERO);
+    }
+
+    public InMemoryQuotaBackend(Duration roundTrip) {
+        this.roundTrip = roundTrip;
+    }
+
+    @Override
+    public long lease(String couponCode, long limit, long requested) {
+        roundTrip();
+        AtomicLong counter = allocated.computeIfAbsent(couponCode, code -> new AtomicLong());
+        long current = counter.get();
+        while (true) {
+            long remaining = limit - current;
+            if (remaining <= 0 || requested <= 0) {
+                return 0;
+            }
+            long grant = Math.min(requested, Math.max(1, remaining / TAIL_SPLIT));
+            long witness = counter.compareAndExchange(current, current + grant);
+            if (witness == current) {
+                return grant;
+            }
+            current = witness;
+        }
+    }
+
+    @Override
+    public void returnLease(String couponCode, long permits) {
+        if (permits <= 0) {
+            return;
+        }
+        roundTrip();
+        allocated.computeIfAbsent(couponCode, code -> new AtomicLong()).addAndGet(-permits);
+    }
+
+    @Override
+    public long unallocated(String couponCode, long limit) {
+        AtomicLong counter = allocated.get(couponCode);
+        return Math.max(0, limit - (counter == null ? 0 : counter.get()));
+    }
+
+    @Override
+    public boolean tryAcquireUser(String couponCode, String userId, int limit) {
+        roundTrip();
+        AtomicInteger count = userCounts.computeIfAbsent(couponCode, code -> new ConcurrentHashMap<>())
+                .computeIfAbsent(userId, user -> new AtomicInteger());
+        int current = count.get();
+        while (current < limit) {
+            int witness = count.compareAndExchange(current, current + 1);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    @Override
+    public void releaseUser(String couponCode, String userId) {
+        roundTrip();
+        Map<String, AtomicInteger> counts = userCounts.get(couponCode);
+        AtomicInteger count = counts == null ? null : counts.get(userId);
+        if (count != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return 到目前為止對此後端的呼叫次數 (不含 {@link #unallocated(String, long)})
+     */
+    public long calls() {
+        return calls.sum();
+    }
+
+    private void roundTrip() {
+        calls.increment();
+        if (roundTrip.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(roundTrip);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
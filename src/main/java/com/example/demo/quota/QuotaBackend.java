@@ -0,0 +1,61 @@
+package com.example.demo.quota;
+
+/**
+ * 多個節點共享的優惠券使用額度。
+ * <p>
+ * 各節點不是每次使用都詢問後端，而是以 {@link #lease(String, long, long)} 一次預先取得一批額度，
+ * 在本地扣用，用完再取下一批 (類似 token bucket 的預先配發)，熱路徑只有本地的原子操作。
+ * 後端保證所有節點取得的額度總和不超過上限，因此不會超發；
+ * 節點當機時手上未用完的額度不會歸還，只會少發、不會多發。
+ * </p>
+ * <p>
+ * 每位使用者的使用次數無法在節點之間切分，每次使用都直接以後端計數。
+ * 實作必須是執行緒安全的。
+ * </p>
+ */
+public interface QuotaBackend {
+
+    /**
+     * 取得一批額度。剩餘量不足時給予比要求少的量；
+     * 剩餘量不多時實作也可以主動縮小批量，讓最後的額度分散到各節點。
+     *
+     * @param couponCode 優惠券代碼
+     * @param limit      優惠券目前的全體使用上限
+     * @param requested  希望取得的數量
+     * @return 實際取得的數量；額度已用完時為 0
+     */
+    long lease(String couponCode, long limit, long requested);
+
+    /**
+     * 歸還未使用的額度 (例如節點關閉或上限調整時)。
+     *
+     * @param couponCode 優惠券代碼
+     * @param permits    歸還的數量
+     */
+    void returnLease(String couponCode, long permits);
+
+    /**
+     * @param couponCode 優惠券代碼
+     * @param limit      優惠券目前的全體使用上限
+     * @return 尚未配發給任何節點的額度
+     */
+    long unallocated(String couponCode, long limit);
+
+    /**
+     * 嘗試為使用者記錄一次使用。
+     *
+     * @param couponCode 優惠券代碼
+     * @param userId     使用者 ID
+     * @param limit      每位使用者的使用上限
+     * @return 未超過上限並已記錄時為 true
+     */
+    boolean tryAcquireUser(String couponCode, String userId, int limit);
+
+    /**
+     * 撤銷一次 {@link #tryAcquireUser(String, String, int)} 記錄的使用。
+     *
+     * @param couponCode 優惠券代碼
+     * @param userId     使用者 ID
+     */
+    void releaseUser(String couponCode, String userId);
+}
@@ -0,0 +1,46 @@
+package com.example.demo.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 分頁游標的編碼。游標記錄上一頁最後一筆的排序鍵，下一頁從它之後開始，
+ * 不受期間新增或刪除的資料影響 (不會像位移分頁一樣重複或跳過)。
+ * 游標對呼叫端是不透明的字串。
+ */
+final class CatalogCursor {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private CatalogCursor() {
+    }
+
+    /**
+     * @param parts 排序鍵的各欄位；除最後一欄外不得包含 NUL 字元
+     * @return URL 安全的游標字串
+     */
+    static String encode(String... parts) {
+        String joined = String.join(String.valueOf(SEPARATOR), parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor 游標字串
+     * @param count  欄位數
+     * @return 排序鍵的各欄位
+     * @throws IllegalArgumentException 如果游標格式不正確
+     */
+    static String[] decode(String cursor, int count) {
+        String joined;
+        try {
+            joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("無效的分頁游標", ex);
+        }
+        String[] parts = joined.split(String.valueOf(SEPARATOR), count);
+        if (parts.length != count) {
+            throw new IllegalArgumentException("無效的分頁游標");
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.repository;
+
+import java.util.List;
+
+/**
+ * 目錄查詢的一頁結果。
+ *
+ * @param items      此頁的項目
+ * @param nextCursor 取得下一頁時傳回的游標；沒有下一頁時為 null
+ * @param <T>        項目型別
+ */
+public record CatalogPage<T>(List<T> items, String nextCursor) {
+}
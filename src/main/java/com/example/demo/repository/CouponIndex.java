@@ -0,0 +1,230 @@
+package com.example.demo.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponRule;
+import com.example.demo.model.Product;
+
+/**
+ * 優惠券的反向索引，用於找出可能適用於某個購物車的優惠券，而不需走訪所有優惠券。
+ * <ul>
+ *   <li>限定商品的規則型優惠券依 {@code products} 與 {@code categories} 建立「產品 → 優惠券」與「分類 → 優惠券」索引。</li>
+ *   <li>其餘優惠券依最低門檻排序 (「門檻 → 優惠券」)：規則型優惠券為 {@code min}，
+ *       固定金額的優惠券為折抵金額本身，因為折抵超過總價的優惠券無法單獨套用。</li>
+ * </ul>
+ * 另外以代碼排序保存所有優惠券代碼，供分頁列出優惠券 ({@link #codesAfter(String, int)})。
+ * 索引只負責縮小候選範圍，實際折扣 (例如限定商品的小計是否達到門檻) 仍須由計價邏輯計算。
+ * <p>
+ * 第一次查詢時由 {@code loader} 載入所有優惠券建立索引，之後每次寫入只更新該優惠券的索引項目；
+ * 整批替換優惠券後以 {@link #rebuild()} 在旁邊建立新索引再一次切換。
+ * 查詢不需要鎖；寫入與建立索引以鎖互斥。
+ * </p>
+ */
+final class CouponIndex {
+
+    private static final Comparator<Threshold> THRESHOLD_ORDER =
+            Comparator.comparingLong(Threshold::minSpend)
+                    .thenComparing(Threshold::code, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final Supplier<Collection<Coupon>> loader;
+    private final ReentrantLock lock = new ReentrantLock();
+    /** 目前的索引；null 表示尚未建立。 */
+    private volatile Entries entries;
+
+    CouponIndex(Supplier<Collection<Coupon>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * 更新單一優惠券的索引項目。索引尚未建立時不做任何事，建立時會讀到最新資料。
+     *
+     * @param coupon 剛寫入的優惠券
+     */
+    void update(Coupon coupon) {
+        lock.lock();
+        try {
+            Entries current = entries;
+            if (current != null) {
+                Coupon previous = current.indexed().put(coupon.getCode(), coupon);
+                if (previous != null) {
+                    current.remove(previous);
+                }
+                current.add(coupon);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 整批替換優惠券後重新載入所有優惠券建立新索引。建立期間查詢仍使用舊索引，完成後一次切換；
+     * 索引尚未建立時不做任何事。
+     */
+    void rebuild() {
+        lock.lock();
+        try {
+            if (entries != null) {
+                entries = load();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 找出可能適用於購物車的優惠券代碼。
+     *
+     * @param products 購物車中的產品
+     * @param subtotal 購物車原始總價
+     * @return 候選優惠券代碼；每次呼叫回傳新的集合
+     */
+    Set<String> candidates(Collection<Product> products, long subtotal) {
+        Entries current = ensureBuilt();
+        Set<String> codes = new HashSet<>();
+        for (Threshold threshold : current.byThreshold().headSet(new Threshold(subtotal, null), false)) {
+            codes.add(threshold.code());
+        }
+        for (Product product : products) {
+            Set<String> direct = current.byProduct().get(product.getId());
+            if (direct != null) {
+                codes.addAll(direct);
+            }
+            Set<String> category = product.getCategory() == null ? null
+                    : current.byCategory().get(product.getCategory());
+            if (category != null) {
+                codes.addAll(category);
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * 依代碼順序列出優惠券代碼。
+     *
+     * @param after 從這個代碼之後開始 (不含)；null 表示從頭開始
+     * @param limit 最多回傳幾個代碼
+     * @return 排序後的代碼
+     */
+    List<String> codesAfter(String after, int limit) {
+        NavigableSet<String> codes = ensureBuilt().codes();
+        List<String> page = new ArrayList<>(Math.min(limit, 128));
+        for (String code : after == null ? codes : codes.tailSet(after, false)) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(code);
+        }
+        return page;
+    }
+
+    private Entries ensureBuilt() {
+        Entries current = entries;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            if (entries == null) {
+                entries = load();
+            }
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entries load() {
+        Entries loaded = new Entries(new HashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                new ConcurrentSkipListSet<>(THRESHOLD_ORDER), new ConcurrentSkipListSet<>());
+        for (Coupon coupon : loader.get()) {
+            if (loaded.indexed().putIfAbsent(coupon.getCode(), coupon) == null) {
+                loaded.add(coupon);
+            }
+        }
+        return loaded;
+    }
+
+    private static void removeFrom(Map<String, Set<String>> index, String key, String code) {
+        // 寫入已由鎖互斥，不會與 computeIfAbsent 競爭
+        Set<String> codes = index.get(key);
+        if (codes != null) {
+            codes.remove(code);
+            if (codes.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static long threshold(Coupon coupon) {
+        CouponRule rule = coupon.getRule();
+        if (rule == null) {
+            return coupon.getDiscountAmount();
+        }
+        if (rule.percentOff() != null || rule.buyXGetY()) {
+            return rule.minSpend();
+        }
+        return Math.max(rule.minSpend(), coupon.getDiscountAmount());
+    }
+
+    /**
+     * 一份完整的索引。
+     *
+     * @param indexed     每張已索引的優惠券，用於寫入時移除舊的索引項目；只在持有鎖時存取
+     * @param byProduct   產品 ID → 限定該產品的優惠券代碼
+     * @param byCategory  分類 → 限定該分類的優惠券代碼
+     * @param byThreshold 不限商品的優惠券，依門檻排序
+     * @param codes       所有優惠券代碼，依代碼排序
+     */
+    private record Entries(Map<String, Coupon> indexed, Map<String, Set<String>> byProduct,
+            Map<String, Set<String>> byCategory, NavigableSet<Threshold> byThreshold, NavigableSet<String> codes) {
+
+        void add(Coupon coupon) {
+            codes.add(coupon.getCode());
+            CouponRule rule = coupon.getRule();
+            if (rule != null && rule.scoped()) {
+                for (String productId : rule.productIds()) {
+                    byProduct.computeIfAbsent(productId, key -> ConcurrentHashMap.newKeySet()).add(coupon.getCode());
+                }
+                for (String category : rule.categories()) {
+                    byCategory.computeIfAbsent(category, key -> ConcurrentHashMap.newKeySet()).add(coupon.getCode());
+                }
+            } else {
+                byThreshold.add(new Threshold(threshold(coupon), coupon.getCode()));
+            }
+        }
+
+        void remove(Coupon coupon) {
+            CouponRule rule = coupon.getRule();
+            if (rule != null && rule.scoped()) {
+                for (String productId : rule.productIds()) {
+                    removeFrom(byProduct, productId, coupon.getCode());
+                }
+                for (String category : rule.categories()) {
+                    removeFrom(byCategory, category, coupon.getCode());
+                }
+            } else {
+                byThreshold.remove(new Threshold(threshold(coupon), coupon.getCode()));
+            }
+        }
+    }
+
+    /**
+     * @param minSpend 購物車總價至少要達到的金額
+     * @param code     優惠券代碼；查詢上界時為 null，排在同門檻的所有代碼之後
+     */
+    private record Threshold(long minSpend, String code) {
+    }
+}
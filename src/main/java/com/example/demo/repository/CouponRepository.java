@@ -1,31 +1,157 @@
 package com.example.demo.repository;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 
 import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.store.EntityStore;
 
 /**
  * 優惠券的數據倉庫。
- * 此範例使用記憶體內存儲 (In-memory ConcurrentHashMap) 來模擬數據庫。
+ * 實際儲存方式由注入的 {@link EntityStore} 決定 (見 {@code demo.store.type})。
+ * 每次寫入後更新適用優惠券索引 ({@link CouponIndex}) 並發布 {@link CouponsSavedEvent}。
  */
 @Repository
 public class CouponRepository {
-    private final Map<String, Coupon> coupons = new ConcurrentHashMap<>();
+    private final EntityStore<Coupon> store;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CouponIndex index;
+
+    public CouponRepository(EntityStore<Coupon> store) {
+        this(store, event -> { });
+    }
+
+    @Autowired
+    public CouponRepository(EntityStore<Coupon> store, ApplicationEventPublisher eventPublisher) {
+        this.store = store;
+        this.eventPublisher = eventPublisher;
+        this.index = new CouponIndex(store::findAll);
+    }
 
     public void save(Coupon coupon) {
-        coupons.put(coupon.getCode(), coupon);
+        store.save(coupon);
+        index.update(coupon);
+        eventPublisher.publishEvent(new CouponsSavedEvent(List.of(coupon.getCode())));
+    }
+
+    /**
+     * 以新的優惠券集合整批取代所有優惠券 (見 {@link EntityStore#replaceAll(Collection)})，
+     * 計價只會看到替換前或替換後的完整內容。替換後重建適用優惠券索引，
+     * 並以新優惠券與被移除優惠券的代碼發布 {@link CouponsSavedEvent}。
+     *
+     * @param coupons 新的優惠券集合
+     * @throws UnsupportedOperationException 如果底層儲存不支援整批替換
+     */
+    public void replaceAll(Collection<Coupon> coupons) {
+        Set<String> codes = new HashSet<>(Math.max(16, coupons.size() * 4 / 3 + 1));
+        for (Coupon coupon : coupons) {
+            codes.add(coupon.getCode());
+        }
+        List<String> removed = new ArrayList<>();
+        for (Coupon coupon : store.findAll()) {
+            if (!codes.contains(coupon.getCode())) {
+                removed.add(coupon.getCode());
+            }
+        }
+        store.replaceAll(coupons);
+        index.rebuild();
+        codes.addAll(removed);
+        eventPublisher.publishEvent(new CouponsSavedEvent(codes));
+    }
+
+    /**
+     * @return 底層儲存是否支援 {@link #replaceAll(Collection)}
+     */
+    public boolean supportsReplaceAll() {
+        return store.supportsReplaceAll();
     }
 
     public Optional<Coupon> findByCode(String code) {
-        return Optional.ofNullable(coupons.get(code));
+        return Optional.ofNullable(store.find(code));
+    }
+
+    /**
+     * 查詢優惠券，找不到時回傳 null，供計價熱路徑使用，不會建立 {@link Optional}。
+     *
+     * @param code 優惠券代碼
+     * @return 優惠券；找不到時為 null
+     */
+    public Coupon findByCodeOrNull(String code) {
+        return store.find(code);
+    }
+
+    /**
+     * 一次查詢多個優惠券代碼，供批次計價使用。
+     * 找不到的代碼不會出現在回傳的 Map 中。
+     *
+     * @param codes 優惠券代碼集合
+     * @return 以優惠券代碼為鍵的優惠券對照表
+     */
+    public Map<String, Coupon> findAllByCode(Collection<String> codes) {
+        return store.findAllByKey(codes);
+    }
+
+    /**
+     * 以反向索引找出可能適用於購物車的優惠券代碼，不走訪所有優惠券。
+     * 回傳的代碼只是候選：限定商品的門檻等條件仍須由計價邏輯判斷。
+     *
+     * @param products 購物車中的產品
+     * @param subtotal 購物車原始總價
+     * @return 候選優惠券代碼
+     */
+    public Set<String> findCandidateCodes(Collection<Product> products, long subtotal) {
+        return index.candidates(products, subtotal);
+    }
+
+    /**
+     * 依代碼順序查詢一頁優惠券，以游標分頁。
+     *
+     * @param cursor 上一頁回傳的游標；null 表示第一頁
+     * @param limit  每頁筆數
+     * @return 此頁優惠券與下一頁的游標
+     * @throws IllegalArgumentException 如果游標格式不正確
+     */
+    public CatalogPage<Coupon> findPage(String cursor, int limit) {
+        String after = cursor == null ? null : CatalogCursor.decode(cursor, 1)[0];
+        List<String> codes = index.codesAfter(after, limit + 1);
+        boolean more = codes.size() > limit;
+        if (more) {
+            codes = codes.subList(0, limit);
+        }
+        Map<String, Coupon> found = store.findAllByKey(codes);
+        List<Coupon> items = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            Coupon coupon = found.get(code);
+            if (coupon != null) {
+                items.add(coupon);
+            }
+        }
+        String nextCursor = more ? CatalogCursor.encode(codes.get(codes.size() - 1)) : null;
+        return new CatalogPage<>(items, nextCursor);
     }
 
     public Collection<Coupon> findAll() {
-        return coupons.values();
+        return store.findAll();
+    }
+
+    public long count() {
+        return store.count();
+    }
+
+    /**
+     * @return 底層儲存的存取是否可能阻塞執行緒
+     */
+    public boolean isBlocking() {
+        return store.isBlocking();
     }
-}
\ No newline at end of file
+}
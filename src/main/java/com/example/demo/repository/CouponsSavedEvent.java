@@ -0,0 +1,11 @@
+package com.example.demo.repository;
+
+import java.util.Collection;
+
+/**
+ * {@link CouponRepository} 新增或覆寫優惠券後發布的事件，供依賴優惠券資料的快取失效使用。
+ *
+ * @param couponCodes 被寫入的優惠券代碼
+ */
+public record CouponsSavedEvent(Collection<String> couponCodes) {
+}
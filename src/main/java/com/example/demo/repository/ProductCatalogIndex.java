@@ -0,0 +1,344 @@
+package com.example.demo.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import com.example.demo.model.Product;
+
+/**
+ * 產品目錄的次要索引，依「價格、ID」與「名稱、ID」兩種順序排序。
+ * <p>
+ * 索引只保存排序需要的欄位 (ID、價格、名稱) 的欄式陣列，不保存 {@link Product} 物件：
+ * 欄位依價格順序排列，另以一個序號陣列記錄名稱順序。查詢時依排序方式二分搜尋下界 (或游標) 後依序掃描，
+ * 成本為 O(log n + 掃描筆數)：依價格排序時價格範圍決定掃描範圍，名稱前綴在掃描中過濾；
+ * 依名稱排序時名稱前綴決定掃描範圍 (前綴相同的名稱在排序中相鄰)，價格範圍在掃描中過濾。
+ * 只有一頁的產品 ID 會以 {@code finder} 向儲存查詢產品本身。
+ * </p>
+ * <p>
+ * 索引以不可變的版本發佈，查詢不需要鎖。寫入不修改已發佈的陣列，而是發佈一個帶有小型變更層 (delta) 的新版本：
+ * 變更層記錄被寫入產品的新排序鍵，查詢時與基礎陣列合併掃描，基礎陣列中被覆寫的項目會被略過。
+ * 變更層達到 {@link #MERGE_THRESHOLD} 筆時才合併成新的基礎陣列，因此單筆寫入的成本與變更層大小成正比，
+ * 重建整個索引的成本由多次寫入分攤。第一次查詢時由 {@code loader} 載入所有產品建立索引；
+ * 整批替換目錄後以 {@link #rebuild()} 在旁邊建立新索引再一次切換。寫入與建立索引以鎖互斥。
+ * </p>
+ */
+final class ProductCatalogIndex {
+
+    /** 變更層達到此筆數時合併進基礎陣列。 */
+    static final int MERGE_THRESHOLD = 1024;
+
+    private static final Comparator<Key> BY_PRICE = Comparator.comparingLong(Key::price).thenComparing(Key::id);
+    private static final Comparator<Key> BY_NAME = Comparator.comparing(Key::name).thenComparing(Key::id);
+    private static final Key[] NO_KEYS = new Key[0];
+
+    private final Supplier<Collection<Product>> loader;
+    private final Function<Collection<String>, Map<String, Product>> finder;
+    private final ReentrantLock lock = new ReentrantLock();
+    /** 目前的索引；null 表示尚未建立。 */
+    private volatile Version version;
+
+    /**
+     * @param loader 載入所有產品，用於建立索引
+     * @param finder 依 ID 查詢產品，用於取出一頁的產品；找不到的 ID 不會出現在回傳的 Map 中
+     */
+    ProductCatalogIndex(Supplier<Collection<Product>> loader, Function<Collection<String>, Map<String, Product>> finder) {
+        this.loader = loader;
+        this.finder = finder;
+    }
+
+    /**
+     * 以產品的新排序鍵發佈新的索引版本。索引尚未建立時不做任何事，建立時會讀到最新資料。
+     *
+     * @param products 剛寫入的產品
+     */
+    void update(Collection<Product> products) {
+        lock.lock();
+        try {
+            Version current = version;
+            if (current != null) {
+                version = current.with(products);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 整批替換目錄後重新載入所有產品建立新索引。建立期間查詢仍使用舊索引，完成後一次切換；
+     * 索引尚未建立時不做任何事。
+     */
+    void rebuild() {
+        lock.lock();
+        try {
+            if (version != null) {
+                version = load();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 查詢一頁產品。
+     *
+     * @param query 查詢條件
+     * @return 此頁產品與下一頁的游標
+     * @throws IllegalArgumentException 如果游標格式不正確或與排序方式不符
+     */
+    CatalogPage<Product> query(ProductQuery query) {
+        Version current = ensureBuilt();
+        boolean byPriceSort = query.sort() == ProductSort.PRICE;
+        String prefix = query.namePrefix() == null ? "" : query.namePrefix();
+        long minPrice = query.minPrice() == null ? Long.MIN_VALUE : query.minPrice();
+        long maxPrice = query.maxPrice() == null ? Long.MAX_VALUE : query.maxPrice();
+
+        // ID 為空字串的探測值排在同價格 (或同名稱) 的所有產品之前
+        Key lower;
+        boolean inclusive = query.cursor() == null;
+        if (!inclusive) {
+            lower = fromCursor(query.cursor(), query.sort());
+        } else if (byPriceSort) {
+            lower = new Key("", minPrice, "");
+        } else {
+            lower = new Key("", 0L, prefix);
+        }
+        Comparator<Key> order = byPriceSort ? BY_PRICE : BY_NAME;
+        Key[] delta = byPriceSort ? current.deltaByPrice() : current.deltaByName();
+        int b = current.search(byPriceSort, lower, inclusive);
+        int d = search(delta, order, lower, inclusive);
+
+        List<String> ids = new ArrayList<>(Math.min(query.limit(), 128));
+        String lastKey = null;
+        boolean more = false;
+        while (true) {
+            b = current.skipOverwritten(byPriceSort, b);
+            String id;
+            long price;
+            String name;
+            if (b < current.size() && (d == delta.length || current.compare(byPriceSort, b, delta[d]) < 0)) {
+                int slot = current.slot(byPriceSort, b++);
+                id = current.ids()[slot];
+                price = current.prices()[slot];
+                name = current.names()[slot];
+            } else if (d < delta.length) {
+                Key key = delta[d++];
+                id = key.id();
+                price = key.price();
+                name = key.name();
+            } else {
+                break;
+            }
+            if (byPriceSort ? price > maxPrice : !name.startsWith(prefix)) {
+                break;
+            }
+            if (price < minPrice || price > maxPrice || !name.startsWith(prefix)) {
+                continue;
+            }
+            if (ids.size() == query.limit()) {
+                more = true;
+                break;
+            }
+            ids.add(id);
+            lastKey = byPriceSort ? Long.toString(price) : name;
+        }
+
+        // 只取出此頁的產品；取出前剛被移除的產品略過
+        Map<String, Product> found = ids.isEmpty() ? Map.of() : finder.apply(ids);
+        List<Product> items = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product product = found.get(id);
+            if (product != null) {
+                items.add(product);
+            }
+        }
+        String nextCursor = more ? CatalogCursor.encode(query.sort().name(), ids.get(ids.size() - 1), lastKey) : null;
+        return new CatalogPage<>(List.copyOf(items), nextCursor);
+    }
+
+    private Version ensureBuilt() {
+        Version current = version;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            if (version == null) {
+                version = load();
+            }
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Version load() {
+        Map<String, Key> keys = new LinkedHashMap<>();
+        for (Product product : loader.get()) {
+            keys.putIfAbsent(product.getId(), Key.of(product));
+        }
+        return Version.build(keys.values());
+    }
+
+    private static Key fromCursor(String cursor, ProductSort sort) {
+        String[] parts = CatalogCursor.decode(cursor, 3);
+        if (!parts[0].equals(sort.name())) {
+            throw new IllegalArgumentException("分頁游標與排序方式不符");
+        }
+        if (sort == ProductSort.NAME) {
+            return new Key(parts[1], 0L, parts[2]);
+        }
+        try {
+            return new Key(parts[1], Long.parseLong(parts[2]), "");
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("無效的分頁游標", ex);
+        }
+    }
+
+    /**
+     * @return 第一個大於 (或在 {@code inclusive} 時不小於) {@code probe} 的位置
+     */
+    private static int search(Key[] keys, Comparator<Key> order, Key probe, boolean inclusive) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = order.compare(keys[mid], probe);
+            if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 一個產品的排序鍵。
+     *
+     * @param id    產品 ID
+     * @param price 價格；null 視為 0
+     * @param name  名稱；null 視為空字串
+     */
+    private record Key(String id, long price, String name) {
+
+        static Key of(Product product) {
+            return new Key(product.getId(), product.getPrice() == null ? 0L : product.getPrice(),
+                    product.getName() == null ? "" : product.getName());
+        }
+    }
+
+    /**
+     * 一份不可變的索引版本。
+     *
+     * @param ids         基礎陣列的產品 ID，依價格、ID 排序
+     * @param prices      與 {@code ids} 對應的價格
+     * @param names       與 {@code ids} 對應的名稱
+     * @param nameOrder   依名稱、ID 排序的基礎陣列位置
+     * @param overwritten 變更層中的產品 ID，基礎陣列中的這些項目已被覆寫
+     * @param deltaByPrice 變更層，依價格、ID 排序
+     * @param deltaByName  變更層，依名稱、ID 排序
+     */
+    private record Version(String[] ids, long[] prices, String[] names, int[] nameOrder,
+            Map<String, Key> overwritten, Key[] deltaByPrice, Key[] deltaByName) {
+
+        static Version build(Collection<Key> keys) {
+            Key[] sorted = keys.toArray(NO_KEYS);
+            Arrays.sort(sorted, BY_PRICE);
+            int size = sorted.length;
+            String[] ids = new String[size];
+            long[] prices = new long[size];
+            String[] names = new String[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = sorted[i].id();
+                prices[i] = sorted[i].price();
+                names[i] = sorted[i].name();
+            }
+            int[] nameOrder = IntStream.range(0, size).boxed()
+                    .sorted(Comparator.<Integer, String>comparing(slot -> names[slot])
+                            .thenComparing(slot -> ids[slot]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            return new Version(ids, prices, names, nameOrder, Map.of(), NO_KEYS, NO_KEYS);
+        }
+
+        /**
+         * 以產品的新排序鍵建立下一個版本；變更層達到門檻時合併成新的基礎陣列。
+         */
+        Version with(Collection<Product> products) {
+            Map<String, Key> delta = new HashMap<>(overwritten);
+            for (Product product : products) {
+                delta.put(product.getId(), Key.of(product));
+            }
+            if (delta.size() >= MERGE_THRESHOLD) {
+                List<Key> merged = new ArrayList<>(ids.length + delta.size());
+                for (int slot = 0; slot < ids.length; slot++) {
+                    if (!delta.containsKey(ids[slot])) {
+                        merged.add(new Key(ids[slot], prices[slot], names[slot]));
+                    }
+                }
+                merged.addAll(delta.values());
+                return build(merged);
+            }
+            Key[] byPrice = delta.values().toArray(NO_KEYS);
+            Key[] byName = byPrice.clone();
+            Arrays.sort(byPrice, BY_PRICE);
+            Arrays.sort(byName, BY_NAME);
+            return new Version(ids, prices, names, nameOrder, delta, byPrice, byName);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int slot(boolean byPrice, int position) {
+            return byPrice ? position : nameOrder[position];
+        }
+
+        int compare(boolean byPrice, int position, Key key) {
+            int slot = slot(byPrice, position);
+            int cmp = byPrice ? Long.compare(prices[slot], key.price()) : names[slot].compareTo(key.name());
+            return cmp != 0 ? cmp : ids[slot].compareTo(key.id());
+        }
+
+        /**
+         * @return 從 {@code position} 起第一個沒有被變更層覆寫的基礎陣列位置
+         */
+        int skipOverwritten(boolean byPrice, int position) {
+            if (overwritten.isEmpty()) {
+                return position;
+            }
+            while (position < ids.length && overwritten.containsKey(ids[slot(byPrice, position)])) {
+                position++;
+            }
+            return position;
+        }
+
+        /**
+         * @return 基礎陣列中第一個大於 (或在 {@code inclusive} 時不小於) {@code probe} 的位置
+         */
+        int search(boolean byPrice, Key probe, boolean inclusive) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(byPrice, mid, probe);
+                if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
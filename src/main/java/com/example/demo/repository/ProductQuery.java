@@ -0,0 +1,15 @@
+package com.example.demo.repository;
+
+/**
+ * 產品目錄查詢條件。
+ *
+ * @param minPrice   最低價格 (含)；null 表示不限
+ * @param maxPrice   最高價格 (含)；null 表示不限
+ * @param namePrefix 名稱前綴 (區分大小寫)；null 或空字串表示不限
+ * @param sort       排序方式
+ * @param cursor     上一頁回傳的 {@link CatalogPage#nextCursor()}；null 表示第一頁
+ * @param limit      每頁筆數
+ */
+public record ProductQuery(Integer minPrice, Integer maxPrice, String namePrefix, ProductSort sort,
+        String cursor, int limit) {
+}
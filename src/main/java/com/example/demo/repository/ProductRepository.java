@@ -1,31 +1,153 @@
 package com.example.demo.repository;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 
 import com.example.demo.model.Product;
+import com.example.demo.repository.store.PriceCatalog;
+import com.example.demo.repository.store.ProductStore;
 
 /**
  * 產品的數據倉庫。
- * 此範例使用記憶體內存儲 (In-memory ConcurrentHashMap) 來模擬數據庫。
+ * 實際儲存方式由注入的 {@link ProductStore} 決定 (見 {@code demo.store.type})。
+ * 每次寫入後更新目錄索引 ({@link ProductCatalogIndex}) 並發布 {@link ProductsSavedEvent}。
  */
 @Repository
 public class ProductRepository {
-    private final Map<String, Product> products = new ConcurrentHashMap<>();
+    /** {@link #priceOf(String)} 找不到產品時的回傳值。 */
+    public static final long NOT_FOUND = ProductStore.NOT_FOUND;
+
+    private final ProductStore store;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductCatalogIndex catalogIndex;
+
+    public ProductRepository(ProductStore store) {
+        this(store, event -> { });
+    }
+
+    @Autowired
+    public ProductRepository(ProductStore store, ApplicationEventPublisher eventPublisher) {
+        this.store = store;
+        this.eventPublisher = eventPublisher;
+        this.catalogIndex = new ProductCatalogIndex(store::findAll, store::findAllByKey);
+    }
 
     public void save(Product product) {
-        products.put(product.getId(), product);
+        store.save(product);
+        catalogIndex.update(List.of(product));
+        eventPublisher.publishEvent(new ProductsSavedEvent(List.of(product.getId())));
+    }
+
+    /**
+     * 一次新增或覆寫多個產品，支援的儲存會一次發布所有變更。
+     *
+     * @param products 要儲存的產品
+     */
+    public void saveAll(Collection<Product> products) {
+        store.saveAll(products);
+        catalogIndex.update(products);
+        eventPublisher.publishEvent(new ProductsSavedEvent(products.stream().map(Product::getId).toList()));
+    }
+
+    /**
+     * 以新的產品目錄整批取代所有產品 (見 {@link ProductStore#replaceAll(Collection)})，
+     * 計價只會看到替換前或替換後的完整目錄。替換後重建目錄索引，
+     * 並以新目錄與被移除產品的 ID 發布 {@link ProductsSavedEvent}。
+     *
+     * @param products 新的產品目錄
+     * @throws UnsupportedOperationException 如果底層儲存不支援整批替換
+     */
+    public void replaceAll(Collection<Product> products) {
+        Set<String> ids = new HashSet<>(Math.max(16, products.size() * 4 / 3 + 1));
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        List<String> removed = new ArrayList<>();
+        for (Product product : store.findAll()) {
+            if (!ids.contains(product.getId())) {
+                removed.add(product.getId());
+            }
+        }
+        store.replaceAll(products);
+        catalogIndex.rebuild();
+        ids.addAll(removed);
+        eventPublisher.publishEvent(new ProductsSavedEvent(ids));
+    }
+
+    /**
+     * @return 底層儲存是否支援 {@link #replaceAll(Collection)}
+     */
+    public boolean supportsReplaceAll() {
+        return store.supportsReplaceAll();
     }
 
     public Optional<Product> findById(String id) {
-        return Optional.ofNullable(products.get(id));
+        return Optional.ofNullable(store.find(id));
+    }
+
+    /**
+     * 直接查詢產品價格，供計價熱路徑使用，不會建立 {@link Optional}。
+     *
+     * @param id 產品 ID
+     * @return 產品價格；找不到時回傳 {@link #NOT_FOUND}
+     */
+    public long priceOf(String id) {
+        return store.priceOf(id);
+    }
+
+    /**
+     * 取得當前的序號價格目錄快照，計價時整個購物車都使用同一份價格。
+     *
+     * @return 價格目錄；儲存不支援序號查價時為 null，此時應改用 {@link #priceOf(String)}
+     */
+    public PriceCatalog priceCatalog() {
+        return store.priceCatalog();
+    }
+
+    /**
+     * 一次查詢多個產品 ID，供批次計價使用。
+     * 找不到的 ID 不會出現在回傳的 Map 中。
+     *
+     * @param ids 產品 ID 集合
+     * @return 以產品 ID 為鍵的產品對照表
+     */
+    public Map<String, Product> findAllById(Collection<String> ids) {
+        return store.findAllByKey(ids);
+    }
+
+    /**
+     * 依價格範圍、名稱前綴查詢一頁產品，以游標分頁。
+     * 查詢走排序索引，成本與目錄大小的對數及掃描筆數成正比，不會走訪整個目錄。
+     *
+     * @param query 查詢條件
+     * @return 此頁產品與下一頁的游標
+     * @throws IllegalArgumentException 如果游標格式不正確或與排序方式不符
+     */
+    public CatalogPage<Product> findPage(ProductQuery query) {
+        return catalogIndex.query(query);
     }
 
     public Collection<Product> findAll() {
-        return products.values();
+        return store.findAll();
+    }
+
+    public long count() {
+        return store.count();
+    }
+
+    /**
+     * @return 底層儲存的存取是否可能阻塞執行緒
+     */
+    public boolean isBlocking() {
+        return store.isBlocking();
     }
-}
\ No newline at end of file
+}
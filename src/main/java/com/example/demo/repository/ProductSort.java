@@ -0,0 +1,27 @@
+package com.example.demo.repository;
+
+import java.util.Locale;
+
+/**
+ * 產品目錄查詢的排序方式。相同價格或名稱時再依產品 ID 排序，分頁結果穩定。
+ */
+public enum ProductSort {
+    /** 依價格由低到高 (預設)。 */
+    PRICE,
+    /** 依名稱字典序。 */
+    NAME;
+
+    /**
+     * 解析請求參數，例如 {@code price}、{@code name}。
+     *
+     * @param value 參數值；null 或空白時為 {@link #PRICE}
+     * @return 對應的排序方式
+     * @throws IllegalArgumentException 如果參數值無法辨識
+     */
+    public static ProductSort fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return PRICE;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
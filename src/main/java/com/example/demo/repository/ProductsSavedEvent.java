@@ -0,0 +1,11 @@
+package com.example.demo.repository;
+
+import java.util.Collection;
+
+/**
+ * {@link ProductRepository} 新增或覆寫產品後發布的事件，供依賴產品資料的快取失效使用。
+ *
+ * @param productIds 被寫入的產品 ID
+ */
+public record ProductsSavedEvent(Collection<String> productIds) {
+}
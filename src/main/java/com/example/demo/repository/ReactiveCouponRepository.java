@@ -0,0 +1,55 @@
+package com.example.demo.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.model.Coupon;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link CouponRepository} 的反應式版本。
+ * <p>
+ * 底層儲存為純記憶體時直接在呼叫的執行緒上查詢；可能阻塞時 (例如 JDBC)
+ * 改在 {@link Schedulers#boundedElastic()} 上執行，避免阻塞事件迴圈。
+ * </p>
+ */
+@Repository
+public class ReactiveCouponRepository {
+    private final CouponRepository couponRepository;
+
+    public ReactiveCouponRepository(CouponRepository couponRepository) {
+        this.couponRepository = couponRepository;
+    }
+
+    public Mono<Coupon> findByCode(String code) {
+        return offloadIfBlocking(Mono.defer(() -> Mono.justOrEmpty(couponRepository.findByCode(code))));
+    }
+
+    /**
+     * 一次查詢多個優惠券代碼，找不到的代碼不會出現在結果中。
+     *
+     * @param codes 優惠券代碼集合
+     * @return 以優惠券代碼為鍵的優惠券對照表
+     */
+    public Mono<Map<String, Coupon>> findAllByCode(Collection<String> codes) {
+        if (codes.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return offloadIfBlocking(Mono.fromSupplier(() -> couponRepository.findAllByCode(codes)));
+    }
+
+    /**
+     * @return 底層儲存的存取是否可能阻塞執行緒
+     */
+    public boolean isBlocking() {
+        return couponRepository.isBlocking();
+    }
+
+    private <T> Mono<T> offloadIfBlocking(Mono<T> mono) {
+        return couponRepository.isBlocking() ? mono.subscribeOn(Schedulers.boundedElastic()) : mono;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.model.Product;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link ProductRepository} 的反應式版本。
+ * <p>
+ * 底層儲存為純記憶體時直接在呼叫的執行緒上查詢；可能阻塞時 (例如 JDBC)
+ * 改在 {@link Schedulers#boundedElastic()} 上執行，避免阻塞事件迴圈。
+ * </p>
+ */
+@Repository
+public class ReactiveProductRepository {
+    private final ProductRepository productRepository;
+
+    public ReactiveProductRepository(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public Mono<Product> findById(String id) {
+        return offloadIfBlocking(Mono.defer(() -> Mono.justOrEmpty(productRepository.findById(id))));
+    }
+
+    /**
+     * 一次查詢多個產品 ID，找不到的 ID 不會出現在結果中。
+     *
+     * @param ids 產品 ID 集合
+     * @return 以產品 ID 為鍵的產品對照表
+     */
+    public Mono<Map<String, Product>> findAllById(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return offloadIfBlocking(Mono.fromSupplier(() -> productRepository.findAllById(ids)));
+    }
+
+    /**
+     * @return 底層儲存的存取是否可能阻塞執行緒
+     */
+    public boolean isBlocking() {
+        return productRepository.isBlocking();
+    }
+
+    private <T> Mono<T> offloadIfBlocking(Mono<T> mono) {
+        return productRepository.isBlocking() ? mono.subscribeOn(Schedulers.boundedElastic()) : mono;
+    }
+}
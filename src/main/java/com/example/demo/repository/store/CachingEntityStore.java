@@ -0,0 +1,157 @@
+package com.example.demo.repository.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * 在較慢的儲存 (例如磁碟上的資料庫) 前加上一層有容量上限的讀穿 (read-through) 快取。
+ * <p>
+ * 讀取時先查快取，未命中才查詢底層儲存並放入快取；超過容量時依 Caffeine 的
+ * W-TinyLFU 策略淘汰。{@link #save(Object)} 會先寫入底層儲存再使對應的快取項目失效，
+ * 因此下一次讀取一定會看到新值。不存在的鍵值不會被快取。
+ * </p>
+ * <p>
+ * 單筆與批次讀取都在鎖外載入，並以寫入世代號確認載入期間沒有寫入後才放入快取，
+ * 避免與 {@link #save(Object)} 競爭時把舊值放回快取而一直讀到舊資料。
+ * </p>
+ *
+ * @param <T> 實體型別
+ */
+public class CachingEntityStore<T> implements EntityStore<T> {
+    private final EntityStore<T> delegate;
+    private final Function<T, String> keyOf;
+    private final Cache<String, T> cache;
+    private final AtomicLong writeGeneration = new AtomicLong();
+
+    /**
+     * @param delegate    底層儲存
+     * @param keyOf       從實體取出鍵值的函式
+     * @param maximumSize 快取最多保留的項目數
+     */
+    public CachingEntityStore(EntityStore<T> delegate, Function<T, String> keyOf, long maximumSize) {
+        this.delegate = delegate;
+        this.keyOf = keyOf;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public T find(String key) {
+        T cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        // 不使用 cache.get(key, loader)：載入函式會在 ConcurrentHashMap 的 synchronized 區塊內執行，
+        // 底層是阻塞 I/O 時會釘選虛擬執行緒的載體執行緒。改為在鎖外載入，
+        // 並以寫入世代號確認載入期間沒有 save，避免把舊值放回快取。
+        long generation = writeGeneration.get();
+        T loaded = delegate.find(key);
+        if (loaded != null) {
+            populate(key, loaded, generation);
+        }
+        return loaded;
+    }
+
+    @Override
+    public Map<String, T> findAllByKey(Collection<String> keys) {
+        Map<String, T> cached = cache.getAllPresent(keys);
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            if (!cached.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return cached;
+        }
+        // 與 find 相同：不用 cache.getAll(keys, loader)，在鎖外載入並檢查寫入世代號
+        long generation = writeGeneration.get();
+        Map<String, T> loaded = delegate.findAllByKey(missing);
+        Map<String, T> found = new HashMap<>(Math.max(16, (cached.size() + loaded.size()) * 2));
+        found.putAll(cached);
+        loaded.forEach((key, entity) -> {
+            populate(key, entity, generation);
+            found.put(key, entity);
+        });
+        return found;
+    }
+
+    /**
+     * 只有在 {@code generation} 之後沒有任何寫入時才放入快取；放入後若發現有寫入，移除剛放入的值。
+     */
+    private void populate(String key, T loaded, long generation) {
+        if (writeGeneration.get() != generation) {
+            return;
+        }
+        cache.asMap().putIfAbsent(key, loaded);
+        if (writeGeneration.get() != generation) {
+            cache.asMap().remove(key, loaded);
+        }
+    }
+
+    @Override
+    public void save(T entity) {
+        delegate.save(entity);
+        writeGeneration.incrementAndGet();
+        cache.invalidate(keyOf.apply(entity));
+    }
+
+    /**
+     * 替換底層儲存的全部內容後清空快取。
+     */
+    @Override
+    public void replaceAll(Collection<T> entities) {
+        delegate.replaceAll(entities);
+        writeGeneration.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public boolean supportsReplaceAll() {
+        return delegate.supportsReplaceAll();
+    }
+
+    @Override
+    public Collection<T> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return delegate.isBlocking();
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * 取得快取的命中/未命中統計。
+     *
+     * @return 自建立以來的快取統計
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 取得底層的 Caffeine 快取，供指標註冊使用。
+     *
+     * @return 底層快取
+     */
+    public Cache<String, T> cache() {
+        return cache;
+    }
+}
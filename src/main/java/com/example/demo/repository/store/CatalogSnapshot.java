@@ -0,0 +1,348 @@
+package com.example.demo.repository.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.example.demo.model.Product;
+
+/**
+ * 唯讀、以記憶體映射 (memory-mapped) 方式載入的二進位產品目錄快照。
+ * <p>
+ * 開啟快照只需映射檔案，不需逐筆建立 {@link Product}；價格直接從映射的緩衝區讀取，
+ * 只有在需要時 (例如 {@link #productAt(int)}) 才會解碼字串並建立產品物件。
+ * 單一快照檔案大小上限為 2GB。
+ * </p>
+ * <p>
+ * 開啟時會檢查標頭、雜湊表與每筆記錄的字串位置都落在檔案範圍內，
+ * 截斷或損毀的檔案在開啟 (啟動) 時就以 {@link IllegalArgumentException} 失敗，而不是在計價時才出錯。
+ * </p>
+ * <pre>
+ * 檔案格式 (big-endian)：
+ *   int   MAGIC ('CSN1')
+ *   int   VERSION
+ *   int   count                  產品數
+ *   int   tableSize              雜湊表大小 (2 的次方，大於 count)
+ *   int[] table[tableSize]       開放定址雜湊表，值為 ordinal + 1，0 表示空位
+ *   records[count]               版本 2 每筆 32 bytes：hash, price, idOffset, idLength, nameOffset, nameLength,
+ *                                categoryOffset, categoryLength；長度 -1 表示 null
+ *   bytes                        UTF-8 編碼的 ID、名稱與分類
+ * </pre>
+ * 版本 1 的記錄為 24 bytes，沒有分類欄位 (讀出的分類為 null)，仍可開啟；寫入一律使用版本 2。
+ */
+public final class CatalogSnapshot implements PriceCatalog {
+
+    private static final int MAGIC = 0x43534E31;
+    private static final int VERSION = 2;
+    private static final int VERSION_1 = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 32;
+    private static final int VERSION_1_RECORD_SIZE = 24;
+    private static final int NULL_LENGTH = -1;
+
+    private static final CatalogSnapshot EMPTY = new CatalogSnapshot(emptyBuffer());
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int tableMask;
+    private final int recordsOffset;
+    private final int recordSize;
+
+    private CatalogSnapshot(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("不是有效的產品目錄快照");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION && version != VERSION_1) {
+            throw new IllegalArgumentException("不支援的產品目錄快照版本: " + version);
+        }
+        this.buffer = buffer;
+        this.recordSize = version == VERSION ? RECORD_SIZE : VERSION_1_RECORD_SIZE;
+        this.count = buffer.getInt(8);
+        int tableSize = buffer.getInt(12);
+        // 雜湊表至少要有一個空位，否則查詢找不到的 ID 時探查不會結束
+        if (count < 0 || tableSize < 2 || Integer.bitCount(tableSize) != 1 || tableSize <= count) {
+            throw corrupt("產品數 " + count + " 或雜湊表大小 " + tableSize + " 無效");
+        }
+        long records = HEADER_SIZE + (long) tableSize * Integer.BYTES;
+        long strings = records + (long) count * recordSize;
+        if (strings > buffer.capacity()) {
+            throw corrupt("檔案大小 " + buffer.capacity() + " bytes 小於標頭宣告的 " + strings + " bytes");
+        }
+        this.tableMask = tableSize - 1;
+        this.recordsOffset = (int) records;
+        validate(tableSize, (int) strings);
+    }
+
+    /**
+     * 檢查雜湊表的每個值都是有效序號，且每筆記錄的字串都落在字串區內。
+     */
+    private void validate(int tableSize, int stringsOffset) {
+        for (int slot = 0; slot < tableSize; slot++) {
+            int entry = buffer.getInt(HEADER_SIZE + slot * Integer.BYTES);
+            if (entry < 0 || entry > count) {
+                throw corrupt("雜湊表第 " + slot + " 格的序號 " + entry + " 超出範圍");
+            }
+        }
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            int record = recordOffset(ordinal);
+            checkString(ordinal, buffer.getInt(record + 8), buffer.getInt(record + 12), false, stringsOffset);
+            checkString(ordinal, buffer.getInt(record + 16), buffer.getInt(record + 20), true, stringsOffset);
+            if (recordSize == RECORD_SIZE) {
+                checkString(ordinal, buffer.getInt(record + 24), buffer.getInt(record + 28), true, stringsOffset);
+            }
+        }
+    }
+
+    private void checkString(int ordinal, int offset, int length, boolean nullable, int stringsOffset) {
+        if (nullable && length == NULL_LENGTH) {
+            return;
+        }
+        if (length < 0 || offset < stringsOffset || (long) offset + length > buffer.capacity()) {
+            throw corrupt("第 " + ordinal + " 筆產品的字串位置 " + offset + " (長度 " + length + ") 超出檔案範圍");
+        }
+    }
+
+    private static IllegalArgumentException corrupt(String detail) {
+        return new IllegalArgumentException("產品目錄快照已截斷或損毀: " + detail);
+    }
+
+    /**
+     * 以唯讀記憶體映射開啟快照檔案。
+     *
+     * @param path 快照檔案路徑
+     * @return 快照
+     * @throws IOException              讀取檔案失敗時
+     * @throws IllegalArgumentException 如果檔案不是有效的快照、已截斷或損毀
+     */
+    public static CatalogSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CatalogSnapshot(mapped);
+        }
+    }
+
+    /**
+     * 沒有任何產品的快照，用於快照檔案尚不存在時。
+     *
+     * @return 空快照
+     */
+    public static CatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 將產品寫成快照檔案。先寫到暫存檔再原子地取代目標檔，讀取端不會看到寫到一半的檔案。
+     *
+     * @param products 要寫入的產品 (ID 不可重複)
+     * @param path     快照檔案路徑；上層目錄不存在時會建立
+     * @throws IOException              寫入檔案失敗時
+     * @throws IllegalArgumentException 如果任一產品的 ID 或價格為 null
+     */
+    public static void write(Collection<Product> products, Path path) throws IOException {
+        for (Product product : products) {
+            if (product.getId() == null || product.getPrice() == null) {
+                throw new IllegalArgumentException("產品 " + product.getId() + " 的 ID 或價格為 null，無法寫入快照");
+            }
+        }
+        int count = products.size();
+        int tableSize = Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;
+        List<byte[]> ids = new ArrayList<>(count);
+        List<byte[]> names = new ArrayList<>(count);
+        List<byte[]> categories = new ArrayList<>(count);
+        long stringBytes = 0;
+        for (Product product : products) {
+            byte[] id = product.getId().getBytes(StandardCharsets.UTF_8);
+            byte[] name = encode(product.getName());
+            byte[] category = encode(product.getCategory());
+            ids.add(id);
+            names.add(name);
+            categories.add(category);
+            stringBytes += id.length + length(name) + length(category);
+        }
+        long recordsOffset = HEADER_SIZE + (long) tableSize * Integer.BYTES;
+        long totalSize = recordsOffset + (long) count * RECORD_SIZE + stringBytes;
+        if (totalSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("產品目錄過大，超過單一快照檔案 2GB 的上限");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) totalSize).order(ByteOrder.BIG_ENDIAN);
+        out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, count).putInt(12, tableSize);
+        int stringOffset = (int) (recordsOffset + (long) count * RECORD_SIZE);
+        int ordinal = 0;
+        for (Product product : products) {
+            int hash = product.getId().hashCode();
+            int slot = spread(hash) & (tableSize - 1);
+            while (out.getInt(HEADER_SIZE + slot * Integer.BYTES) != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            out.putInt(HEADER_SIZE + slot * Integer.BYTES, ordinal + 1);
+
+            int record = (int) recordsOffset + ordinal * RECORD_SIZE;
+            out.putInt(record, hash)
+                    .putInt(record + 4, product.getPrice());
+            stringOffset = putString(out, record + 8, stringOffset, ids.get(ordinal));
+            stringOffset = putString(out, record + 16, stringOffset, names.get(ordinal));
+            stringOffset = putString(out, record + 24, stringOffset, categories.get(ordinal));
+            ordinal++;
+        }
+
+        Path directory = Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(directory, "catalog", ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * 在 {@code field} 寫入字串的位置與長度 (null 時長度為 -1)，並將內容寫到字串區。
+     *
+     * @return 下一個字串的位置
+     */
+    private static int putString(ByteBuffer out, int field, int stringOffset, byte[] value) {
+        out.putInt(field, stringOffset).putInt(field + 4, value == null ? NULL_LENGTH : value.length);
+        if (value == null) {
+            return stringOffset;
+        }
+        out.put(stringOffset, value);
+        return stringOffset + value.length;
+    }
+
+    /**
+     * @return 快照中的產品數
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 查詢產品 ID 對應的序號，過程中不配置任何物件 (ID 為 ASCII 時)。
+     *
+     * @param id 產品 ID
+     * @return 序號 (0 到 {@link #size()} - 1)；找不到時為 -1
+     */
+    @Override
+    public int ordinalOf(String id) {
+        if (count == 0 || id == null) {
+            return -1;
+        }
+        int hash = id.hashCode();
+        int slot = spread(hash) & tableMask;
+        int entry;
+        while ((entry = buffer.getInt(HEADER_SIZE + slot * Integer.BYTES)) != 0) {
+            int record = recordOffset(entry - 1);
+            if (buffer.getInt(record) == hash && idEquals(record, id)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    @Override
+    public long priceAt(int ordinal) {
+        return buffer.getInt(recordOffset(ordinal) + 4);
+    }
+
+    /**
+     * @param ordinal 產品序號
+     * @return 該產品的 ID
+     */
+    public String idAt(int ordinal) {
+        int record = recordOffset(ordinal);
+        return decode(buffer.getInt(record + 8), buffer.getInt(record + 12));
+    }
+
+    /**
+     * 依序號建立產品的檢視物件。每次呼叫都會解碼字串並建立新的 {@link Product}。
+     *
+     * @param ordinal 產品序號
+     * @return 產品
+     */
+    public Product productAt(int ordinal) {
+        int record = recordOffset(ordinal);
+        String category = recordSize == RECORD_SIZE
+                ? decode(buffer.getInt(record + 24), buffer.getInt(record + 28))
+                : null;
+        return new Product(
+                decode(buffer.getInt(record + 8), buffer.getInt(record + 12)),
+                decode(buffer.getInt(record + 16), buffer.getInt(record + 20)),
+                buffer.getInt(record + 4),
+                category);
+    }
+
+    private int recordOffset(int ordinal) {
+        return recordsOffset + ordinal * recordSize;
+    }
+
+    private boolean idEquals(int record, String id) {
+        int offset = buffer.getInt(record + 8);
+        int length = buffer.getInt(record + 12);
+        int chars = id.length();
+        if (length == chars) {
+            // ASCII ID 的 UTF-8 長度與字元數相同，可直接逐字比較而不需編碼
+            boolean ascii = true;
+            for (int i = 0; i < chars; i++) {
+                char c = id.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+                if (buffer.get(offset + i) != (byte) c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        byte[] expected = id.getBytes(StandardCharsets.UTF_8);
+        return expected.length == length && Arrays.equals(expected, bytes(offset, length));
+    }
+
+    private String decode(int offset, int length) {
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        return new String(bytes(offset, length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytes(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static ByteBuffer emptyBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * Integer.BYTES);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, 0).putInt(12, 2);
+        return buffer;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.repository.store;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 儲存庫背後的儲存 SPI。
+ * <p>
+ * {@link com.example.demo.repository.ProductRepository} 與 {@link com.example.demo.repository.CouponRepository}
+ * 透過此介面存取資料，實際的儲存方式 (記憶體、嵌入式資料庫等) 由設定決定。
+ * 實作必須是執行緒安全的。
+ * </p>
+ *
+ * @param <T> 實體型別
+ */
+public interface EntityStore<T> {
+
+    /**
+     * 依鍵值查詢實體。
+     *
+     * @param key 實體的鍵值 (產品 ID 或優惠券代碼)
+     * @return 實體；找不到時為 null
+     */
+    T find(String key);
+
+    /**
+     * 一次查詢多個鍵值。找不到的鍵值不會出現在回傳的 Map 中。
+     * 預設逐一呼叫 {@link #find(String)}，可批次查詢的實作應覆寫此方法。
+     *
+     * @param keys 鍵值集合
+     * @return 以鍵值為鍵的實體對照表
+     */
+    default Map<String, T> findAllByKey(Collection<String> keys) {
+        Map<String, T> found = new HashMap<>(Math.max(16, keys.size() * 2));
+        for (String key : keys) {
+            T entity = find(key);
+            if (entity != null) {
+                found.put(key, entity);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 新增或覆寫實體。
+     *
+     * @param entity 要儲存的實體
+     */
+    void save(T entity);
+
+    /**
+     * 新增或覆寫多個實體。預設逐一呼叫 {@link #save(Object)}，
+     * 能一次寫入的實作應覆寫此方法。
+     *
+     * @param entities 要儲存的實體
+     */
+    default void saveAll(Collection<T> entities) {
+        for (T entity : entities) {
+            save(entity);
+        }
+    }
+
+    /**
+     * 以新的實體集合整批取代所有內容：新內容在旁邊建好後一次切換，
+     * 讀取端只會看到切換前或切換後的完整內容，不會看到一半的資料，也不會因替換而被阻塞。
+     * 替換期間的單筆寫入可能被新內容覆蓋。
+     *
+     * @param entities 新的全部實體；鍵值重複時以後出現者為準
+     * @throws UnsupportedOperationException 如果此儲存不支援整批替換 (見 {@link #supportsReplaceAll()})
+     */
+    default void replaceAll(Collection<T> entities) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " 不支援整批替換");
+    }
+
+    /**
+     * @return 是否支援 {@link #replaceAll(Collection)}
+     */
+    default boolean supportsReplaceAll() {
+        return false;
+    }
+
+    /**
+     * 取得所有實體。
+     *
+     * @return 所有實體
+     */
+    Collection<T> findAll();
+
+    /**
+     * 此儲存的讀寫是否可能阻塞執行緒 (例如磁碟或網路 I/O)。
+     * 反應式呼叫端依此決定是否要將存取移到可阻塞的排程器上執行。
+     *
+     * @return 可能阻塞時為 true；純記憶體儲存為 false
+     */
+    default boolean isBlocking() {
+        return false;
+    }
+
+    /**
+     * 取得實體數量。預設為 {@code findAll().size()}，能更有效率計數的實作應覆寫此方法。
+     *
+     * @return 實體數量
+     */
+    default long count() {
+        return findAll().size();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.repository.store;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 以 {@link ConcurrentHashMap} 實作的記憶體儲存，重新啟動後資料即消失。
+ * <p>
+ * {@link #replaceAll(Collection)} 先建好新的對照表再替換 volatile 參考，讀取端不需鎖。
+ * </p>
+ *
+ * @param <T> 實體型別
+ */
+public class InMemoryEntityStore<T> implements EntityStore<T> {
+    private volatile Map<String, T> entities = new ConcurrentHashMap<>();
+    private final Function<T, String> keyOf;
+
+    /**
+     * @param keyOf 從實體取出鍵值的函式
+     */
+    public InMemoryEntityStore(Function<T, String> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    @Override
+    public T find(String key) {
+        return entities.get(key);
+    }
+
+    @Override
+    public void save(T entity) {
+        // 與 replaceAll 互斥，避免寫入已被替換掉的舊對照表
+        synchronized (this) {
+            entities.put(keyOf.apply(entity), entity);
+        }
+    }
+
+    @Override
+    public void replaceAll(Collection<T> replacement) {
+        Map<String, T> next = new ConcurrentHashMap<>(Math.max(16, replacement.size() * 4 / 3 + 1));
+        for (T entity : replacement) {
+            next.put(keyOf.apply(entity), entity);
+        }
+        synchronized (this) {
+            entities = next;
+        }
+    }
+
+    @Override
+    public boolean supportsReplaceAll() {
+        return true;
+    }
+
+    @Override
+    public Collection<T> findAll() {
+        return entities.values();
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo.repository.store;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.example.demo.model.Product;
+
+/**
+ * 以 {@link ProductIndex} 實作的記憶體產品儲存。
+ * <p>
+ * 讀取端只讀取一次 volatile 欄位取得當前版本，之後完全不需鎖；
+ * 寫入端序列化執行，建立新版本後一次發布 (copy-on-publish)。
+ * </p>
+ * <p>
+ * 每個版本由一個大的基礎索引與一個小的變更層 (也是 {@link ProductIndex}) 組成：
+ * 單筆 {@link #save(Product)} 只複製變更層，成本與變更層大小成正比而不是目錄大小；
+ * 變更層達到 {@code mergeThreshold} 筆時才合併進新的基礎索引，重建的成本由多次寫入分攤。
+ * 變更層中的產品以 {@code 基礎索引大小 + 變更層序號} 作為序號，查價時先查變更層再查基礎索引。
+ * 整批匯入使用 {@link #replaceAll(Collection)}，新索引在鎖外建立，不會阻塞其他寫入。
+ * </p>
+ */
+public class IndexedProductStore implements ProductStore {
+    /** 預設的變更層合併門檻。 */
+    public static final int DEFAULT_MERGE_THRESHOLD = 1024;
+
+    private final int mergeThreshold;
+    private volatile Version version = Version.of(ProductIndex.EMPTY, ProductIndex.EMPTY);
+
+    public IndexedProductStore() {
+        this(DEFAULT_MERGE_THRESHOLD);
+    }
+
+    /**
+     * @param mergeThreshold 變更層達到此數量時合併進基礎索引
+     */
+    public IndexedProductStore(int mergeThreshold) {
+        this.mergeThreshold = Math.max(1, mergeThreshold);
+    }
+
+    @Override
+    public Product find(String key) {
+        Version current = version;
+        int ordinal = current.overlay().ordinalOf(key);
+        if (ordinal >= 0) {
+            return current.overlay().productAt(ordinal);
+        }
+        ordinal = current.base().ordinalOf(key);
+        return ordinal < 0 ? null : current.base().productAt(ordinal);
+    }
+
+    @Override
+    public long priceOf(String id) {
+        return version.priceOf(id);
+    }
+
+    /**
+     * 沒有變更層時直接回傳基礎索引；有變更層時回傳此版本本身。
+     */
+    @Override
+    public PriceCatalog priceCatalog() {
+        Version current = version;
+        return current.overlay().size() == 0 ? current.base() : current;
+    }
+
+    @Override
+    public void save(Product product) {
+        saveAll(List.of(product));
+    }
+
+    @Override
+    public synchronized void saveAll(Collection<Product> products) {
+        Version current = version;
+        ProductIndex overlay = current.overlay();
+        if (overlay.size() + products.size() < mergeThreshold) {
+            version = Version.of(current.base(), overlay.withAll(products));
+            return;
+        }
+        // 變更層在前、本次寫入在後，重複的 ID 以本次寫入為準
+        List<Product> merged = new ArrayList<>(overlay.size() + products.size());
+        merged.addAll(overlay.products());
+        merged.addAll(products);
+        version = Version.of(current.base().withAll(merged), ProductIndex.EMPTY);
+    }
+
+    @Override
+    public void replaceAll(Collection<Product> products) {
+        ProductIndex next = ProductIndex.of(products);
+        synchronized (this) {
+            version = Version.of(next, ProductIndex.EMPTY);
+        }
+    }
+
+    @Override
+    public boolean supportsReplaceAll() {
+        return true;
+    }
+
+    @Override
+    public Collection<Product> findAll() {
+        return version.products();
+    }
+
+    @Override
+    public long count() {
+        return version.size();
+    }
+
+    /**
+     * 一個不可變的版本：基礎索引加上變更層。
+     *
+     * @param base    基礎索引
+     * @param overlay 變更層，優先於基礎索引
+     * @param added   變更層中不在基礎索引內的產品的變更層序號，依加入順序排列
+     */
+    private record Version(ProductIndex base, ProductIndex overlay, int[] added) implements PriceCatalog {
+
+        static Version of(ProductIndex base, ProductIndex overlay) {
+            int[] added = new int[overlay.size()];
+            int count = 0;
+            for (int ordinal = 0; ordinal < overlay.size(); ordinal++) {
+                if (base.ordinalOf(overlay.idAt(ordinal)) < 0) {
+                    added[count++] = ordinal;
+                }
+            }
+            return new Version(base, overlay, count == added.length ? added : Arrays.copyOf(added, count));
+        }
+
+        @Override
+        public int ordinalOf(String id) {
+            if (overlay.size() > 0) {
+                int ordinal = overlay.ordinalOf(id);
+                if (ordinal >= 0) {
+                    return base.size() + ordinal;
+                }
+            }
+            return base.ordinalOf(id);
+        }
+
+        @Override
+        public long priceAt(int ordinal) {
+            int size = base.size();
+            return ordinal < size ? base.priceAt(ordinal) : overlay.priceAt(ordinal - size);
+        }
+
+        int size() {
+            return base.size() + added.length;
+        }
+
+        /**
+         * @return 與合併後的索引相同順序 (基礎索引的序號，再接新加入的產品) 的唯讀列表，走訪時才建立產品物件
+         */
+        List<Product> products() {
+            if (overlay.size() == 0) {
+                return base.products();
+            }
+            return new AbstractList<>() {
+                @Override
+                public Product get(int index) {
+                    if (index >= base.size()) {
+                        return overlay.productAt(added[index - base.size()]);
+                    }
+                    int ordinal = overlay.ordinalOf(base.idAt(index));
+                    return ordinal >= 0 ? overlay.productAt(ordinal) : base.productAt(index);
+                }
+
+                @Override
+                public int size() {
+                    return Version.this.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.repository.store;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponRule;
+
+/**
+ * 將優惠券存放在嵌入式資料庫 {@code coupon} 資料表中的儲存。
+ */
+public class JdbcCouponStore extends JdbcEntityStore<Coupon> {
+
+    public JdbcCouponStore(JdbcClient jdbcClient) {
+        super(jdbcClient,
+                (rs, rowNum) -> new Coupon(rs.getString("code"), rs.getString("description"), rs.getInt("discount_amount"),
+                        nullableInt(rs, "max_redemptions"), nullableInt(rs, "max_redemptions_per_user"),
+                        CouponRule.parse(rs.getString("rule"))),
+                Coupon::getCode);
+    }
+
+    private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    @Override
+    protected String createTableSql() {
+        return "CREATE TABLE IF NOT EXISTS coupon (code VARCHAR(64) PRIMARY KEY, description VARCHAR(255) NOT NULL, discount_amount INT NOT NULL, "
+                + "max_redemptions INT, max_redemptions_per_user INT, rule VARCHAR(1000))";
+    }
+
+    @Override
+    protected List<String> migrationSql() {
+        return List.of(
+                "ALTER TABLE coupon ADD COLUMN IF NOT EXISTS max_redemptions INT",
+                "ALTER TABLE coupon ADD COLUMN IF NOT EXISTS max_redemptions_per_user INT",
+                "ALTER TABLE coupon ADD COLUMN IF NOT EXISTS rule VARCHAR(1000)");
+    }
+
+    @Override
+    protected String selectByKeySql() {
+        return "SELECT code, description, discount_amount, max_redemptions, max_redemptions_per_user, rule FROM coupon WHERE code = :key";
+    }
+
+    @Override
+    protected String selectByKeysSql() {
+        return "SELECT code, description, discount_amount, max_redemptions, max_redemptions_per_user, rule FROM coupon WHERE code IN (:keys)";
+    }
+
+    @Override
+    protected String selectAllSql() {
+        return "SELECT code, description, discount_amount, max_redemptions, max_redemptions_per_user, rule FROM coupon";
+    }
+
+    @Override
+    protected String countSql() {
+        return "SELECT COUNT(*) FROM coupon";
+    }
+
+    @Override
+    protected void upsert(Coupon coupon) {
+        jdbcClient.sql("MERGE INTO coupon (code, description, discount_amount, max_redemptions, max_redemptions_per_user, rule) KEY (code) "
+                        + "VALUES (:code, :description, :discountAmount, :maxRedemptions, :maxRedemptionsPerUser, :rule)")
+                .param("code", coupon.getCode())
+                .param("description", coupon.getDescription())
+                .param("discountAmount", coupon.getDiscountAmount())
+                .param("maxRedemptions", coupon.getMaxRedemptions())
+                .param("maxRedemptionsPerUser", coupon.getMaxRedemptionsPerUser())
+                .param("rule", coupon.getRule() == null ? null : coupon.getRule().toSpec())
+                .update();
+    }
+}
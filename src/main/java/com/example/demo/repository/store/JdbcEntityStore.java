@@ -0,0 +1,99 @@
+package com.example.demo.repository.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+/**
+ * 以 JDBC 存取嵌入式資料庫 (預設為 H2 檔案資料庫) 的儲存基底類別。
+ * 子類別只需提供資料表結構、SQL 與資料列對應。
+ *
+ * @param <T> 實體型別
+ */
+abstract class JdbcEntityStore<T> implements EntityStore<T> {
+    /** 批次查詢時每次 IN 子句最多帶入的鍵值數。 */
+    private static final int IN_CLAUSE_LIMIT = 500;
+
+    protected final JdbcClient jdbcClient;
+    private final RowMapper<T> rowMapper;
+    private final Function<T, String> keyOf;
+
+    protected JdbcEntityStore(JdbcClient jdbcClient, RowMapper<T> rowMapper, Function<T, String> keyOf) {
+        this.jdbcClient = jdbcClient;
+        this.rowMapper = rowMapper;
+        this.keyOf = keyOf;
+        jdbcClient.sql(createTableSql()).update();
+        for (String migration : migrationSql()) {
+            jdbcClient.sql(migration).update();
+        }
+    }
+
+    protected abstract String createTableSql();
+
+    /**
+     * 建立資料表後依序執行的結構調整 (例如為既有資料表加上新欄位)，必須可重複執行。
+     */
+    protected List<String> migrationSql() {
+        return List.of();
+    }
+
+    /** 以具名參數 {@code :key} 查詢單筆的 SQL。 */
+    protected abstract String selectByKeySql();
+
+    /** 以具名參數 {@code :keys} 查詢多筆的 SQL。 */
+    protected abstract String selectByKeysSql();
+
+    protected abstract String selectAllSql();
+
+    protected abstract String countSql();
+
+    protected abstract void upsert(T entity);
+
+    @Override
+    public T find(String key) {
+        return jdbcClient.sql(selectByKeySql())
+                .param("key", key)
+                .query(rowMapper)
+                .optional()
+                .orElse(null);
+    }
+
+    @Override
+    public Map<String, T> findAllByKey(Collection<String> keys) {
+        Map<String, T> found = new HashMap<>(Math.max(16, keys.size() * 2));
+        List<String> remaining = new ArrayList<>(keys);
+        for (int from = 0; from < remaining.size(); from += IN_CLAUSE_LIMIT) {
+            List<String> slice = remaining.subList(from, Math.min(from + IN_CLAUSE_LIMIT, remaining.size()));
+            for (T entity : jdbcClient.sql(selectByKeysSql()).param("keys", slice).query(rowMapper).list()) {
+                found.put(keyOf.apply(entity), entity);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void save(T entity) {
+        upsert(entity);
+    }
+
+    @Override
+    public Collection<T> findAll() {
+        return jdbcClient.sql(selectAllSql()).query(rowMapper).list();
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
+    @Override
+    public long count() {
+        return jdbcClient.sql(countSql()).query(Long.class).single();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.repository.store;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import com.example.demo.model.Product;
+
+/**
+ * 將產品存放在嵌入式資料庫 {@code product} 資料表中的儲存。
+ */
+public class JdbcProductStore extends JdbcEntityStore<Product> {
+
+    public JdbcProductStore(JdbcClient jdbcClient) {
+        super(jdbcClient,
+                (rs, rowNum) -> new Product(rs.getString("id"), rs.getString("name"), rs.getInt("price"),
+                        rs.getString("category")),
+                Product::getId);
+    }
+
+    @Override
+    protected String createTableSql() {
+        return "CREATE TABLE IF NOT EXISTS product (id VARCHAR(64) PRIMARY KEY, name VARCHAR(255) NOT NULL, price INT NOT NULL, category VARCHAR(64))";
+    }
+
+    @Override
+    protected List<String> migrationSql() {
+        return List.of("ALTER TABLE product ADD COLUMN IF NOT EXISTS category VARCHAR(64)");
+    }
+
+    @Override
+    protected String selectByKeySql() {
+        return "SELECT id, name, price, category FROM product WHERE id = :key";
+    }
+
+    @Override
+    protected String selectByKeysSql() {
+        return "SELECT id, name, price, category FROM product WHERE id IN (:keys)";
+    }
+
+    @Override
+    protected String selectAllSql() {
+        return "SELECT id, name, price, category FROM product";
+    }
+
+    @Override
+    protected String countSql() {
+        return "SELECT COUNT(*) FROM product";
+    }
+
+    @Override
+    protected void upsert(Product product) {
+        jdbcClient.sql("MERGE INTO product (id, name, price, category) KEY (id) VALUES (:id, :name, :price, :category)")
+                .param("id", product.getId())
+                .param("name", product.getName())
+                .param("price", product.getPrice())
+                .param("category", product.getCategory())
+                .update();
+    }
+}
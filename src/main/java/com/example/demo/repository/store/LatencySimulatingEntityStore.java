@@ -0,0 +1,80 @@
+package com.example.demo.repository.store;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 在每次讀寫前固定延遲一段時間，模擬遠端或較慢的儲存，用於負載測試比較不同執行緒模型。
+ * 延遲以 {@link Thread#sleep(Duration)} 實現，在虛擬執行緒上會讓出載體執行緒。
+ *
+ * @param <T> 實體型別
+ */
+public class LatencySimulatingEntityStore<T> implements EntityStore<T> {
+    private final EntityStore<T> delegate;
+    private final Duration latency;
+
+    public LatencySimulatingEntityStore(EntityStore<T> delegate, Duration latency) {
+        this.delegate = delegate;
+        this.latency = latency;
+    }
+
+    @Override
+    public T find(String key) {
+        pause();
+        return delegate.find(key);
+    }
+
+    @Override
+    public Map<String, T> findAllByKey(Collection<String> keys) {
+        pause();
+        return delegate.findAllByKey(keys);
+    }
+
+    @Override
+    public void save(T entity) {
+        pause();
+        delegate.save(entity);
+    }
+
+    @Override
+    public void saveAll(Collection<T> entities) {
+        pause();
+        delegate.saveAll(entities);
+    }
+
+    @Override
+    public void replaceAll(Collection<T> entities) {
+        pause();
+        delegate.replaceAll(entities);
+    }
+
+    @Override
+    public boolean supportsReplaceAll() {
+        return delegate.supportsReplaceAll();
+    }
+
+    @Override
+    public Collection<T> findAll() {
+        pause();
+        return delegate.findAll();
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.repository.store;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 以 {@code demo.store.lookup} 計時器記錄儲存查詢延遲的裝飾器，
+ * 以 {@code store} (例如 {@code product}、{@code coupon}) 與 {@code operation} 標籤區分。
+ * 寫入與 {@link #count()} 不計時。
+ *
+ * @param <T> 實體型別
+ */
+public class MeteredEntityStore<T> implements EntityStore<T> {
+    private final EntityStore<T> delegate;
+    private final Timer findTimer;
+    private final Timer findAllByKeyTimer;
+    private final Timer findAllTimer;
+
+    public MeteredEntityStore(EntityStore<T> delegate, String storeName, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.findTimer = lookupTimer(registry, storeName, "find");
+        this.findAllByKeyTimer = lookupTimer(registry, storeName, "findAllByKey");
+        this.findAllTimer = lookupTimer(registry, storeName, "findAll");
+    }
+
+    static Timer lookupTimer(MeterRegistry registry, String storeName, String operation) {
+        return Timer.builder("demo.store.lookup")
+                .description("儲存查詢延遲")
+                .tag("store", storeName)
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    @Override
+    public T find(String key) {
+        long start = System.nanoTime();
+        try {
+            return delegate.find(key);
+        } finally {
+            findTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Map<String, T> findAllByKey(Collection<String> keys) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAllByKey(keys);
+        } finally {
+            findAllByKeyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void save(T entity) {
+        delegate.save(entity);
+    }
+
+    @Override
+    public void saveAll(Collection<T> entities) {
+        delegate.saveAll(entities);
+    }
+
+    @Override
+    public void replaceAll(Collection<T> entities) {
+        delegate.replaceAll(entities);
+    }
+
+    @Override
+    public boolean supportsReplaceAll() {
+        return delegate.supportsReplaceAll();
+    }
+
+    @Override
+    public Collection<T> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            findAllTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return delegate.isBlocking();
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+}
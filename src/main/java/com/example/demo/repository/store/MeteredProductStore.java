@@ -0,0 +1,104 @@
+package com.example.demo.repository.store;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.demo.model.Product;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 產品儲存的 {@link MeteredEntityStore}，另外記錄 {@link #priceOf(String)} 的延遲。
+ * <p>
+ * 計價的熱路徑經由 {@link #priceCatalog()} 以序號查價而不呼叫 {@link #priceOf(String)}，
+ * 因此回傳的價格目錄會包裝一層，記錄 {@link PriceCatalog#ordinalOf(String)} 的延遲 ({@code operation=ordinalOf})。
+ * 記憶體目錄的序號查詢只需約 10ns，逐筆計時的成本是查詢本身的數倍，因此只抽樣每 {@code sampleInterval} 次中的一次：
+ * 延遲分佈仍具代表性，但計數約為實際查詢次數的 {@code 1 / sampleInterval}。
+ * 可能阻塞的儲存 ({@link #isBlocking()}) 查詢成本遠高於計時，每次都計時。
+ * {@link PriceCatalog#priceAt(int)} 只是陣列存取，不計時。同一份目錄快照只包裝一次，計價時不會額外配置物件。
+ * </p>
+ */
+public class MeteredProductStore extends MeteredEntityStore<Product> implements ProductStore {
+    /** 預設每 64 次序號查詢計時一次。 */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 64;
+
+    private final ProductStore delegate;
+    private final Timer priceOfTimer;
+    private final Timer ordinalOfTimer;
+    private final int sampleInterval;
+    private volatile MeteredPriceCatalog lastCatalog;
+
+    public MeteredProductStore(ProductStore delegate, MeterRegistry registry) {
+        this(delegate, registry, DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * @param delegate       被記錄的產品儲存
+     * @param registry       指標登錄處
+     * @param sampleInterval 每幾次序號查詢計時一次；1 表示每次都計時
+     */
+    public MeteredProductStore(ProductStore delegate, MeterRegistry registry, int sampleInterval) {
+        super(delegate, "product", registry);
+        this.delegate = delegate;
+        this.priceOfTimer = lookupTimer(registry, "product", "priceOf");
+        this.ordinalOfTimer = lookupTimer(registry, "product", "ordinalOf");
+        this.sampleInterval = delegate.isBlocking() ? 1 : Math.max(1, sampleInterval);
+    }
+
+    @Override
+    public long priceOf(String id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.priceOf(id);
+        } finally {
+            priceOfTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public PriceCatalog priceCatalog() {
+        PriceCatalog catalog = delegate.priceCatalog();
+        if (catalog == null) {
+            return null;
+        }
+        MeteredPriceCatalog last = lastCatalog;
+        if (last != null && last.delegate == catalog) {
+            return last;
+        }
+        MeteredPriceCatalog metered = new MeteredPriceCatalog(catalog, ordinalOfTimer, sampleInterval);
+        lastCatalog = metered;
+        return metered;
+    }
+
+    private static final class MeteredPriceCatalog implements PriceCatalog {
+        private final PriceCatalog delegate;
+        private final Timer ordinalOfTimer;
+        private final int sampleInterval;
+
+        MeteredPriceCatalog(PriceCatalog delegate, Timer ordinalOfTimer, int sampleInterval) {
+            this.delegate = delegate;
+            this.ordinalOfTimer = ordinalOfTimer;
+            this.sampleInterval = sampleInterval;
+        }
+
+        @Override
+        public int ordinalOf(String id) {
+            // 各執行緒獨立的亂數，不會在共用計數器上競爭
+            if (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0) {
+                return delegate.ordinalOf(id);
+            }
+            long start = System.nanoTime();
+            try {
+                return delegate.ordinalOf(id);
+            } finally {
+                ordinalOfTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public long priceAt(int ordinal) {
+            return delegate.priceAt(ordinal);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.repository.store;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * 以密集整數序號 (ordinal) 查價的唯讀產品目錄。
+ * <p>
+ * 實作必須是不可變的快照：同一個實例在整個購物車計價過程中看到的價格一致。
+ * 本介面同時是 {@link ToLongFunction}，可直接作為計價核心的價格查詢函式而不需額外配置。
+ * </p>
+ */
+public interface PriceCatalog extends ToLongFunction<String> {
+
+    /**
+     * @param id 產品 ID
+     * @return 產品序號；找不到時為 -1
+     */
+    int ordinalOf(String id);
+
+    /**
+     * @param ordinal 由 {@link #ordinalOf(String)} 取得的序號
+     * @return 該產品的價格
+     */
+    long priceAt(int ordinal);
+
+    /**
+     * @param id 產品 ID
+     * @return 產品價格；找不到時回傳 {@link ProductStore#NOT_FOUND}
+     */
+    default long priceOf(String id) {
+        int ordinal = ordinalOf(id);
+        return ordinal < 0 ? ProductStore.NOT_FOUND : priceAt(ordinal);
+    }
+
+    @Override
+    default long applyAsLong(String id) {
+        return priceOf(id);
+    }
+}
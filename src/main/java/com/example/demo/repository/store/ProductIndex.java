@@ -0,0 +1,206 @@
+package com.example.demo.repository.store;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.model.Product;
+
+/**
+ * 不可變、以欄位方式存放的產品目錄索引。
+ * <p>
+ * 產品 ID 對應到密集的整數序號，以開放定址 (線性探測) 的 {@code int[]} 雜湊表查詢；
+ * 價格放在基本型別的 {@code int[]} 欄位中，不再有每個產品一個 {@link Product} 物件、
+ * 一個裝箱的 {@link Integer} 與一個雜湊表節點的額外負擔。
+ * 更新時建立新的索引 (copy-on-publish)，舊索引保持不變，讀取端不需任何鎖。
+ * </p>
+ */
+public final class ProductIndex implements PriceCatalog {
+
+    static final ProductIndex EMPTY = new ProductIndex(new String[0], new String[0], new int[0], new String[0]);
+
+    private final String[] ids;
+    private final String[] names;
+    private final int[] prices;
+    /** 產品分類；大多數產品沒有分類時仍只是一個參考陣列。 */
+    private final String[] categories;
+    private final int[] hashes;
+    /** 值為 ordinal + 1，0 表示空位；大小為 2 的次方且至少為產品數的兩倍。 */
+    private final int[] table;
+    private final int mask;
+
+    private ProductIndex(String[] ids, String[] names, int[] prices, String[] categories) {
+        this.ids = ids;
+        this.names = names;
+        this.prices = prices;
+        this.categories = categories;
+        this.hashes = new int[ids.length];
+        int tableSize = Integer.highestOneBit(Math.max(2, ids.length * 2 - 1)) << 1;
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+        for (int ordinal = 0; ordinal < ids.length; ordinal++) {
+            int hash = spread(ids[ordinal].hashCode());
+            hashes[ordinal] = hash;
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = ordinal + 1;
+        }
+    }
+
+    /**
+     * 從產品集合建立索引；ID 重複時以後出現者為準。
+     *
+     * @param products 產品集合
+     * @return 新索引
+     * @throws IllegalArgumentException 如果有產品的 ID 或價格為 null
+     */
+    public static ProductIndex of(Collection<Product> products) {
+        return EMPTY.withAll(products);
+    }
+
+    @Override
+    public int ordinalOf(String id) {
+        if (id == null) {
+            return -1;
+        }
+        int hash = spread(id.hashCode());
+        int slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int ordinal = entry - 1;
+            String candidate = ids[ordinal];
+            if (candidate == id || (hashes[ordinal] == hash && candidate.equals(id))) {
+                return ordinal;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public long priceAt(int ordinal) {
+        return prices[ordinal];
+    }
+
+    /**
+     * @param ordinal 產品序號
+     * @return 該序號的產品 ID (索引內保存的唯一實例)
+     */
+    public String idAt(int ordinal) {
+        return ids[ordinal];
+    }
+
+    /**
+     * 依序號建立產品的檢視物件。
+     *
+     * @param ordinal 產品序號
+     * @return 產品
+     */
+    public Product productAt(int ordinal) {
+        return new Product(ids[ordinal], names[ordinal], prices[ordinal], categories[ordinal]);
+    }
+
+    /**
+     * @return 索引中的產品數
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return 依序號排列、走訪時才建立產品物件的唯讀列表
+     */
+    public List<Product> products() {
+        return new AbstractList<>() {
+            @Override
+            public Product get(int index) {
+                return productAt(index);
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    /**
+     * 回傳加入或更新一個產品後的新索引，此索引本身不變。
+     *
+     * @param product 產品
+     * @return 新索引
+     * @throws IllegalArgumentException 如果產品的 ID 或價格為 null
+     */
+    public ProductIndex with(Product product) {
+        return withAll(List.of(product));
+    }
+
+    /**
+     * 回傳加入或更新多個產品後的新索引，此索引本身不變。
+     * 只有在出現新 ID 時才需要重建雜湊表。
+     * 價格欄位是基本型別，無法表示 null 價格；有任何產品的 ID 或價格為 null 時，
+     * 在建立新索引前就拒絕整個批次，此索引與目前發布的目錄都不受影響。
+     *
+     * @param products 產品集合
+     * @return 新索引
+     * @throws IllegalArgumentException 如果有產品的 ID 或價格為 null
+     */
+    public ProductIndex withAll(Collection<Product> products) {
+        for (Product product : products) {
+            if (product.getId() == null || product.getPrice() == null) {
+                throw new IllegalArgumentException("產品 " + product.getId() + " 的 ID 或價格為 null，無法加入目錄索引");
+            }
+        }
+        int size = ids.length;
+        String[] newIds = Arrays.copyOf(ids, size + products.size());
+        String[] newNames = Arrays.copyOf(names, newIds.length);
+        int[] newPrices = Arrays.copyOf(prices, newIds.length);
+        String[] newCategories = Arrays.copyOf(categories, newIds.length);
+        // 本批次內新加入的 ID 也要能被找到，才能正確處理批次內的重複
+        Map<String, Integer> pending = new HashMap<>();
+        int added = 0;
+        for (Product product : products) {
+            int ordinal = ordinalOf(product.getId());
+            if (ordinal < 0) {
+                Integer pendingOrdinal = pending.get(product.getId());
+                if (pendingOrdinal != null) {
+                    ordinal = pendingOrdinal;
+                } else {
+                    ordinal = size + added++;
+                    newIds[ordinal] = product.getId();
+                    pending.put(product.getId(), ordinal);
+                }
+            }
+            newNames[ordinal] = product.getName();
+            newPrices[ordinal] = product.getPrice();
+            newCategories[ordinal] = product.getCategory();
+        }
+        int total = size + added;
+        if (added == 0) {
+            return new ProductIndex(this, Arrays.copyOf(newNames, total), Arrays.copyOf(newPrices, total),
+                    Arrays.copyOf(newCategories, total));
+        }
+        return new ProductIndex(Arrays.copyOf(newIds, total), Arrays.copyOf(newNames, total),
+                Arrays.copyOf(newPrices, total), Arrays.copyOf(newCategories, total));
+    }
+
+    /** 只有名稱、價格與分類改變時，沿用原索引的 ID 與雜湊表。 */
+    private ProductIndex(ProductIndex base, String[] names, int[] prices, String[] categories) {
+        this.ids = base.ids;
+        this.hashes = base.hashes;
+        this.table = base.table;
+        this.mask = base.mask;
+        this.names = names;
+        this.prices = prices;
+        this.categories = categories;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.repository.store;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.example.demo.model.Product;
+
+/**
+ * 產品專用的儲存 SPI，在 {@link EntityStore} 之外提供不建立 {@link Product} 物件的價格查詢。
+ */
+public interface ProductStore extends EntityStore<Product> {
+
+    /** {@link #priceOf(String)} 找不到產品時的回傳值。 */
+    long NOT_FOUND = -1L;
+
+    /**
+     * 查詢產品價格。預設透過 {@link #find(String)} 取得產品，
+     * 能直接讀取價格欄位的實作 (例如記憶體映射快照) 應覆寫此方法。
+     *
+     * @param id 產品 ID
+     * @return 產品價格；找不到時回傳 {@link #NOT_FOUND}
+     */
+    default long priceOf(String id) {
+        Product product = find(id);
+        return product == null ? NOT_FOUND : product.getPrice();
+    }
+
+    /**
+     * 取得當前的序號價格目錄快照，供計價時在整個購物車內使用一致的價格。
+     *
+     * @return 當前的價格目錄；此儲存不支援序號查價時為 null
+     */
+    default PriceCatalog priceCatalog() {
+        return null;
+    }
+
+    /**
+     * 將一般的 {@link EntityStore} 轉為 {@link ProductStore}，價格查詢使用預設實作。
+     *
+     * @param store 產品儲存
+     * @return 轉發所有操作的 {@link ProductStore}
+     */
+    static ProductStore of(EntityStore<Product> store) {
+        return store instanceof ProductStore productStore ? productStore : new Forwarding(store);
+    }
+
+    record Forwarding(EntityStore<Product> delegate) implements ProductStore {
+
+        @Override
+        public Product find(String key) {
+            return delegate.find(key);
+        }
+
+        @Override
+        public Map<String, Product> findAllByKey(Collection<String> keys) {
+            return delegate.findAllByKey(keys);
+        }
+
+        @Override
+        public void save(Product entity) {
+            delegate.save(entity);
+        }
+
+        @Override
+        public void saveAll(Collection<Product> entities) {
+            delegate.saveAll(entities);
+        }
+
+        @Override
+        public void replaceAll(Collection<Product> entities) {
+            delegate.replaceAll(entities);
+        }
+
+        @Override
+        public boolean supportsReplaceAll() {
+            return delegate.supportsReplaceAll();
+        }
+
+        @Override
+        public Collection<Product> findAll() {
+            return delegate.findAll();
+        }
+
+        @Override
+        public long count() {
+            return delegate.count();
+        }
+
+        @Override
+        public boolean isBlocking() {
+            return delegate.isBlocking();
+        }
+    }
+}
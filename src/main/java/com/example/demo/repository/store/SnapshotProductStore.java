@@ -0,0 +1,310 @@
+package com.example.demo.repository.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.demo.model.Product;
+
+/**
+ * 以記憶體映射的 {@link CatalogSnapshot} 為基礎的產品儲存。
+ * <p>
+ * 啟動時只映射快照檔案，因此與產品數量無關；價格查詢直接讀取映射緩衝區，
+ * {@link Product} 物件只在 {@link #find(String)} 或 {@link #findAll()} 走訪時才建立。
+ * </p>
+ * <p>
+ * 執行期間的 {@link #save(Product)} 寫入記憶體中的覆蓋層 (overlay)，優先於快照內容。
+ * 覆蓋層與快照一起以不可變的版本發佈，{@link #priceCatalog()} 在有覆蓋項目時仍以序號查價：
+ * 覆蓋項目的序號接在快照之後。覆蓋項目達到 {@code compactThreshold} 筆或儲存關閉 ({@link #close()}) 時，
+ * 覆蓋層會合併寫成新的快照檔 ({@link #compact()})，重新啟動後不會遺失。
+ * {@link #replaceAll(Collection)} 直接寫出新的快照檔再切換，供整批匯入使用。
+ * 寫入之間以鎖互斥；讀取不需要鎖。
+ * </p>
+ */
+public class SnapshotProductStore implements ProductStore, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotProductStore.class);
+
+    /** 預設的覆蓋層合併門檻。 */
+    public static final int DEFAULT_COMPACT_THRESHOLD = 10_000;
+
+    private final Path path;
+    private final int compactThreshold;
+    private volatile Version version;
+
+    /**
+     * 映射指定的快照檔案；檔案不存在時以空快照開始。
+     *
+     * @param path 快照檔案路徑
+     * @throws IOException 讀取檔案失敗時
+     */
+    public SnapshotProductStore(Path path) throws IOException {
+        this(path, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * 映射指定的快照檔案；檔案不存在時以空快照開始。
+     *
+     * @param path             快照檔案路徑
+     * @param compactThreshold 覆蓋項目達到此數量時自動合併寫回快照檔
+     * @throws IOException 讀取檔案失敗時
+     */
+    public SnapshotProductStore(Path path, int compactThreshold) throws IOException {
+        this.path = path;
+        this.compactThreshold = Math.max(1, compactThreshold);
+        long startNanos = System.nanoTime();
+        CatalogSnapshot snapshot = Files.exists(path) ? CatalogSnapshot.open(path) : CatalogSnapshot.empty();
+        this.version = Version.of(snapshot, List.of());
+        log.info("已映射產品目錄快照 {}，共 {} 項產品，耗時 {} ms",
+                path, snapshot.size(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    @Override
+    public Product find(String key) {
+        Version current = version;
+        Integer position = current.overlayPositions().isEmpty() ? null : current.overlayPositions().get(key);
+        if (position != null) {
+            return current.overlay()[position];
+        }
+        int ordinal = current.snapshot().ordinalOf(key);
+        return ordinal < 0 ? null : current.snapshot().productAt(ordinal);
+    }
+
+    @Override
+    public long priceOf(String id) {
+        return version.priceOf(id);
+    }
+
+    /**
+     * 沒有覆蓋項目時直接回傳快照本身；有覆蓋項目時回傳此版本的快照加覆蓋層。
+     */
+    @Override
+    public PriceCatalog priceCatalog() {
+        Version current = version;
+        return current.overlay().length == 0 ? current.snapshot() : current;
+    }
+
+    /**
+     * @throws IllegalArgumentException 如果產品的 ID 或價格為 null
+     * @throws UncheckedIOException     如果達到門檻後寫回快照檔失敗
+     */
+    @Override
+    public void save(Product product) {
+        saveAll(List.of(product));
+    }
+
+    /**
+     * @throws IllegalArgumentException 如果任一產品的 ID 或價格為 null
+     * @throws UncheckedIOException     如果達到門檻後寫回快照檔失敗
+     */
+    @Override
+    public synchronized void saveAll(Collection<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        validate(products);
+        Version current = version;
+        Map<String, Product> merged = new LinkedHashMap<>(current.overlayPositions().size() + products.size());
+        for (Product product : current.overlay()) {
+            merged.put(product.getId(), product);
+        }
+        for (Product product : products) {
+            merged.put(product.getId(), product);
+        }
+        version = Version.of(current.snapshot(), merged.values());
+        if (merged.size() >= compactThreshold) {
+            try {
+                compact();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("覆蓋層寫回產品目錄快照失敗: " + path, ex);
+            }
+        }
+    }
+
+    /**
+     * 將產品寫成新的快照檔後一次切換，並清空覆蓋層。
+     *
+     * @throws IllegalArgumentException 如果任一產品的 ID 或價格為 null
+     * @throws UncheckedIOException     如果寫入或映射快照檔失敗
+     */
+    @Override
+    public synchronized void replaceAll(Collection<Product> products) {
+        validate(products);
+        Map<String, Product> unique = new LinkedHashMap<>(Math.max(16, products.size() * 2));
+        for (Product product : products) {
+            unique.put(product.getId(), product);
+        }
+        try {
+            publish(unique.values());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("寫入產品目錄快照失敗: " + path, ex);
+        }
+    }
+
+    @Override
+    public boolean supportsReplaceAll() {
+        return true;
+    }
+
+    @Override
+    public Collection<Product> findAll() {
+        Version current = version;
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Product> iterator() {
+                return new ProductIterator(current);
+            }
+
+            @Override
+            public int size() {
+                return (int) current.count();
+            }
+        };
+    }
+
+    @Override
+    public long count() {
+        return version.count();
+    }
+
+    /**
+     * 將快照與覆蓋層合併寫成新的快照檔，重新映射後清空覆蓋層。沒有覆蓋項目時不做任何事。
+     *
+     * @throws IOException 寫入或映射失敗時
+     */
+    public synchronized void compact() throws IOException {
+        Version current = version;
+        if (current.overlay().length == 0) {
+            return;
+        }
+        List<Product> merged = new ArrayList<>((int) current.count());
+        new ProductIterator(current).forEachRemaining(merged::add);
+        publish(merged);
+    }
+
+    /**
+     * 關閉時將尚未寫回的覆蓋項目合併寫入快照檔。
+     *
+     * @throws IOException 寫入或映射失敗時
+     */
+    @Override
+    public void close() throws IOException {
+        compact();
+    }
+
+    private void publish(Collection<Product> products) throws IOException {
+        long startNanos = System.nanoTime();
+        CatalogSnapshot.write(products, path);
+        version = Version.of(CatalogSnapshot.open(path), List.of());
+        log.info("已將 {} 項產品寫入快照 {}，耗時 {} ms",
+                products.size(), path, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private static void validate(Collection<Product> products) {
+        for (Product product : products) {
+            if (product.getId() == null || product.getPrice() == null) {
+                throw new IllegalArgumentException("產品 " + product.getId() + " 的 ID 或價格為 null，無法寫入快照");
+            }
+        }
+    }
+
+    /**
+     * 一個不可變的版本：快照加上覆蓋項目。覆蓋項目的序號為 {@code snapshot.size() + 位置}。
+     *
+     * @param snapshot         映射的快照
+     * @param overlayPositions 覆蓋項目的產品 ID → 在 {@code overlay} 中的位置
+     * @param overlay          覆蓋項目
+     * @param count            快照與覆蓋層合併後的產品數
+     */
+    private record Version(CatalogSnapshot snapshot, Map<String, Integer> overlayPositions, Product[] overlay,
+            long count) implements PriceCatalog {
+
+        static Version of(CatalogSnapshot snapshot, Collection<Product> overlay) {
+            Product[] products = overlay.toArray(new Product[0]);
+            Map<String, Integer> positions = new HashMap<>(Math.max(16, products.length * 2));
+            long added = 0;
+            for (int i = 0; i < products.length; i++) {
+                positions.put(products[i].getId(), i);
+                if (snapshot.ordinalOf(products[i].getId()) < 0) {
+                    added++;
+                }
+            }
+            return new Version(snapshot, positions, products, snapshot.size() + added);
+        }
+
+        @Override
+        public int ordinalOf(String id) {
+            if (overlay.length > 0) {
+                Integer position = overlayPositions.get(id);
+                if (position != null) {
+                    return snapshot.size() + position;
+                }
+            }
+            return snapshot.ordinalOf(id);
+        }
+
+        @Override
+        public long priceAt(int ordinal) {
+            int size = snapshot.size();
+            return ordinal < size ? snapshot.priceAt(ordinal) : overlay[ordinal - size].getPrice();
+        }
+    }
+
+    /**
+     * 先走訪覆蓋層，再走訪快照中未被覆蓋的產品，產品物件逐一建立。
+     */
+    private static final class ProductIterator implements Iterator<Product> {
+        private final Version current;
+        private int overlayIndex;
+        private int ordinal;
+        private Product next;
+
+        ProductIterator(Version current) {
+            this.current = current;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (overlayIndex < current.overlay().length) {
+                next = current.overlay()[overlayIndex++];
+                return true;
+            }
+            CatalogSnapshot snapshot = current.snapshot();
+            while (ordinal < snapshot.size()) {
+                int candidate = ordinal++;
+                if (current.overlay().length == 0
+                        || !current.overlayPositions().containsKey(snapshot.idAt(candidate))) {
+                    next = snapshot.productAt(candidate);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Product product = next;
+            next = null;
+            return product;
+        }
+    }
+}
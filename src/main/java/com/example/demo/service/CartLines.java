@@ -0,0 +1,83 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.exception.PriceOverflowException;
+
+/**
+ * 計價前合併購物車中重複產品的商品項目。
+ * <p>
+ * 大量商品項目的訂單 (例如 B2B 訂單) 常有同一產品分散在多行，合併後每個產品只查價一次，
+ * 規則型優惠券 (例如買 X 送 Y) 也以產品的總數量計算。合併以雜湊表進行，耗時與行數成正比。
+ * </p>
+ */
+final class CartLines {
+
+    /** 行數不超過此值時先以線性比對檢查重複，沒有重複時不配置任何物件。 */
+    private static final int LINEAR_SCAN_MAX = 8;
+
+    private CartLines() {
+    }
+
+    /**
+     * 合併同一產品的商品項目，保留每個產品第一次出現的位置。
+     * null 項目與產品 ID 為 null 的項目原樣保留，不參與合併。
+     *
+     * @param items 購物車商品項目；可為 null
+     * @return 合併後的商品項目；沒有重複產品時回傳原列表
+     * @throws PriceOverflowException 如果合併後的數量超出 {@code int} 可表示的範圍
+     */
+    static List<CartItemInput> coalesce(List<CartItemInput> items) {
+        if (items == null || items.size() < 2) {
+            return items;
+        }
+        int size = items.size();
+        if (size <= LINEAR_SCAN_MAX && !hasDuplicates(items)) {
+            return items;
+        }
+        Map<String, Integer> positions = new HashMap<>(size * 2);
+        List<CartItemInput> merged = new ArrayList<>(size);
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            CartItemInput item = items.get(i);
+            if (item == null || item.productId() == null) {
+                merged.add(item);
+                continue;
+            }
+            Integer position = positions.putIfAbsent(item.productId(), merged.size());
+            if (position == null) {
+                merged.add(item);
+                continue;
+            }
+            CartItemInput existing = merged.get(position);
+            try {
+                merged.set(position, new CartItemInput(item.productId(),
+                        Math.addExact(existing.quantity(), item.quantity())));
+            } catch (ArithmeticException ex) {
+                throw new PriceOverflowException("購物車商品數量超出可計算範圍");
+            }
+            changed = true;
+        }
+        return changed ? merged : items;
+    }
+
+    private static boolean hasDuplicates(List<CartItemInput> items) {
+        for (int i = 1, size = items.size(); i < size; i++) {
+            CartItemInput item = items.get(i);
+            if (item == null || item.productId() == null) {
+                continue;
+            }
+            for (int j = 0; j < i; j++) {
+                CartItemInput other = items.get(j);
+                if (other != null && item.productId().equals(other.productId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
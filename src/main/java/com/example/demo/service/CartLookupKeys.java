@@ -0,0 +1,48 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+
+/**
+ * 一個或多個購物車中出現的不重複產品 ID 與優惠券代碼，
+ * 用於在計價前一次向儲存庫 (或其反應式版本) 預先查詢。
+ *
+ * @param productIds  不重複的產品 ID
+ * @param couponCodes 不重複且非空白的優惠券代碼
+ */
+public record CartLookupKeys(Set<String> productIds, Set<String> couponCodes) {
+
+    public static CartLookupKeys of(ShoppingCartInput cartInput) {
+        return of(List.of(cartInput));
+    }
+
+    public static CartLookupKeys of(Collection<ShoppingCartInput> cartInputs) {
+        Set<String> productIds = new HashSet<>();
+        Set<String> couponCodes = new HashSet<>();
+        for (ShoppingCartInput cartInput : cartInputs) {
+            if (cartInput == null) {
+                continue;
+            }
+            if (cartInput.items() != null) {
+                for (CartItemInput itemInput : cartInput.items()) {
+                    if (itemInput != null && itemInput.productId() != null) {
+                        productIds.add(itemInput.productId());
+                    }
+                }
+            }
+            if (cartInput.couponCodes() != null) {
+                for (String couponCode : cartInput.couponCodes()) {
+                    if (couponCode != null && !couponCode.isBlank()) {
+                        couponCodes.add(couponCode);
+                    }
+                }
+            }
+        }
+        return new CartLookupKeys(productIds, couponCodes);
+    }
+}
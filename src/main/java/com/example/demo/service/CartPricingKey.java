@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+
+/**
+ * 計價結果快取的鍵：購物車內容的正規化形式。
+ * <p>
+ * 商品項目依產品 ID (再依數量) 排序，優惠券代碼排序並去除 null 與空白代碼 (計價時本來就會略過)，
+ * 因此只有順序不同的購物車會對應到同一個鍵。鍵保存完整內容，雜湊值只用於查找，不會因碰撞而取錯結果。
+ * </p>
+ */
+final class CartPricingKey {
+
+    private static final Comparator<CartItemInput> ITEM_ORDER =
+            Comparator.comparing(CartItemInput::productId).thenComparingInt(CartItemInput::quantity);
+
+    private final String[] productIds;
+    private final int[] quantities;
+    private final String[] couponCodes;
+    private final int hash;
+
+    private CartPricingKey(String[] productIds, int[] quantities, String[] couponCodes) {
+        this.productIds = productIds;
+        this.quantities = quantities;
+        this.couponCodes = couponCodes;
+        this.hash = 31 * (31 * Arrays.hashCode(productIds) + Arrays.hashCode(quantities)) + Arrays.hashCode(couponCodes);
+    }
+
+    /**
+     * 建立購物車的正規化鍵。
+     *
+     * @param input 購物車輸入
+     * @return 正規化鍵；購物車含有 null 商品項目或 null 產品 ID 而無法正規化時為 null
+     */
+    static CartPricingKey of(ShoppingCartInput input) {
+        List<CartItemInput> items = input.items() == null ? List.of() : input.items();
+        for (int i = 0, size = items.size(); i < size; i++) {
+            CartItemInput item = items.get(i);
+            if (item == null || item.productId() == null) {
+                return null;
+            }
+        }
+        CartItemInput[] sortedItems = items.toArray(new CartItemInput[0]);
+        Arrays.sort(sortedItems, ITEM_ORDER);
+        String[] productIds = new String[sortedItems.length];
+        int[] quantities = new int[sortedItems.length];
+        for (int i = 0; i < sortedItems.length; i++) {
+            productIds[i] = sortedItems[i].productId();
+            quantities[i] = sortedItems[i].quantity();
+        }
+
+        List<String> codes = input.couponCodes() == null ? List.of() : input.couponCodes();
+        List<String> validCodes = new ArrayList<>(codes.size());
+        for (int i = 0, size = codes.size(); i < size; i++) {
+            String code = codes.get(i);
+            if (code != null && !code.isBlank()) {
+                validCodes.add(code);
+            }
+        }
+        String[] couponCodes = validCodes.toArray(new String[0]);
+        Arrays.sort(couponCodes);
+        return new CartPricingKey(productIds, quantities, couponCodes);
+    }
+
+    /**
+     * @return 與此鍵內容相同、依正規化順序排列的購物車輸入
+     */
+    ShoppingCartInput toCartInput() {
+        List<CartItemInput> items = new ArrayList<>(productIds.length);
+        for (int i = 0; i < productIds.length; i++) {
+            items.add(new CartItemInput(productIds[i], quantities[i]));
+        }
+        return new ShoppingCartInput(items, List.of(couponCodes));
+    }
+
+    String[] productIds() {
+        return productIds;
+    }
+
+    String[] couponCodes() {
+        return couponCodes;
+    }
+
+    /**
+     * 粗估此鍵佔用的堆積記憶體 (位元組)，作為快取容量的權重。
+     */
+    int estimatedBytes() {
+        int bytes = 64 + 16 + 4 * quantities.length;
+        for (String productId : productIds) {
+            bytes += 8 + 40 + productId.length();
+        }
+        for (String couponCode : couponCodes) {
+            bytes += 8 + 40 + couponCode.length();
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CartPricingKey other)) return false;
+        return hash == other.hash
+                && Arrays.equals(quantities, other.quantities)
+                && Arrays.equals(productIds, other.productIds)
+                && Arrays.equals(couponCodes, other.couponCodes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
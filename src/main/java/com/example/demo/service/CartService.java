@@ -1,24 +1,37 @@
 package com.example.demo.service;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.dto.ApplicableCouponDto;
+import com.example.demo.dto.BatchCalculationResultDto;
 import com.example.demo.dto.CalculationResultDto;
-import com.example.demo.exception.TotalDiscountExceededException;
 import com.example.demo.dto.CartItemInput;
+import com.example.demo.exception.PriceOverflowException;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.exception.TotalDiscountExceededException;
 import com.example.demo.dto.ShoppingCartInput;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.Product;
 import com.example.demo.repository.CouponRepository;
 import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.PriceCatalog;
 
 /**
  * 購物車服務負責根據輸入的購物車資料計算總價和折扣。
+ * 規則型優惠券 (百分比、門檻、限定商品、買 X 送 Y、互斥群組) 的折扣由 {@link CouponRuleEngine} 計算。
  */
 @Service
 public class CartService {
@@ -27,52 +40,362 @@ public class CartService {
 
     private final ProductRepository productRepository;
     private final CouponRepository couponRepository;
+    private final PricingMetrics metrics;
+    private final PricingResultCache resultCache;
+    private final CouponOptimizer couponOptimizer;
+    private final CouponRuleEngine ruleEngine;
 
-    public CartService(ProductRepository productRepository, CouponRepository couponRepository) {
+    // 預先建立的查詢函式，避免每次計價都配置新的 lambda
+    private final ToLongFunction<String> catalogPrices;
+    private final Function<String, Coupon> catalogCoupons;
+    private final Function<ShoppingCartInput, CalculationResultDto> catalogPricer;
+
+    public CartService(ProductRepository productRepository, CouponRepository couponRepository,
+            PricingMetrics metrics, PricingResultCache resultCache, CouponOptimizer couponOptimizer,
+            CouponRuleEngine ruleEngine) {
         this.productRepository = productRepository;
         this.couponRepository = couponRepository;
+        this.metrics = metrics;
+        this.resultCache = resultCache;
+        this.couponOptimizer = couponOptimizer;
+        this.ruleEngine = ruleEngine;
+        this.catalogPrices = productRepository::priceOf;
+        this.catalogCoupons = couponRepository::findByCodeOrNull;
+        this.catalogPricer = this::priceFromCatalog;
     }
 
     /**
      * 根據輸入的 {@link ShoppingCartInput} 計算購物車的總價和折扣。
      * <p>
-     * 此方法會將所有提供的有效固定金額優惠券的折扣疊加。
+     * 此方法會將所有提供的有效優惠券的折扣疊加；規則型優惠券未達條件時不套用，
+     * 同一互斥群組只套用折扣最多的一張。
+     * 內容相同 (不論商品與優惠券順序) 的購物車會直接取用 {@link PricingResultCache} 中的結果。
      *
      * @param cartInput 包含購物車項目、數量和優惠券代碼列表的輸入物件。
      * @return {@link CalculationResultDto} 包含原始總價、折扣後總價、實際折扣金額以及所有套用的優惠券列表。
+     * @throws TotalDiscountExceededException 如果套用優惠券後的總折扣金額超過原始總價。
+     * @throws PriceOverflowException 如果金額超出 {@code long} 可表示的範圍。
      */
     public CalculationResultDto calculateCartPrice(ShoppingCartInput cartInput) {
-        Integer rawTotalPrice = calculateRawTotalPrice(cartInput.items());
+        CalculationResultDto result = resultCache.get(cartInput, catalogPricer);
+
+        if (log.isDebugEnabled()) {
+            log.debug("計算完成。原始總價: {}, 折扣後總價: {}, 實際總折扣: {}",
+                    result.originalTotal(), result.discountedTotal(), result.totalDiscountAmount());
+        }
+        return result;
+    }
+
+    /**
+     * 以指定的優惠券選擇方式計算購物車價格。
+     * <p>
+     * {@link CouponSelectionMode#STACK} 與 {@link #calculateCartPrice(ShoppingCartInput)} 相同；
+     * {@link CouponSelectionMode#BEST} 與 {@link CouponSelectionMode#BEST_ALL} 以 {@link CouponOptimizer}
+     * 挑出總折扣最大且不超過原始總價的組合，結果與優惠券順序無關，也不會拋出
+     * {@link TotalDiscountExceededException}。最佳組合模式不經過計價結果快取。
+     *
+     * @param cartInput 購物車輸入。
+     * @param mode      優惠券選擇方式。
+     * @return 計算結果；最佳組合模式下，已套用的優惠券依請求順序 ({@code BEST}) 或對此購物車的折扣由大到小 ({@code BEST_ALL}) 排列。
+     * @throws TotalDiscountExceededException 僅在 {@code STACK} 模式下，如果總折扣金額超過原始總價。
+     * @throws PriceOverflowException 如果金額超出 {@code long} 可表示的範圍。
+     */
+    public CalculationResultDto calculateCartPrice(ShoppingCartInput cartInput, CouponSelectionMode mode) {
+        if (mode == CouponSelectionMode.STACK) {
+            return calculateCartPrice(cartInput);
+        }
+        long start = System.nanoTime();
+        try {
+            PriceCatalog catalog = productRepository.priceCatalog();
+            List<CartItemInput> items = CartLines.coalesce(cartInput.items());
+            ToLongFunction<String> prices = catalog != null ? catalog : catalogPrices;
+            long rawTotalPrice = calculateRawTotalPrice(items, prices);
+
+            List<Coupon> candidates = mode == CouponSelectionMode.BEST
+                    ? requestedCoupons(cartInput.couponCodes())
+                    : candidateCoupons(items, rawTotalPrice);
+            // 規則型優惠券的折扣取決於購物車內容，先算出每張券單獨套用的折扣再挑選組合；
+            // 互斥群組交給 CouponOptimizer 處理，群組中折扣最大的券超過總價時仍可改選較小的券
+            long[] discounts = ruleEngine.standaloneDiscounts(items, prices, candidates);
+            Map<Coupon, Long> discountByCoupon = new IdentityHashMap<>(candidates.size());
+            for (int i = 0; i < discounts.length; i++) {
+                discountByCoupon.putIfAbsent(candidates.get(i), discounts[i]);
+            }
+            if (mode == CouponSelectionMode.BEST_ALL) {
+                candidates = candidates.stream()
+                        .sorted(Comparator.comparingLong((Coupon coupon) -> discountByCoupon.get(coupon)).reversed()
+                                .thenComparing(Coupon::getCode))
+                        .toList();
+            }
+            CouponOptimizer.Selection selection = couponOptimizer.select(candidates, discountByCoupon::get,
+                    rawTotalPrice);
+            if (!selection.optimal()) {
+                metrics.couponSolverTimeout();
+                log.warn("最佳優惠券組合搜尋逾時，候選券數: {}，改用目前找到的組合 (折扣 {})",
+                        candidates.size(), selection.totalDiscount());
+            }
+            metrics.couponsApplied(selection.coupons().size());
+            return new CalculationResultDto(rawTotalPrice, rawTotalPrice - selection.totalDiscount(),
+                    selection.totalDiscount(), selection.coupons());
+        } finally {
+            List<CartItemInput> items = cartInput.items();
+            metrics.recordPricing(items == null ? 0 : items.size(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 列出可套用在購物車上的優惠券及各自單獨套用時的折扣。
+     * <p>
+     * 候選優惠券由 {@link CouponRepository#findCandidateCodes} 的反向索引取得，只計算與購物車商品、分類
+     * 或總價門檻相符的優惠券，耗時與系統中的優惠券總數無關。折扣為 0 (例如限定商品未達門檻)
+     * 或超過原始總價的優惠券不會列出。購物車中已選的優惠券代碼不影響結果。
+     * </p>
+     *
+     * @param cartInput 購物車輸入。
+     * @param limit     最多回傳幾張優惠券。
+     * @return 依折扣由大到小 (相同時依代碼) 排列的優惠券。
+     * @throws PriceOverflowException 如果金額超出 {@code long} 可表示的範圍。
+     */
+    public List<ApplicableCouponDto> findApplicableCoupons(ShoppingCartInput cartInput, int limit) {
+        List<CartItemInput> items = cartInput.items() == null ? List.of() : CartLines.coalesce(cartInput.items());
+        Map<String, Product> products = productRepository.findAllById(productIds(items));
+        ToLongFunction<String> prices = prices(products);
+        long rawTotalPrice = calculateRawTotalPrice(items, prices);
+
+        Set<String> codes = couponRepository.findCandidateCodes(products.values(), rawTotalPrice);
+        if (codes.isEmpty()) {
+            return List.of();
+        }
+        List<Coupon> candidates = List.copyOf(couponRepository.findAllByCode(codes).values());
+        long[] discounts = ruleEngine.standaloneDiscounts(items, prices, candidates);
+        List<ApplicableCouponDto> applicable = new ArrayList<>();
+        for (int i = 0; i < discounts.length; i++) {
+            if (discounts[i] > 0 && discounts[i] <= rawTotalPrice) {
+                applicable.add(new ApplicableCouponDto(candidates.get(i), discounts[i]));
+            }
+        }
+        applicable.sort(Comparator.comparingLong(ApplicableCouponDto::discount).reversed()
+                .thenComparing(dto -> dto.coupon().getCode()));
+        return applicable.size() > limit ? List.copyOf(applicable.subList(0, limit)) : applicable;
+    }
+
+    /**
+     * 以反向索引取得可能適用於購物車的優惠券，供 {@link CouponSelectionMode#BEST_ALL} 使用，
+     * 不走訪系統中所有的優惠券。
+     */
+    private List<Coupon> candidateCoupons(List<CartItemInput> items, long rawTotalPrice) {
+        Set<String> productIds = items == null ? Set.of() : productIds(items);
+        Set<String> codes = couponRepository.findCandidateCodes(
+                productRepository.findAllById(productIds).values(), rawTotalPrice);
+        if (codes.isEmpty()) {
+            return List.of();
+        }
+        return List.copyOf(couponRepository.findAllByCode(codes).values());
+    }
+
+    private static Set<String> productIds(List<CartItemInput> items) {
+        Set<String> productIds = new HashSet<>();
+        for (CartItemInput item : items) {
+            if (item != null && item.productId() != null) {
+                productIds.add(item.productId());
+            }
+        }
+        return productIds;
+    }
+
+    private List<Coupon> requestedCoupons(List<String> couponCodes) {
+        return requestedCoupons(couponCodes, catalogCoupons);
+    }
+
+    private List<Coupon> requestedCoupons(List<String> couponCodes, Function<String, Coupon> lookup) {
+        if (couponCodes == null || couponCodes.isEmpty()) {
+            return List.of();
+        }
+        List<Coupon> coupons = new ArrayList<>(couponCodes.size());
+        for (String couponCode : couponCodes) {
+            if (couponCode != null && !couponCode.isBlank()) {
+                Coupon coupon = lookup.apply(couponCode);
+                if (coupon != null) {
+                    coupons.add(coupon);
+                } else {
+                    metrics.unknownCoupon();
+                    log.warn("計算時找不到優惠券代碼: {}。此券將不被套用。", couponCode);
+                }
+            }
+        }
+        return coupons;
+    }
+
+    private CalculationResultDto priceFromCatalog(ShoppingCartInput cartInput) {
+        // 記憶體目錄以序號查價，並讓整個購物車使用同一份價格快照
+        PriceCatalog catalog = productRepository.priceCatalog();
+        return price(cartInput, catalog != null ? catalog : catalogPrices, catalogCoupons);
+    }
+
+    /**
+     * 批次計算多個購物車的價格。
+     * <p>
+     * 整個批次中出現的產品 ID 與優惠券代碼只會向儲存庫查詢一次，
+     * 之後各購物車以平行方式計價。單一購物車的錯誤 (例如 {@link TotalDiscountExceededException}、
+     * null 的商品項目或其他非預期的例外) 只會反映在該購物車的結果中，不會中斷整個批次。
+     *
+     * @param cartInputs 要計價的購物車列表。
+     * @return 與輸入順序一致的 {@link BatchCalculationResultDto} 列表。
+     */
+    public List<BatchCalculationResultDto> calculateCartPrices(List<ShoppingCartInput> cartInputs) {
+        CartLookupKeys keys = CartLookupKeys.of(cartInputs);
+        Map<String, Coupon> coupons = couponRepository.findAllByCode(keys.couponCodes());
+
+        // 有序號價格目錄時整個批次共用同一份快照，否則一次預先載入批次中出現的產品
+        ToLongFunction<String> prices = productRepository.priceCatalog();
+        if (prices == null) {
+            prices = prices(productRepository.findAllById(keys.productIds()));
+        }
+        List<BatchCalculationResultDto> results = priceBatch(cartInputs, prices, coupons);
+
+        // 串流計價每個區塊都會呼叫，整體統計由呼叫端 (例如 CartStreamingService.priceNdjson) 記錄
+        log.debug("批次計算完成。購物車數: {}, 不重複產品數: {}, 不重複優惠券數: {}",
+                cartInputs.size(), keys.productIds().size(), coupons.size());
+        return results;
+    }
+
+    /**
+     * 以已預先查詢好的產品與優惠券計算單一購物車的價格，不再存取儲存庫。
+     * 供自行以非阻塞方式取得資料的呼叫端 (例如反應式 API) 使用，計價規則與
+     * {@link #calculateCartPrice(ShoppingCartInput)} 完全相同。
+     *
+     * @param cartInput 購物車輸入。
+     * @param products  至少包含 {@link CartLookupKeys#productIds()} 中存在之產品的對照表。
+     * @param coupons   至少包含 {@link CartLookupKeys#couponCodes()} 中存在之優惠券的對照表。
+     * @return 計算結果。
+     * @throws TotalDiscountExceededException 如果套用優惠券後的總折扣金額超過原始總價。
+     * @throws PriceOverflowException 如果金額超出 {@code long} 可表示的範圍。
+     */
+    public CalculationResultDto calculateCartPrice(ShoppingCartInput cartInput,
+            Map<String, Product> products, Map<String, Coupon> coupons) {
+        return price(cartInput, prices(products), coupons::get);
+    }
+
+    /**
+     * 以已預先查詢好的產品與優惠券批次計價，不再存取儲存庫。
+     *
+     * @param cartInputs 要計價的購物車列表。
+     * @param products   批次中出現之產品的對照表。
+     * @param coupons    批次中出現之優惠券的對照表。
+     * @return 與輸入順序一致的 {@link BatchCalculationResultDto} 列表。
+     */
+    public List<BatchCalculationResultDto> calculateCartPrices(List<ShoppingCartInput> cartInputs,
+            Map<String, Product> products, Map<String, Coupon> coupons) {
+        return priceBatch(cartInputs, prices(products), coupons);
+    }
+
+    private List<BatchCalculationResultDto> priceBatch(List<ShoppingCartInput> cartInputs,
+            ToLongFunction<String> prices, Map<String, Coupon> coupons) {
+        return IntStream.range(0, cartInputs.size())
+                .parallel()
+                .mapToObj(index -> priceBatchEntry(index, cartInputs.get(index), prices, coupons::get))
+                .toList();
+    }
+
+    private static ToLongFunction<String> prices(Map<String, Product> products) {
+        return id -> {
+            Product product = products.get(id);
+            return product == null ? ProductRepository.NOT_FOUND : product.getPrice();
+        };
+    }
+
+    /**
+     * 計算批次中的一個購物車。任何錯誤都轉成該購物車的錯誤結果，不會讓平行串流中斷整個批次。
+     */
+    private BatchCalculationResultDto priceBatchEntry(int index, ShoppingCartInput cartInput,
+            ToLongFunction<String> prices, Function<String, Coupon> coupons) {
+        if (cartInput == null || cartInput.items() == null) {
+            return BatchCalculationResultDto.failure(index, "購物車或其商品項目為 null");
+        }
+        if (hasNullItem(cartInput.items())) {
+            return BatchCalculationResultDto.failure(index, "購物車包含 null 的商品項目");
+        }
+        try {
+            return BatchCalculationResultDto.success(index, price(cartInput, prices, coupons));
+        } catch (TotalDiscountExceededException | PriceOverflowException ex) {
+            return BatchCalculationResultDto.failure(index, ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.warn("批次中第 {} 個購物車計價失敗", index, ex);
+            return BatchCalculationResultDto.failure(index, "購物車無法計價");
+        }
+    }
 
-        List<Coupon> appliedCoupons = new ArrayList<>();
-        Integer totalDiscountAmountFromCoupons = applyCoupons(cartInput.couponCodes(), appliedCoupons, rawTotalPrice);
+    private static boolean hasNullItem(List<CartItemInput> items) {
+        // 不可變列表的 contains(null) 會拋出 NullPointerException，因此逐一檢查
+        for (int i = 0, size = items.size(); i < size; i++) {
+            if (items.get(i) == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 計價核心：以給定的查詢函式取得產品價格與優惠券後計算結果。
+     * 單筆與批次計價共用此邏輯，確保兩者結果一致，每個購物車的耗時都記錄在 {@link PricingMetrics} 中。
+     * <p>
+     * 全程以 {@code long} 基本型別累加並檢查溢位，穩定狀態下除了結果 DTO
+     * (以及有套用優惠券時的列表) 之外不會配置任何物件。
+     * 同一產品出現在多行時先以 {@link CartLines#coalesce(List)} 合併，每個產品只查價一次；
+     * 沒有重複產品時直接使用原本的商品項目。
+     */
+    private CalculationResultDto price(ShoppingCartInput cartInput,
+            ToLongFunction<String> prices, Function<String, Coupon> coupons) {
+        long start = System.nanoTime();
+        try {
+            List<CartItemInput> items = CartLines.coalesce(cartInput.items());
+            long rawTotalPrice = calculateRawTotalPrice(items, prices);
 
-        // 計算折扣後總價
-        Integer finalPrice = rawTotalPrice - totalDiscountAmountFromCoupons;
+            List<String> couponCodes = cartInput.couponCodes();
+            if (couponCodes == null || couponCodes.isEmpty()) {
+                metrics.couponsApplied(0);
+                return new CalculationResultDto(rawTotalPrice, rawTotalPrice, 0L, List.of());
+            }
 
-        Integer effectiveTotalDiscount = rawTotalPrice - finalPrice;
+            List<Coupon> appliedCoupons = new ArrayList<>(couponCodes.size());
+            long totalDiscountAmountFromCoupons = applyCoupons(items, couponCodes, appliedCoupons, rawTotalPrice,
+                    prices, coupons);
+            metrics.couponsApplied(appliedCoupons.size());
 
-        log.info("計算完成。原始總價: {}, 折扣後總價: {}, 優惠券聲稱總折扣: {}, 實際總折扣: {}",
-                rawTotalPrice, finalPrice, totalDiscountAmountFromCoupons, effectiveTotalDiscount);
+            // 計算折扣後總價；applyCoupons 已保證折扣不超過原始總價
+            long finalPrice = rawTotalPrice - totalDiscountAmountFromCoupons;
 
-        return new CalculationResultDto(rawTotalPrice, finalPrice, effectiveTotalDiscount, appliedCoupons);
+            return new CalculationResultDto(rawTotalPrice, finalPrice, totalDiscountAmountFromCoupons, appliedCoupons);
+        } finally {
+            List<CartItemInput> items = cartInput.items();
+            metrics.recordPricing(items == null ? 0 : items.size(), System.nanoTime() - start);
+        }
     }
 
     /**
      * 計算購物車中所有商品的原始總價。
      *
-     * @param items 購物車中的商品項目列表。
+     * @param items  購物車中的商品項目列表。
+     * @param prices 產品價格查詢函式，找不到時回傳 {@link ProductRepository#NOT_FOUND}。
      * @return 原始總價。
+     * @throws PriceOverflowException 如果小計或總價溢位。
      */
-    private Integer calculateRawTotalPrice(List<CartItemInput> items) {
-        Integer currentRawTotalPrice = 0;
+    private long calculateRawTotalPrice(List<CartItemInput> items, ToLongFunction<String> prices) {
+        long currentRawTotalPrice = 0L;
         if (items != null) {
-            for (CartItemInput itemInput : items) {
-                Optional<Product> optionalProduct = productRepository.findById(itemInput.productId());
-                if (optionalProduct.isPresent()) {
-                    Product product = optionalProduct.get();
-                    currentRawTotalPrice += product.getPrice() * itemInput.quantity();
+            // 以索引走訪，避免在未被 JIT 消除時配置 Iterator
+            for (int i = 0, size = items.size(); i < size; i++) {
+                CartItemInput itemInput = items.get(i);
+                long price = prices.applyAsLong(itemInput.productId());
+                if (price != ProductRepository.NOT_FOUND) {
+                    try {
+                        currentRawTotalPrice = Math.addExact(currentRawTotalPrice,
+                                Math.multiplyExact(price, (long) itemInput.quantity()));
+                    } catch (ArithmeticException ex) {
+                        throw new PriceOverflowException("購物車金額超出可計算範圍");
+                    }
                 } else {
+                    metrics.unknownProduct();
                     log.warn("計算時找不到產品 ID: {}。此商品將不列入計算。", itemInput.productId());
                 }
             }
@@ -82,33 +405,74 @@ public class CartService {
 
     /**
      * 處理並套用提供的優惠券代碼。
+     * 只有固定金額優惠券時逐張累加；遇到規則型優惠券時改由 {@link #applyRuleCoupons} 一次計算所有優惠券。
      *
-     * @param couponCodes    使用者提供的優惠券代碼列表。
+     * @param items          已合併重複產品的購物車商品項目。
+     * @param couponCodes    請求的優惠券代碼。
      * @param appliedCoupons 用於收集實際套用的優惠券實例列表 (此列表會被此方法修改)。
      * @param rawTotalPrice  購物車的原始總價。
+     * @param prices         產品價格查詢函式。
+     * @param coupons        優惠券查詢函式，找不到時回傳 null。
      * @return 從所有套用的優惠券中獲得的總折扣金額。
      * @throws TotalDiscountExceededException 如果套用優惠券後的總折扣金額超過原始總價。
      */
-    private Integer applyCoupons(List<String> couponCodes, List<Coupon> appliedCoupons, Integer rawTotalPrice) {
-        Integer currentTotalDiscount = 0;
-        if (couponCodes != null && !couponCodes.isEmpty()) {
-            for (String couponCode : couponCodes) {
-                if (couponCode != null && !couponCode.trim().isEmpty()) {
-                    Optional<Coupon> optionalCoupon = couponRepository.findByCode(couponCode);
-                    if (optionalCoupon.isPresent()) {
-                        Coupon coupon = optionalCoupon.get();
-                        if (currentTotalDiscount + coupon.getDiscountAmount() > rawTotalPrice) {
-                            throw new TotalDiscountExceededException("所選優惠券總折價已達上限，無法套用更多優惠券");
-                        }
-                        appliedCoupons.add(coupon);
-                        currentTotalDiscount += coupon.getDiscountAmount();
-                        log.debug("套用優惠券 '{}', 折抵金額: {}", coupon.getDescription(), coupon.getDiscountAmount());
-                    } else {
-                        log.warn("計算時找不到優惠券代碼: {}。此券將不被套用。", couponCode);
+    private long applyCoupons(List<CartItemInput> items, List<String> couponCodes, List<Coupon> appliedCoupons,
+            long rawTotalPrice, ToLongFunction<String> prices, Function<String, Coupon> coupons) {
+        long currentTotalDiscount = 0L;
+        for (int i = 0, size = couponCodes.size(); i < size; i++) {
+            String couponCode = couponCodes.get(i);
+            if (couponCode != null && !couponCode.isBlank()) {
+                Coupon coupon = coupons.apply(couponCode);
+                if (coupon != null && coupon.getRule() != null) {
+                    // 前面已套用的固定金額券沿用，其餘代碼從這張券開始解析
+                    List<Coupon> requested = new ArrayList<>(appliedCoupons);
+                    requested.add(coupon);
+                    requested.addAll(requestedCoupons(couponCodes.subList(i + 1, size), coupons));
+                    appliedCoupons.clear();
+                    return applyRuleCoupons(items, requested, appliedCoupons, rawTotalPrice, prices);
+                }
+                if (coupon != null) {
+                    long discountAmount = coupon.getDiscountAmount();
+                    // 兩者皆不超過原始總價，相加不會溢位
+                    if (currentTotalDiscount + discountAmount > rawTotalPrice) {
+                        metrics.discountExceeded();
+                        throw new TotalDiscountExceededException("所選優惠券總折價已達上限，無法套用更多優惠券");
                     }
+                    appliedCoupons.add(coupon);
+                    currentTotalDiscount += discountAmount;
+                    log.debug("套用優惠券 '{}', 折抵金額: {}", coupon.getDescription(), coupon.getDiscountAmount());
+                } else {
+                    metrics.unknownCoupon();
+                    log.warn("計算時找不到優惠券代碼: {}。此券將不被套用。", couponCode);
                 }
             }
         }
         return currentTotalDiscount;
     }
-}
\ No newline at end of file
+
+    /**
+     * 以 {@link CouponRuleEngine} 一次計算所有優惠券的折扣後依序套用。
+     * 規則型優惠券折扣為 0 (未達條件、沒有適用商品或被同群組取代) 時不列入已套用的優惠券。
+     */
+    private long applyRuleCoupons(List<CartItemInput> items, List<Coupon> requested, List<Coupon> appliedCoupons,
+            long rawTotalPrice, ToLongFunction<String> prices) {
+        long[] discounts = ruleEngine.discounts(items, prices, requested);
+        long currentTotalDiscount = 0L;
+        for (int i = 0; i < discounts.length; i++) {
+            Coupon coupon = requested.get(i);
+            long discountAmount = discounts[i];
+            if (coupon.getRule() != null && discountAmount == 0L) {
+                log.debug("優惠券 '{}' 不符合套用條件或被同群組的優惠券取代，不套用", coupon.getCode());
+                continue;
+            }
+            if (currentTotalDiscount + discountAmount > rawTotalPrice) {
+                metrics.discountExceeded();
+                throw new TotalDiscountExceededException("所選優惠券總折價已達上限，無法套用更多優惠券");
+            }
+            appliedCoupons.add(coupon);
+            currentTotalDiscount += discountAmount;
+            log.debug("套用優惠券 '{}', 折抵金額: {}", coupon.getDescription(), discountAmount);
+        }
+        return currentTotalDiscount;
+    }
+}
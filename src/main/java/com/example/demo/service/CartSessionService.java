@@ -0,0 +1,535 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CartDeltaInput;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.CartSessionDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.exception.CartSessionNotFoundException;
+import com.example.demo.exception.InvalidCartDeltaException;
+import com.example.demo.exception.PriceOverflowException;
+import com.example.demo.exception.TotalDiscountExceededException;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.CartItem;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.model.ShoppingCart;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductsSavedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 有狀態的購物車工作階段，以增量變更 ({@link CartDeltaInput}) 維護購物車總價。
+ * <p>
+ * 每個工作階段持有一個 {@link ShoppingCart}，總價隨每次變更以 O(1) 更新，
+ * 不需要像 {@link CartService#calculateCartPrice(ShoppingCartInput)} 一樣每次重新查詢所有產品並重新套用所有優惠券，
+ * 對數百個商品項目的大型購物車特別有效。計價規則與 {@link CartService} 一致：
+ * 找不到的產品與優惠券不列入計算，優惠券總折扣不得超過原始總價。
+ * 規則型優惠券 ({@link com.example.demo.model.CouponRule}) 的折扣取決於整個購物車，工作階段不支援，
+ * 優惠券改為規則型時會從已套用的工作階段中移除。
+ * </p>
+ * <p>
+ * 一次請求中的多個變更是原子的：任一變更導致折扣超額或金額溢位時，整批變更都會還原。
+ * 產品與優惠券在取得工作階段鎖之前查詢，鎖內只做記憶體運算。
+ * 產品或優惠券被寫入時 ({@link ProductsSavedEvent}、{@link CouponsSavedEvent})，
+ * 會更新引用到它們的工作階段，使總價維持與目錄一致；整批匯入後已不存在的產品會從工作階段中移除，
+ * 與 {@link CartService} 略過找不到的產品一致。
+ * </p>
+ * <p>
+ * 為了不在每次寫入時走訪所有工作階段，服務維護「產品 ID → 工作階段 ID」與「優惠券代碼 → 工作階段 ID」的反向索引，
+ * 在工作階段鎖內隨變更更新。目錄寫入的成本與被寫入的產品或優惠券數加上引用它們的工作階段數成正比。
+ * 工作階段被刪除或逐出後留下的索引項目在下次查到時才清除。
+ * </p>
+ */
+public class CartSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CartSessionService.class);
+
+    private final ProductRepository productRepository;
+    private final CouponRepository couponRepository;
+    private final PricingMetrics metrics;
+    private final Cache<String, CartSession> sessions;
+    /** 產品 ID → 購物車中有此產品的工作階段 ID。 */
+    private final Map<String, Set<String>> sessionsByProduct = new ConcurrentHashMap<>();
+    /** 優惠券代碼 → 已套用此優惠券的工作階段 ID。 */
+    private final Map<String, Set<String>> sessionsByCoupon = new ConcurrentHashMap<>();
+    private final Timer updateTimer;
+
+    public CartSessionService(ProductRepository productRepository, CouponRepository couponRepository,
+            PricingMetrics metrics, long maximumSessions, Duration idleTimeout, MeterRegistry registry) {
+        this.productRepository = productRepository;
+        this.couponRepository = couponRepository;
+        this.metrics = metrics;
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maximumSessions)
+                .expireAfterAccess(idleTimeout)
+                .recordStats()
+                .removalListener((String id, CartSession session, RemovalCause cause) -> {
+                    if (session != null) {
+                        unlinkAll(session);
+                    }
+                })
+                .build();
+        this.updateTimer = Timer.builder("demo.cart.session.update")
+                .description("套用一次購物車工作階段變更請求的時間")
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, sessions, "cart-sessions");
+    }
+
+    /**
+     * 建立新的工作階段。
+     *
+     * @param initialCart 初始購物車內容；可為 null
+     * @return 新工作階段的狀態
+     * @throws TotalDiscountExceededException 如果初始優惠券的總折扣超過原始總價。
+     * @throws PriceOverflowException 如果金額超出 {@code long} 可表示的範圍。
+     */
+    public CartSessionDto create(ShoppingCartInput initialCart) {
+        List<CartDeltaInput> deltas = new ArrayList<>();
+        if (initialCart != null) {
+            if (initialCart.items() != null) {
+                for (CartItemInput item : initialCart.items()) {
+                    if (item != null) {
+                        deltas.add(new CartDeltaInput(CartDeltaInput.Op.ADD_ITEM, item.productId(), item.quantity(), null));
+                    }
+                }
+            }
+            if (initialCart.couponCodes() != null) {
+                // 與 CartService 相同，略過空白代碼；重複的代碼只套用一次
+                Set<String> codes = new HashSet<>();
+                for (String code : initialCart.couponCodes()) {
+                    if (code != null && !code.isBlank() && codes.add(code)) {
+                        deltas.add(new CartDeltaInput(CartDeltaInput.Op.TOGGLE_COUPON, null, null, code));
+                    }
+                }
+            }
+        }
+        CartSession session = new CartSession(UUID.randomUUID().toString());
+        // 先放入快取再套用，套用期間寫入的目錄變更才能透過反向索引找到此工作階段
+        sessions.put(session.id, session);
+        try {
+            apply(session, deltas);
+        } catch (RuntimeException ex) {
+            sessions.invalidate(session.id);
+            throw ex;
+        }
+        return session.snapshot(false);
+    }
+
+    /**
+     * 查詢工作階段，包含完整的商品項目。
+     *
+     * @param sessionId 工作階段 ID
+     * @return 工作階段狀態
+     * @throws CartSessionNotFoundException 如果工作階段不存在或已失效。
+     */
+    public CartSessionDto get(String sessionId) {
+        CartSession session = session(sessionId);
+        session.lock.lock();
+        try {
+            return session.snapshot(true);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * 依序套用一批變更，每個變更以 O(1) 更新總價。
+     *
+     * @param sessionId 工作階段 ID
+     * @param deltas    要套用的變更
+     * @return 套用後的狀態 (不含商品項目)
+     * @throws CartSessionNotFoundException 如果工作階段不存在或已失效。
+     * @throws InvalidCartDeltaException 如果變更缺少必要欄位。
+     * @throws TotalDiscountExceededException 如果套用後優惠券總折扣超過原始總價，此時整批變更都不會生效。
+     * @throws PriceOverflowException 如果金額超出 {@code long} 可表示的範圍，此時整批變更都不會生效。
+     */
+    public CartSessionDto update(String sessionId, List<CartDeltaInput> deltas) {
+        long start = System.nanoTime();
+        try {
+            CartSession session = session(sessionId);
+            apply(session, deltas);
+            session.lock.lock();
+            try {
+                return session.snapshot(false);
+            } finally {
+                session.lock.unlock();
+            }
+        } finally {
+            updateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 刪除工作階段。
+     *
+     * @param sessionId 工作階段 ID
+     * @throws CartSessionNotFoundException 如果工作階段不存在或已失效。
+     */
+    public void delete(String sessionId) {
+        if (sessions.asMap().remove(sessionId) == null) {
+            throw new CartSessionNotFoundException("找不到購物車工作階段: " + sessionId);
+        }
+    }
+
+    @EventListener
+    public void onProductsSaved(ProductsSavedEvent event) {
+        Map<String, Optional<Product>> products = new HashMap<>();
+        Map<String, List<String>> affectedSessions = affectedSessions(sessionsByProduct, event.productIds());
+        for (Map.Entry<String, List<String>> affected : affectedSessions.entrySet()) {
+            CartSession session = sessions.policy().getIfPresentQuietly(affected.getKey());
+            if (session == null) {
+                affected.getValue().forEach(id -> unlink(sessionsByProduct, id, affected.getKey()));
+                continue;
+            }
+            session.lock.lock();
+            try {
+                ShoppingCart cart = session.cart;
+                boolean changed = false;
+                for (String id : affected.getValue()) {
+                    if (cart.getQuantity(id) == 0) {
+                        unlink(sessionsByProduct, id, session.id);
+                        continue;
+                    }
+                    Optional<Product> product = products.computeIfAbsent(id, productRepository::findById);
+                    if (product.isPresent()) {
+                        changed |= cart.repriceItem(product.get());
+                    } else if (cart.removeItem(id) > 0) {
+                        // 產品已從目錄移除 (例如整批匯入取代了目錄)，不再計價
+                        log.debug("產品 {} 已從目錄移除，已自工作階段 {} 中移除", id, session.id);
+                        unlink(sessionsByProduct, id, session.id);
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    afterCatalogChange(session);
+                }
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    @EventListener
+    public void onCouponsSaved(CouponsSavedEvent event) {
+        Map<String, Coupon> coupons = new HashMap<>();
+        Map<String, List<String>> affectedSessions = affectedSessions(sessionsByCoupon, event.couponCodes());
+        for (Map.Entry<String, List<String>> affected : affectedSessions.entrySet()) {
+            CartSession session = sessions.policy().getIfPresentQuietly(affected.getKey());
+            if (session == null) {
+                affected.getValue().forEach(code -> unlink(sessionsByCoupon, code, affected.getKey()));
+                continue;
+            }
+            session.lock.lock();
+            try {
+                boolean changed = false;
+                for (String code : affected.getValue()) {
+                    if (!session.cart.isCouponApplied(code)) {
+                        unlink(sessionsByCoupon, code, session.id);
+                        continue;
+                    }
+                    Coupon coupon = coupons.computeIfAbsent(code, couponRepository::findByCodeOrNull);
+                    if (coupon != null && coupon.getRule() != null) {
+                        if (session.cart.removeAppliedCoupon(code)) {
+                            unlink(sessionsByCoupon, code, session.id);
+                            changed = true;
+                        }
+                    } else if (coupon != null) {
+                        changed |= session.cart.repriceCoupon(coupon);
+                    }
+                }
+                if (changed) {
+                    afterCatalogChange(session);
+                }
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 以反向索引找出引用到這些鍵的工作階段。
+     *
+     * @return 工作階段 ID → 其引用到的鍵
+     */
+    private static Map<String, List<String>> affectedSessions(Map<String, Set<String>> index, Collection<String> keys) {
+        Map<String, List<String>> affected = new HashMap<>();
+        for (String key : new HashSet<>(keys)) {
+            Set<String> sessionIds = index.get(key);
+            if (sessionIds != null) {
+                for (String sessionId : sessionIds) {
+                    affected.computeIfAbsent(sessionId, id -> new ArrayList<>()).add(key);
+                }
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * 目錄變更後若折扣超額移除優惠券，並從反向索引中移除這些優惠券。呼叫端必須持有工作階段鎖。
+     */
+    private void afterCatalogChange(CartSession session) {
+        for (String code : session.afterCatalogChange()) {
+            unlink(sessionsByCoupon, code, session.id);
+        }
+    }
+
+    /**
+     * 依變更後的購物車內容更新變更所涉及的鍵的反向索引。呼叫端必須持有工作階段鎖。
+     */
+    private void reindex(CartSession session, List<ResolvedDelta> deltas) {
+        for (ResolvedDelta delta : deltas) {
+            if (delta.op() == CartDeltaInput.Op.TOGGLE_COUPON) {
+                relink(sessionsByCoupon, delta.key(), session.id, session.cart.isCouponApplied(delta.key()));
+            } else {
+                relink(sessionsByProduct, delta.key(), session.id, session.cart.getQuantity(delta.key()) > 0);
+            }
+        }
+    }
+
+    private void unlinkAll(CartSession session) {
+        session.lock.lock();
+        try {
+            for (CartItem item : session.cart.getItems()) {
+                unlink(sessionsByProduct, item.getProduct().getId(), session.id);
+            }
+            for (Coupon coupon : session.cart.getAppliedCoupons()) {
+                unlink(sessionsByCoupon, coupon.getCode(), session.id);
+            }
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private static void relink(Map<String, Set<String>> index, String key, String sessionId, boolean linked) {
+        if (linked) {
+            index.compute(key, (k, sessionIds) -> {
+                Set<String> updated = sessionIds == null ? ConcurrentHashMap.newKeySet() : sessionIds;
+                updated.add(sessionId);
+                return updated;
+            });
+        } else {
+            unlink(index, key, sessionId);
+        }
+    }
+
+    private static void unlink(Map<String, Set<String>> index, String key, String sessionId) {
+        index.computeIfPresent(key, (k, sessionIds) -> {
+            sessionIds.remove(sessionId);
+            return sessionIds.isEmpty() ? null : sessionIds;
+        });
+    }
+
+    private CartSession session(String sessionId) {
+        CartSession session = sessions.getIfPresent(sessionId);
+        if (session == null) {
+            throw new CartSessionNotFoundException("找不到購物車工作階段: " + sessionId);
+        }
+        return session;
+    }
+
+    private void apply(CartSession session, List<CartDeltaInput> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return;
+        }
+        List<ResolvedDelta> resolved = resolve(deltas);
+        session.lock.lock();
+        try {
+            Deque<Runnable> undo = new ArrayDeque<>(resolved.size());
+            try {
+                for (ResolvedDelta delta : resolved) {
+                    delta.applyTo(session.cart, undo);
+                }
+            } catch (ArithmeticException ex) {
+                rollback(undo);
+                throw new PriceOverflowException("購物車金額超出可計算範圍");
+            }
+            if (session.cart.isDiscountExceeded()) {
+                rollback(undo);
+                metrics.discountExceeded();
+                throw new TotalDiscountExceededException("所選優惠券總折價已達上限，無法套用更多優惠券");
+            }
+            reindex(session, resolved);
+            session.version++;
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private static void rollback(Deque<Runnable> undo) {
+        while (!undo.isEmpty()) {
+            undo.pop().run();
+        }
+    }
+
+    /**
+     * 驗證變更並查詢其引用的產品與優惠券，在取得工作階段鎖之前完成所有可能阻塞的查詢。
+     */
+    private List<ResolvedDelta> resolve(List<CartDeltaInput> deltas) {
+        List<ResolvedDelta> resolved = new ArrayList<>(deltas.size());
+        for (CartDeltaInput delta : deltas) {
+            if (delta == null || delta.op() == null) {
+                throw new InvalidCartDeltaException("購物車變更缺少 op");
+            }
+            switch (delta.op()) {
+                case ADD_ITEM, SET_QUANTITY -> {
+                    requireProductId(delta);
+                    int quantity = delta.quantity() == null
+                            ? (delta.op() == CartDeltaInput.Op.ADD_ITEM ? 1 : -1)
+                            : delta.quantity();
+                    if (quantity < 0 || (delta.op() == CartDeltaInput.Op.ADD_ITEM && quantity == 0)) {
+                        throw new InvalidCartDeltaException("購物車變更的數量無效: " + delta);
+                    }
+                    Product product = productRepository.findById(delta.productId()).orElse(null);
+                    if (product == null) {
+                        metrics.unknownProduct();
+                        log.warn("購物車變更時找不到產品 ID: {}。此變更將被忽略。", delta.productId());
+                    } else {
+                        resolved.add(new ResolvedDelta(delta.op(), product, quantity, delta.productId(), null));
+                    }
+                }
+                case REMOVE_ITEM -> {
+                    requireProductId(delta);
+                    resolved.add(new ResolvedDelta(delta.op(), null, 0, delta.productId(), null));
+                }
+                case TOGGLE_COUPON -> {
+                    if (delta.couponCode() == null || delta.couponCode().isBlank()) {
+                        throw new InvalidCartDeltaException("購物車變更缺少 couponCode: " + delta);
+                    }
+                    // 取消套用不需要查詢；套用時若找不到優惠券則在鎖內略過
+                    Coupon coupon = couponRepository.findByCodeOrNull(delta.couponCode());
+                    if (coupon != null && coupon.getRule() != null) {
+                        // 規則型優惠券的折扣取決於整個購物車，無法以 O(1) 增量維護
+                        throw new InvalidCartDeltaException("購物車工作階段不支援規則型優惠券: " + delta.couponCode());
+                    }
+                    resolved.add(new ResolvedDelta(delta.op(), null, 0, delta.couponCode(), coupon));
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private static void requireProductId(CartDeltaInput delta) {
+        if (delta.productId() == null || delta.productId().isBlank()) {
+            throw new InvalidCartDeltaException("購物車變更缺少 productId: " + delta);
+        }
+    }
+
+    /**
+     * 已查詢好產品或優惠券的變更。
+     *
+     * @param key 商品變更為產品 ID，優惠券變更為優惠券代碼
+     */
+    private record ResolvedDelta(CartDeltaInput.Op op, Product product, int quantity, String key, Coupon coupon) {
+
+        void applyTo(ShoppingCart cart, Deque<Runnable> undo) {
+            switch (op) {
+                case ADD_ITEM -> setQuantity(cart, product,
+                        Math.addExact(cart.getQuantity(key), quantity), undo);
+                case SET_QUANTITY -> setQuantity(cart, product, quantity, undo);
+                case REMOVE_ITEM -> {
+                    Product previousProduct = productInCart(cart, key);
+                    int previousQuantity = cart.removeItem(key);
+                    if (previousQuantity > 0) {
+                        undo.push(() -> cart.setItemQuantity(previousProduct, previousQuantity));
+                    }
+                }
+                case TOGGLE_COUPON -> {
+                    Coupon previous = cart.getAppliedCoupon(key);
+                    if (previous != null) {
+                        cart.removeAppliedCoupon(key);
+                        undo.push(() -> cart.addAppliedCoupon(previous));
+                    } else if (coupon != null) {
+                        cart.addAppliedCoupon(coupon);
+                        undo.push(() -> cart.removeAppliedCoupon(key));
+                    } else {
+                        log.warn("購物車變更時找不到優惠券代碼: {}。此券將不被套用。", key);
+                    }
+                }
+            }
+        }
+
+        private static void setQuantity(ShoppingCart cart, Product product, int quantity, Deque<Runnable> undo) {
+            Product previousProduct = productInCart(cart, product.getId());
+            int previousQuantity = cart.setItemQuantity(product, quantity);
+            undo.push(previousQuantity > 0
+                    ? () -> cart.setItemQuantity(previousProduct, previousQuantity)
+                    : () -> cart.removeItem(product.getId()));
+        }
+
+        private static Product productInCart(ShoppingCart cart, String productId) {
+            CartItem item = cart.getItem(productId);
+            return item == null ? null : item.getProduct();
+        }
+    }
+
+    private static final class CartSession {
+        private final String id;
+        private final ShoppingCart cart = new ShoppingCart();
+        // 以 ReentrantLock 而非 synchronized，虛擬執行緒等待時不會釘選載體執行緒
+        private final ReentrantLock lock = new ReentrantLock();
+        private long version;
+
+        CartSession(String id) {
+            this.id = id;
+        }
+
+        /**
+         * 目錄變更後若折扣超額，從最後套用的優惠券開始移除直到不再超額。
+         *
+         * @return 被移除的優惠券代碼
+         */
+        List<String> afterCatalogChange() {
+            List<Coupon> applied = cart.getAppliedCoupons();
+            List<String> removed = new ArrayList<>();
+            for (int i = applied.size() - 1; i >= 0 && cart.isDiscountExceeded(); i--) {
+                cart.removeAppliedCoupon(applied.get(i).getCode());
+                removed.add(applied.get(i).getCode());
+                log.warn("目錄變更後工作階段 {} 的優惠券總折價超過原始總價，已移除優惠券 {}", id, applied.get(i).getCode());
+            }
+            version++;
+            return removed;
+        }
+
+        CartSessionDto snapshot(boolean includeItems) {
+            long originalTotal = cart.getOriginalTotalAmount();
+            long discountedTotal = cart.getDiscountedTotalAmount();
+            CalculationResultDto pricing = new CalculationResultDto(originalTotal, discountedTotal,
+                    originalTotal - discountedTotal, cart.getAppliedCoupons());
+            List<CartItemInput> items = includeItems
+                    ? cart.getItems().stream()
+                            .map(item -> new CartItemInput(item.getProduct().getId(), item.getQuantity()))
+                            .toList()
+                    : null;
+            return new CartSessionDto(id, version, cart.getLineCount(), pricing, items);
+        }
+    }
+}
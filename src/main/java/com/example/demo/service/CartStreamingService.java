@@ -0,0 +1,270 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.dto.BatchCalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * 以 NDJSON (每行一個 JSON) 串流方式大量計價購物車。
+ * <p>
+ * 輸入每行為一個 {@link ShoppingCartInput}，輸出每行為一個 {@link BatchCalculationResultDto}，
+ * 其 {@code index} 為輸入中的記錄序號 (從 0 開始，不含空白行)。
+ * 記錄以固定大小的區塊讀入後交給 {@link CartService#calculateCartPrices(List)} 計價，
+ * 寫出並 flush 後才讀取下一個區塊，因此記憶體用量只與區塊大小及單行長度上限有關，
+ * 而輸出端寫不動時也會自然停止讀取輸入 (背壓)。
+ * </p>
+ * <p>
+ * 單行超過 {@code demo.cart-stream.max-line-length} (預設 1MB) 時不會整行讀進記憶體，
+ * 超出的部分直接略過，該筆記錄以錯誤結果輸出。{@code index} 以 {@code long} 表示，不受輸入筆數限制。
+ * </p>
+ */
+@Service
+public class CartStreamingService {
+
+    private static final Logger log = LoggerFactory.getLogger(CartStreamingService.class);
+
+    /** 每個區塊的購物車數量，決定了串流處理時的記憶體上限。 */
+    static final int CHUNK_SIZE = 512;
+
+    private final CartService cartService;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader cartReader;
+    private final int maxLineLength;
+
+    /**
+     * @param maxLineLength 單行 (一個購物車) 的長度上限
+     */
+    public CartStreamingService(CartService cartService, ObjectMapper objectMapper,
+            @Value("${demo.cart-stream.max-line-length:1MB}") DataSize maxLineLength) {
+        this.cartService = cartService;
+        this.objectMapper = objectMapper;
+        this.cartReader = objectMapper.readerFor(ShoppingCartInput.class);
+        this.maxLineLength = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, maxLineLength.toBytes()));
+    }
+
+    /**
+     * 從輸入串流讀取 NDJSON 購物車並將計價結果以 NDJSON 寫入輸出串流。
+     * 此方法不會關閉傳入的串流。
+     *
+     * @param in  NDJSON 格式的 {@link ShoppingCartInput} 輸入
+     * @param out NDJSON 格式的 {@link BatchCalculationResultDto} 輸出
+     * @return 此次處理的統計資料
+     * @throws IOException 讀寫串流失敗時
+     */
+    public StreamPricingStats priceNdjson(InputStream in, OutputStream out) throws IOException {
+        long startNanos = System.nanoTime();
+        long carts = 0;
+        long failures = 0;
+
+        LineReader reader = new LineReader(in, maxLineLength);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        List<ShoppingCartInput> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<BatchCalculationResultDto> parseErrors = new ArrayList<>();
+        while (reader.next()) {
+            if (reader.isBlank()) {
+                continue;
+            }
+            if (reader.truncated()) {
+                // 以 null 佔位，讓輸出序號與輸入行保持對應
+                chunk.add(null);
+                parseErrors.add(BatchCalculationResultDto.failure(chunk.size() - 1,
+                        "購物車 JSON 超過 " + maxLineLength + " 位元組的長度上限"));
+            } else {
+                try {
+                    chunk.add(cartReader.readValue(reader.buffer(), 0, reader.length()));
+                } catch (JsonProcessingException ex) {
+                    chunk.add(null);
+                    parseErrors.add(BatchCalculationResultDto.failure(chunk.size() - 1, "無法解析的購物車 JSON"));
+                }
+            }
+            if (chunk.size() == CHUNK_SIZE) {
+                failures += writeChunk(generator, carts, chunk, parseErrors);
+                carts += chunk.size();
+                chunk.clear();
+                parseErrors.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            failures += writeChunk(generator, carts, chunk, parseErrors);
+            carts += chunk.size();
+        }
+        generator.close();
+
+        StreamPricingStats stats = new StreamPricingStats(carts, failures, System.nanoTime() - startNanos);
+        log.info("NDJSON 串流計價完成。購物車數: {}, 失敗數: {}, 耗時: {} ms, 吞吐量: {} carts/sec",
+                stats.carts(), stats.failures(), stats.elapsedMillis(), Math.round(stats.cartsPerSecond()));
+        return stats;
+    }
+
+    /**
+     * 讀取本機 NDJSON 檔案並將計價結果寫入另一個檔案。
+     *
+     * @param input  輸入檔案路徑
+     * @param output 輸出檔案路徑 (已存在時會被覆寫)
+     * @return 此次處理的統計資料
+     * @throws IOException 讀寫檔案失敗時
+     */
+    public StreamPricingStats priceNdjson(Path input, Path output) throws IOException {
+        try (InputStream in = Files.newInputStream(input);
+             OutputStream out = Files.newOutputStream(output)) {
+            return priceNdjson(in, out);
+        }
+    }
+
+    /**
+     * 計價一個區塊並寫出結果，回傳此區塊中的失敗數。
+     */
+    private long writeChunk(JsonGenerator generator, long offset, List<ShoppingCartInput> chunk,
+            List<BatchCalculationResultDto> parseErrors) throws IOException {
+        List<BatchCalculationResultDto> results = new ArrayList<>(cartService.calculateCartPrices(chunk));
+        for (BatchCalculationResultDto parseError : parseErrors) {
+            results.set((int) parseError.index(), parseError);
+        }
+        long failures = 0;
+        for (BatchCalculationResultDto result : results) {
+            if (result.error() != null) {
+                failures++;
+            }
+            generator.writeObject(new BatchCalculationResultDto(
+                    offset + result.index(), result.result(), result.error()));
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return failures;
+    }
+
+    /**
+     * 逐行讀取 NDJSON 的位元組，不先解碼成字串。每行最多保留 {@code maxLength} 個位元組，
+     * 超出的部分讀過即丟，只標記為 {@link #truncated()}，因此單一過長的行不會讓記憶體用量失控。
+     */
+    private static final class LineReader {
+
+        private final InputStream in;
+        private final int maxLength;
+        private final byte[] input = new byte[8192];
+        private int position;
+        private int limit;
+        private byte[] line = new byte[1024];
+        private int length;
+        private boolean truncated;
+
+        LineReader(InputStream in, int maxLength) {
+            this.in = in;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * 讀取下一行 (不含換行字元與行尾的 {@code \r})。
+         *
+         * @return 讀到一行時為 true；輸入已結束時為 false
+         */
+        boolean next() throws IOException {
+            length = 0;
+            truncated = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(input);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return read;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && input[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    // 略過換行字元
+                    position++;
+                    if (length > 0 && line[length - 1] == '\r') {
+                        length--;
+                    }
+                    return true;
+                }
+            }
+        }
+
+        private void append(int from, int to) {
+            int count = to - from;
+            if (truncated || count == 0) {
+                return;
+            }
+            if (length + count > maxLength) {
+                truncated = true;
+                return;
+            }
+            if (length + count > line.length) {
+                line = Arrays.copyOf(line, (int) Math.min(maxLength, Math.max(line.length * 2L, length + count)));
+            }
+            System.arraycopy(input, from, line, length, count);
+            length += count;
+        }
+
+        boolean truncated() {
+            return truncated;
+        }
+
+        boolean isBlank() {
+            if (truncated) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (!Character.isWhitespace(line[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        byte[] buffer() {
+            return line;
+        }
+
+        int length() {
+            return length;
+        }
+    }
+
+    /**
+     * 串流計價的統計資料。
+     *
+     * @param carts        處理的購物車數
+     * @param failures     計價失敗的購物車數
+     * @param elapsedNanos 總耗時 (奈秒)
+     */
+    public record StreamPricingStats(long carts, long failures, long elapsedNanos) {
+
+        public long elapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public double cartsPerSecond() {
+            return elapsedNanos == 0 ? 0 : carts * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
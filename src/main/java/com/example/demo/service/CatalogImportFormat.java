@@ -0,0 +1,47 @@
+package com.example.demo.service;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+import com.example.demo.exception.CatalogImportException;
+
+/**
+ * 整批匯入的檔案格式。兩種格式都是每行一筆資料，才能切成區塊平行解析。
+ */
+public enum CatalogImportFormat {
+    /** 逗號分隔，欄位可用雙引號包住 (內含逗號時)，第一行可以是標題列。 */
+    CSV,
+    /** 每行一個 JSON 物件 (NDJSON / JSON Lines)。 */
+    NDJSON;
+
+    /**
+     * 依副檔名判斷格式：{@code .csv} 為 CSV，{@code .ndjson}、{@code .jsonl}、{@code .json} 為 NDJSON。
+     *
+     * @throws CatalogImportException 如果無法判斷
+     */
+    public static CatalogImportFormat fromFileName(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return NDJSON;
+        }
+        throw new CatalogImportException("無法由副檔名判斷匯入格式: " + file.getFileName());
+    }
+
+    /**
+     * 依 Content-Type 判斷格式：{@code text/csv} 為 CSV，{@code application/x-ndjson}、
+     * {@code application/jsonl}、{@code application/json} 為 NDJSON。
+     *
+     * @throws CatalogImportException 如果無法判斷
+     */
+    public static CatalogImportFormat fromContentType(String contentType) {
+        String type = contentType == null ? "" : contentType.split(";", 2)[0].strip().toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "text/csv" -> CSV;
+            case "application/x-ndjson", "application/jsonl", "application/json" -> NDJSON;
+            default -> throw new CatalogImportException("不支援的匯入格式: " + contentType);
+        };
+    }
+}
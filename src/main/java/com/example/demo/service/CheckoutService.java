@@ -0,0 +1,58 @@
+package com.example.demo.service;
+
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CheckoutInput;
+import com.example.demo.dto.CheckoutReservationDto;
+import com.example.demo.exception.CouponRedemptionLimitException;
+import com.example.demo.exception.ReservationNotFoundException;
+import com.example.demo.model.Coupon;
+import com.example.demo.service.CouponRedemptionService.Reservation;
+
+/**
+ * 結帳流程：先計價，再只為實際套用的優惠券預留使用額度。
+ * 未達門檻或在互斥群組中被取代的規則型優惠券不會列入已套用的優惠券，也就不會佔用額度；
+ * 計價失敗時不會預留任何額度。
+ */
+@Service
+public class CheckoutService {
+
+    private final CartService cartService;
+    private final CouponRedemptionService redemptionService;
+
+    public CheckoutService(CartService cartService, CouponRedemptionService redemptionService) {
+        this.cartService = cartService;
+        this.redemptionService = redemptionService;
+    }
+
+    /**
+     * 計價並預留已套用優惠券的使用額度。
+     *
+     * @param input 結帳請求
+     * @return 預留 ID、到期時間與計價結果
+     * @throws CouponRedemptionLimitException 如果任一已套用的優惠券已達使用上限。
+     */
+    public CheckoutReservationDto checkout(CheckoutInput input) {
+        CalculationResultDto pricing = cartService.calculateCartPrice(input.cart());
+        List<String> appliedCodes = pricing.appliedCoupons().stream().map(Coupon::getCode).toList();
+        Reservation reservation = redemptionService.reserve(input.userId(), appliedCodes);
+        return new CheckoutReservationDto(reservation.id(), reservation.expiresAt(), reservation.couponCodes(), pricing);
+    }
+
+    /**
+     * @throws ReservationNotFoundException 如果預留不存在或已過期。
+     */
+    public void commit(String reservationId) {
+        redemptionService.commit(reservationId);
+    }
+
+    /**
+     * @throws ReservationNotFoundException 如果預留不存在或已過期。
+     */
+    public void release(String reservationId) {
+        redemptionService.release(reservationId);
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponRule;
+
+/**
+ * 挑選總折扣最大、且不超過原始總價的優惠券組合 (0/1 背包問題，價值等於重量)。
+ * <p>
+ * 以分支定界搜尋：候選券依折抵金額由大到小排列，以剩餘金額總和剪枝，
+ * 相同金額的券只展開一種取法，並記錄已走過的 (位置, 累計折扣) 狀態避免重複展開。
+ * 先以貪婪法 (由大到小能放就放) 取得下界，找到等於上限的組合即提前結束。
+ * </p>
+ * <p>
+ * 規則型優惠券的互斥群組 ({@link CouponRule#exclusiveGroup()}) 在搜尋時處理：同一群組最多選一張。
+ * 不能在挑選前先只保留群組中折扣最大的一張，因為那張可能超過總價而被略過，而較小、放得下的券已被捨棄。
+ * </p>
+ * <p>
+ * 搜尋時間受 {@code demo.coupon-solver.time-budget} (預設 2ms) 限制，逾時則回傳目前找到的最佳組合
+ * (至少與貪婪法一樣好)，並在結果中標示為非最佳解，確保候選券有數十張時延遲仍然可控。
+ * 可用的候選券超過 {@code demo.coupon-solver.max-candidates} (預設 64) 張時，只保留折扣最大的幾張參與搜尋。
+ * </p>
+ */
+@Component
+public class CouponOptimizer {
+
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+    private static final int MEMO_LIMIT = 1 << 16;
+    private static final ToLongFunction<Coupon> FIXED_AMOUNT =
+            coupon -> coupon.getDiscountAmount() == null ? 0L : coupon.getDiscountAmount();
+
+    private static final int DEFAULT_MAX_CANDIDATES = 64;
+    /** 超過此數量的互斥群組不記錄已走過的狀態，因為已使用的群組無法放進一個 long。 */
+    private static final int MAX_MEMO_GROUPS = Long.SIZE;
+
+    private final long timeBudgetNanos;
+    private final int maxCandidates;
+
+    public CouponOptimizer(Duration timeBudget) {
+        this(timeBudget, DEFAULT_MAX_CANDIDATES);
+    }
+
+    @Autowired
+    public CouponOptimizer(@Value("${demo.coupon-solver.time-budget:2ms}") Duration timeBudget,
+            @Value("${demo.coupon-solver.max-candidates:64}") int maxCandidates) {
+        this.timeBudgetNanos = timeBudget.toNanos();
+        this.maxCandidates = Math.max(1, maxCandidates);
+    }
+
+    /**
+     * 挑選最佳優惠券組合。
+     *
+     * @param candidates 候選優惠券；null、重複代碼、折抵金額非正數或超過上限的券會被略過，
+     *                   超過候選數上限時只保留折抵金額最大的幾張
+     * @param capacity   總折扣上限 (原始總價)
+     * @return 選中的優惠券 (依候選列表順序)、總折扣，以及是否確定為最佳解
+     */
+    public Selection select(List<Coupon> candidates, long capacity) {
+        return select(candidates, FIXED_AMOUNT, capacity);
+    }
+
+    /**
+     * 以指定的折扣金額挑選最佳優惠券組合，供折扣取決於購物車內容的規則型優惠券使用。
+     * 折扣應為每張券單獨套用時的金額 ({@link CouponRuleEngine#standaloneDiscounts})，互斥群組由此方法處理。
+     *
+     * @param candidates 候選優惠券；null、重複代碼、折扣非正數或超過上限的券會被略過，
+     *                   超過候選數上限時只保留折扣最大的幾張
+     * @param discounts  每張優惠券的折扣金額
+     * @param capacity   總折扣上限 (原始總價)
+     * @return 選中的優惠券 (依候選列表順序)、總折扣，以及是否確定為最佳解
+     */
+    public Selection select(List<Coupon> candidates, ToLongFunction<Coupon> discounts, long capacity) {
+        Map<String, Coupon> usable = new LinkedHashMap<>();
+        Map<String, Long> amounts = new HashMap<>();
+        for (Coupon coupon : candidates) {
+            if (coupon == null || usable.containsKey(coupon.getCode())) {
+                continue;
+            }
+            long amount = discounts.applyAsLong(coupon);
+            if (amount > 0 && amount <= capacity) {
+                usable.put(coupon.getCode(), coupon);
+                amounts.put(coupon.getCode(), amount);
+            }
+        }
+        if (usable.isEmpty()) {
+            return new Selection(List.of(), 0L, true);
+        }
+
+        Coupon[] sorted = usable.values().toArray(new Coupon[0]);
+        Arrays.sort(sorted, Comparator.comparingLong((Coupon coupon) -> amounts.get(coupon.getCode())).reversed()
+                .thenComparing(Coupon::getCode));
+        if (sorted.length > maxCandidates) {
+            sorted = Arrays.copyOf(sorted, maxCandidates);
+        }
+        long[] sortedAmounts = new long[sorted.length];
+        int[] groups = new int[sorted.length];
+        Map<String, Integer> groupIds = new HashMap<>();
+        for (int i = 0; i < sorted.length; i++) {
+            sortedAmounts[i] = amounts.get(sorted[i].getCode());
+            CouponRule rule = sorted[i].getRule();
+            String group = rule == null ? null : rule.exclusiveGroup();
+            groups[i] = group == null ? -1 : groupIds.computeIfAbsent(group, key -> groupIds.size());
+        }
+        Search search = new Search(sortedAmounts, groups, groupIds.size(), capacity,
+                System.nanoTime() + timeBudgetNanos);
+        search.run();
+
+        Set<String> chosenCodes = new HashSet<>();
+        for (int i = 0; i < sorted.length; i++) {
+            if (search.bestChosen[i]) {
+                chosenCodes.add(sorted[i].getCode());
+            }
+        }
+        List<Coupon> chosen = new ArrayList<>(chosenCodes.size());
+        for (Coupon coupon : usable.values()) {
+            if (chosenCodes.contains(coupon.getCode())) {
+                chosen.add(coupon);
+            }
+        }
+        return new Selection(chosen, search.bestSum, !search.timedOut);
+    }
+
+    /**
+     * @param coupons       選中的優惠券
+     * @param totalDiscount 總折扣
+     * @param optimal       為 false 表示搜尋逾時，結果是目前找到的最佳組合而非保證最佳
+     */
+    public record Selection(List<Coupon> coupons, long totalDiscount, boolean optimal) {
+    }
+
+    /** 單次搜尋的狀態，不跨執行緒共用。 */
+    private static final class Search {
+        private final long[] amounts;
+        /** 每張券的互斥群組編號；-1 表示不屬於任何群組。 */
+        private final int[] groups;
+        private final long[] suffixSums;
+        /** 從此位置起 (含) 是否還有屬於互斥群組的券；沒有時剩下的券可以全部一起取。 */
+        private final boolean[] groupedFrom;
+        private final boolean memoize;
+        private final long capacity;
+        private final long deadline;
+        private final boolean[] chosen;
+        private final boolean[] bestChosen;
+        private final boolean[] groupUsed;
+        private final Set<State> visited = new HashSet<>();
+        private long usedGroups;
+        private long bestSum;
+        private long nodes;
+        private boolean timedOut;
+
+        Search(long[] amounts, int[] groups, int groupCount, long capacity, long deadline) {
+            int n = amounts.length;
+            this.amounts = amounts;
+            this.groups = groups;
+            this.suffixSums = new long[n + 1];
+            this.groupedFrom = new boolean[n + 1];
+            for (int i = n - 1; i >= 0; i--) {
+                suffixSums[i] = suffixSums[i + 1] + amounts[i];
+                groupedFrom[i] = groupedFrom[i + 1] || groups[i] >= 0;
+            }
+            this.memoize = groupCount <= MAX_MEMO_GROUPS;
+            this.capacity = capacity;
+            this.deadline = deadline;
+            this.chosen = new boolean[n];
+            this.bestChosen = new boolean[n];
+            this.groupUsed = new boolean[groupCount];
+        }
+
+        void run() {
+            greedy();
+            if (bestSum < capacity) {
+                search(0, 0L);
+            }
+        }
+
+        private void greedy() {
+            long sum = 0L;
+            boolean[] used = new boolean[groupUsed.length];
+            for (int i = 0; i < amounts.length; i++) {
+                int group = groups[i];
+                if (sum + amounts[i] <= capacity && (group < 0 || !used[group])) {
+                    sum += amounts[i];
+                    bestChosen[i] = true;
+                    if (group >= 0) {
+                        used[group] = true;
+                    }
+                }
+            }
+            bestSum = sum;
+        }
+
+        /**
+         * @return 為 true 表示應停止搜尋 (已達上限或逾時)
+         */
+        private boolean search(int index, long sum) {
+            if ((++nodes % CLOCK_CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+                return true;
+            }
+            if (sum > bestSum) {
+                remember(sum, index, false);
+                if (sum == capacity) {
+                    return true;
+                }
+            }
+            if (index == amounts.length || sum + suffixSums[index] <= bestSum) {
+                return false;
+            }
+            if (!groupedFrom[index] && sum + suffixSums[index] <= capacity) {
+                // 剩下的券都不屬於互斥群組且全部放得下，這就是此分支的最佳解
+                remember(sum + suffixSums[index], index, true);
+                return bestSum == capacity;
+            }
+            // 同一位置、同樣累計折扣與已用群組的狀態之後能達到的結果相同，走過就不再展開；記錄數量有上限以限制記憶體
+            if (memoize) {
+                State state = new State(index, sum, usedGroups);
+                if (visited.contains(state)) {
+                    return false;
+                }
+                if (visited.size() < MEMO_LIMIT) {
+                    visited.add(state);
+                }
+            }
+            int group = groups[index];
+            if (sum + amounts[index] <= capacity && (group < 0 || !groupUsed[group])) {
+                chosen[index] = true;
+                long previousGroups = usedGroups;
+                if (group >= 0) {
+                    groupUsed[group] = true;
+                    if (memoize) {
+                        usedGroups |= 1L << group;
+                    }
+                }
+                boolean stop = search(index + 1, sum + amounts[index]);
+                chosen[index] = false;
+                if (group >= 0) {
+                    groupUsed[group] = false;
+                    usedGroups = previousGroups;
+                }
+                if (stop) {
+                    return true;
+                }
+            }
+            // 不取這張券時，也不取後面金額與群組都相同的券 (相同的券只展開「取前 k 張」的取法)
+            int next = index + 1;
+            while (next < amounts.length && amounts[next] == amounts[index] && groups[next] == group) {
+                next++;
+            }
+            return search(next, sum);
+        }
+
+        private record State(int index, long sum, long usedGroups) {
+        }
+
+        private void remember(long sum, int index, boolean takeRest) {
+            bestSum = sum;
+            for (int i = 0; i < chosen.length; i++) {
+                bestChosen[i] = chosen[i] || (takeRest && i >= index);
+            }
+        }
+    }
+}
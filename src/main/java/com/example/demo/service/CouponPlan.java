@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponRule;
+import com.example.demo.model.Product;
+
+/**
+ * 規則型優惠券計價時需要的產品分類資料。
+ * <p>
+ * 規則在建立 {@link Coupon} 時已解析，限定產品 ID 的條件直接以規則中的集合比對；
+ * 此計畫只保存「屬於任一規則分類的產品 → 分類」({@link #categoryOf(String)})，
+ * 計價時每個商品項目只需一次雜湊查詢即可得知分類，再以各優惠券的分類集合判斷是否適用。
+ * 記憶體與「屬於規則分類的產品數」成正比，與優惠券數量無關。
+ * </p>
+ * <p>
+ * 優惠券寫入時以 {@link #updateCoupons} 只更新這些優惠券引用的分類：只有新出現的分類需要載入其產品；
+ * 產品寫入時以 {@link #updateProducts} 只更新這些產品。寫入由呼叫端以鎖互斥；
+ * 讀取不需要鎖，寫入期間讀取端可能看到更新前或更新後的個別項目。
+ * </p>
+ */
+final class CouponPlan {
+
+    /** 規則型優惠券代碼 → 其分類條件；只包含有分類條件的優惠券。 */
+    private final Map<String, Set<String>> categoriesByCoupon = new HashMap<>();
+    /** 分類 → 引用此分類的優惠券數。 */
+    private final Map<String, Integer> categoryRefs = new ConcurrentHashMap<>();
+    /** 屬於任一規則分類的產品 ID → 分類。 */
+    private final Map<String, String> categoryOf = new ConcurrentHashMap<>();
+
+    /**
+     * 以所有優惠券建立計畫。
+     *
+     * @param coupons    所有優惠券 (沒有分類條件的會被略過)
+     * @param categorized 依分類載入產品的函式，只會以新出現的分類呼叫
+     * @return 新計畫
+     */
+    static CouponPlan compile(Collection<Coupon> coupons, Function<Set<String>, Collection<Product>> categorized) {
+        CouponPlan plan = new CouponPlan();
+        Map<String, Coupon> byCode = new HashMap<>();
+        for (Coupon coupon : coupons) {
+            byCode.putIfAbsent(coupon.getCode(), coupon);
+        }
+        plan.updateCoupons(byCode.keySet(), byCode, categorized);
+        return plan;
+    }
+
+    /**
+     * 依優惠券的新內容更新分類引用。新出現的分類先載入其產品再生效；不再被引用的分類移除其產品。
+     *
+     * @param codes       被寫入的優惠券代碼
+     * @param coupons     這些代碼目前的優惠券；找不到的代碼表示已移除
+     * @param categorized 依分類載入產品的函式，只會以新出現的分類呼叫
+     */
+    void updateCoupons(Collection<String> codes, Map<String, Coupon> coupons,
+            Function<Set<String>, Collection<Product>> categorized) {
+        Set<String> added = new HashSet<>();
+        Set<String> released = new HashSet<>();
+        for (String code : codes) {
+            Coupon coupon = coupons.get(code);
+            CouponRule rule = coupon == null ? null : coupon.getRule();
+            Set<String> next = rule == null ? Set.of() : rule.categories();
+            Set<String> previous = next.isEmpty() ? categoriesByCoupon.remove(code) : categoriesByCoupon.put(code, next);
+            if (previous != null) {
+                released.addAll(previous);
+                for (String category : previous) {
+                    categoryRefs.merge(category, -1, Integer::sum);
+                }
+            }
+            for (String category : next) {
+                if (categoryRefs.merge(category, 1, Integer::sum) == 1 && !released.contains(category)) {
+                    added.add(category);
+                }
+            }
+        }
+        added.removeIf(category -> categoryRefs.getOrDefault(category, 0) <= 0);
+        if (!added.isEmpty()) {
+            for (Product product : categorized.apply(added)) {
+                if (product.getCategory() != null && added.contains(product.getCategory())) {
+                    categoryOf.put(product.getId(), product.getCategory());
+                }
+            }
+        }
+        Set<String> unused = new HashSet<>();
+        for (String category : released) {
+            if (categoryRefs.getOrDefault(category, 0) <= 0) {
+                categoryRefs.remove(category);
+                unused.add(category);
+            }
+        }
+        if (!unused.isEmpty()) {
+            categoryOf.values().removeIf(unused::contains);
+        }
+    }
+
+    /**
+     * 以產品的新內容 (分類可能已變更) 更新這些產品的分類。
+     *
+     * @param productIds 被寫入的產品 ID
+     * @param products   這些 ID 目前的產品；找不到的 ID 表示已移除
+     */
+    void updateProducts(Collection<String> productIds, Map<String, Product> products) {
+        for (String productId : productIds) {
+            Product product = products.get(productId);
+            String category = product == null ? null : product.getCategory();
+            if (category != null && categoryRefs.containsKey(category)) {
+                categoryOf.put(productId, category);
+            } else {
+                categoryOf.remove(productId);
+            }
+        }
+    }
+
+    /**
+     * @param productId 產品 ID
+     * @return 產品的分類；產品不屬於任何規則分類時為 null
+     */
+    String categoryOf(String productId) {
+        return categoryOf.get(productId);
+    }
+
+    /**
+     * @return 是否有任何規則型優惠券設定分類條件
+     */
+    boolean hasCategories() {
+        return !categoryRefs.isEmpty();
+    }
+
+    /**
+     * @param rule      限定商品的規則
+     * @param productId 產品 ID
+     * @param category  產品的分類 ({@link #categoryOf(String)})；可為 null
+     * @return 規則是否適用該產品
+     */
+    static boolean appliesTo(CouponRule rule, String productId, String category) {
+        return !rule.scoped() || rule.productIds().contains(productId)
+                || (category != null && rule.categories().contains(category));
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+
+import com.example.demo.exception.CouponRedemptionLimitException;
+import com.example.demo.exception.ReservationNotFoundException;
+import com.example.demo.model.Coupon;
+import com.example.demo.quota.InMemoryQuotaBackend;
+import com.example.demo.quota.QuotaBackend;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 以「預留 → 確認 / 釋放」流程控管優惠券的使用次數上限。
+ * <p>
+ * 結帳時先 {@link #reserve(String, Collection)} 預留每張優惠券的一次使用額度，
+ * 訂單成立後 {@link #commit(String)}，放棄時 {@link #release(String)}；
+ * 預留超過有效時間未確認即自動釋放，不會因為客戶端中斷而永久佔用額度。
+ * 全體上限由多個節點共享的 {@link QuotaBackend} 控管：本節點一次向後端租用一批額度
+ * ({@code leaseSize})，放進 {@link StripedPermits} 分散計數，用完才再向後端租用，
+ * 熱門優惠券在大量並行結帳時既不會集中在單一計數器，也不需要每次都存取後端。
+ * 每位使用者的上限直接由後端計數。任何時刻所有節點已預留加上已確認的次數都不會超過上限。
+ * </p>
+ * <p>
+ * 優惠券被寫入時 ({@link CouponsSavedEvent})，本節點未用完的額度歸還後端，之後依新的上限重新租用；
+ * 上限在沒有上限期間的使用不計入之後設定的上限。節點關閉時 ({@link #returnLeases()}) 歸還所有未用完的額度。
+ * </p>
+ */
+public class CouponRedemptionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponRedemptionService.class);
+
+    /** 預設每次向後端租用的額度數。 */
+    public static final int DEFAULT_LEASE_SIZE = 64;
+
+    /** 後端額度用完後，在此時間內不再詢問後端，額度用完後的大量請求不會全部打到後端。 */
+    private static final long EXHAUSTED_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final CouponRepository couponRepository;
+    private final QuotaBackend quotaBackend;
+    private final Duration reservationTtl;
+    private final int stripes;
+    private final int leaseSize;
+    private final Map<String, CouponLimit> limits = new ConcurrentHashMap<>();
+    private final Cache<String, Reservation> reservations;
+    private final Counter reserved;
+    private final Counter committed;
+    private final Counter released;
+    private final Counter expired;
+    private final Counter rejected;
+    private final Counter leases;
+
+    /**
+     * 建立單一節點使用的服務，額度保存在本程序記憶體中。
+     */
+    public CouponRedemptionService(CouponRepository couponRepository, Duration reservationTtl, int stripes,
+            MeterRegistry registry) {
+        this(couponRepository, new InMemoryQuotaBackend(), reservationTtl, stripes, DEFAULT_LEASE_SIZE, registry);
+    }
+
+    public CouponRedemptionService(CouponRepository couponRepository, QuotaBackend quotaBackend,
+            Duration reservationTtl, int stripes, int leaseSize, MeterRegistry registry) {
+        this.couponRepository = couponRepository;
+        this.quotaBackend = quotaBackend;
+        this.reservationTtl = reservationTtl;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.leaseSize = Math.max(1, leaseSize);
+        this.reserved = outcome(registry, "reserved");
+        this.committed = outcome(registry, "committed");
+        this.released = outcome(registry, "released");
+        this.expired = outcome(registry, "expired");
+        this.rejected = outcome(registry, "rejected");
+        this.leases = Counter.builder("demo.coupon.quota.leases")
+                .description("向共享額度後端租用額度的次數")
+                .register(registry);
+        this.reservations = Caffeine.newBuilder()
+                .expireAfterWrite(reservationTtl)
+                .scheduler(Scheduler.systemScheduler())
+                .<String, Reservation>evictionListener((id, reservation, cause) -> {
+                    if (cause == RemovalCause.EXPIRED && reservation != null) {
+                        releasePermits(reservation);
+                        expired.increment();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 為一位使用者預留多張優惠券各一次的使用額度。
+     * 找不到的優惠券不列入 (與計價規則一致)；同一代碼出現多次時預留多次。
+     * 任一優惠券額度不足時，已預留的額度全部歸還。
+     *
+     * @param userId      使用者 ID；優惠券設有每人上限時必須提供
+     * @param couponCodes 優惠券代碼；可為 null
+     * @return 預留結果，包含預留 ID 與到期時間
+     * @throws CouponRedemptionLimitException 如果任一優惠券已達使用上限。
+     */
+    public Reservation reserve(String userId, Collection<String> couponCodes) {
+        List<Permit> permits = new ArrayList<>();
+        if (couponCodes != null && !couponCodes.isEmpty()) {
+            Map<String, Coupon> coupons = couponRepository.findAllByCode(couponCodes);
+            for (String code : couponCodes) {
+                Coupon coupon = code == null ? null : coupons.get(code);
+                if (coupon == null) {
+                    continue;
+                }
+                CouponLimit limit = limits.computeIfAbsent(code, key -> new CouponLimit(coupon));
+                Permit permit = limit.tryAcquire(userId);
+                if (permit == null) {
+                    permits.forEach(Permit::release);
+                    rejected.increment();
+                    throw new CouponRedemptionLimitException("優惠券 " + code + " 已達使用次數上限");
+                }
+                permits.add(permit);
+            }
+        }
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), userId, List.copyOf(permits),
+                Instant.now().plus(reservationTtl));
+        reservations.put(reservation.id(), reservation);
+        reserved.increment();
+        return reservation;
+    }
+
+    /**
+     * 確認預留，額度從此不再歸還。
+     *
+     * @param reservationId 預留 ID
+     * @throws ReservationNotFoundException 如果預留不存在、已確認、已釋放或已過期。
+     */
+    public void commit(String reservationId) {
+        Reservation reservation = take(reservationId);
+        for (Permit permit : reservation.permits()) {
+            permit.limit.committed.increment();
+        }
+        committed.increment();
+    }
+
+    /**
+     * 釋放預留，歸還所有額度。
+     *
+     * @param reservationId 預留 ID
+     * @throws ReservationNotFoundException 如果預留不存在、已確認、已釋放或已過期。
+     */
+    public void release(String reservationId) {
+        releasePermits(take(reservationId));
+        released.increment();
+    }
+
+    /**
+     * @param couponCode 優惠券代碼
+     * @return 優惠券剩餘可預留的次數 (本節點未用完的租用額度加上後端尚未配發的額度)；
+     *         沒有全體上限或本節點尚未使用過時為 -1
+     */
+    public long remaining(String couponCode) {
+        CouponLimit limit = limits.get(couponCode);
+        Integer maxRedemptions = limit == null ? null : limit.maxRedemptions;
+        if (maxRedemptions == null) {
+            return -1;
+        }
+        return limit.permits.available() + quotaBackend.unallocated(couponCode, maxRedemptions);
+    }
+
+    /**
+     * @param couponCode 優惠券代碼
+     * @return 優惠券在本節點已確認的使用次數
+     */
+    public long committedCount(String couponCode) {
+        CouponLimit limit = limits.get(couponCode);
+        return limit == null ? 0 : limit.committed.sum();
+    }
+
+    @EventListener
+    public void onCouponsSaved(CouponsSavedEvent event) {
+        for (String code : event.couponCodes()) {
+            CouponLimit limit = limits.get(code);
+            if (limit != null) {
+                couponRepository.findByCode(code).ifPresent(limit::adjust);
+            }
+        }
+    }
+
+    /**
+     * 將本節點未用完的租用額度全部歸還後端，於節點關閉時呼叫。
+     * 之後仍有預留時會重新租用。
+     */
+    public void returnLeases() {
+        limits.values().forEach(CouponLimit::returnLease);
+    }
+
+    /**
+     * 以 {@link Map#remove} 取出預留，確認、釋放與過期之中只有一方能取得同一筆預留。
+     */
+    private Reservation take(String reservationId) {
+        Reservation reservation = reservationId == null ? null : reservations.asMap().remove(reservationId);
+        if (reservation == null) {
+            throw new ReservationNotFoundException("找不到預留紀錄或已過期: " + reservationId);
+        }
+        return reservation;
+    }
+
+    private void releasePermits(Reservation reservation) {
+        reservation.permits().forEach(Permit::release);
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("demo.coupon.redemptions")
+                .description("優惠券使用額度的預留與處理結果")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * 一次預留。
+     *
+     * @param id        預留 ID
+     * @param userId    使用者 ID
+     * @param permits   已取得的額度
+     * @param expiresAt 未確認時自動釋放的時間
+     */
+    public record Reservation(String id, String userId, List<Permit> permits, Instant expiresAt) {
+
+        /**
+         * @return 預留的優惠券代碼，依請求順序
+         */
+        public List<String> couponCodes() {
+            return permits.stream().map(permit -> permit.limit.code).toList();
+        }
+    }
+
+    /**
+     * 一張優惠券的一次使用額度，歸還時回到本節點的計數槽，並撤銷後端的使用者計數。
+     */
+    public static final class Permit {
+        private final CouponLimit limit;
+        private final int stripe;
+        private final String userId;
+
+        private Permit(CouponLimit limit, int stripe, String userId) {
+            this.limit = limit;
+            this.stripe = stripe;
+            this.userId = userId;
+        }
+
+        private void release() {
+            if (userId != null) {
+                limit.quotaBackend().releaseUser(limit.code, userId);
+            }
+            if (stripe >= 0) {
+                limit.permits.release(stripe);
+            }
+        }
+    }
+
+    /**
+     * 一張優惠券在本節點的使用計數。{@link #permits} 是向後端租來、尚未使用的額度。
+     */
+    private final class CouponLimit {
+        private final String code;
+        private final StripedPermits permits;
+        private final LongAdder committed = new LongAdder();
+        /** 只讓一個執行緒向後端租用，其他執行緒等待後直接使用新租到的額度。 */
+        private final ReentrantLock leaseLock = new ReentrantLock();
+        private volatile Integer maxRedemptions;
+        private volatile Integer maxRedemptionsPerUser;
+        /** 後端回報額度用完的時間，0 表示尚未用完。 */
+        private volatile long exhaustedAt;
+
+        CouponLimit(Coupon coupon) {
+            this.code = coupon.getCode();
+            this.maxRedemptions = coupon.getMaxRedemptions();
+            this.maxRedemptionsPerUser = coupon.getMaxRedemptionsPerUser();
+            this.permits = new StripedPermits(0, stripes);
+        }
+
+        QuotaBackend quotaBackend() {
+            return quotaBackend;
+        }
+
+        Permit tryAcquire(String userId) {
+            String countedUser = null;
+            Integer perUserLimit = maxRedemptionsPerUser;
+            if (perUserLimit != null) {
+                if (userId == null || userId.isBlank() || !quotaBackend.tryAcquireUser(code, userId, perUserLimit)) {
+                    return null;
+                }
+                countedUser = userId;
+            }
+            int stripe = -1;
+            if (maxRedemptions != null) {
+                stripe = acquireLeased();
+                if (stripe < 0) {
+                    if (countedUser != null) {
+                        quotaBackend.releaseUser(code, countedUser);
+                    }
+                    return null;
+                }
+            }
+            return new Permit(this, stripe, countedUser);
+        }
+
+        private int acquireLeased() {
+            int stripe = permits.tryAcquire();
+            while (stripe < 0) {
+                if (recentlyExhausted()) {
+                    return -1;
+                }
+                leaseLock.lock();
+                try {
+                    // 等待鎖的期間可能已有其他執行緒租到額度
+                    stripe = permits.tryAcquire();
+                    if (stripe >= 0) {
+                        return stripe;
+                    }
+                    if (recentlyExhausted()) {
+                        return -1;
+                    }
+                    Integer limit = maxRedemptions;
+                    long granted = limit == null ? 0 : quotaBackend.lease(code, limit, leaseSize);
+                    leases.increment();
+                    if (granted <= 0) {
+                        exhaustedAt = System.nanoTime() | 1;
+                        return -1;
+                    }
+                    exhaustedAt = 0;
+                    permits.add(granted);
+                } finally {
+                    leaseLock.unlock();
+                }
+                stripe = permits.tryAcquire();
+            }
+            return stripe;
+        }
+
+        private boolean recentlyExhausted() {
+            long exhausted = exhaustedAt;
+            return exhausted != 0 && System.nanoTime() - exhausted < EXHAUSTED_RECHECK_NANOS;
+        }
+
+        void returnLease() {
+            leaseLock.lock();
+            try {
+                quotaBackend.returnLease(code, permits.drain(Long.MAX_VALUE));
+            } finally {
+                leaseLock.unlock();
+            }
+        }
+
+        /**
+         * 套用新的上限：歸還本節點未用完的額度，之後的預留依新的上限向後端重新租用。
+         */
+        void adjust(Coupon coupon) {
+            Integer previous = maxRedemptions;
+            maxRedemptions = coupon.getMaxRedemptions();
+            maxRedemptionsPerUser = coupon.getMaxRedemptionsPerUser();
+            exhaustedAt = 0;
+            returnLease();
+            if (!Objects.equals(previous, maxRedemptions)) {
+                log.info("優惠券 {} 的使用次數上限由 {} 調整為 {}", code, previous, maxRedemptions);
+            }
+        }
+    }
+}
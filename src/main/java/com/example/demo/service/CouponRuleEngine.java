@@ -0,0 +1,248 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponRule;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductsSavedEvent;
+
+/**
+ * 計算規則型優惠券 ({@link CouponRule}) 對購物車的折扣。
+ * <p>
+ * 規則在建立 {@link Coupon} 時解析一次；第一次計價時以所有規則型優惠券建立 {@link CouponPlan}，
+ * 只保存屬於規則分類的產品的分類。之後優惠券被寫入 ({@link CouponsSavedEvent}) 時只更新這些優惠券引用的分類，
+ * 只有新出現的分類才需要載入其產品；產品被寫入 ({@link ProductsSavedEvent}) 時只更新這些產品。
+ * 寫入的成本與被寫入的優惠券或產品數成正比，不會重新掃描所有優惠券與產品。計價時讀取計畫不需要任何鎖。
+ * </p>
+ * <p>
+ * 一次計價只走訪購物車一次：不限商品的百分比與門檻優惠以整車小計計算，不需逐項比對；
+ * 限定商品或買 X 送 Y 的優惠券在每個商品項目上以規則的產品與分類集合判斷是否適用。
+ * 耗時與購物車大小乘以「請求中的規則型優惠券數」成正比，與系統中的優惠券總數無關。
+ * </p>
+ */
+@Component
+public class CouponRuleEngine {
+
+    private final ProductRepository productRepository;
+    private final CouponRepository couponRepository;
+    private final ReentrantLock compileLock = new ReentrantLock();
+    private volatile CouponPlan plan;
+
+    public CouponRuleEngine(ProductRepository productRepository, CouponRepository couponRepository) {
+        this.productRepository = productRepository;
+        this.couponRepository = couponRepository;
+    }
+
+    /**
+     * 計算每張優惠券對購物車的折扣。
+     * <ul>
+     *   <li>沒有規則的優惠券折抵固定金額，與過去相同。</li>
+     *   <li>規則型優惠券未達門檻、沒有適用商品、或在互斥群組中不是折扣最多的一張時，折扣為 0。
+     *       群組中折扣相同時保留代碼最小的一張，結果與優惠券在請求中的順序無關 (計價快取以排序後的代碼為鍵)。</li>
+     *   <li>同一張規則型優惠券重複出現時只計算第一次。</li>
+     * </ul>
+     *
+     * @param items   購物車商品項目；可為 null
+     * @param prices  產品價格查詢函式，找不到時回傳 {@link ProductRepository#NOT_FOUND}
+     * @param coupons 要計算的優惠券
+     * @return 與 {@code coupons} 位置對應的折扣金額
+     */
+    public long[] discounts(List<CartItemInput> items, ToLongFunction<String> prices, List<Coupon> coupons) {
+        return evaluate(items, prices, coupons, true);
+    }
+
+    /**
+     * 計算每張優惠券單獨套用在購物車時的折扣，用於列出可用的優惠券與挑選最佳組合。
+     * 與 {@link #discounts} 不同，互斥群組中的每張優惠券都保留自己的折扣，群組由 {@link CouponOptimizer} 處理。
+     *
+     * @param items   購物車商品項目；可為 null
+     * @param prices  產品價格查詢函式，找不到時回傳 {@link ProductRepository#NOT_FOUND}
+     * @param coupons 要計算的優惠券；同一張規則型優惠券重複出現時只計算第一次
+     * @return 與 {@code coupons} 位置對應的折扣金額
+     */
+    public long[] standaloneDiscounts(List<CartItemInput> items, ToLongFunction<String> prices,
+            List<Coupon> coupons) {
+        return evaluate(items, prices, coupons, false);
+    }
+
+    private long[] evaluate(List<CartItemInput> items, ToLongFunction<String> prices, List<Coupon> coupons,
+            boolean resolveGroups) {
+        int count = coupons.size();
+        long[] discounts = new long[count];
+        CouponRule[] rules = null;
+        int[] perLine = null;
+        int perLineCount = 0;
+        CouponPlan current = plan();
+        Set<String> seen = null;
+        for (int j = 0; j < count; j++) {
+            Coupon coupon = coupons.get(j);
+            CouponRule rule = coupon.getRule();
+            if (rule == null) {
+                discounts[j] = coupon.getDiscountAmount();
+                continue;
+            }
+            if (rules == null) {
+                rules = new CouponRule[count];
+                perLine = new int[count];
+                seen = new HashSet<>();
+            }
+            if (!seen.add(coupon.getCode())) {
+                continue;
+            }
+            rules[j] = rule;
+            if (rule.scoped() || rule.buyXGetY()) {
+                perLine[perLineCount++] = j;
+            }
+        }
+        if (rules == null) {
+            return discounts;
+        }
+
+        long[] eligibleSubtotals = new long[count];
+        long[] freeValues = new long[count];
+        long cartSubtotal = 0L;
+        if (items != null) {
+            for (int i = 0, size = items.size(); i < size; i++) {
+                CartItemInput item = items.get(i);
+                long price = prices.applyAsLong(item.productId());
+                if (price == ProductRepository.NOT_FOUND) {
+                    continue;
+                }
+                // 呼叫端已以 Math.*Exact 計算過原始總價，這裡的乘加不會溢位
+                long lineTotal = price * item.quantity();
+                cartSubtotal += lineTotal;
+                if (perLineCount == 0) {
+                    continue;
+                }
+                String category = current.categoryOf(item.productId());
+                for (int k = 0; k < perLineCount; k++) {
+                    int j = perLine[k];
+                    CouponRule rule = rules[j];
+                    if (CouponPlan.appliesTo(rule, item.productId(), category)) {
+                        eligibleSubtotals[j] += lineTotal;
+                        if (rule.buyXGetY()) {
+                            int bundle = rule.buyQuantity() + rule.freeQuantity();
+                            freeValues[j] += (long) (item.quantity() / bundle) * rule.freeQuantity() * price;
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<String, Integer> bestInGroup = null;
+        for (int j = 0; j < count; j++) {
+            CouponRule rule = rules[j];
+            if (rule == null) {
+                continue;
+            }
+            long subtotal = rule.scoped() ? eligibleSubtotals[j] : cartSubtotal;
+            discounts[j] = discount(coupons.get(j), rule, subtotal, freeValues[j]);
+            if (resolveGroups && rule.exclusiveGroup() != null && discounts[j] > 0) {
+                if (bestInGroup == null) {
+                    bestInGroup = new HashMap<>();
+                }
+                Integer best = bestInGroup.get(rule.exclusiveGroup());
+                if (best == null || discounts[j] > discounts[best] || (discounts[j] == discounts[best]
+                        && coupons.get(j).getCode().compareTo(coupons.get(best).getCode()) < 0)) {
+                    if (best != null) {
+                        discounts[best] = 0L;
+                    }
+                    bestInGroup.put(rule.exclusiveGroup(), j);
+                } else {
+                    discounts[j] = 0L;
+                }
+            }
+        }
+        return discounts;
+    }
+
+    private static long discount(Coupon coupon, CouponRule rule, long subtotal, long freeValue) {
+        if (subtotal <= 0 || subtotal < rule.minSpend()) {
+            return 0L;
+        }
+        long amount;
+        if (rule.buyXGetY()) {
+            amount = freeValue;
+        } else if (rule.percentOff() != null) {
+            // 先除後乘，避免大金額乘以百分比時溢位
+            long percent = rule.percentOff();
+            amount = subtotal / 100 * percent + subtotal % 100 * percent / 100;
+        } else {
+            amount = coupon.getDiscountAmount();
+            if (rule.scoped()) {
+                amount = Math.min(amount, subtotal);
+            }
+        }
+        if (rule.maxDiscount() != null) {
+            amount = Math.min(amount, rule.maxDiscount());
+        }
+        return amount;
+    }
+
+    @EventListener
+    public void onCouponsSaved(CouponsSavedEvent event) {
+        compileLock.lock();
+        try {
+            CouponPlan current = plan;
+            if (current != null) {
+                current.updateCoupons(event.couponCodes(), couponRepository.findAllByCode(event.couponCodes()),
+                        this::productsInCategories);
+            }
+        } finally {
+            compileLock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onProductsSaved(ProductsSavedEvent event) {
+        compileLock.lock();
+        try {
+            CouponPlan current = plan;
+            if (current != null && current.hasCategories()) {
+                current.updateProducts(event.productIds(), productRepository.findAllById(event.productIds()));
+            }
+        } finally {
+            compileLock.unlock();
+        }
+    }
+
+    private CouponPlan plan() {
+        CouponPlan current = plan;
+        if (current != null) {
+            return current;
+        }
+        compileLock.lock();
+        try {
+            if (plan == null) {
+                plan = CouponPlan.compile(couponRepository.findAll(), this::productsInCategories);
+            }
+            return plan;
+        } finally {
+            compileLock.unlock();
+        }
+    }
+
+    /**
+     * 載入屬於指定分類的產品；只在規則第一次引用某個分類時呼叫。
+     */
+    private Collection<Product> productsInCategories(Set<String> categories) {
+        return productRepository.findAll().stream()
+                .filter(product -> product.getCategory() != null && categories.contains(product.getCategory()))
+                .toList();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.service;
+
+import java.util.Locale;
+
+/**
+ * 計價時選擇優惠券的方式。
+ */
+public enum CouponSelectionMode {
+    /** 依請求順序逐一疊加所選優惠券，總折扣超過原始總價時拒絕 (預設)。 */
+    STACK,
+    /** 從所選優惠券中挑出總折扣最大、且不超過原始總價的組合。 */
+    BEST,
+    /** 從可能適用於購物車的優惠券 (由反向索引取得) 中挑出總折扣最大、且不超過原始總價的組合。 */
+    BEST_ALL;
+
+    /**
+     * 解析請求參數，例如 {@code stack}、{@code best}、{@code best-all}。
+     *
+     * @param value 參數值；null 或空白時為 {@link #STACK}
+     * @return 對應的模式
+     * @throws IllegalArgumentException 如果參數值無法辨識
+     */
+    public static CouponSelectionMode fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return STACK;
+        }
+        return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.example.demo.exception.CatalogImportException;
+
+/**
+ * 將以行為單位的文字檔 (CSV、NDJSON) 切成多個區塊，在多個執行緒上平行解析。
+ * <p>
+ * 區塊邊界由呼叫端執行緒先找好：從每個名目邊界往後找到下一個換行，因此每個區塊只包含完整的行。
+ * 各區塊以記憶體映射唯讀讀取，不需先把整個檔案讀進堆積；解析結果依檔案順序合併，
+ * 重複的鍵值仍以檔案中後出現者為準。不支援跨行的欄位 (例如 CSV 引號內的換行)。
+ * </p>
+ */
+final class ParallelLineReader {
+
+    /**
+     * 解析一行。
+     *
+     * @param <T> 解析結果的型別
+     */
+    @FunctionalInterface
+    interface LineParser<T> {
+
+        /**
+         * @param line   去掉換行字元的一行，不會是空白行
+         * @param offset 此行在檔案中的起始位元組位置，檔案開頭為 0
+         * @return 解析結果；null 表示略過此行 (例如 CSV 標題列)
+         */
+        T parse(String line, long offset);
+    }
+
+    private static final int BOUNDARY_SCAN_BUFFER = 8192;
+
+    private ParallelLineReader() {
+    }
+
+    /**
+     * 平行解析整個檔案。
+     *
+     * @param file        輸入檔案 (UTF-8)
+     * @param chunkSize   每個區塊的名目大小 (位元組)
+     * @param parallelism 同時解析的執行緒數
+     * @param parser      每行的解析函式，會從多個執行緒同時呼叫
+     * @return 依檔案順序排列的解析結果
+     * @throws CatalogImportException 如果有任何一行無法解析
+     * @throws IOException            讀取檔案失敗時
+     */
+    static <T> List<T> read(Path file, long chunkSize, int parallelism, LineParser<T> parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = chunks(channel, chunkSize);
+            if (chunks.size() <= 1 || parallelism <= 1) {
+                List<T> rows = new ArrayList<>();
+                for (long[] chunk : chunks) {
+                    rows.addAll(parseChunk(channel, chunk[0], chunk[1], parser));
+                }
+                return rows;
+            }
+            List<Future<List<T>>> parsed = new ArrayList<>(chunks.size());
+            // 解析是 CPU 密集的工作，使用與平行度相同數量的平台執行緒
+            try (ExecutorService workers = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()))) {
+                for (long[] chunk : chunks) {
+                    parsed.add(workers.submit(() -> parseChunk(channel, chunk[0], chunk[1], parser)));
+                }
+                int total = 0;
+                List<List<T>> results = new ArrayList<>(parsed.size());
+                for (Future<List<T>> future : parsed) {
+                    List<T> result = await(future, parsed);
+                    total += result.size();
+                    results.add(result);
+                }
+                List<T> rows = new ArrayList<>(total);
+                results.forEach(rows::addAll);
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * @return 每個區塊的 {起始位置, 結束位置 (不含)}，結束位置都在換行之後或檔案結尾
+     */
+    private static List<long[]> chunks(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new CatalogImportException("位移 " + start + " 起的資料列過長，無法切分區塊");
+            }
+            chunks.add(new long[] { start, end });
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return {@code position} 或之後第一個行首位置；找不到換行時為檔案大小
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_BUFFER);
+        // position 本身是行首時，前一個位元組是換行
+        long scan = position - 1;
+        while (scan < size) {
+            buffer.clear();
+            int read = channel.read(buffer, scan);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return scan + i + 1;
+                }
+            }
+            scan += read;
+        }
+        return size;
+    }
+
+    private static <T> List<T> parseChunk(FileChannel channel, long start, long end, LineParser<T> parser)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        List<T> rows = new ArrayList<>();
+        byte[] line = new byte[256];
+        int length = 0;
+        long lineOffset = start;
+        int limit = buffer.limit();
+        for (int i = 0; i <= limit; i++) {
+            byte b = i < limit ? buffer.get(i) : (byte) '\n';
+            if (b != '\n') {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+                continue;
+            }
+            if (i == limit && length == 0) {
+                break;
+            }
+            int from = lineOffset == 0 && hasUtf8Bom(line, length) ? 3 : 0;
+            int to = length > from && line[length - 1] == '\r' ? length - 1 : length;
+            String text = new String(line, from, to - from, StandardCharsets.UTF_8);
+            if (!text.isBlank()) {
+                T row = parseLine(parser, text, lineOffset);
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+            length = 0;
+            lineOffset = start + i + 1;
+        }
+        return rows;
+    }
+
+    private static <T> T parseLine(LineParser<T> parser, String line, long offset) {
+        try {
+            return parser.parse(line, offset);
+        } catch (CatalogImportException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new CatalogImportException("位移 " + offset + " 的資料列無法解析: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static boolean hasUtf8Bom(byte[] line, int length) {
+        return length >= 3 && line[0] == (byte) 0xef && line[1] == (byte) 0xbb && line[2] == (byte) 0xbf;
+    }
+
+    private static <T> List<T> await(Future<List<T>> future, List<Future<List<T>>> all) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            all.forEach(other -> other.cancel(true));
+            throw new CatalogImportException("匯入被中斷", ex);
+        } catch (ExecutionException ex) {
+            // 任何一個區塊失敗就不必等其他區塊解析完
+            all.forEach(other -> other.cancel(true));
+            Throwable cause = ex.getCause();
+            if (cause instanceof CatalogImportException importException) {
+                throw importException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new CatalogImportException("匯入失敗: " + cause.getMessage(), cause);
+        }
+    }
+}
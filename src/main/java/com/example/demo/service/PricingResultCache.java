@@ -0,0 +1,231 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.context.event.EventListener;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.model.Coupon;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.example.demo.repository.ProductsSavedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 單一購物車計價結果的快取，以正規化後的購物車內容 ({@link CartPricingKey}) 為鍵。
+ * <p>
+ * 結帳頁每次調整數量或勾選優惠券都會重新計價，同樣的購物車內容會反覆出現。
+ * 快取以粗估的記憶體用量為權重、W-TinyLFU 淘汰並設有存活時間；
+ * 命中率以 {@code cache.*{cache=pricing}} 指標公開，粗估記憶體用量為 {@code demo.pricing.cache.estimated.bytes}。
+ * </p>
+ * <p>
+ * 失效是精確的：快取另外維護「產品 ID / 優惠券代碼 → 引用它的鍵」的反向索引，
+ * 收到 {@link ProductsSavedEvent} 或 {@link CouponsSavedEvent} 時只移除引用到被寫入資料的結果
+ * (包含計價當時還不存在的產品與優惠券)。計價在快取鎖外進行，
+ * 以寫入世代避免在計價期間發生的寫入之後存入過期結果。
+ * </p>
+ * <p>
+ * 未命中時以正規化後的購物車計價，命中時再依請求中的優惠券順序排列已套用的優惠券，
+ * 因此回應與不使用快取時相同。計價失敗 (例如折扣超額) 不會被快取。
+ * </p>
+ */
+public class PricingResultCache {
+
+    private static final int RESULT_BASE_BYTES = 96;
+    private static final int INDEX_ENTRY_BYTES = 48;
+
+    private final Cache<CartPricingKey, CalculationResultDto> cache;
+    private final Map<String, Set<CartPricingKey>> keysByProductId = new ConcurrentHashMap<>();
+    private final Map<String, Set<CartPricingKey>> keysByCouponCode = new ConcurrentHashMap<>();
+    private final AtomicLong writeGeneration = new AtomicLong();
+
+    /**
+     * @param maximumBytes 快取鍵、結果與反向索引粗估佔用記憶體的上限
+     * @param ttl          結果寫入後的存活時間
+     * @param registry     公開命中率與記憶體用量的 registry
+     */
+    public PricingResultCache(long maximumBytes, Duration ttl, MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((CartPricingKey key, CalculationResultDto result) -> weigh(key, result))
+                .expireAfterWrite(ttl)
+                // evictionListener 與淘汰在同一個原子操作內執行，不會和同一個鍵的重新寫入交錯
+                .evictionListener((CartPricingKey key, CalculationResultDto result, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "pricing");
+        Gauge.builder("demo.pricing.cache.estimated.bytes", this, PricingResultCache::estimatedBytes)
+                .description("計價結果快取粗估佔用的記憶體")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private PricingResultCache() {
+        this.cache = null;
+    }
+
+    /**
+     * @return 不做任何快取、直接計價的實例
+     */
+    public static PricingResultCache disabled() {
+        return new PricingResultCache();
+    }
+
+    /**
+     * 取得購物車的計價結果，未命中時以 {@code pricer} 計價並存入快取。
+     *
+     * @param input  購物車輸入
+     * @param pricer 實際計價的函式
+     * @return 計價結果
+     */
+    public CalculationResultDto get(ShoppingCartInput input, Function<ShoppingCartInput, CalculationResultDto> pricer) {
+        if (cache == null) {
+            return pricer.apply(input);
+        }
+        CartPricingKey key = CartPricingKey.of(input);
+        if (key == null) {
+            return pricer.apply(input);
+        }
+        CalculationResultDto result = cache.getIfPresent(key);
+        if (result == null) {
+            long generation = writeGeneration.get();
+            result = pricer.apply(key.toCartInput());
+            store(key, result, generation);
+        }
+        return inRequestOrder(result, input.couponCodes());
+    }
+
+    @EventListener
+    public void onProductsSaved(ProductsSavedEvent event) {
+        invalidate(event.productIds(), keysByProductId);
+    }
+
+    @EventListener
+    public void onCouponsSaved(CouponsSavedEvent event) {
+        invalidate(event.couponCodes(), keysByCouponCode);
+    }
+
+    /**
+     * @return 快取中的結果數；停用時為 0
+     */
+    public long size() {
+        return cache == null ? 0 : cache.estimatedSize();
+    }
+
+    private void store(CartPricingKey key, CalculationResultDto result, long generation) {
+        cache.asMap().compute(key, (k, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            // 先登記反向索引再檢查世代：與 invalidate 的「先遞增世代再讀索引」配對，
+            // 兩者之一必定看得到對方的寫入，過期結果不會留在快取中
+            index(k);
+            if (writeGeneration.get() != generation) {
+                unindex(k);
+                return null;
+            }
+            return result;
+        });
+    }
+
+    private void invalidate(Collection<String> ids, Map<String, Set<CartPricingKey>> keysById) {
+        if (cache == null) {
+            return;
+        }
+        writeGeneration.incrementAndGet();
+        for (String id : ids) {
+            Set<CartPricingKey> keys = keysById.get(id);
+            if (keys == null) {
+                continue;
+            }
+            for (CartPricingKey key : List.copyOf(keys)) {
+                cache.asMap().computeIfPresent(key, (k, result) -> {
+                    unindex(k);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private void index(CartPricingKey key) {
+        for (String productId : key.productIds()) {
+            addKey(keysByProductId, productId, key);
+        }
+        for (String couponCode : key.couponCodes()) {
+            addKey(keysByCouponCode, couponCode, key);
+        }
+    }
+
+    private void unindex(CartPricingKey key) {
+        for (String productId : key.productIds()) {
+            removeKey(keysByProductId, productId, key);
+        }
+        for (String couponCode : key.couponCodes()) {
+            removeKey(keysByCouponCode, couponCode, key);
+        }
+    }
+
+    private static void addKey(Map<String, Set<CartPricingKey>> keysById, String id, CartPricingKey key) {
+        keysById.compute(id, (k, keys) -> {
+            Set<CartPricingKey> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            result.add(key);
+            return result;
+        });
+    }
+
+    private static void removeKey(Map<String, Set<CartPricingKey>> keysById, String id, CartPricingKey key) {
+        keysById.computeIfPresent(id, (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static int weigh(CartPricingKey key, CalculationResultDto result) {
+        // 已套用的優惠券是儲存中既有的物件，只計算參照本身
+        return key.estimatedBytes() + RESULT_BASE_BYTES + 8 * result.appliedCoupons().size()
+                + INDEX_ENTRY_BYTES * (key.productIds().length + key.couponCodes().length);
+    }
+
+    private double estimatedBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * 依請求中的優惠券順序排列已套用的優惠券，與不使用快取時的計價結果一致。
+     */
+    private static CalculationResultDto inRequestOrder(CalculationResultDto result, List<String> couponCodes) {
+        List<Coupon> applied = result.appliedCoupons();
+        if (applied.size() < 2) {
+            return result;
+        }
+        List<Coupon> remaining = new ArrayList<>(applied);
+        List<Coupon> ordered = new ArrayList<>(applied.size());
+        for (String code : couponCodes) {
+            for (int i = 0; i < remaining.size(); i++) {
+                if (remaining.get(i).getCode().equals(code)) {
+                    ordered.add(remaining.remove(i));
+                    break;
+                }
+            }
+        }
+        return ordered.equals(applied) ? result
+                : new CalculationResultDto(result.originalTotal(), result.discountedTotal(),
+                        result.totalDiscountAmount(), ordered);
+    }
+}
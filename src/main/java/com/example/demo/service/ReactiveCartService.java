@@ -0,0 +1,97 @@
+package com.example.demo.service;
+
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.BatchCalculationResultDto;
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.repository.ReactiveCouponRepository;
+import com.example.demo.repository.ReactiveProductRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 購物車計價的反應式版本。
+ * <p>
+ * 產品與優惠券透過反應式儲存庫以非阻塞方式預先取得，實際計價交給
+ * {@link CartService} 的同一套計價核心，因此與 MVC API 的結果完全一致。
+ * </p>
+ */
+@Service
+public class ReactiveCartService {
+
+    /** 批次輸入每次預先查詢與計價的購物車數，限制同時在記憶體中的購物車數量。 */
+    static final int BATCH_CHUNK_SIZE = 512;
+
+    private final CartService cartService;
+    private final ReactiveProductRepository productRepository;
+    private final ReactiveCouponRepository couponRepository;
+
+    public ReactiveCartService(CartService cartService, ReactiveProductRepository productRepository,
+            ReactiveCouponRepository couponRepository) {
+        this.cartService = cartService;
+        this.productRepository = productRepository;
+        this.couponRepository = couponRepository;
+    }
+
+    /**
+     * 計算單一購物車的價格。
+     *
+     * @param cartInput 購物車輸入
+     * @return 計算結果；規則違反時以 {@link com.example.demo.exception.TotalDiscountExceededException} 等錯誤結束
+     */
+    public Mono<CalculationResultDto> calculateCartPrice(ShoppingCartInput cartInput) {
+        CartLookupKeys keys = CartLookupKeys.of(cartInput);
+        return Mono.zip(productRepository.findAllById(keys.productIds()), couponRepository.findAllByCode(keys.couponCodes()))
+                .map(lookups -> cartService.calculateCartPrice(cartInput, lookups.getT1(), lookups.getT2()));
+    }
+
+    /**
+     * 以指定的優惠券選擇方式計算單一購物車的價格 (見 {@link CartService#calculateCartPrice(ShoppingCartInput, CouponSelectionMode)})。
+     * <p>
+     * {@link CouponSelectionMode#STACK} 與 {@link #calculateCartPrice(ShoppingCartInput)} 相同。
+     * 最佳組合模式的候選優惠券在計價途中才決定 ({@code best-all} 由反向索引取得)，無法預先以反應式儲存庫查詢，
+     * 因此整段計價移出事件迴圈：儲存可能阻塞時在 {@link Schedulers#boundedElastic()}，否則在 {@link Schedulers#parallel()} 上執行。
+     * </p>
+     *
+     * @param cartInput 購物車輸入
+     * @param mode      優惠券選擇方式
+     * @return 計算結果；{@code STACK} 模式下規則違反時以 {@link com.example.demo.exception.TotalDiscountExceededException} 等錯誤結束
+     */
+    public Mono<CalculationResultDto> calculateCartPrice(ShoppingCartInput cartInput, CouponSelectionMode mode) {
+        if (mode == CouponSelectionMode.STACK) {
+            return calculateCartPrice(cartInput);
+        }
+        boolean blocking = productRepository.isBlocking() || couponRepository.isBlocking();
+        return Mono.fromCallable(() -> cartService.calculateCartPrice(cartInput, mode))
+                .subscribeOn(blocking ? Schedulers.boundedElastic() : Schedulers.parallel());
+    }
+
+    /**
+     * 批次計價串流輸入的購物車。輸入以固定大小的區塊處理，
+     * 每個區塊的產品與優惠券只查詢一次，結果依輸入順序輸出，{@code index} 為全域序號。
+     *
+     * @param cartInputs 購物車串流
+     * @return 每個購物車一筆的結果串流
+     */
+    public Flux<BatchCalculationResultDto> calculateCartPrices(Flux<ShoppingCartInput> cartInputs) {
+        return cartInputs
+                .buffer(BATCH_CHUNK_SIZE)
+                .index()
+                .concatMap(chunk -> priceChunk(chunk.getT1() * BATCH_CHUNK_SIZE, chunk.getT2()));
+    }
+
+    private Flux<BatchCalculationResultDto> priceChunk(long offset, List<ShoppingCartInput> chunk) {
+        CartLookupKeys keys = CartLookupKeys.of(chunk);
+        return Mono.zip(productRepository.findAllById(keys.productIds()), couponRepository.findAllByCode(keys.couponCodes()))
+                // 區塊計價是純 CPU 工作，移出事件迴圈
+                .publishOn(Schedulers.parallel())
+                .map(lookups -> cartService.calculateCartPrices(chunk, lookups.getT1(), lookups.getT2()))
+                .flatMapIterable(results -> results)
+                .map(result -> new BatchCalculationResultDto(offset + result.index(), result.result(), result.error()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分散在多個計數槽上的許可數，用於限制優惠券的總使用次數。
+ * <p>
+ * 總許可數平均分配到各槽，每個執行緒優先從自己的槽以 CAS 扣減，槽用完才依序嘗試其他槽，
+ * 熱門優惠券在多核心下不會全部擠在同一個計數器上。每個許可都是對正數計數的一次扣減，
+ * 因此任何時刻已發出的許可總數都不會超過上限。各槽之間以填充隔開，避免偽共享。
+ * </p>
+ * <p>
+ * 接近用完時，一個執行緒可能在其他執行緒歸還許可的同時掃過所有槽而取得失敗；
+ * 這只會讓少數請求提早看到「已達上限」，不會造成超發。
+ * </p>
+ */
+final class StripedPermits {
+
+    /** 每個槽佔用的 long 數 (128 bytes)，涵蓋常見的快取行與相鄰行預取。 */
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    StripedPermits(long permits, int stripes) {
+        int count = Integer.highestOneBit(Math.max(1, stripes));
+        this.slots = new AtomicLongArray(count * PADDING);
+        this.mask = count - 1;
+        long base = permits / count;
+        long extra = permits % count;
+        for (int i = 0; i < count; i++) {
+            slots.set(i * PADDING, base + (i < extra ? 1 : 0));
+        }
+    }
+
+    /**
+     * 嘗試取得一個許可。
+     *
+     * @return 取得許可的槽位置 (歸還時使用)；沒有剩餘許可時為 -1
+     */
+    int tryAcquire() {
+        int home = homeStripe();
+        // 掃兩輪，降低與歸還交錯時誤判用完的機會
+        for (int attempt = 0; attempt <= 2 * mask + 1; attempt++) {
+            int stripe = (home + attempt) & mask;
+            int slot = stripe * PADDING;
+            long available = slots.get(slot);
+            while (available > 0) {
+                long witness = slots.compareAndExchange(slot, available, available - 1);
+                if (witness == available) {
+                    return stripe;
+                }
+                available = witness;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 歸還一個許可。
+     *
+     * @param stripe {@link #tryAcquire()} 回傳的槽位置
+     */
+    void release(int stripe) {
+        slots.incrementAndGet((stripe & mask) * PADDING);
+    }
+
+    /**
+     * 增加許可 (例如上限提高時)。
+     */
+    void add(long permits) {
+        slots.addAndGet(homeStripe() * PADDING, permits);
+    }
+
+    /**
+     * 盡量移除指定數量的許可 (例如上限降低時)。
+     *
+     * @return 實際移除的數量；剩餘許可不足時小於 {@code permits}
+     */
+    long drain(long permits) {
+        long drained = 0;
+        for (int stripe = 0; stripe <= mask && drained < permits; stripe++) {
+            int slot = stripe * PADDING;
+            long available = slots.get(slot);
+            while (available > 0 && drained < permits) {
+                long take = Math.min(available, permits - drained);
+                long witness = slots.compareAndExchange(slot, available, available - take);
+                if (witness == available) {
+                    drained += take;
+                    available -= take;
+                } else {
+                    available = witness;
+                }
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * @return 目前剩餘的許可數 (並行變更時為近似值)
+     */
+    long available() {
+        long sum = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            sum += slots.get(stripe * PADDING);
+        }
+        return sum;
+    }
+
+    private int homeStripe() {
+        long id = Thread.currentThread().threadId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash >>> 16) & mask;
+    }
+}
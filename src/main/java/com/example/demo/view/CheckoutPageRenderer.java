@@ -0,0 +1,313 @@
+package com.example.demo.view;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.model.CartItem;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductsSavedEvent;
+import com.example.demo.service.CartService;
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+/**
+ * 以預先渲染的片段組出購物車頁面 ({@code GET /cart})。
+ * <p>
+ * {@code checkout.mustache} 中除了購物車商品列 ({@code {{{cartItems}}}}) 以外的部分
+ * (版面、樣式、腳本與優惠券清單) 只在第一次請求或產品、優惠券寫入後渲染一次，
+ * 並以購物車商品列為界切成前後兩段位元組快取，同時保存以 DEFLATE 預先壓縮的版本。
+ * 每次請求只渲染 {@code checkout-cart-items.mustache} 的購物車商品列，再與快取的片段串接；
+ * gzip 回應中動態的部分以不壓縮的 stored block 插入兩段預先壓縮的資料之間，請求執行緒上不需執行壓縮。
+ * </p>
+ * <p>
+ * 回應的 ETag 由快取片段與購物車商品列的 CRC32 組成，內容不變時瀏覽器以 {@code If-None-Match} 取得 304。
+ * </p>
+ */
+@Component
+public class CheckoutPageRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutPageRenderer.class);
+
+    /** 頁面列出的優惠券數量上限，與 {@code /cart/coupons/applicable} 的預設值相同。 */
+    static final int APPLICABLE_COUPON_LIMIT = 20;
+
+    // 定義一組預設的購物車項目 (商品ID與數量)
+    private static final List<CartItemInput> INITIAL_CART_ITEMS = List.of(
+        new CartItemInput("P001", 1), // 假設商品 P001 一件
+        new CartItemInput("P002", 2)  // 假設商品 P002 兩件
+    );
+
+    /** 渲染版面時放在購物車商品列位置的標記，用來切開前後兩段；不會出現在正常內容中。 */
+    private static final String CART_ITEMS_MARKER = "\u0000cart-items\u0000";
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    private static final int MAX_STORED_BLOCK = 0xffff;
+
+    private final CartService cartService;
+    private final ProductRepository productRepository;
+    private final Mustache.Compiler compiler;
+    private final ReentrantLock renderLock = new ReentrantLock();
+    /** 每次失效時遞增；渲染期間發生失效時，渲染結果不寫入快取。 */
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Template layoutTemplate;
+    private volatile Template cartItemsTemplate;
+    private volatile Fragments fragments;
+
+    public CheckoutPageRenderer(CartService cartService, ProductRepository productRepository,
+            Mustache.Compiler compiler) {
+        this.cartService = cartService;
+        this.productRepository = productRepository;
+        this.compiler = compiler;
+    }
+
+    /**
+     * 組出購物車頁面。
+     *
+     * @param gzip 是否回傳 gzip 壓縮後的內容
+     * @return 頁面內容與 ETag
+     */
+    public Page render(boolean gzip) {
+        Fragments current = fragments();
+        Map<String, Object> context = Map.of("initialFixedCartItemsForDisplay", initialCartItems());
+        byte[] cartItems = cartItemsTemplate().execute(context).getBytes(StandardCharsets.UTF_8);
+        CRC32 cartCrc = new CRC32();
+        cartCrc.update(cartItems);
+        String etag = "\"" + Long.toHexString(current.crc()) + "-" + Long.toHexString(cartCrc.getValue())
+                + (gzip ? "-gzip" : "") + "\"";
+        return new Page(etag, gzip, current, cartItems);
+    }
+
+    /**
+     * 準備一組固定的初始購物車項目用於前端顯示。
+     * <p>
+     * 這組項目是硬編碼的，主要用於演示或提供一個預設的購物車狀態；每次請求重新查詢產品。
+     * </p>
+     * @return 包含初始商品的 {@link CartItem} 列表。
+     */
+    private List<CartItem> initialCartItems() {
+        List<CartItem> displayItems = new ArrayList<>();
+        for (CartItemInput input : INITIAL_CART_ITEMS) {
+            productRepository.findById(input.productId()).ifPresent(product -> {
+                displayItems.add(new CartItem(product, input.quantity()));
+            });
+        }
+        log.debug("準備了 {} 個初始購物車項目用於顯示。", displayItems.size());
+        return displayItems;
+    }
+
+    @EventListener
+    public void onProductsSaved(ProductsSavedEvent event) {
+        invalidate();
+    }
+
+    @EventListener
+    public void onCouponsSaved(CouponsSavedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        fragments = null;
+    }
+
+    private Fragments fragments() {
+        Fragments current = fragments;
+        if (current != null) {
+            return current;
+        }
+        renderLock.lock();
+        try {
+            current = fragments;
+            if (current != null) {
+                return current;
+            }
+            long renderedGeneration = generation.get();
+            current = renderFragments();
+            if (generation.get() == renderedGeneration) {
+                fragments = current;
+            }
+            return current;
+        } finally {
+            renderLock.unlock();
+        }
+    }
+
+    private Fragments renderFragments() {
+        Map<String, Object> context = Map.of(
+                "allCoupons", cartService.findApplicableCoupons(
+                        new ShoppingCartInput(INITIAL_CART_ITEMS, List.of()), APPLICABLE_COUPON_LIMIT),
+                "cartItems", CART_ITEMS_MARKER);
+        String html = layoutTemplate().execute(context);
+        int marker = html.indexOf(CART_ITEMS_MARKER);
+        byte[] prefix = html.substring(0, marker).getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = html.substring(marker + CART_ITEMS_MARKER.length()).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(prefix);
+        crc.update(suffix);
+        log.info("已重新渲染購物車頁面片段 ({} + {} bytes)。", prefix.length, suffix.length);
+        return new Fragments(prefix, suffix, deflate(prefix, false), deflate(suffix, true), crc.getValue());
+    }
+
+    private Template layoutTemplate() {
+        Template template = layoutTemplate;
+        if (template == null) {
+            template = compiler.loadTemplate("checkout");
+            layoutTemplate = template;
+        }
+        return template;
+    }
+
+    private Template cartItemsTemplate() {
+        Template template = cartItemsTemplate;
+        if (template == null) {
+            template = compiler.loadTemplate("checkout-cart-items");
+            cartItemsTemplate = template;
+        }
+        return template;
+    }
+
+    /**
+     * 以 raw DEFLATE 壓縮一段內容。非結尾的片段以 {@link Deflater#SYNC_FLUSH} 結束在位元組邊界，
+     * 其後可以直接接上另一段 DEFLATE block。
+     */
+    private static byte[] deflate(byte[] input, boolean last) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int written;
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 快取的頁面片段。
+     *
+     * @param prefix        購物車商品列之前的內容
+     * @param suffix        購物車商品列之後的內容
+     * @param deflatedPrefix {@code prefix} 的 raw DEFLATE，以 sync flush 結束
+     * @param deflatedSuffix {@code suffix} 的 raw DEFLATE，包含最後一個 block
+     * @param crc           {@code prefix} 與 {@code suffix} 的 CRC32，用於 ETag
+     */
+    private record Fragments(byte[] prefix, byte[] suffix, byte[] deflatedPrefix, byte[] deflatedSuffix, long crc) {
+    }
+
+    /**
+     * 組好的購物車頁面。
+     */
+    public static final class Page {
+
+        private final String etag;
+        private final boolean gzip;
+        private final Fragments fragments;
+        private final byte[] cartItems;
+
+        private Page(String etag, boolean gzip, Fragments fragments, byte[] cartItems) {
+            this.etag = etag;
+            this.gzip = gzip;
+            this.fragments = fragments;
+            this.cartItems = cartItems;
+        }
+
+        /**
+         * @return 強 ETag (含引號)；gzip 與未壓縮的內容不同
+         */
+        public String etag() {
+            return etag;
+        }
+
+        /**
+         * @return 內容是否以 gzip 壓縮
+         */
+        public boolean gzip() {
+            return gzip;
+        }
+
+        /**
+         * @return 回應內容
+         */
+        public byte[] body() {
+            return gzip ? gzipBody() : plainBody();
+        }
+
+        private byte[] plainBody() {
+            byte[] prefix = fragments.prefix();
+            byte[] suffix = fragments.suffix();
+            byte[] body = new byte[prefix.length + cartItems.length + suffix.length];
+            System.arraycopy(prefix, 0, body, 0, prefix.length);
+            System.arraycopy(cartItems, 0, body, prefix.length, cartItems.length);
+            System.arraycopy(suffix, 0, body, prefix.length + cartItems.length, suffix.length);
+            return body;
+        }
+
+        /**
+         * gzip 成員：標頭、預先壓縮的前段、以 stored block 插入的購物車商品列、預先壓縮的後段，
+         * 最後是整份未壓縮內容的 CRC32 與長度。
+         */
+        private byte[] gzipBody() {
+            byte[] prefix = fragments.deflatedPrefix();
+            byte[] suffix = fragments.deflatedSuffix();
+            int storedBlocks = Math.max(1, (cartItems.length + MAX_STORED_BLOCK - 1) / MAX_STORED_BLOCK);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(GZIP_HEADER.length + prefix.length
+                    + storedBlocks * 5 + cartItems.length + suffix.length + 8);
+            out.writeBytes(GZIP_HEADER);
+            out.writeBytes(prefix);
+            for (int offset = 0; offset < cartItems.length; offset += MAX_STORED_BLOCK) {
+                int length = Math.min(MAX_STORED_BLOCK, cartItems.length - offset);
+                // BFINAL=0、BTYPE=00 (不壓縮)，前一段以 sync flush 結束，已在位元組邊界上
+                out.write(0);
+                writeShort(out, length);
+                writeShort(out, ~length & 0xffff);
+                out.write(cartItems, offset, length);
+            }
+            out.writeBytes(suffix);
+
+            CRC32 crc = new CRC32();
+            crc.update(fragments.prefix());
+            crc.update(cartItems);
+            crc.update(fragments.suffix());
+            writeInt(out, (int) crc.getValue());
+            writeInt(out, fragments.prefix().length + cartItems.length + fragments.suffix().length);
+            return out.toByteArray();
+        }
+
+        private static void writeShort(ByteArrayOutputStream out, int value) {
+            out.write(value & 0xff);
+            out.write((value >>> 8) & 0xff);
+        }
+
+        private static void writeInt(ByteArrayOutputStream out, int value) {
+            writeShort(out, value & 0xffff);
+            writeShort(out, value >>> 16);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.ConcurrencyLimitProperties;
+import com.example.demo.limit.AdaptiveConcurrencyLimiter;
+import com.example.demo.limit.AdaptiveConcurrencyLimiter.Permit;
+import com.example.demo.limit.RequestPriority;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdaptiveConcurrencyLimiterTests {
+
+	private static final long MILLIS = 1_000_000L;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void lowPriorityShouldBeShedBeforeCheckout() {
+		AdaptiveConcurrencyLimiter limiter = limiter(10);
+		List<Permit> permits = new ArrayList<>();
+
+		// PREVIEW 只能使用上限的 75%
+		for (int i = 0; i < 7; i++) {
+			permits.add(limiter.tryAcquire(RequestPriority.PREVIEW));
+		}
+		assertNull(limiter.tryAcquire(RequestPriority.PREVIEW));
+		assertNull(limiter.tryAcquire(RequestPriority.BULK));
+		// 結帳仍可用完剩下的上限
+		for (int i = 0; i < 3; i++) {
+			permits.add(limiter.tryAcquire(RequestPriority.CHECKOUT));
+		}
+		assertFalse(permits.contains(null));
+		assertNull(limiter.tryAcquire(RequestPriority.CHECKOUT));
+		assertEquals(10, limiter.getInFlight());
+
+		permits.forEach(permit -> permit.release(false));
+		permits.get(0).release(false);
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(1.0, meterRegistry.get("demo.concurrency.requests")
+				.tags("priority", "preview", "outcome", "rejected").functionCounter().count());
+		assertEquals(3.0, meterRegistry.get("demo.concurrency.requests")
+				.tags("priority", "checkout", "outcome", "accepted").functionCounter().count());
+	}
+
+	@Test
+	void limitShouldGrowUnderStableLatencyAndShrinkWhenLatencyRises() {
+		AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+		// 未達上限一半時不調整
+		limiter.onSample(MILLIS, 1, false);
+		assertEquals(10, limiter.getLimit());
+
+		for (int i = 0; i < 100; i++) {
+			limiter.onSample(MILLIS, limiter.getLimit(), false);
+		}
+		int grown = limiter.getLimit();
+		assertTrue(grown > 10, "延遲穩定時上限應增加: " + grown);
+
+		for (int i = 0; i < 30; i++) {
+			limiter.onSample(20 * MILLIS, limiter.getLimit(), false);
+		}
+		assertTrue(limiter.getLimit() < grown, "延遲上升時上限應降低: " + limiter.getLimit());
+		assertEquals(limiter.getLimit(), meterRegistry.get("demo.concurrency.limit").gauge().value());
+	}
+
+	@Test
+	void failuresShouldBackOffMultiplicativelyDownToMinimum() {
+		AdaptiveConcurrencyLimiter limiter = limiter(100);
+
+		limiter.onSample(MILLIS, 100, true);
+		assertEquals(90, limiter.getLimit());
+		for (int i = 0; i < 100; i++) {
+			limiter.onSample(MILLIS, 1, true);
+		}
+		assertEquals(1, limiter.getLimit());
+		// 上限再低，每個等級仍至少可進行一個請求
+		assertNotNull(limiter.tryAcquire(RequestPriority.BULK));
+	}
+
+	@Test
+	void bulkRequestsShouldNotFeedLatencyAverages() {
+		AdaptiveConcurrencyLimiter limiter = limiter(10);
+		limiter.tryAcquire(RequestPriority.PREVIEW).release(false);
+		double shortRtt = meterRegistry.get("demo.concurrency.rtt").tags("window", "short").timeGauge()
+				.value(TimeUnit.NANOSECONDS);
+
+		Permit bulk = limiter.tryAcquire(RequestPriority.BULK);
+		LockSupport.parkNanos(20 * MILLIS);
+		bulk.release(false);
+		assertEquals(shortRtt, meterRegistry.get("demo.concurrency.rtt").tags("window", "short").timeGauge()
+				.value(TimeUnit.NANOSECONDS));
+
+		// 失敗仍觸發退避
+		limiter.tryAcquire(RequestPriority.BULK).release(true);
+		assertEquals(9, limiter.getLimit());
+	}
+
+	private AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+		return new AdaptiveConcurrencyLimiter(
+				new ConcurrencyLimitProperties(true, initialLimit, 1, 1000, 2.0, 0.2, 600, 0.9), meterRegistry);
+	}
+}
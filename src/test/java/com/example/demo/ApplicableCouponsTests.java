@@ -0,0 +1,122 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.ApplicableCouponDto;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductsSavedEvent;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ApplicableCouponsTests {
+
+	private ProductRepository productRepository;
+	private CouponRepository couponRepository;
+	private CouponRuleEngine ruleEngine;
+	private CartService cartService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = new ProductRepository(new IndexedProductStore(), event -> {
+			if (event instanceof ProductsSavedEvent saved && ruleEngine != null) {
+				ruleEngine.onProductsSaved(saved);
+			}
+		});
+		couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode), event -> {
+			if (event instanceof CouponsSavedEvent saved && ruleEngine != null) {
+				ruleEngine.onCouponsSaved(saved);
+			}
+		});
+		productRepository.save(new Product("BOOK1", "小說", 300, "BOOK"));
+		productRepository.save(new Product("TOY1", "積木", 500, "TOY"));
+		couponRepository.save(new Coupon("FLAT50", "折 50", 50));
+		couponRepository.save(Coupon.withRule("OFF10", "全館九折，最多折 100", 0, "percent=10;cap=100"));
+		couponRepository.save(Coupon.withRule("SPEND1000", "滿千折百", 100, "min=1000"));
+		couponRepository.save(Coupon.withRule("BOOK20", "書籍八折", 0, "categories=BOOK;percent=20"));
+		couponRepository.save(Coupon.withRule("TOY2GET1", "積木買二送一", 0, "products=TOY1;buy=2;free=1"));
+		couponRepository.save(Coupon.withRule("WELCOME_A", "新客折 80", 80, "group=WELCOME"));
+		couponRepository.save(Coupon.withRule("WELCOME_B", "新客折 120", 120, "group=WELCOME"));
+		ruleEngine = new CouponRuleEngine(productRepository, couponRepository);
+		cartService = new CartService(productRepository, couponRepository, new PricingMetrics(new SimpleMeterRegistry()),
+			PricingResultCache.disabled(), new CouponOptimizer(Duration.ofMillis(2)), ruleEngine);
+	}
+
+	@Test
+	void applicableCoupons_ShouldBeSortedByStandaloneDiscount() {
+		List<ApplicableCouponDto> result = applicable(List.of(new CartItemInput("BOOK1", 1)), 20);
+
+		// 未達門檻的 SPEND1000 與限定積木的 TOY2GET1 不列出；互斥群組的優惠券各自列出
+		assertEquals(List.of("WELCOME_B", "WELCOME_A", "BOOK20", "FLAT50", "OFF10"), codes(result));
+		assertEquals(List.of(120L, 80L, 60L, 50L, 30L), result.stream().map(ApplicableCouponDto::discount).toList());
+	}
+
+	@Test
+	void applicableCoupons_ShouldRespectLimitAndSkipZeroDiscounts() {
+		List<ApplicableCouponDto> three = applicable(List.of(new CartItemInput("TOY1", 3)), 3);
+		assertEquals(List.of("TOY2GET1", "WELCOME_B", "OFF10"), codes(three));
+		assertEquals(500, three.get(0).discount());
+
+		// 只買一件積木時買二送一沒有折扣
+		List<ApplicableCouponDto> single = applicable(List.of(new CartItemInput("TOY1", 1)), 20);
+		assertFalse(codes(single).contains("TOY2GET1"));
+		assertFalse(codes(single).contains("SPEND1000"));
+	}
+
+	@Test
+	void index_ShouldFollowCouponAndProductUpdates() {
+		List<CartItemInput> toys = List.of(new CartItemInput("TOY1", 3));
+		assertTrue(codes(applicable(toys, 20)).contains("TOY2GET1"));
+
+		couponRepository.save(Coupon.withRule("TOY2GET1", "小說買二送一", 0, "products=BOOK1;buy=2;free=1"));
+		couponRepository.save(Coupon.withRule("TOY30", "積木折 30", 30, "categories=TOY"));
+		List<String> afterCouponUpdate = codes(applicable(toys, 20));
+		assertFalse(afterCouponUpdate.contains("TOY2GET1"));
+		assertTrue(afterCouponUpdate.contains("TOY30"));
+		assertFalse(afterCouponUpdate.contains("BOOK20"));
+
+		productRepository.save(new Product("TOY1", "積木", 500, "BOOK"));
+		List<String> afterProductUpdate = codes(applicable(toys, 20));
+		assertTrue(afterProductUpdate.contains("BOOK20"));
+		assertFalse(afterProductUpdate.contains("TOY30"));
+	}
+
+	@Test
+	void candidates_ShouldNotGrowWithUnrelatedCoupons() {
+		for (int i = 0; i < 20_000; i++) {
+			couponRepository.save(Coupon.withRule("SKU" + i, "單品九五折", 0, "products=SKU" + i + ";percent=5"));
+			couponRepository.save(Coupon.withRule("BIG" + i, "滿額折", 100, "min=" + (10_000 + i)));
+		}
+		Product book = productRepository.findById("BOOK1").orElseThrow();
+
+		assertEquals(5, couponRepository.findCandidateCodes(List.of(book), 300).size());
+		assertEquals(List.of("WELCOME_B", "WELCOME_A", "BOOK20", "FLAT50", "OFF10"),
+			codes(applicable(List.of(new CartItemInput("BOOK1", 1)), 20)));
+	}
+
+	private List<ApplicableCouponDto> applicable(List<CartItemInput> items, int limit) {
+		return cartService.findApplicableCoupons(new ShoppingCartInput(items, List.of()), limit);
+	}
+
+	private static List<String> codes(List<ApplicableCouponDto> result) {
+		return result.stream().map(dto -> dto.coupon().getCode()).toList();
+	}
+}
@@ -0,0 +1,144 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.store.CachingEntityStore;
+import com.example.demo.repository.store.EntityStore;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.JdbcProductStore;
+
+class CachingEntityStoreTests {
+
+	private JdbcProductStore jdbcStore;
+
+	@BeforeEach
+	void setUp() {
+		// 每個測試使用獨立的記憶體資料庫
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+			"jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		jdbcStore = new JdbcProductStore(JdbcClient.create(dataSource));
+	}
+
+	@Test
+	void jdbcStore_ShouldUpsertAndLookUpInSlicedBatches() {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 1200; i++) {
+			products.add(new Product("P" + i, "商品 " + i, i, i % 2 == 0 ? "BOOK" : null));
+		}
+		jdbcStore.saveAll(products);
+		jdbcStore.save(new Product("P1", "改名", 999, "TOY"));
+
+		assertEquals(1200, jdbcStore.count());
+		assertEquals(1200, jdbcStore.findAll().size());
+		Product updated = jdbcStore.find("P1");
+		assertEquals("改名", updated.getName());
+		assertEquals(999, updated.getPrice());
+		assertEquals("TOY", updated.getCategory());
+		assertNull(jdbcStore.find("P3").getCategory());
+		assertNull(jdbcStore.find("missing"));
+
+		// 超過 IN 子句上限的查詢分段執行，找不到的鍵值不出現在結果中
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 1100; i++) {
+			keys.add("P" + i);
+		}
+		keys.add("missing");
+		Map<String, Product> found = jdbcStore.findAllByKey(keys);
+		assertEquals(1100, found.size());
+		assertEquals("BOOK", found.get("P1098").getCategory());
+	}
+
+	@Test
+	void cachingStore_ShouldServeHitsAndInvalidateOnSave() {
+		jdbcStore.saveAll(List.of(new Product("P1", "一", 100), new Product("P2", "二", 200),
+			new Product("P3", "三", 300)));
+		CachingEntityStore<Product> store = new CachingEntityStore<>(jdbcStore, Product::getId, 100);
+
+		assertEquals(100, store.find("P1").getPrice());
+		assertEquals(100, store.find("P1").getPrice());
+		assertNull(store.find("missing"));
+		assertEquals(1, store.stats().hitCount());
+
+		// 批次查詢：P1 命中，P2、P3 從資料庫載入後放入快取
+		Map<String, Product> batch = store.findAllByKey(List.of("P1", "P2", "P3", "missing"));
+		assertEquals(3, batch.size());
+		assertEquals(3, store.cache().estimatedSize());
+		assertEquals(3, store.findAllByKey(List.of("P1", "P2", "P3")).size());
+		assertEquals(5, store.stats().hitCount());
+
+		store.save(new Product("P2", "二", 250));
+		assertNull(store.cache().getIfPresent("P2"));
+		assertEquals(250, store.find("P2").getPrice());
+		assertEquals(250, store.findAllByKey(List.of("P2")).get("P2").getPrice());
+	}
+
+	@Test
+	void cachingStore_ShouldEvictBeyondMaximumSize() {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			products.add(new Product("P" + i, "商品 " + i, i));
+		}
+		jdbcStore.saveAll(products);
+		CachingEntityStore<Product> store = new CachingEntityStore<>(jdbcStore, Product::getId, 10);
+
+		for (Product product : products) {
+			assertEquals(product.getPrice(), store.find(product.getId()).getPrice());
+		}
+		store.cache().cleanUp();
+
+		assertTrue(store.cache().estimatedSize() <= 10);
+		assertTrue(store.stats().evictionCount() >= 190);
+		// 被淘汰的項目仍可從底層儲存讀到
+		assertEquals(0, store.find("P0").getPrice());
+	}
+
+	@Test
+	void batchReadRacingSave_ShouldNotCacheStaleEntity() {
+		InMemoryEntityStore<Product> backing = new InMemoryEntityStore<>(Product::getId);
+		backing.save(new Product("P1", "一", 100));
+		AtomicReference<CachingEntityStore<Product>> holder = new AtomicReference<>();
+		// 模擬批次載入讀到舊值之後、放入快取之前，另一個執行緒寫入了新價格
+		EntityStore<Product> racing = new EntityStore<>() {
+			@Override
+			public Product find(String key) {
+				return backing.find(key);
+			}
+
+			@Override
+			public Map<String, Product> findAllByKey(Collection<String> keys) {
+				Map<String, Product> stale = backing.findAllByKey(keys);
+				holder.get().save(new Product("P1", "一", 150));
+				return stale;
+			}
+
+			@Override
+			public void save(Product entity) {
+				backing.save(entity);
+			}
+
+			@Override
+			public Collection<Product> findAll() {
+				return backing.findAll();
+			}
+		};
+		CachingEntityStore<Product> store = new CachingEntityStore<>(racing, Product::getId, 100);
+		holder.set(store);
+
+		assertEquals(100, store.findAllByKey(List.of("P1")).get("P1").getPrice());
+		assertNull(store.cache().getIfPresent("P1"));
+		assertEquals(150, store.find("P1").getPrice());
+	}
+}
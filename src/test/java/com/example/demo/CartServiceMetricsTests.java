@@ -0,0 +1,120 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.exception.TotalDiscountExceededException;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.repository.store.MeteredProductStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CartServiceMetricsTests {
+
+	private SimpleMeterRegistry registry;
+	private CartService cartService;
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+		ProductRepository productRepository = new ProductRepository(new IndexedProductStore());
+		productRepository.save(new Product("P001", "測試商品1", 100));
+		CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+		couponRepository.save(new Coupon("C050", "折 50", 50));
+		couponRepository.save(new Coupon("C500", "折 500", 500));
+		cartService = new CartService(productRepository, couponRepository, new PricingMetrics(registry),
+			PricingResultCache.disabled(), new CouponOptimizer(Duration.ofMillis(2)),
+			new CouponRuleEngine(productRepository, couponRepository));
+	}
+
+	@Test
+	void calculateCartPrice_ShouldRecordLatencyAndUnknownLookups() {
+		cartService.calculateCartPrice(new ShoppingCartInput(
+			Arrays.asList(new CartItemInput("P001", 1), new CartItemInput("P999", 1)),
+			Arrays.asList("C050", "NOPE")));
+
+		assertEquals(1, registry.get("demo.cart.pricing").tag("size", "2-5").timer().count());
+		assertEquals(1.0, registry.get("demo.cart.unknown.products").counter().count());
+		assertEquals(1.0, registry.get("demo.cart.unknown.coupons").counter().count());
+		assertEquals(1.0, registry.get("demo.cart.coupons.applied").summary().totalAmount());
+	}
+
+	@Test
+	void calculateCartPrice_WhenDiscountExceeded_ShouldCountRejection() {
+		ShoppingCartInput cart = new ShoppingCartInput(List.of(new CartItemInput("P001", 1)), List.of("C500"));
+
+		assertThrows(TotalDiscountExceededException.class, () -> cartService.calculateCartPrice(cart));
+		assertEquals(1.0, registry.get("demo.cart.discount.exceeded").counter().count());
+		assertEquals(1, registry.get("demo.cart.pricing").tag("size", "1").timer().count());
+	}
+
+	@Test
+	void calculateCartPrice_ShouldLookUpRepeatedProductsOnce() {
+		List<CartItemInput> items = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			items.add(new CartItemInput("P001", 1));
+			items.add(new CartItemInput("P999", 2));
+		}
+
+		CalculationResultDto result = cartService.calculateCartPrice(new ShoppingCartInput(items, List.of("C050")));
+
+		assertEquals(100_000, result.originalTotal());
+		assertEquals(99_950, result.discountedTotal());
+		// 重複的產品合併後只查價一次，找不到的產品也只記錄一次
+		assertEquals(1.0, registry.get("demo.cart.unknown.products").counter().count());
+	}
+
+	@Test
+	void catalogPricing_ShouldRecordOrdinalLookups() {
+		MeteredProductStore store = new MeteredProductStore(new IndexedProductStore(), registry, 1);
+		ProductRepository productRepository = new ProductRepository(store);
+		productRepository.save(new Product("P001", "測試商品1", 100));
+		CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+		CartService meteredService = new CartService(productRepository, couponRepository, new PricingMetrics(registry),
+			PricingResultCache.disabled(), new CouponOptimizer(Duration.ofMillis(2)),
+			new CouponRuleEngine(productRepository, couponRepository));
+
+		meteredService.calculateCartPrice(new ShoppingCartInput(List.of(new CartItemInput("P001", 1),
+			new CartItemInput("P999", 1), new CartItemInput("P001", 2)), List.of()));
+
+		// 計價以序號查價，不經過 priceOf；合併後的每個產品查詢一次
+		assertEquals(2, registry.get("demo.store.lookup").tag("operation", "ordinalOf").timer().count());
+		assertEquals(0, registry.get("demo.store.lookup").tag("operation", "priceOf").timer().count());
+		// 同一份目錄快照只包裝一次
+		assertSame(store.priceCatalog(), store.priceCatalog());
+	}
+
+	@Test
+	void catalogPricing_ShouldOnlySampleOrdinalLookupsOfInMemoryStores() {
+		SimpleMeterRegistry sampledRegistry = new SimpleMeterRegistry();
+		MeteredProductStore store = new MeteredProductStore(new IndexedProductStore(), sampledRegistry, 1 << 30);
+		store.save(new Product("P001", "測試商品1", 100));
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(100, store.priceCatalog().priceOf("P001"));
+		}
+
+		// 每 2^30 次抽樣一次，1000 次查詢幾乎不可能被計時
+		assertTrue(sampledRegistry.get("demo.store.lookup").tag("operation", "ordinalOf").timer().count() <= 1);
+	}
+}
@@ -0,0 +1,122 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.BatchCalculationResultDto;
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.exception.PriceOverflowException;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.CouponSelectionMode;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CartServiceTests {
+
+	private ProductRepository productRepository;
+	private CouponRepository couponRepository;
+	private CartService cartService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = new ProductRepository(new IndexedProductStore());
+		productRepository.save(new Product("P001", "測試商品1", 100));
+		productRepository.save(new Product("P002", "測試商品2", 250));
+		productRepository.save(new Product("MAX1", "最高價商品1", Integer.MAX_VALUE));
+		productRepository.save(new Product("MAX2", "最高價商品2", Integer.MAX_VALUE));
+		productRepository.save(new Product("MAX3", "最高價商品3", Integer.MAX_VALUE));
+		couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+		couponRepository.save(new Coupon("C050", "折 50", 50));
+		couponRepository.save(new Coupon("C500", "折 500", 500));
+		cartService = new CartService(productRepository, couponRepository,
+			new PricingMetrics(new SimpleMeterRegistry()), PricingResultCache.disabled(),
+			new CouponOptimizer(Duration.ofMillis(2)), new CouponRuleEngine(productRepository, couponRepository));
+	}
+
+	@Test
+	void calculateCartPrices_ShouldTurnEveryCartFailureIntoAnErrorEntry() {
+		List<ShoppingCartInput> carts = Arrays.asList(
+			new ShoppingCartInput(List.of(new CartItemInput("P001", 2)), List.of("C050")),
+			new ShoppingCartInput(List.of(new CartItemInput("P001", 1)), List.of("C500")),
+			null,
+			new ShoppingCartInput(null, List.of()),
+			new ShoppingCartInput(Arrays.asList(new CartItemInput("P002", 1), null), List.of()),
+			new ShoppingCartInput(List.of(new CartItemInput("P002", 2)), null));
+
+		List<BatchCalculationResultDto> results = cartService.calculateCartPrices(carts);
+
+		assertEquals(6, results.size());
+		for (int i = 0; i < results.size(); i++) {
+			assertEquals(i, results.get(i).index());
+		}
+		assertEquals(150, results.get(0).result().discountedTotal());
+		assertNull(results.get(0).error());
+		// 折扣超過總價、null 購物車、null 商品列表與 null 商品項目都只影響自己
+		for (int i = 1; i <= 4; i++) {
+			assertNull(results.get(i).result(), "index " + i);
+			assertNotNull(results.get(i).error(), "index " + i);
+		}
+		assertEquals(500, results.get(5).result().originalTotal());
+	}
+
+	@Test
+	void totalsAboveIntRange_ShouldBeExact() {
+		CalculationResultDto result = cartService.calculateCartPrice(new ShoppingCartInput(
+			List.of(new CartItemInput("MAX1", 3), new CartItemInput("P001", 1)), List.of("C050")));
+
+		assertEquals(3L * Integer.MAX_VALUE + 100, result.originalTotal());
+		assertEquals(3L * Integer.MAX_VALUE + 50, result.discountedTotal());
+		assertTrue(result.originalTotal() > Integer.MAX_VALUE);
+	}
+
+	@Test
+	void singleCartOverflow_ShouldThrowPriceOverflow() {
+		// 三個 (2^31 - 1) * (2^31 - 1) 的小計相加超出 long 的範圍
+		ShoppingCartInput overflowing = overflowingCart();
+
+		assertThrows(PriceOverflowException.class, () -> cartService.calculateCartPrice(overflowing));
+		assertThrows(PriceOverflowException.class,
+			() -> cartService.calculateCartPrice(overflowing, CouponSelectionMode.BEST));
+		// 合併重複產品時數量超出 int 的範圍
+		assertThrows(PriceOverflowException.class, () -> cartService.calculateCartPrice(new ShoppingCartInput(
+			List.of(new CartItemInput("P001", Integer.MAX_VALUE), new CartItemInput("P001", 1)), List.of())));
+	}
+
+	@Test
+	void batchOverflow_ShouldOnlyFailThatCart() {
+		List<BatchCalculationResultDto> results = cartService.calculateCartPrices(List.of(
+			new ShoppingCartInput(List.of(new CartItemInput("P001", 1)), List.of()),
+			overflowingCart(),
+			new ShoppingCartInput(List.of(new CartItemInput("MAX1", 2)), List.of())));
+
+		assertEquals(100, results.get(0).result().originalTotal());
+		assertNull(results.get(1).result());
+		assertEquals("購物車金額超出可計算範圍", results.get(1).error());
+		assertEquals(2L * Integer.MAX_VALUE, results.get(2).result().originalTotal());
+	}
+
+	private static ShoppingCartInput overflowingCart() {
+		return new ShoppingCartInput(List.of(
+			new CartItemInput("MAX1", Integer.MAX_VALUE),
+			new CartItemInput("MAX2", Integer.MAX_VALUE),
+			new CartItemInput("MAX3", Integer.MAX_VALUE)), List.of());
+	}
+}
@@ -0,0 +1,143 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.CartDeltaInput;
+import com.example.demo.dto.CartDeltaInput.Op;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.CartSessionDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.exception.CartSessionNotFoundException;
+import com.example.demo.exception.TotalDiscountExceededException;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductsSavedEvent;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.service.CartSessionService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CartSessionServiceTests {
+
+	private ProductRepository productRepository;
+	private CartSessionService sessionService;
+
+	@BeforeEach
+	void setUp() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		productRepository = new ProductRepository(new IndexedProductStore(), event -> {
+			if (event instanceof ProductsSavedEvent saved && sessionService != null) {
+				sessionService.onProductsSaved(saved);
+			}
+		});
+		productRepository.save(new Product("P001", "測試商品1", 100));
+		productRepository.save(new Product("P002", "測試商品2", 200));
+		CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+		couponRepository.save(new Coupon("C050", "折 50", 50));
+		couponRepository.save(new Coupon("C500", "折 500", 500));
+		sessionService = new CartSessionService(productRepository, couponRepository, new PricingMetrics(registry),
+			1000, Duration.ofMinutes(5), registry);
+	}
+
+	@Test
+	void deltas_ShouldUpdateTotalsIncrementally() {
+		CartSessionDto created = sessionService.create(new ShoppingCartInput(
+			List.of(new CartItemInput("P001", 1)), List.of("C050")));
+		assertEquals(50, created.pricing().discountedTotal());
+
+		CartSessionDto updated = sessionService.update(created.sessionId(), List.of(
+			new CartDeltaInput(Op.ADD_ITEM, "P002", 2, null),
+			new CartDeltaInput(Op.SET_QUANTITY, "P001", 3, null),
+			new CartDeltaInput(Op.ADD_ITEM, "P404", 1, null)));
+		assertEquals(700, updated.pricing().originalTotal());
+		assertEquals(650, updated.pricing().discountedTotal());
+		assertEquals(2, updated.lineCount());
+		assertNull(updated.items());
+
+		updated = sessionService.update(created.sessionId(), List.of(
+			new CartDeltaInput(Op.REMOVE_ITEM, "P002", null, null),
+			new CartDeltaInput(Op.TOGGLE_COUPON, null, null, "C050")));
+		assertEquals(300, updated.pricing().discountedTotal());
+		assertTrue(updated.pricing().appliedCoupons().isEmpty());
+		assertEquals(List.of(new CartItemInput("P001", 3)), sessionService.get(created.sessionId()).items());
+	}
+
+	@Test
+	void exceedingDiscount_ShouldRollBackWholeBatch() {
+		String sessionId = sessionService.create(new ShoppingCartInput(
+			List.of(new CartItemInput("P002", 3)), List.of())).sessionId();
+
+		assertThrows(TotalDiscountExceededException.class, () -> sessionService.update(sessionId, List.of(
+			new CartDeltaInput(Op.TOGGLE_COUPON, null, null, "C500"),
+			new CartDeltaInput(Op.SET_QUANTITY, "P002", 1, null))));
+
+		CartSessionDto session = sessionService.get(sessionId);
+		assertEquals(600, session.pricing().discountedTotal());
+		assertEquals(List.of(new CartItemInput("P002", 3)), session.items());
+		assertEquals(1, session.version());
+	}
+
+	@Test
+	void productPriceChange_ShouldRepriceOpenSessions() {
+		String sessionId = sessionService.create(new ShoppingCartInput(
+			List.of(new CartItemInput("P001", 2)), List.of())).sessionId();
+
+		productRepository.save(new Product("P001", "測試商品1", 120));
+
+		assertEquals(240, sessionService.get(sessionId).pricing().originalTotal());
+	}
+
+	@Test
+	void productChange_ShouldOnlyTouchSessionsThatReferenceIt() {
+		String withP001 = sessionService.create(new ShoppingCartInput(
+			List.of(new CartItemInput("P001", 1)), List.of())).sessionId();
+		String withP002 = sessionService.create(new ShoppingCartInput(
+			List.of(new CartItemInput("P002", 1)), List.of())).sessionId();
+
+		productRepository.save(new Product("P001", "測試商品1", 120));
+		assertEquals(2, sessionService.get(withP001).version());
+		assertEquals(1, sessionService.get(withP002).version());
+
+		// 移除商品後，之後的改價不再影響此工作階段
+		sessionService.update(withP001, List.of(new CartDeltaInput(Op.REMOVE_ITEM, "P001", null, null)));
+		productRepository.save(new Product("P001", "測試商品1", 130));
+		assertEquals(3, sessionService.get(withP001).version());
+		assertEquals(0, sessionService.get(withP001).pricing().originalTotal());
+	}
+
+	@Test
+	void catalogReplacement_ShouldDropRemovedProductsFromOpenSessions() {
+		String sessionId = sessionService.create(new ShoppingCartInput(
+			List.of(new CartItemInput("P001", 1), new CartItemInput("P002", 1)), List.of("C050"))).sessionId();
+		assertEquals(250, sessionService.get(sessionId).pricing().discountedTotal());
+
+		// 整批匯入後 P002 已不在目錄中，P001 改價為 40
+		productRepository.replaceAll(List.of(new Product("P001", "測試商品1", 40)));
+
+		CartSessionDto session = sessionService.get(sessionId);
+		assertEquals(List.of(new CartItemInput("P001", 1)), session.items());
+		assertEquals(1, session.lineCount());
+		assertEquals(40, session.pricing().originalTotal());
+		// 移除產品後折扣超過總價，優惠券也一併移除
+		assertEquals(40, session.pricing().discountedTotal());
+		assertTrue(session.pricing().appliedCoupons().isEmpty());
+	}
+
+	@Test
+	void deletedSession_ShouldNotBeFound() {
+		String sessionId = sessionService.create(null).sessionId();
+		sessionService.delete(sessionId);
+
+		assertThrows(CartSessionNotFoundException.class, () -> sessionService.get(sessionId));
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CartStreamingService;
+import com.example.demo.service.CartStreamingService.StreamPricingStats;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CartStreamingServiceTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private CartStreamingService streamingService;
+
+	@BeforeEach
+	void setUp() {
+		ProductRepository productRepository = new ProductRepository(new IndexedProductStore());
+		productRepository.save(new Product("P001", "測試商品1", 100));
+		CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+		couponRepository.save(new Coupon("C050", "折 50", 50));
+		couponRepository.save(new Coupon("C500", "折 500", 500));
+		CartService cartService = new CartService(productRepository, couponRepository,
+			new PricingMetrics(new SimpleMeterRegistry()), PricingResultCache.disabled(),
+			new CouponOptimizer(Duration.ofMillis(2)), new CouponRuleEngine(productRepository, couponRepository));
+		streamingService = new CartStreamingService(cartService, objectMapper, DataSize.ofBytes(256));
+	}
+
+	@Test
+	void priceNdjson_ShouldPriceAcrossChunksAndReportBadLinesInPlace() throws IOException {
+		String good = objectMapper.writeValueAsString(
+			new ShoppingCartInput(List.of(new CartItemInput("P001", 2)), List.of("C050")));
+		String overDiscounted = objectMapper.writeValueAsString(
+			new ShoppingCartInput(List.of(new CartItemInput("P001", 1)), List.of("C500")));
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 600; i++) {
+			input.append(good).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		input.append("\n   \n");
+		input.append("{not json\n");
+		input.append(overDiscounted).append('\n');
+		// 超過長度上限的行不會被讀進記憶體，只回報錯誤
+		input.append("{\"items\":[").append("{\"productId\":\"P001\",\"quantity\":1},".repeat(100)).append("]}\n");
+		input.append(good);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamPricingStats stats = streamingService.priceNdjson(
+			new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)), out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).strip().split("\n");
+		assertEquals(604, stats.carts());
+		assertEquals(3, stats.failures());
+		assertEquals(604, lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			assertEquals(i, objectMapper.readTree(lines[i]).get("index").asLong());
+		}
+		assertEquals(150, objectMapper.readTree(lines[599]).get("result").get("discountedTotal").asLong());
+		assertEquals("無法解析的購物車 JSON", objectMapper.readTree(lines[600]).get("error").asText());
+		assertTrue(objectMapper.readTree(lines[601]).get("result").isNull());
+		JsonNode tooLong = objectMapper.readTree(lines[602]);
+		assertTrue(tooLong.get("error").asText().contains("長度上限"));
+		assertEquals(150, objectMapper.readTree(lines[603]).get("result").get("discountedTotal").asLong());
+	}
+}
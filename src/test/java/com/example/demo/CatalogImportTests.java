@@ -0,0 +1,171 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.dto.CatalogImportResultDto;
+import com.example.demo.exception.CatalogImportException;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductQuery;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductSort;
+import com.example.demo.repository.ProductsSavedEvent;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.repository.store.ProductStore;
+import com.example.demo.repository.store.SnapshotProductStore;
+import com.example.demo.service.CatalogImportFormat;
+import com.example.demo.service.CatalogImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class CatalogImportTests {
+
+	@TempDir
+	Path tempDir;
+
+	private final List<Object> events = new ArrayList<>();
+	private ProductRepository productRepository;
+	private CouponRepository couponRepository;
+	private CatalogImportService importService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = new ProductRepository(new IndexedProductStore(), events::add);
+		couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode), events::add);
+		// 小區塊讓測試檔案也會切成許多區塊平行解析
+		importService = new CatalogImportService(productRepository, couponRepository, new ObjectMapper(), 4, 256);
+	}
+
+	@Test
+	void importProducts_ShouldParseChunksInParallelAndReplaceCatalog() throws IOException {
+		productRepository.save(new Product("OLD1", "舊商品", 10));
+		assertEquals("OLD1", productRepository.findPage(
+			new ProductQuery(null, null, null, ProductSort.PRICE, null, 1)).items().get(0).getId());
+		events.clear();
+
+		StringBuilder csv = new StringBuilder("id,name,price,category\n");
+		for (int i = 1; i <= 2000; i++) {
+			csv.append(String.format("P%05d,商品 %d,%d,%s\r\n", i, i, 100 + i, i % 2 == 0 ? "BOOK" : ""));
+		}
+		csv.append("P00001,\"禮盒, 含 \"\"特價\"\"\",50,GIFT\n");
+		Path file = write("products.csv", csv.toString());
+
+		CatalogImportResultDto result = importService.importProducts(file, CatalogImportFormat.CSV);
+
+		assertEquals(2001, result.rows());
+		assertEquals(2000, productRepository.count());
+		assertTrue(productRepository.findById("OLD1").isEmpty());
+		// 重複的 ID 以後出現者為準
+		Product gift = productRepository.findById("P00001").orElseThrow();
+		assertEquals("禮盒, 含 \"特價\"", gift.getName());
+		assertEquals(50, gift.getPrice());
+		assertEquals("GIFT", gift.getCategory());
+		assertEquals(2100, productRepository.priceOf("P02000"));
+		assertNull(productRepository.findById("P00003").orElseThrow().getCategory());
+		// 目錄索引與計價用的價格目錄都換成新目錄
+		assertEquals(List.of("P00001", "P00002"), productRepository.findPage(
+			new ProductQuery(null, null, null, ProductSort.PRICE, null, 2)).items().stream().map(Product::getId).toList());
+		assertEquals(2100, productRepository.priceCatalog().priceOf("P02000"));
+		// 移除的產品也要通知快取失效
+		ProductsSavedEvent event = (ProductsSavedEvent) events.get(0);
+		assertTrue(event.productIds().contains("OLD1"));
+		assertEquals(2001, event.productIds().size());
+		assertTrue(result.rowsPerSecond() > 0);
+		assertTrue(result.peakHeapBytes() > 0);
+	}
+
+	@Test
+	void importCoupons_FromNdjson_ShouldRebuildApplicableIndex() throws IOException {
+		couponRepository.save(new Coupon("OLD", "舊優惠券", 10));
+		Product book = new Product("B1", "書", 500, "BOOK");
+		assertEquals(1, couponRepository.findCandidateCodes(List.of(book), 500).size());
+
+		Path file = write("coupons.ndjson", """
+			{"code":"BOOK20","description":"書籍八折","rule":"categories=BOOK;percent=20"}
+
+			{"code":"SAVE100","description":"滿千折百","discountAmount":100,"rule":"min=1000","maxRedemptions":5}
+			""");
+		CatalogImportResultDto result = importService.importCoupons(file, CatalogImportFormat.fromFileName(file));
+
+		assertEquals(2, result.rows());
+		assertTrue(couponRepository.findByCode("OLD").isEmpty());
+		assertEquals(5, couponRepository.findByCode("SAVE100").orElseThrow().getMaxRedemptions());
+		assertEquals(List.of("BOOK20"), List.copyOf(couponRepository.findCandidateCodes(List.of(book), 500)));
+	}
+
+	@Test
+	void invalidRow_ShouldLeaveCatalogUnchanged() throws IOException {
+		productRepository.save(new Product("KEEP", "保留", 10));
+		StringBuilder csv = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			csv.append("X").append(i).append(",商品,").append(i == 70 ? "abc" : "10").append('\n');
+		}
+		Path file = write("broken.csv", csv.toString());
+
+		CatalogImportException ex = assertThrows(CatalogImportException.class,
+			() -> importService.importProducts(file, CatalogImportFormat.CSV));
+		assertTrue(ex.getMessage().contains("位移"));
+		assertEquals(1, productRepository.count());
+		assertTrue(productRepository.findById("KEEP").isPresent());
+
+		assertThrows(CatalogImportException.class, () -> importService.importCoupons(
+			write("bad-rule.csv", "code,description,discountAmount,rule\nC1,壞規則,0,percent=300\n"),
+			CatalogImportFormat.CSV));
+	}
+
+	@Test
+	void storeWithoutReplaceAll_ShouldBeRejectedBeforeParsing() throws IOException {
+		ProductRepository jdbcLikeRepository = new ProductRepository(new ProductStore() {
+			@Override
+			public Product find(String key) {
+				return null;
+			}
+
+			@Override
+			public void save(Product entity) {
+			}
+
+			@Override
+			public Collection<Product> findAll() {
+				return List.of();
+			}
+		});
+		CatalogImportService service = new CatalogImportService(jdbcLikeRepository, couponRepository,
+			new ObjectMapper(), 2, 1024);
+
+		assertThrows(CatalogImportException.class,
+			() -> service.importProducts(write("p.csv", "P1,商品,10\n"), CatalogImportFormat.CSV));
+	}
+
+	@Test
+	void importProducts_IntoSnapshotStore_ShouldWriteSnapshotFile() throws IOException {
+		Path snapshot = tempDir.resolve("catalog.snapshot");
+		ProductRepository snapshotRepository = new ProductRepository(new SnapshotProductStore(snapshot));
+		CatalogImportService service = new CatalogImportService(snapshotRepository, couponRepository,
+			new ObjectMapper(), 2, 1024);
+
+		service.importProducts(write("p.csv", "P1,商品一,10\nP2,商品二,20,BOOK\n"), CatalogImportFormat.CSV);
+
+		assertEquals(2, snapshotRepository.count());
+		SnapshotProductStore reopened = new SnapshotProductStore(snapshot);
+		assertEquals(20, reopened.priceOf("P2"));
+		assertEquals("BOOK", reopened.find("P2").getCategory());
+	}
+
+	private Path write(String name, String content) throws IOException {
+		return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
+	}
+}
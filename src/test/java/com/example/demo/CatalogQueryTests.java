@@ -0,0 +1,128 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CatalogPage;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductQuery;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductSort;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+
+class CatalogQueryTests {
+
+	private ProductRepository productRepository;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = new ProductRepository(new IndexedProductStore());
+		productRepository.save(new Product("P1", "Apple", 300));
+		productRepository.save(new Product("P2", "Apricot", 100));
+		productRepository.save(new Product("P3", "Banana", 200));
+		productRepository.save(new Product("P4", "Avocado", 200));
+		productRepository.save(new Product("P5", "Cherry", 500));
+	}
+
+	@Test
+	void priceSort_ShouldPageThroughRangeWithCursor() {
+		List<String> ids = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			CatalogPage<Product> page = productRepository.findPage(
+				new ProductQuery(150, 400, null, ProductSort.PRICE, cursor, 2));
+			page.items().forEach(product -> ids.add(product.getId()));
+			cursor = page.nextCursor();
+			pages++;
+		} while (cursor != null);
+
+		// 同價格依 ID 排序
+		assertEquals(List.of("P3", "P4", "P1"), ids);
+		assertEquals(2, pages);
+	}
+
+	@Test
+	void nameSort_ShouldFilterByPrefixAndPrice() {
+		CatalogPage<Product> page = productRepository.findPage(
+			new ProductQuery(null, 250, "A", ProductSort.NAME, null, 10));
+
+		assertEquals(List.of("P2", "P4"), page.items().stream().map(Product::getId).toList());
+		assertNull(page.nextCursor());
+	}
+
+	@Test
+	void save_ShouldKeepIndexesCurrent() {
+		productRepository.findPage(new ProductQuery(null, null, null, ProductSort.PRICE, null, 10));
+
+		productRepository.save(new Product("P5", "Blueberry", 50));
+		productRepository.saveAll(List.of(new Product("P6", "Almond", 120)));
+
+		CatalogPage<Product> byPrice = productRepository.findPage(
+			new ProductQuery(null, null, null, ProductSort.PRICE, null, 3));
+		assertEquals(List.of("P5", "P2", "P6"), byPrice.items().stream().map(Product::getId).toList());
+
+		CatalogPage<Product> byName = productRepository.findPage(
+			new ProductQuery(null, null, "B", ProductSort.NAME, null, 10));
+		assertEquals(List.of("P3", "P5"), byName.items().stream().map(Product::getId).toList());
+		assertTrue(productRepository.findPage(new ProductQuery(null, null, "Cherry", ProductSort.NAME, null, 10))
+			.items().isEmpty());
+	}
+
+	@Test
+	void manySaves_ShouldMergeIndexVersions() {
+		productRepository.findPage(new ProductQuery(null, null, null, ProductSort.PRICE, null, 10));
+
+		// 超過變更層門檻後合併成新的基礎陣列，之後的寫入再進入新的變更層
+		for (int i = 0; i < 1500; i++) {
+			productRepository.save(new Product(String.format("Q%04d", i), "Bulk", 1000 + i));
+		}
+		productRepository.save(new Product("P1", "Apple", 5000));
+
+		CatalogPage<Product> top = productRepository.findPage(
+			new ProductQuery(2499, null, null, ProductSort.PRICE, null, 10));
+		assertEquals(List.of("Q1499", "P1"), top.items().stream().map(Product::getId).toList());
+
+		CatalogPage<Product> byName = productRepository.findPage(
+			new ProductQuery(null, null, "Bu", ProductSort.NAME, null, 2));
+		assertEquals(List.of("Q0000", "Q0001"), byName.items().stream().map(Product::getId).toList());
+		CatalogPage<Product> next = productRepository.findPage(
+			new ProductQuery(null, null, "Bu", ProductSort.NAME, byName.nextCursor(), 2));
+		assertEquals(List.of("Q0002", "Q0003"), next.items().stream().map(Product::getId).toList());
+	}
+
+	@Test
+	void cursor_ShouldBeRejectedForOtherSortOrGarbage() {
+		CatalogPage<Product> page = productRepository.findPage(
+			new ProductQuery(null, null, null, ProductSort.PRICE, null, 1));
+
+		assertThrows(IllegalArgumentException.class, () -> productRepository.findPage(
+			new ProductQuery(null, null, null, ProductSort.NAME, page.nextCursor(), 1)));
+		assertThrows(IllegalArgumentException.class, () -> productRepository.findPage(
+			new ProductQuery(null, null, null, ProductSort.PRICE, "%%%", 1)));
+	}
+
+	@Test
+	void coupons_ShouldPageInCodeOrder() {
+		CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+		for (String code : List.of("C3", "C1", "C5", "C2", "C4")) {
+			couponRepository.save(new Coupon(code, code, 10));
+		}
+
+		CatalogPage<Coupon> first = couponRepository.findPage(null, 3);
+		assertEquals(List.of("C1", "C2", "C3"), first.items().stream().map(Coupon::getCode).toList());
+
+		couponRepository.save(new Coupon("C0", "C0", 10));
+		CatalogPage<Coupon> second = couponRepository.findPage(first.nextCursor(), 3);
+		assertEquals(List.of("C4", "C5"), second.items().stream().map(Coupon::getCode).toList());
+		assertNull(second.nextCursor());
+	}
+}
@@ -0,0 +1,159 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.store.CatalogSnapshot;
+import com.example.demo.repository.store.PriceCatalog;
+import com.example.demo.repository.store.ProductStore;
+import com.example.demo.repository.store.SnapshotProductStore;
+
+class CatalogSnapshotTests {
+
+	// 3 項產品：雜湊表 8 格，記錄從 16 + 8 * 4 = 48 開始，每筆 32 bytes
+	private static final int RECORDS_OFFSET = 48;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void writeAndOpen_ShouldRoundTripAllFields() throws IOException {
+		// "Aa" 與 "BB" 的 hashCode 相同，查詢必須比對 ID 本身
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		List<Product> products = List.of(
+			new Product("Aa", "第一項", 100, "BOOK"),
+			new Product("BB", null, 200),
+			new Product("商品-一", "多位元組 ID", 300, "禮品"),
+			new Product("é", "", 400));
+		Path path = tempDir.resolve("catalog.snapshot");
+
+		CatalogSnapshot.write(products, path);
+		CatalogSnapshot snapshot = CatalogSnapshot.open(path);
+
+		assertEquals(4, snapshot.size());
+		for (Product expected : products) {
+			int ordinal = snapshot.ordinalOf(expected.getId());
+			assertTrue(ordinal >= 0, expected.getId());
+			assertEquals(expected.getPrice().longValue(), snapshot.priceAt(ordinal));
+			assertEquals(expected.getId(), snapshot.idAt(ordinal));
+			Product actual = snapshot.productAt(ordinal);
+			assertEquals(expected.getName(), actual.getName());
+			assertEquals(expected.getCategory(), actual.getCategory());
+		}
+		assertEquals(-1, snapshot.ordinalOf("Ab"));
+		assertEquals(-1, snapshot.ordinalOf("商品-二"));
+		assertEquals(-1, snapshot.ordinalOf(null));
+		assertEquals(ProductStore.NOT_FOUND, snapshot.priceOf("missing"));
+		assertEquals(-1, CatalogSnapshot.empty().ordinalOf("Aa"));
+	}
+
+	@Test
+	void open_ShouldRejectTruncatedOrCorruptFiles() throws IOException {
+		Path path = tempDir.resolve("catalog.snapshot");
+		CatalogSnapshot.write(List.of(new Product("P1", "一", 1), new Product("P2", "二", 2),
+			new Product("P3", "三", 3)), path);
+		byte[] valid = Files.readAllBytes(path);
+
+		assertCorrupt(Arrays.copyOf(valid, 10));
+		assertCorrupt(Arrays.copyOf(valid, RECORDS_OFFSET + 40));
+		assertCorrupt(patch(valid, 8, 1_000_000));
+		assertCorrupt(patch(valid, 12, 6));
+		// 雜湊表中超出產品數的序號
+		assertCorrupt(patch(valid, 16, 99));
+		// 字串位置指到檔案之外
+		assertCorrupt(patch(valid, RECORDS_OFFSET + 8, valid.length));
+		assertCorrupt(patch(valid, RECORDS_OFFSET + 12, -5));
+		assertCorrupt(patch(valid, 0, 0));
+	}
+
+	@Test
+	void snapshotStore_ShouldLayerWritesOverSnapshotAndCompactThem() throws IOException {
+		Path path = tempDir.resolve("catalog.snapshot");
+		CatalogSnapshot.write(List.of(new Product("P1", "原本", 100, "BOOK"), new Product("P2", "二", 200)), path);
+		SnapshotProductStore store = new SnapshotProductStore(path);
+		assertNotNull(store.priceCatalog());
+
+		store.save(new Product("P1", "改價", 150, "BOOK"));
+		store.save(new Product("P3", "新增", 300, "TOY"));
+
+		// 有覆蓋項目時仍以序號查價，覆蓋層優先於快照，新增的產品序號接在快照之後
+		PriceCatalog catalog = store.priceCatalog();
+		assertEquals(150, catalog.priceOf("P1"));
+		assertEquals(200, catalog.priceOf("P2"));
+		assertEquals(2, catalog.ordinalOf("P3"));
+		assertEquals(300, catalog.priceAt(catalog.ordinalOf("P3")));
+		assertEquals(ProductStore.NOT_FOUND, catalog.priceOf("P9"));
+		assertEquals(150, store.priceOf("P1"));
+		assertEquals(200, store.priceOf("P2"));
+		assertEquals("新增", store.find("P3").getName());
+		assertEquals(3, store.count());
+		assertEquals(3, store.findAll().size());
+		assertEquals(List.of("P1", "P2", "P3"), store.findAll().stream().map(Product::getId).sorted().toList());
+
+		store.compact();
+
+		assertNotNull(store.priceCatalog());
+		assertEquals(150, store.priceCatalog().priceOf("P1"));
+		assertEquals(3, store.count());
+		SnapshotProductStore reopened = new SnapshotProductStore(path);
+		assertEquals(3, reopened.count());
+		assertEquals("TOY", reopened.find("P3").getCategory());
+		assertEquals("改價", reopened.find("P1").getName());
+	}
+
+	@Test
+	void write_ShouldRejectNullPrice() {
+		Path path = tempDir.resolve("catalog.snapshot");
+
+		assertThrows(IllegalArgumentException.class,
+			() -> CatalogSnapshot.write(List.of(new Product("P1", "沒有價格", null)), path));
+		assertFalse(Files.exists(path));
+	}
+
+	@Test
+	void snapshotStore_ShouldPersistReplaceAllThresholdAndClose() throws IOException {
+		Path path = tempDir.resolve("data").resolve("catalog.snapshot");
+		SnapshotProductStore store = new SnapshotProductStore(path, 3);
+
+		// 檔案與目錄不存在時，整批替換直接寫出快照
+		store.replaceAll(List.of(new Product("P1", "一", 100), new Product("P1", "一改", 110),
+			new Product("P2", "二", 200)));
+		assertEquals(2, new SnapshotProductStore(path).count());
+		assertEquals(110, new SnapshotProductStore(path).priceOf("P1"));
+
+		store.save(new Product("P3", "三", 300));
+		store.save(new Product("P4", "四", 400));
+		assertEquals(2, new SnapshotProductStore(path).count());
+		// 第三筆覆蓋項目達到門檻，合併寫回快照
+		store.save(new Product("P2", "二改", 250));
+		SnapshotProductStore reopened = new SnapshotProductStore(path);
+		assertEquals(4, reopened.count());
+		assertEquals(250, reopened.priceOf("P2"));
+
+		store.save(new Product("P5", "五", 500));
+		store.close();
+		assertEquals(500, new SnapshotProductStore(path).priceOf("P5"));
+		assertThrows(IllegalArgumentException.class, () -> store.save(new Product("P6", "沒有價格", null)));
+	}
+
+	private void assertCorrupt(byte[] content) throws IOException {
+		Path path = Files.write(tempDir.resolve("corrupt.snapshot"), content);
+		assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.open(path));
+	}
+
+	private static byte[] patch(byte[] content, int offset, int value) {
+		byte[] copy = content.clone();
+		ByteBuffer.wrap(copy).putInt(offset, value);
+		return copy;
+	}
+}
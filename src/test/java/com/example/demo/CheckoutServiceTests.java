@@ -0,0 +1,77 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.CheckoutInput;
+import com.example.demo.dto.CheckoutReservationDto;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.exception.TotalDiscountExceededException;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponRule;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CheckoutService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRedemptionService;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CheckoutServiceTests {
+
+	private CouponRedemptionService redemptionService;
+	private CheckoutService checkoutService;
+
+	@BeforeEach
+	void setUp() {
+		ProductRepository productRepository = new ProductRepository(new IndexedProductStore());
+		productRepository.save(new Product("P001", "測試商品1", 100));
+		CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+		couponRepository.save(new Coupon("FLAT10", "折 10", 10, 5, null));
+		couponRepository.save(new Coupon("SPEND1000", "滿千折百", 100, 5, null, CouponRule.parse("min=1000")));
+		couponRepository.save(new Coupon("BIG500", "折 500", 500, 1, null));
+		CartService cartService = new CartService(productRepository, couponRepository,
+			new PricingMetrics(new SimpleMeterRegistry()), PricingResultCache.disabled(),
+			new CouponOptimizer(Duration.ofMillis(2)), new CouponRuleEngine(productRepository, couponRepository));
+		redemptionService = new CouponRedemptionService(couponRepository, Duration.ofMinutes(5), 8,
+			new SimpleMeterRegistry());
+		checkoutService = new CheckoutService(cartService, redemptionService);
+	}
+
+	@Test
+	void checkout_ShouldOnlyReserveAppliedCoupons() {
+		CheckoutReservationDto reservation = checkoutService.checkout(new CheckoutInput("user-1",
+			new ShoppingCartInput(List.of(new CartItemInput("P001", 2)), List.of("FLAT10", "SPEND1000"))));
+
+		// 未達門檻的 SPEND1000 沒有套用，也不應佔用額度
+		assertEquals(List.of("FLAT10"), reservation.couponCodes());
+		assertEquals(190, reservation.pricing().discountedTotal());
+		assertEquals(-1, redemptionService.remaining("SPEND1000"));
+
+		checkoutService.commit(reservation.reservationId());
+		assertEquals(1, redemptionService.committedCount("FLAT10"));
+		assertEquals(0, redemptionService.committedCount("SPEND1000"));
+	}
+
+	@Test
+	void checkout_WhenPricingFails_ShouldNotReserveAnything() {
+		CheckoutInput input = new CheckoutInput("user-1",
+			new ShoppingCartInput(List.of(new CartItemInput("P001", 1)), List.of("BIG500")));
+
+		assertThrows(TotalDiscountExceededException.class, () -> checkoutService.checkout(input));
+		assertEquals(-1, redemptionService.remaining("BIG500"));
+	}
+}
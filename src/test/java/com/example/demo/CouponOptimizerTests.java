@@ -0,0 +1,98 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.Coupon;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponOptimizer.Selection;
+
+class CouponOptimizerTests {
+
+	private final CouponOptimizer optimizer = new CouponOptimizer(Duration.ofSeconds(1));
+
+	@Test
+	void select_ShouldFindBestSubsetWhereGreedyFails() {
+		List<Coupon> coupons = List.of(
+			new Coupon("C60", "折 60", 60), new Coupon("C50A", "折 50", 50), new Coupon("C50B", "折 50", 50));
+
+		Selection selection = optimizer.select(coupons, 100);
+
+		assertTrue(selection.optimal());
+		assertEquals(100, selection.totalDiscount());
+		assertEquals(List.of("C50A", "C50B"), selection.coupons().stream().map(Coupon::getCode).toList());
+	}
+
+	@Test
+	void select_ShouldNotDependOnCandidateOrder() {
+		List<Coupon> coupons = new ArrayList<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 40; i++) {
+			coupons.add(new Coupon("C" + i, "優惠券 " + i, 1 + random.nextInt(500)));
+		}
+		long expected = optimizer.select(coupons, 2_345).totalDiscount();
+
+		Collections.shuffle(coupons, random);
+		Selection shuffled = optimizer.select(coupons, 2_345);
+
+		assertEquals(expected, shuffled.totalDiscount());
+		assertTrue(shuffled.totalDiscount() <= 2_345);
+		assertEquals(shuffled.totalDiscount(),
+			shuffled.coupons().stream().mapToLong(Coupon::getDiscountAmount).sum());
+	}
+
+	@Test
+	void select_WithExhaustedBudget_ShouldFallBackToAtLeastGreedy() {
+		CouponOptimizer exhausted = new CouponOptimizer(Duration.ZERO);
+		List<Coupon> coupons = new ArrayList<>();
+		Random random = new Random(7);
+		for (int i = 0; i < 60; i++) {
+			coupons.add(new Coupon("C" + i, "優惠券 " + i, 1_000 + random.nextInt(100_000)));
+		}
+
+		Selection selection = exhausted.select(coupons, 1_234_567);
+
+		assertTrue(selection.totalDiscount() > 0);
+		assertTrue(selection.totalDiscount() <= 1_234_567);
+	}
+
+	@Test
+	void select_ShouldTakeAtMostOneCouponPerExclusiveGroup() {
+		List<Coupon> coupons = List.of(
+			Coupon.withRule("G120", "新客折 120", 120, "group=WELCOME"),
+			Coupon.withRule("G80", "新客折 80", 80, "group=WELCOME"),
+			Coupon.withRule("G60", "新客折 60", 60, "group=WELCOME"),
+			new Coupon("C30", "折 30", 30));
+
+		// 群組中最大的券超過上限時改選放得下的較小券，而不是整個群組都不選
+		Selection selection = optimizer.select(coupons, 100);
+
+		assertTrue(selection.optimal());
+		assertEquals(80, selection.totalDiscount());
+		assertEquals(List.of("G80"), selection.coupons().stream().map(Coupon::getCode).toList());
+
+		Selection roomy = optimizer.select(coupons, 1_000);
+		assertEquals(150, roomy.totalDiscount());
+		assertEquals(List.of("G120", "C30"), roomy.coupons().stream().map(Coupon::getCode).toList());
+	}
+
+	@Test
+	void select_ShouldOnlySearchLargestCandidatesBeyondLimit() {
+		CouponOptimizer capped = new CouponOptimizer(Duration.ofSeconds(1), 2);
+		List<Coupon> coupons = List.of(
+			new Coupon("C10", "折 10", 10), new Coupon("C60", "折 60", 60),
+			new Coupon("C50", "折 50", 50), new Coupon("C40", "折 40", 40));
+
+		Selection selection = capped.select(coupons, 100);
+
+		assertEquals(60, selection.totalDiscount());
+		assertEquals(List.of("C60"), selection.coupons().stream().map(Coupon::getCode).toList());
+	}
+}
@@ -0,0 +1,149 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.exception.CouponRedemptionLimitException;
+import com.example.demo.exception.ReservationNotFoundException;
+import com.example.demo.model.Coupon;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.service.CouponRedemptionService;
+import com.example.demo.service.CouponRedemptionService.Reservation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CouponRedemptionServiceTests {
+
+	private CouponRepository couponRepository;
+	private CouponRedemptionService redemptionService;
+
+	@BeforeEach
+	void setUp() {
+		couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode), event -> {
+			if (event instanceof CouponsSavedEvent saved && redemptionService != null) {
+				redemptionService.onCouponsSaved(saved);
+			}
+		});
+		couponRepository.save(new Coupon("HOT", "熱門優惠", 10, 1000, null));
+		couponRepository.save(new Coupon("ONCE", "每人一次", 10, null, 1));
+		redemptionService = new CouponRedemptionService(couponRepository, Duration.ofMinutes(5), 8,
+			new SimpleMeterRegistry());
+	}
+
+	@Test
+	void contendedReservations_ShouldNeverExceedLimit() throws Exception {
+		int attempts = 5000;
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger rejected = new AtomicInteger();
+		ConcurrentLinkedQueue<String> committed = new ConcurrentLinkedQueue<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < attempts; i++) {
+				int attempt = i;
+				executor.submit(() -> {
+					start.await();
+					try {
+						Reservation reservation = redemptionService.reserve("user-" + attempt, List.of("HOT"));
+						// 部分預留先放棄，額度應歸還給其他執行緒
+						if (attempt % 5 == 0) {
+							redemptionService.release(reservation.id());
+						} else {
+							redemptionService.commit(reservation.id());
+							committed.add(reservation.id());
+						}
+					} catch (CouponRedemptionLimitException ex) {
+						rejected.incrementAndGet();
+					}
+					return null;
+				});
+			}
+			start.countDown();
+		}
+
+		assertTrue(committed.size() <= 1000);
+		assertEquals(committed.size(), redemptionService.committedCount("HOT"));
+		// 所有請求結束後，剩餘額度與已確認次數相加剛好等於上限
+		assertEquals(1000, redemptionService.remaining("HOT") + committed.size());
+		assertTrue(rejected.get() > 0);
+	}
+
+	@Test
+	void perUserLimit_ShouldHoldUnderContention() throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger succeeded = new AtomicInteger();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 1000; i++) {
+				executor.submit(() -> {
+					start.await();
+					try {
+						redemptionService.commit(redemptionService.reserve("alice", List.of("ONCE")).id());
+						succeeded.incrementAndGet();
+					} catch (CouponRedemptionLimitException ex) {
+						// 預期：同一使用者只能使用一次
+					}
+					return null;
+				});
+			}
+			start.countDown();
+		}
+
+		assertEquals(1, succeeded.get());
+		assertDoesNotThrow(() -> redemptionService.reserve("bob", List.of("ONCE")));
+	}
+
+	@Test
+	void failedReservation_ShouldReturnPermitsAlreadyTaken() {
+		couponRepository.save(new Coupon("ONE", "只剩一張", 10, 1, null));
+		redemptionService.commit(redemptionService.reserve("alice", List.of("ONE")).id());
+
+		assertThrows(CouponRedemptionLimitException.class,
+			() -> redemptionService.reserve("bob", List.of("HOT", "ONE")));
+		assertEquals(1000, redemptionService.remaining("HOT"));
+	}
+
+	@Test
+	void commitAfterRelease_ShouldFail() {
+		Reservation reservation = redemptionService.reserve("alice", List.of("HOT"));
+		redemptionService.release(reservation.id());
+
+		assertThrows(ReservationNotFoundException.class, () -> redemptionService.commit(reservation.id()));
+		assertEquals(1000, redemptionService.remaining("HOT"));
+	}
+
+	@Test
+	void expiredReservation_ShouldReturnPermits() throws Exception {
+		CouponRedemptionService shortLived = new CouponRedemptionService(couponRepository, Duration.ofMillis(50), 4,
+			new SimpleMeterRegistry());
+		Reservation reservation = shortLived.reserve("alice", List.of("HOT"));
+		assertEquals(999, shortLived.remaining("HOT"));
+
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (shortLived.remaining("HOT") != 1000 && System.nanoTime() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(1000, shortLived.remaining("HOT"));
+		assertThrows(ReservationNotFoundException.class, () -> shortLived.commit(reservation.id()));
+	}
+
+	@Test
+	void loweredLimit_ShouldApplyToLaterReservations() {
+		for (int i = 0; i < 10; i++) {
+			redemptionService.commit(redemptionService.reserve("user-" + i, List.of("HOT")).id());
+		}
+		couponRepository.save(new Coupon("HOT", "熱門優惠", 10, 5, null));
+
+		assertEquals(0, redemptionService.remaining("HOT"));
+		assertThrows(CouponRedemptionLimitException.class, () -> redemptionService.reserve("late", List.of("HOT")));
+	}
+}
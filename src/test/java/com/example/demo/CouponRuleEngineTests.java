@@ -0,0 +1,185 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.exception.InvalidCouponRuleException;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponRule;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductsSavedEvent;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.CouponSelectionMode;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CouponRuleEngineTests {
+
+	private ProductRepository productRepository;
+	private CouponRepository couponRepository;
+	private CouponRuleEngine ruleEngine;
+	private CartService cartService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = new ProductRepository(new IndexedProductStore(), event -> {
+			if (event instanceof ProductsSavedEvent saved && ruleEngine != null) {
+				ruleEngine.onProductsSaved(saved);
+			}
+		});
+		couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode), event -> {
+			if (event instanceof CouponsSavedEvent saved && ruleEngine != null) {
+				ruleEngine.onCouponsSaved(saved);
+			}
+		});
+		productRepository.save(new Product("BOOK1", "小說", 300, "BOOK"));
+		productRepository.save(new Product("BOOK2", "食譜", 200, "BOOK"));
+		productRepository.save(new Product("TOY1", "積木", 500, "TOY"));
+		couponRepository.save(new Coupon("FLAT50", "折 50", 50));
+		couponRepository.save(Coupon.withRule("OFF10", "全館九折，最多折 100", 0, "percent=10;cap=100"));
+		couponRepository.save(Coupon.withRule("SPEND1000", "滿千折百", 100, "min=1000"));
+		couponRepository.save(Coupon.withRule("BOOK20", "書籍八折", 0, "categories=BOOK;percent=20"));
+		couponRepository.save(Coupon.withRule("TOY2GET1", "積木買二送一", 0, "products=TOY1;buy=2;free=1"));
+		couponRepository.save(Coupon.withRule("WELCOME_A", "新客折 80", 80, "group=WELCOME"));
+		couponRepository.save(Coupon.withRule("WELCOME_B", "新客折 120", 120, "group=WELCOME"));
+		ruleEngine = new CouponRuleEngine(productRepository, couponRepository);
+		cartService = new CartService(productRepository, couponRepository, new PricingMetrics(new SimpleMeterRegistry()),
+			PricingResultCache.disabled(), new CouponOptimizer(Duration.ofMillis(2)), ruleEngine);
+	}
+
+	@Test
+	void percentageDiscount_ShouldRespectCap() {
+		CalculationResultDto small = price(List.of(new CartItemInput("BOOK1", 1)), "OFF10");
+		assertEquals(30, small.totalDiscountAmount());
+
+		CalculationResultDto large = price(List.of(new CartItemInput("TOY1", 4)), "OFF10");
+		assertEquals(100, large.totalDiscountAmount());
+	}
+
+	@Test
+	void threshold_ShouldOnlyApplyWhenMet() {
+		CalculationResultDto below = price(List.of(new CartItemInput("TOY1", 1)), "SPEND1000", "FLAT50");
+		assertEquals(50, below.totalDiscountAmount());
+		assertEquals(List.of("FLAT50"), codes(below));
+
+		CalculationResultDto met = price(List.of(new CartItemInput("TOY1", 2)), "FLAT50", "SPEND1000");
+		assertEquals(150, met.totalDiscountAmount());
+		assertEquals(List.of("FLAT50", "SPEND1000"), codes(met));
+	}
+
+	@Test
+	void categoryScope_ShouldOnlyDiscountMatchingProductsAndFollowCategoryChanges() {
+		List<CartItemInput> items = List.of(new CartItemInput("BOOK1", 1), new CartItemInput("BOOK2", 1),
+			new CartItemInput("TOY1", 1));
+		assertEquals(100, price(items, "BOOK20").totalDiscountAmount());
+
+		productRepository.save(new Product("TOY1", "積木", 500, "BOOK"));
+		assertEquals(200, price(items, "BOOK20").totalDiscountAmount());
+	}
+
+	@Test
+	void buyXGetY_ShouldDiscountFreeUnitsPerLine() {
+		assertEquals(0, price(List.of(new CartItemInput("TOY1", 2)), "TOY2GET1").totalDiscountAmount());
+		assertEquals(1000, price(List.of(new CartItemInput("TOY1", 7)), "TOY2GET1").totalDiscountAmount());
+		// 同一產品分散在多行時以總數量計算
+		assertEquals(500, price(List.of(new CartItemInput("TOY1", 1), new CartItemInput("BOOK1", 1),
+			new CartItemInput("TOY1", 2)), "TOY2GET1").totalDiscountAmount());
+	}
+
+	@Test
+	void exclusiveGroup_ShouldKeepLargestDiscountOnly() {
+		CalculationResultDto result = price(List.of(new CartItemInput("TOY1", 1)), "WELCOME_A", "WELCOME_B", "FLAT50");
+
+		assertEquals(170, result.totalDiscountAmount());
+		assertEquals(List.of("WELCOME_B", "FLAT50"), codes(result));
+	}
+
+	@Test
+	void exclusiveGroupTie_ShouldKeepLowestCodeRegardlessOfOrder() {
+		couponRepository.save(Coupon.withRule("WELCOME_C", "新客折 120", 120, "group=WELCOME"));
+		List<CartItemInput> items = List.of(new CartItemInput("TOY1", 1));
+
+		assertEquals(List.of("WELCOME_B"), codes(price(items, "WELCOME_C", "WELCOME_B")));
+		assertEquals(List.of("WELCOME_B"), codes(price(items, "WELCOME_B", "WELCOME_C")));
+	}
+
+	@Test
+	void bestMode_ShouldUseCartDependentDiscounts() {
+		ShoppingCartInput cart = new ShoppingCartInput(List.of(new CartItemInput("TOY1", 3)),
+			List.of("FLAT50", "TOY2GET1", "SPEND1000"));
+
+		CalculationResultDto result = cartService.calculateCartPrice(cart, CouponSelectionMode.BEST);
+
+		assertEquals(650, result.totalDiscountAmount());
+		assertEquals(List.of("FLAT50", "TOY2GET1", "SPEND1000"), codes(result));
+	}
+
+	@Test
+	void bestModes_ShouldPickSmallerGroupMemberWhenLargestExceedsTotal() {
+		productRepository.save(new Product("PEN1", "鋼筆", 100, "STATIONERY"));
+		List<CartItemInput> items = List.of(new CartItemInput("PEN1", 1));
+
+		CalculationResultDto best = cartService.calculateCartPrice(
+			new ShoppingCartInput(items, List.of("WELCOME_B", "WELCOME_A")), CouponSelectionMode.BEST);
+		assertEquals(80, best.totalDiscountAmount());
+		assertEquals(List.of("WELCOME_A"), codes(best));
+
+		// 候選券由反向索引取得：FLAT50、OFF10 與 WELCOME_A 的門檻都不超過 100
+		CalculationResultDto bestAll = cartService.calculateCartPrice(
+			new ShoppingCartInput(items, List.of()), CouponSelectionMode.BEST_ALL);
+		assertEquals(90, bestAll.totalDiscountAmount());
+		assertEquals(List.of("WELCOME_A", "OFF10"), codes(bestAll));
+	}
+
+	@Test
+	void couponRuleChange_ShouldUpdatePlanIncrementally() {
+		List<CartItemInput> items = List.of(new CartItemInput("BOOK1", 1));
+		assertEquals(60, price(items, "BOOK20").totalDiscountAmount());
+
+		couponRepository.save(Coupon.withRule("BOOK20", "玩具八折", 0, "categories=TOY;percent=20"));
+		assertTrue(price(items, "BOOK20").appliedCoupons().isEmpty());
+		// 新出現的分類要載入既有產品
+		assertEquals(100, price(List.of(new CartItemInput("TOY1", 1)), "BOOK20").totalDiscountAmount());
+
+		// 不再被引用的分類在重新引用後仍能找到之後寫入的產品
+		productRepository.save(new Product("BOOK3", "詩集", 400, "BOOK"));
+		couponRepository.save(Coupon.withRule("BOOK10", "書籍九折", 0, "categories=BOOK;percent=10"));
+		assertEquals(40, price(List.of(new CartItemInput("BOOK3", 1)), "BOOK10").totalDiscountAmount());
+	}
+
+	@Test
+	void parse_ShouldRejectInvalidRulesAndRoundTrip() {
+		assertThrows(InvalidCouponRuleException.class, () -> CouponRule.parse("percent=0"));
+		assertThrows(InvalidCouponRuleException.class, () -> CouponRule.parse("buy=2"));
+		assertThrows(InvalidCouponRuleException.class, () -> CouponRule.parse("discount=10"));
+		assertThrows(InvalidCouponRuleException.class, () -> CouponRule.parse("percent=10;buy=1;free=1"));
+
+		CouponRule rule = CouponRule.parse("categories=BOOK,TOY; percent=15; cap=300; group=A");
+		assertEquals(rule, CouponRule.parse(rule.toSpec()));
+	}
+
+	private CalculationResultDto price(List<CartItemInput> items, String... couponCodes) {
+		return cartService.calculateCartPrice(new ShoppingCartInput(items, List.of(couponCodes)));
+	}
+
+	private static List<String> codes(CalculationResultDto result) {
+		return result.appliedCoupons().stream().map(Coupon::getCode).toList();
+	}
+}
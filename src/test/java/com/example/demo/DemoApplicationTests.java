@@ -1,11 +1,15 @@
 package com.example.demo;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.ByteArrayInputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,16 +19,24 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.example.demo.dto.ApplicableCouponDto;
+import com.example.demo.dto.BatchCalculationResultDto;
 import com.example.demo.dto.CalculationResultDto;
 import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.CompactCalculationResultDto;
 import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.exception.PriceOverflowException;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.Product;
 import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.CouponsSavedEvent;
 import com.example.demo.repository.ProductRepository;
 import com.example.demo.service.CartService;
+import com.example.demo.view.CheckoutPageRenderer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -36,6 +48,9 @@ class DemoApplicationTests {
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	@Autowired
+	private CheckoutPageRenderer checkoutPageRenderer;
+
 	@MockitoBean
 	private CartService cartService;
 
@@ -69,15 +84,39 @@ class DemoApplicationTests {
 
 	@Test
 	void viewCartPage_ShouldReturnCheckoutView() throws Exception {
+		when(cartService.findApplicableCoupons(any(ShoppingCartInput.class), anyInt()))
+			.thenReturn(List.of(new ApplicableCouponDto(coupon1, 50)));
+		// 清除先前請求留下的頁面片段快取
+		checkoutPageRenderer.onCouponsSaved(new CouponsSavedEvent(List.of("C001")));
+
 		mockMvc.perform(get("/cart"))
 			.andExpect(status().isOk())
-			.andExpect(view().name("checkout"))
-			.andExpect(model().attributeExists("allProducts"))
-			.andExpect(model().attributeExists("allCoupons"))
-			.andExpect(model().attributeExists("initialFixedCartItemsForDisplay"));
+			.andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_HTML))
+			.andExpect(header().exists("ETag"))
+			.andExpect(content().string(containsString("測試商品1")))
+			.andExpect(content().string(containsString("coupon-C001")));
+
+		// 頁面只列出可套用在初始購物車上的優惠券，不載入所有優惠券
+		verify(cartService).findApplicableCoupons(any(ShoppingCartInput.class), anyInt());
+		verify(couponRepository, never()).findAll();
+	}
 
-		verify(productRepository).findAll();
-		verify(couponRepository).findAll();
+	@Test
+	void viewCartPage_ShouldSupportEtagAndGzip() throws Exception {
+		MvcResult plain = mockMvc.perform(get("/cart")).andExpect(status().isOk()).andReturn();
+		String etag = plain.getResponse().getHeader("ETag");
+
+		mockMvc.perform(get("/cart").header("If-None-Match", etag))
+			.andExpect(status().isNotModified());
+
+		MvcResult gzip = mockMvc.perform(get("/cart").header("Accept-Encoding", "gzip, deflate"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("Content-Encoding", "gzip"))
+			.andReturn();
+		byte[] unzipped = new GZIPInputStream(new ByteArrayInputStream(gzip.getResponse().getContentAsByteArray()))
+			.readAllBytes();
+		assertArrayEquals(plain.getResponse().getContentAsByteArray(), unzipped);
+		assertNotEquals(etag, gzip.getResponse().getHeader("ETag"));
 	}
 
 	@Test
@@ -111,6 +150,36 @@ class DemoApplicationTests {
 		verify(cartService).calculateCartPrice(input);
 	}
 
+	@Test
+	void calculateCart_WithCborAndCompact_ShouldReturnCouponCodesOnly() throws Exception {
+		ShoppingCartInput input = new ShoppingCartInput(List.of(new CartItemInput("P001", 2)), List.of("C001"));
+		when(cartService.calculateCartPrice(input)).thenReturn(new CalculationResultDto(200, 150, 50, List.of(coupon1)));
+		CBORMapper cborMapper = new CBORMapper();
+
+		byte[] response = mockMvc.perform(post("/cart/calculate").param("compact", "true")
+				.contentType("application/cbor")
+				.accept("application/cbor")
+				.content(cborMapper.writeValueAsBytes(input)))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith("application/cbor"))
+			.andReturn().getResponse().getContentAsByteArray();
+
+		CompactCalculationResultDto result = cborMapper.readValue(response, CompactCalculationResultDto.class);
+		assertEquals(new CompactCalculationResultDto(200, 150, 50, List.of("C001")), result);
+	}
+
+	@Test
+	void calculateCart_WhenPriceOverflows_ShouldReturnBadRequest() throws Exception {
+		ShoppingCartInput input = new ShoppingCartInput(List.of(new CartItemInput("P001", Integer.MAX_VALUE)), List.of());
+		when(cartService.calculateCartPrice(input)).thenThrow(new PriceOverflowException("購物車金額超出可計算範圍"));
+
+		mockMvc.perform(post("/cart/calculate")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(input)))
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message").value("購物車金額超出可計算範圍"));
+	}
+
 	@Test
 	void calculateCart_WithNullInput_ShouldReturnBadRequest() throws Exception {
 		mockMvc.perform(post("/cart/calculate")
@@ -118,4 +187,50 @@ class DemoApplicationTests {
 				.content("null"))
 			.andExpect(status().isBadRequest());
 	}
+
+	@Test
+	void calculateCartBatch_ShouldReturnPerCartResults() throws Exception {
+		ShoppingCartInput okCart = new ShoppingCartInput(
+			Arrays.asList(new CartItemInput("P001", 1)), Arrays.asList("C001"));
+		ShoppingCartInput failingCart = new ShoppingCartInput(
+			Arrays.asList(new CartItemInput("P002", 1)), Arrays.asList("C001", "C001"));
+		List<ShoppingCartInput> inputs = Arrays.asList(okCart, failingCart);
+
+		when(cartService.calculateCartPrices(inputs)).thenReturn(Arrays.asList(
+			BatchCalculationResultDto.success(0, new CalculationResultDto(100, 50, 50, Arrays.asList(coupon1))),
+			BatchCalculationResultDto.failure(1, "所選優惠券總折價已達上限，無法套用更多優惠券")
+		));
+
+		mockMvc.perform(post("/cart/calculate/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(inputs)))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].index").value(0))
+			.andExpect(jsonPath("$[0].result.discountedTotal").value(50))
+			.andExpect(jsonPath("$[1].index").value(1))
+			.andExpect(jsonPath("$[1].error").value("所選優惠券總折價已達上限，無法套用更多優惠券"));
+
+		verify(cartService).calculateCartPrices(inputs);
+	}
+
+	@Test
+	void calculateCartStream_ShouldWriteOneResultLinePerCart() throws Exception {
+		ShoppingCartInput cart = new ShoppingCartInput(
+			Arrays.asList(new CartItemInput("P001", 1)), Arrays.asList("C001"));
+		when(cartService.calculateCartPrices(Arrays.asList(cart, cart))).thenReturn(Arrays.asList(
+			BatchCalculationResultDto.success(0, new CalculationResultDto(100, 50, 50, Arrays.asList(coupon1))),
+			BatchCalculationResultDto.success(1, new CalculationResultDto(100, 50, 50, Arrays.asList(coupon1)))
+		));
+
+		String line = objectMapper.writeValueAsString(cart);
+		String body = mockMvc.perform(post("/cart/calculate/stream")
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.content(line + "\n\n" + line + "\n"))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString();
+
+		String[] lines = body.strip().split("\n");
+		assertEquals(2, lines.length);
+		assertEquals(1, objectMapper.readTree(lines[1]).get("index").asInt());
+	}
 }
@@ -0,0 +1,111 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.exception.CouponRedemptionLimitException;
+import com.example.demo.model.Coupon;
+import com.example.demo.quota.InMemoryQuotaBackend;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.service.CouponRedemptionService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 以多個 {@link CouponRedemptionService} 共用一個 {@link InMemoryQuotaBackend} 模擬多節點部署。
+ */
+class MultiNodeQuotaTests {
+
+	private static final int NODES = 4;
+
+	private InMemoryQuotaBackend backend;
+	private CouponRedemptionService[] nodes;
+
+	@BeforeEach
+	void setUp() {
+		backend = new InMemoryQuotaBackend(Duration.ofMillis(1));
+		nodes = new CouponRedemptionService[NODES];
+		for (int i = 0; i < NODES; i++) {
+			CouponRepository couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode));
+			couponRepository.save(new Coupon("HOT", "熱門優惠", 10, 1000, null));
+			couponRepository.save(new Coupon("ONCE", "每人一次", 10, null, 1));
+			nodes[i] = new CouponRedemptionService(couponRepository, backend, Duration.ofMinutes(5), 4, 64,
+				new SimpleMeterRegistry());
+		}
+	}
+
+	@Test
+	void nodesSharingBackend_ShouldRedeemExactlyTheLimit() throws Exception {
+		AtomicInteger succeeded = new AtomicInteger();
+		runConcurrently(8000, attempt -> {
+			CouponRedemptionService node = nodes[attempt % NODES];
+			node.commit(node.reserve("user-" + attempt, List.of("HOT")).id());
+			succeeded.incrementAndGet();
+		});
+
+		assertEquals(1000, succeeded.get());
+		long committed = 0;
+		for (CouponRedemptionService node : nodes) {
+			committed += node.committedCount("HOT");
+		}
+		assertEquals(1000, committed);
+		// 熱路徑在本地：後端呼叫次數遠少於使用次數
+		assertTrue(backend.calls() < 1000 / 4, "backend calls: " + backend.calls());
+	}
+
+	@Test
+	void perUserLimit_ShouldHoldAcrossNodes() throws Exception {
+		AtomicInteger succeeded = new AtomicInteger();
+		runConcurrently(400, attempt -> {
+			CouponRedemptionService node = nodes[attempt % NODES];
+			node.commit(node.reserve("alice", List.of("ONCE")).id());
+			succeeded.incrementAndGet();
+		});
+
+		assertEquals(1, succeeded.get());
+	}
+
+	@Test
+	void returnedLeases_ShouldBeAvailableToOtherNodes() {
+		for (int i = 0; i < 10; i++) {
+			nodes[0].commit(nodes[0].reserve("user-" + i, List.of("HOT")).id());
+		}
+		nodes[0].returnLeases();
+
+		assertEquals(990, backend.unallocated("HOT", 1000));
+	}
+
+	private void runConcurrently(int attempts, Attempt attempt) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < attempts; i++) {
+				int index = i;
+				executor.submit(() -> {
+					start.await();
+					try {
+						attempt.run(index);
+					} catch (CouponRedemptionLimitException ex) {
+						// 預期：額度用完後的請求被拒絕
+					}
+					return null;
+				});
+			}
+			start.countDown();
+		}
+	}
+
+	@FunctionalInterface
+	private interface Attempt {
+		void run(int index);
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.PricingLogProperties;
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.exception.TotalDiscountExceededException;
+import com.example.demo.logging.PricingEventLogger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PricingEventLoggerTests {
+
+	private final ShoppingCartInput cart = new ShoppingCartInput(List.of(new CartItemInput("P001", 1)), List.of());
+	private final CalculationResultDto result = new CalculationResultDto(100, 100, 0, List.of());
+
+	@Test
+	void slowOrFailedOnly_ShouldSkipFastSuccessAndKeepFailures() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		// 緩衝區只有 1 格且不啟動寫出執行緒：第一個被接受的事件之後都會被丟棄
+		PricingEventLogger logger = new PricingEventLogger(
+			new PricingLogProperties(true, 1.0, true, Duration.ofSeconds(1), 1), new ObjectMapper(), registry);
+
+		logger.success("/cart/calculate", cart, result, 1_000);
+		assertEquals(0, logger.droppedEvents());
+
+		logger.failure("/cart/calculate", cart, new TotalDiscountExceededException("超額"), 1_000);
+		logger.success("/cart/calculate", cart, result, Duration.ofSeconds(2).toNanos());
+		assertEquals(1, logger.droppedEvents());
+		assertEquals(1.0, registry.get("demo.pricing.log.dropped").functionCounter().count());
+	}
+
+	@Test
+	void disabled_ShouldRecordNothing() {
+		PricingEventLogger logger = new PricingEventLogger(
+			new PricingLogProperties(false, 1.0, false, Duration.ZERO, 1), new ObjectMapper(), new SimpleMeterRegistry());
+
+		logger.success("/cart/calculate", cart, result, 1_000);
+		logger.failure("/cart/calculate", cart, new IllegalStateException(), 1_000);
+		logger.failure("/cart/calculate", cart, new IllegalStateException(), 1_000);
+		assertEquals(0, logger.droppedEvents());
+	}
+}
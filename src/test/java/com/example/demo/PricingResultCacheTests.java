@@ -0,0 +1,97 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.metrics.PricingMetrics;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CouponRepository;
+import com.example.demo.repository.CouponsSavedEvent;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductsSavedEvent;
+import com.example.demo.repository.store.InMemoryEntityStore;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponOptimizer;
+import com.example.demo.service.CouponRuleEngine;
+import com.example.demo.service.PricingResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PricingResultCacheTests {
+
+	private SimpleMeterRegistry registry;
+	private PricingResultCache cache;
+	private ProductRepository productRepository;
+	private CouponRepository couponRepository;
+	private CartService cartService;
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+		cache = new PricingResultCache(1L << 20, Duration.ofMinutes(10), registry);
+		productRepository = new ProductRepository(new IndexedProductStore(), event -> {
+			if (event instanceof ProductsSavedEvent saved) {
+				cache.onProductsSaved(saved);
+			}
+		});
+		couponRepository = new CouponRepository(new InMemoryEntityStore<>(Coupon::getCode), event -> {
+			if (event instanceof CouponsSavedEvent saved) {
+				cache.onCouponsSaved(saved);
+			}
+		});
+		productRepository.save(new Product("P001", "測試商品1", 100));
+		productRepository.save(new Product("P002", "測試商品2", 200));
+		couponRepository.save(new Coupon("C010", "折 10", 10));
+		couponRepository.save(new Coupon("C020", "折 20", 20));
+		cartService = new CartService(productRepository, couponRepository, new PricingMetrics(registry), cache, new CouponOptimizer(Duration.ofMillis(2)),
+			new CouponRuleEngine(productRepository, couponRepository));
+	}
+
+	@Test
+	void reorderedCart_ShouldHitCacheAndKeepRequestedCouponOrder() {
+		CalculationResultDto first = cartService.calculateCartPrice(new ShoppingCartInput(
+			List.of(new CartItemInput("P001", 1), new CartItemInput("P002", 2)), List.of("C020", "C010")));
+		CalculationResultDto second = cartService.calculateCartPrice(new ShoppingCartInput(
+			List.of(new CartItemInput("P002", 2), new CartItemInput("P001", 1)), List.of("C010", "C020")));
+
+		assertEquals(1, cache.size());
+		assertEquals(1.0, registry.get("cache.gets").tag("cache", "pricing").tag("result", "hit").functionCounter().count());
+		assertEquals(470, first.discountedTotal());
+		assertEquals(first.discountedTotal(), second.discountedTotal());
+		assertEquals("C020", first.appliedCoupons().get(0).getCode());
+		assertEquals("C010", second.appliedCoupons().get(0).getCode());
+	}
+
+	@Test
+	void savingReferencedProduct_ShouldInvalidateOnlyAffectedResults() {
+		ShoppingCartInput cartWithP001 = new ShoppingCartInput(List.of(new CartItemInput("P001", 1)), List.of());
+		ShoppingCartInput cartWithP002 = new ShoppingCartInput(List.of(new CartItemInput("P002", 1)), List.of());
+		cartService.calculateCartPrice(cartWithP001);
+		cartService.calculateCartPrice(cartWithP002);
+
+		productRepository.save(new Product("P001", "測試商品1", 150));
+
+		assertEquals(1, cache.size());
+		assertEquals(150, cartService.calculateCartPrice(cartWithP001).originalTotal());
+	}
+
+	@Test
+	void savingPreviouslyUnknownCoupon_ShouldInvalidateResultsThatReferencedIt() {
+		ShoppingCartInput cart = new ShoppingCartInput(List.of(new CartItemInput("P001", 1)), List.of("C050"));
+		assertEquals(100, cartService.calculateCartPrice(cart).discountedTotal());
+
+		couponRepository.save(new Coupon("C050", "折 50", 50));
+
+		assertEquals(50, cartService.calculateCartPrice(cart).discountedTotal());
+	}
+}
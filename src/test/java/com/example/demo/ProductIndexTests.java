@@ -0,0 +1,116 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.store.IndexedProductStore;
+import com.example.demo.repository.store.PriceCatalog;
+import com.example.demo.repository.store.ProductIndex;
+import com.example.demo.repository.store.ProductStore;
+
+class ProductIndexTests {
+
+	@Test
+	void ordinalOf_ShouldProbePastCollisionsAndMissCleanly() {
+		List<Product> products = new ArrayList<>();
+		// "Aa" 與 "BB"、"AaAa" 與 "BBBB" 的 hashCode 相同，必定落在同一格而需要線性探測
+		for (String id : List.of("Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa")) {
+			products.add(new Product(id, id, id.length()));
+		}
+		for (int i = 0; i < 1000; i++) {
+			products.add(new Product("P" + i, "商品 " + i, i));
+		}
+
+		ProductIndex index = ProductIndex.of(products);
+
+		assertEquals(1006, index.size());
+		for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+			Product product = products.get(ordinal);
+			assertEquals(ordinal, index.ordinalOf(product.getId()));
+			assertEquals(product.getPrice().longValue(), index.priceAt(ordinal));
+		}
+		// 查不到的 ID，包括與現有 ID 雜湊值相同者 ("C#" 與 "Aa" 相同)
+		assertEquals("Aa".hashCode(), "C#".hashCode());
+		assertEquals(-1, index.ordinalOf("C#"));
+		assertEquals(-1, index.ordinalOf("P1000"));
+		assertEquals(-1, index.ordinalOf(null));
+		assertEquals(ProductStore.NOT_FOUND, index.priceOf("missing"));
+		assertEquals(-1, ProductIndex.of(List.of()).ordinalOf("Aa"));
+	}
+
+	@Test
+	void withAll_ShouldKeepLastDuplicateInBatchAndReuseOrdinalsOnUpdate() {
+		ProductIndex index = ProductIndex.of(List.of(
+			new Product("P1", "第一版", 100),
+			new Product("P2", "二", 200),
+			new Product("P1", "第二版", 150, "BOOK")));
+
+		assertEquals(2, index.size());
+		assertEquals(0, index.ordinalOf("P1"));
+		assertEquals(150, index.priceOf("P1"));
+		assertEquals("第二版", index.productAt(0).getName());
+		assertEquals("BOOK", index.productAt(0).getCategory());
+
+		ProductIndex updated = index.withAll(List.of(new Product("P2", "二", 250), new Product("P3", "三", 300),
+			new Product("P3", "三", 330)));
+
+		// 只改價的產品沿用原本的序號，新產品接在後面；原索引不變
+		assertEquals(1, updated.ordinalOf("P2"));
+		assertEquals(2, updated.ordinalOf("P3"));
+		assertEquals(3, updated.size());
+		assertEquals(250, updated.priceOf("P2"));
+		assertEquals(330, updated.priceOf("P3"));
+		assertEquals(200, index.priceOf("P2"));
+		assertEquals(-1, index.ordinalOf("P3"));
+
+		ProductIndex priceOnly = updated.with(new Product("P1", "第二版", 120, "BOOK"));
+		assertEquals(0, priceOnly.ordinalOf("P1"));
+		assertSame(updated.idAt(0), priceOnly.idAt(0));
+		assertEquals(120, priceOnly.priceOf("P1"));
+		assertEquals(3, priceOnly.size());
+	}
+
+	@Test
+	void store_ShouldBufferSingleSavesInOverlayAndMergeAtThreshold() {
+		IndexedProductStore store = new IndexedProductStore(4);
+		store.replaceAll(List.of(new Product("P1", "一", 100), new Product("P2", "二", 200)));
+
+		store.save(new Product("P1", "一", 110));
+		store.save(new Product("P3", "三", 300));
+		PriceCatalog catalog = store.priceCatalog();
+		assertEquals(110, catalog.priceOf("P1"));
+		assertEquals(200, catalog.priceOf("P2"));
+		assertEquals(300, catalog.priceOf("P3"));
+		assertEquals(3, store.count());
+		// 走訪順序與合併後的索引相同：既有產品維持原序號，新產品接在後面
+		assertEquals(List.of("P1", "P2", "P3"), store.findAll().stream().map(Product::getId).toList());
+		assertEquals(110, store.find("P1").getPrice());
+
+		store.saveAll(List.of(new Product("P4", "四", 400), new Product("P2", "二", 220)));
+		assertInstanceOf(ProductIndex.class, store.priceCatalog());
+		assertEquals(List.of("P1", "P2", "P3", "P4"), store.findAll().stream().map(Product::getId).toList());
+		assertEquals(220, store.priceOf("P2"));
+		assertEquals(4, store.count());
+		// 舊版本的目錄不受之後的寫入影響
+		assertEquals(200, catalog.priceOf("P2"));
+	}
+
+	@Test
+	void nullPrice_ShouldBeRejectedWithoutChangingTheStore() {
+		IndexedProductStore store = new IndexedProductStore();
+		store.save(new Product("P1", "一", 100));
+
+		assertThrows(IllegalArgumentException.class,
+			() -> store.saveAll(List.of(new Product("P2", "二", 200), new Product("P3", "無價", null))));
+		assertThrows(IllegalArgumentException.class, () -> store.save(new Product(null, "無 ID", 10)));
+
+		assertEquals(1, store.count());
+		assertNull(store.find("P2"));
+		assertEquals(100, store.priceOf("P1"));
+	}
+}
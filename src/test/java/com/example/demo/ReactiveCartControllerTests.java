@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.demo.dto.CalculationResultDto;
+import com.example.demo.dto.CartItemInput;
+import com.example.demo.dto.ShoppingCartInput;
+import com.example.demo.service.CartService;
+import com.example.demo.service.CouponSelectionMode;
+import com.example.demo.service.ReactiveCartService;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * 以反應式模式啟動，確認 WebFlux API 與 MVC 使用的 {@link CartService} 計價結果一致。
+ */
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+class ReactiveCartControllerTests {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private ReactiveCartService reactiveCartService;
+
+	private final ShoppingCartInput cart = new ShoppingCartInput(
+		Arrays.asList(new CartItemInput("P001", 1), new CartItemInput("P002", 2)),
+		Arrays.asList("SAVE100"));
+
+	@Test
+	void calculateCart_ShouldMatchBlockingCartService() {
+		CalculationResultDto expected = cartService.calculateCartPrice(cart);
+
+		webTestClient.post().uri("/cart/calculate")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(cart)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.originalTotal").isEqualTo(expected.originalTotal())
+			.jsonPath("$.discountedTotal").isEqualTo(expected.discountedTotal())
+			.jsonPath("$.appliedCoupons[0].code").isEqualTo("SAVE100");
+	}
+
+	@Test
+	void calculateCart_WithDiscountExceedingTotal_ShouldReturnBadRequest() {
+		ShoppingCartInput overDiscounted = new ShoppingCartInput(
+			List.of(new CartItemInput("P002", 1)), List.of("SAVE500"));
+
+		webTestClient.post().uri("/cart/calculate")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(overDiscounted)
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void calculateCart_WithBestMode_ShouldMatchBlockingCartService() {
+		ShoppingCartInput overDiscounted = new ShoppingCartInput(
+			List.of(new CartItemInput("P002", 1)), List.of("SAVE500", "SAVE100"));
+		CalculationResultDto expected = cartService.calculateCartPrice(overDiscounted, CouponSelectionMode.BEST);
+
+		webTestClient.post().uri("/cart/calculate?mode=best")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(overDiscounted)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.discountedTotal").isEqualTo(expected.discountedTotal())
+			.jsonPath("$.appliedCoupons.length()").isEqualTo(expected.appliedCoupons().size());
+	}
+
+	@Test
+	void calculateCart_WithUnknownMode_ShouldReturnBadRequest() {
+		webTestClient.post().uri("/cart/calculate?mode=cheapest")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(cart)
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void calculateCartPrices_ShouldKeepInputOrderAndGlobalIndex() {
+		StepVerifier.create(reactiveCartService.calculateCartPrices(Flux.range(0, 600).map(i -> cart)))
+			.expectNextCount(599)
+			.assertNext(last -> {
+				assertEquals(599, last.index());
+				assertEquals(cartService.calculateCartPrice(cart), last.result());
+			})
+			.verifyComplete();
+	}
+}